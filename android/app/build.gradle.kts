@@ -45,6 +45,20 @@ android {
     kotlinOptions {
         jvmTarget = "11"
     }
+
+    testOptions {
+        // Benchmark (@Category(Benchmark.class)) không chạy cùng unit test.
+        // Chạy riêng: ./gradlew testDebugUnitTest -Pbenchmark (thời gian từng method xem trong báo cáo test)
+        unitTests.all {
+            it.useJUnit {
+                if (project.hasProperty("benchmark")) {
+                    includeCategories("com.test.lifehub.Benchmark")
+                } else {
+                    excludeCategories("com.test.lifehub.Benchmark")
+                }
+            }
+        }
+    }
 }
 
 dependencies {
@@ -75,6 +89,21 @@ dependencies {
     implementation(libs.swiperefreshlayout)
     kapt(libs.google.dagger.hilt.compiler)
 
+    // PAGING 3 (danh sách Notes / Tasks tải theo trang)
+    implementation(libs.paging.runtime)
+    implementation(libs.paging.guava)
+
+    // ROOM (LocalMirror - bản sao offline của các collection Firestore)
+    implementation(libs.room.runtime)
+    kapt(libs.room.compiler)
+
+    // TRACING (StartupTracer - section khởi động xem trong Perfetto / System Trace)
+    implementation(libs.tracing)
+
+    // FIRESTORE CODEC (sinh Map <-> object cho model, thay toObject() dùng reflection)
+    compileOnly(project(":codec-processor"))
+    kapt(project(":codec-processor"))
+
     // Testing
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
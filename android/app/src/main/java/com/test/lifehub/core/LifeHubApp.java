@@ -14,11 +14,17 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatDelegate;
 
 import com.test.lifehub.core.security.EncryptionManager;
+import com.test.lifehub.core.security.PasscodeRateLimiter;
 import com.test.lifehub.core.util.LocaleHelper;
 import com.test.lifehub.core.util.SessionManager;
+import com.test.lifehub.core.util.StartupTracer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.inject.Inject;
 
+import dagger.Lazy;
 import dagger.hilt.android.HiltAndroidApp;
 
 /**
@@ -27,6 +33,13 @@ import dagger.hilt.android.HiltAndroidApp;
  * Quản lý:
  * 1. Theme & Ngôn ngữ
  * 2. Tự động khóa app khi ẩn xuống background (Auto-lock)
+ * 3. Khởi động song song (bootstrap): các singleton tạo EncryptedSharedPreferences
+ *    (MasterKey trong Keystore - chậm) được tạo trên background thread, song song với nhau
+ *    và với việc inflate màn hình đầu tiên; user document được đọc trước (prefetch).
+ *    Activity inject sau đó nhận lại đúng instance (Dagger singleton thread-safe),
+ *    nếu bootstrap chưa xong thì chỉ chờ phần còn lại, không tạo lại.
+ *
+ * Thời gian từng bước: StartupTracer (androidx.tracing + report trong Logcat).
  */
 @HiltAndroidApp
 public class LifeHubApp extends Application implements Application.ActivityLifecycleCallbacks {
@@ -34,29 +47,74 @@ public class LifeHubApp extends Application implements Application.ActivityLifec
     private static final String TAG = "LifeHubApp";
     private static final long AUTO_LOCK_TIMEOUT = 60 * 1000; // 1 phút (60 giây)
 
+    // Lazy: KHÔNG tạo trên main thread trong onCreate (xem bootstrap())
+    @Inject
+    Lazy<EncryptionManager> encryptionManager;
+
     @Inject
-    EncryptionManager encryptionManager;
+    Lazy<SessionManager> sessionManager;
+
+    @Inject
+    Lazy<PasscodeRateLimiter> passcodeRateLimiter;
 
     private int activityCount = 0;
     private long backgroundTimestamp = 0;
 
     @Override
     public void onCreate() {
-        super.onCreate();
-        registerActivityLifecycleCallbacks(this);
+        StartupTracer.markProcessStart();
+        StartupTracer.beginSection("LifeHubApp.onCreate");
+        try {
+            super.onCreate();
+            registerActivityLifecycleCallbacks(this);
+
+            // Tạo singleton nặng + đọc user document song song, không chặn main thread
+            bootstrap();
+
+            // Luôn mặc định Theme sáng
+            AppCompatDelegate.setDefaultNightMode(AppCompatDelegate.MODE_NIGHT_NO);
+
+            // Áp dụng ngôn ngữ
+            StartupTracer.beginSection("LifeHubApp.locale");
+            String language = LocaleHelper.getLanguage(this);
+            LocaleHelper.setLocale(this, language);
+            StartupTracer.endSection();
+
+            // BẢO MẬT: Tự động khóa khi tắt màn hình
+            registerScreenOffReceiver();
+        } finally {
+            StartupTracer.endSection();
+        }
+    }
 
-        // Khởi tạo các cấu hình cơ bản
-        SessionManager sessionManager = new SessionManager(this);
-        
-        // Luôn mặc định Theme sáng
-        AppCompatDelegate.setDefaultNightMode(AppCompatDelegate.MODE_NIGHT_NO);
-        
-        // Áp dụng ngôn ngữ
-        String language = LocaleHelper.getLanguage(this);
-        LocaleHelper.setLocale(this, language);
-        
-        // BẢO MẬT: Tự động khóa khi tắt màn hình
-        registerScreenOffReceiver();
+    /**
+     * Các bước khởi động độc lập chạy song song trên pool tạm (tự tắt khi xong):
+     * - EncryptionManager (kéo theo EncryptionHelper: EncryptedSharedPreferences) + prefetch user document
+     * - SessionManager (EncryptedSharedPreferences - màn hình đầu tiên nào cũng inject)
+     * - PasscodeRateLimiter (EncryptedSharedPreferences - MasterPasswordActivity)
+     */
+    private void bootstrap() {
+        ExecutorService pool = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "lifehub-bootstrap");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.execute(() -> {
+            StartupTracer.Step step = StartupTracer.beginStep("Bootstrap.EncryptionManager");
+            encryptionManager.get().prefetchUserDocument();
+            step.end();
+        });
+        pool.execute(() -> {
+            StartupTracer.Step step = StartupTracer.beginStep("Bootstrap.SessionManager");
+            sessionManager.get();
+            step.end();
+        });
+        pool.execute(() -> {
+            StartupTracer.Step step = StartupTracer.beginStep("Bootstrap.PasscodeRateLimiter");
+            passcodeRateLimiter.get();
+            step.end();
+        });
+        pool.shutdown();
     }
     
     /**
@@ -70,7 +128,7 @@ public class LifeHubApp extends Application implements Application.ActivityLifec
                 if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
                     Log.d(TAG, "Screen turned off, locking encryption immediately");
                     if (encryptionManager != null) {
-                        encryptionManager.lock();
+                        encryptionManager.get().lock();
                     }
                 }
             }
@@ -79,8 +137,10 @@ public class LifeHubApp extends Application implements Application.ActivityLifec
 
     @Override
     protected void attachBaseContext(Context base) {
+        StartupTracer.beginSection("LifeHubApp.attachBaseContext");
         String language = LocaleHelper.getLanguage(base);
         super.attachBaseContext(LocaleHelper.setLocale(base, language));
+        StartupTracer.endSection();
     }
 
     // --- Activity Lifecycle Callbacks cho Auto-lock ---
@@ -97,7 +157,7 @@ public class LifeHubApp extends Application implements Application.ActivityLifec
             // Nếu quá thời gian timeout, thực hiện khóa encryption
             if (timeInBackground > AUTO_LOCK_TIMEOUT) {
                 Log.d(TAG, "Auto-lock timeout exceeded, locking encryption");
-                encryptionManager.lock();
+                encryptionManager.get().lock();
             }
             
             backgroundTimestamp = 0; // Reset
@@ -0,0 +1,103 @@
+package com.test.lifehub.core.codec;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CodecSupport - Hàm chuyển kiểu dùng chung cho các codec được sinh tự động
+ *
+ * getData() trả về giá trị thô của Firestore: String, Long, Double, Boolean,
+ * Timestamp, Map, List. Các hàm asX() chuyển sang kiểu của model và "dễ tính"
+ * hơn CustomClassMapper: sai kiểu thì trả về giá trị mặc định thay vì ném exception.
+ */
+public final class CodecSupport {
+
+    private CodecSupport() {}
+
+    // ===== DECODE TIỆN DỤNG =====
+
+    /**
+     * Decode 1 DocumentSnapshot (thay cho snapshot.toObject(...))
+     *
+     * @return null nếu document không tồn tại
+     */
+    @Nullable
+    public static <T> T decode(DocumentCodec<T> codec, DocumentSnapshot snapshot) {
+        Map<String, Object> data = snapshot.getData();
+        if (data == null) return null;
+        return codec.fromMap(snapshot.getId(), data);
+    }
+
+    /**
+     * Decode toàn bộ QuerySnapshot (thay cho snapshot.toObjects(...) + gán documentId)
+     */
+    public static <T> List<T> decodeAll(DocumentCodec<T> codec, QuerySnapshot snapshot) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        List<T> result = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            T item = decode(codec, document);
+            if (item != null) result.add(item);
+        }
+        return result;
+    }
+
+    // ===== CHUYỂN KIỂU (dùng trong code sinh tự động) =====
+
+    public static String asString(Object value) {
+        return value instanceof String ? (String) value : value != null ? value.toString() : null;
+    }
+
+    public static Date asDate(Object value) {
+        if (value instanceof Timestamp) return ((Timestamp) value).toDate();
+        if (value instanceof Date) return (Date) value;
+        return null;
+    }
+
+    public static Timestamp asTimestamp(Object value) {
+        if (value instanceof Timestamp) return (Timestamp) value;
+        if (value instanceof Date) return new Timestamp((Date) value);
+        return null;
+    }
+
+    public static int asInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    public static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    public static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0d;
+    }
+
+    public static boolean asBoolean(Object value) {
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> Map<K, V> asMap(Object value) {
+        return value instanceof Map ? (Map<K, V>) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> List<E> asList(Object value) {
+        return value instanceof List ? (List<E>) value : null;
+    }
+
+    /**
+     * Giống hành vi @ServerTimestamp của CustomClassMapper: null -> để server gán thời gian
+     */
+    public static Object orServerTimestamp(Object value) {
+        return value != null ? value : FieldValue.serverTimestamp();
+    }
+}
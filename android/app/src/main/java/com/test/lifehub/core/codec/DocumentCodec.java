@@ -0,0 +1,26 @@
+package com.test.lifehub.core.codec;
+
+import java.util.Map;
+
+/**
+ * Codec Map <-> object cho 1 model Firestore, không dùng reflection
+ *
+ * Implementation được sinh tự động (FirestoreCodecProcessor) cho các class có
+ * @FirestoreCodec, ví dụ AccountEntryCodec.INSTANCE.
+ *
+ * @param <T> Kiểu model
+ */
+public interface DocumentCodec<T> {
+
+    /**
+     * @param documentId ID của document (gán vào thuộc tính documentId của model)
+     * @param data Kết quả DocumentSnapshot.getData()
+     */
+    T fromMap(String documentId, Map<String, Object> data);
+
+    /**
+     * Map để truyền vào add() / set() / WriteBatch.set()
+     * (không chứa documentId; @ServerTimestamp null -> FieldValue.serverTimestamp())
+     */
+    Map<String, Object> toMap(T object);
+}
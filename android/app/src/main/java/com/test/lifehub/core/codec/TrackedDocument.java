@@ -0,0 +1,73 @@
+package com.test.lifehub.core.codec;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * TrackedDocument - Model nhớ trạng thái lúc load để chỉ ghi các field đã đổi
+ *
+ * === MỤC ĐÍCH ===
+ * document(id).set(entity) gửi lại TOÀN BỘ document (cả content dài của note,
+ * password đã mã hóa...) chỉ để đổi 1 field như completed.
+ * Model kế thừa class này được codec sinh tự động gán trạng thái lúc load
+ * (markLoaded trong fromMap); khi lưu, changedFields() so sánh với toMap() hiện tại
+ * để repository gửi update() chỉ với các field khác biệt.
+ *
+ * === QUY TẮC ===
+ * - Chưa có trạng thái load (tạo mới, hoặc đã qua Serializable / Bundle) -> null -> dùng set()
+ * - So sánh sau khi decode + encode lại trạng thái load bằng cùng codec,
+ *   nên Timestamp / Date, Long / int không bị coi là khác nhau
+ * - Field bị bỏ khỏi toMap() -> FieldValue.delete()
+ * - @ServerTimestamp đang null (toMap() ghi FieldValue.serverTimestamp()) không tính là thay đổi;
+ *   chỉ được gửi kèm khi có field khác đổi (lưu không đổi gì thì không ghi lại thời gian)
+ *
+ * Tên method không theo dạng getX / setX: codec và CustomClassMapper không coi là thuộc tính.
+ */
+public abstract class TrackedDocument {
+
+    // transient: không đi theo Serializable (Timestamp không Serializable)
+    @Nullable
+    private transient Map<String, Object> loadedData;
+
+    /**
+     * Gán trạng thái đã lưu trên Firestore (raw data của getData() hoặc kết quả toMap())
+     * null -> quên trạng thái, lần lưu sau ghi toàn bộ document
+     */
+    public void markLoaded(@Nullable Map<String, Object> data) {
+        this.loadedData = data;
+    }
+
+    /**
+     * Các field khác với trạng thái lúc load
+     *
+     * @param current codec.toMap(this)
+     * @return null nếu không có trạng thái load (phải dùng set()); Map rỗng nếu không có gì đổi
+     */
+    @Nullable
+    public <T> Map<String, Object> changedFields(DocumentCodec<T> codec, Map<String, Object> current) {
+        Map<String, Object> loaded = loadedData;
+        if (loaded == null) return null;
+
+        Map<String, Object> before = codec.toMap(codec.fromMap(null, loaded));
+        Map<String, Object> changes = new HashMap<>();
+        Map<String, Object> serverTimestamps = new HashMap<>();
+        for (Map.Entry<String, Object> field : current.entrySet()) {
+            if (FieldValue.serverTimestamp().equals(field.getValue())) {
+                serverTimestamps.put(field.getKey(), field.getValue());
+            } else if (!before.containsKey(field.getKey())
+                    || !Objects.equals(before.get(field.getKey()), field.getValue())) {
+                changes.put(field.getKey(), field.getValue());
+            }
+        }
+        for (String key : before.keySet()) {
+            if (!current.containsKey(key)) changes.put(key, FieldValue.delete());
+        }
+        if (!changes.isEmpty()) changes.putAll(serverTimestamps);
+        return changes;
+    }
+}
@@ -0,0 +1,153 @@
+package com.test.lifehub.core.local;
+
+import com.google.firebase.Timestamp;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DocumentJson - Chuyển raw data Firestore (getData()) <-> JSON để lưu trong LocalMirror
+ *
+ * Giữ nguyên kiểu như getData() trả về để so sánh equals() với snapshot mới:
+ * - Số nguyên -> Long, số thực -> Double (JSON ghi "5.0" cho Double nên đọc lại đúng kiểu)
+ * - Timestamp -> {"__ts":[seconds, nanoseconds]}
+ * - NaN / Infinity (JSON không hỗ trợ) -> {"__double":"NaN"}
+ * - Map / List lồng nhau giữ nguyên thứ tự
+ *
+ * Dùng JsonReader / JsonWriter (streaming) của Gson: không reflection, không tạo cây trung gian.
+ */
+final class DocumentJson {
+
+    private static final String TIMESTAMP_KEY = "__ts";
+    private static final String DOUBLE_KEY = "__double";
+
+    private DocumentJson() {}
+
+    static String encode(Map<String, Object> data) {
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.setSerializeNulls(true);
+            writeValue(writer, data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode document", e);
+        }
+        return out.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decode(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            Object value = readValue(reader);
+            if (!(value instanceof Map)) throw new IllegalStateException("Document is not an object");
+            return (Map<String, Object>) value;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot decode document", e);
+        }
+    }
+
+    private static void writeValue(JsonWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                writer.beginObject().name(DOUBLE_KEY).value(Double.toString(number)).endObject();
+            } else {
+                writer.value(number);
+            }
+        } else if (value instanceof Number) {
+            writer.value(((Number) value).longValue());
+        } else if (value instanceof Timestamp || value instanceof Date) {
+            Timestamp timestamp = value instanceof Timestamp ? (Timestamp) value : new Timestamp((Date) value);
+            writer.beginObject().name(TIMESTAMP_KEY).beginArray()
+                    .value(timestamp.getSeconds()).value(timestamp.getNanoseconds())
+                    .endArray().endObject();
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue());
+            }
+            writer.endObject();
+        } else if (value instanceof List) {
+            writer.beginArray();
+            for (Object item : (List<?>) value) {
+                writeValue(writer, item);
+            }
+            writer.endArray();
+        } else {
+            // GeoPoint / Blob / DocumentReference: các collection hiện tại không dùng
+            writer.value(value.toString());
+        }
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case STRING:
+                return reader.nextString();
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                return readNumber(reader.nextString());
+            case BEGIN_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) list.add(readValue(reader));
+                reader.endArray();
+                return list;
+            }
+            case BEGIN_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (map.isEmpty() && TIMESTAMP_KEY.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        reader.beginArray();
+                        long seconds = reader.nextLong();
+                        int nanoseconds = reader.nextInt();
+                        reader.endArray();
+                        reader.endObject();
+                        return new Timestamp(seconds, nanoseconds);
+                    }
+                    if (map.isEmpty() && DOUBLE_KEY.equals(name) && reader.peek() == JsonToken.STRING) {
+                        double number = Double.parseDouble(reader.nextString());
+                        reader.endObject();
+                        return number;
+                    }
+                    map.put(name, readValue(reader));
+                }
+                reader.endObject();
+                return map;
+            }
+            default:
+                throw new IllegalStateException("Unexpected token " + token);
+        }
+    }
+
+    private static Object readNumber(String raw) {
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return Double.parseDouble(raw);
+            }
+        }
+        return Long.parseLong(raw);
+    }
+}
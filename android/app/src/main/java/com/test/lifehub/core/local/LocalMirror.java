@@ -0,0 +1,242 @@
+package com.test.lifehub.core.local;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Room;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.test.lifehub.core.repository.SnapshotBatch;
+import com.test.lifehub.core.security.EncryptionHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * LocalMirror - Bản sao offline (Room) của các collection Firestore
+ *
+ * === MỤC ĐÍCH ===
+ * Mở app: UI phải chờ snapshot đầu tiên của Firestore (khởi tạo SDK, đọc cache, xác thực...)
+ * mới có dữ liệu. LocalMirror lưu raw data của từng collection xuống SQLite để
+ * repository vẽ UI ngay từ disk, còn Firestore chỉ đóng vai trò nguồn đồng bộ chạy nền.
+ *
+ * === CÁCH DÙNG (trong repository) ===
+ * 1. session = localMirror.open(userId, "accounts")
+ * 2. session.load(documents -> publisher.seed(documents, generation))
+ * 3. Listener: batch = SnapshotBatch.of(snapshot); publisher.publish(batch, ...); session.record(batch)
+ * 4. stopListening(): session.close(); logout (mọi đường signOut): localMirror.clear()
+ *
+ * === ĐỒNG BỘ DELTA ===
+ * - Mỗi snapshot chỉ ghi DocumentChange (ADDED / MODIFIED / REMOVED), trong 1 transaction
+ * - Snapshot đầu tiên (toàn bộ collection): bỏ qua document trùng với bản trên disk,
+ *   xóa document trên disk không còn trên server
+ *
+ * === BẢO MẬT ===
+ * - Cột data (JSON của cả document: tên dịch vụ, username, nội dung ghi chú...) được mã hóa
+ *   AES-GCM bằng khóa thiết bị của EncryptionHelper (Android Keystore) trước khi xuống disk;
+ *   field vốn đã là ciphertext (password, secretKey) được mã hóa thêm 1 lớp
+ * - Không mã hóa được (Keystore lỗi) -> không ghi document đó; giải mã lỗi -> bỏ dòng,
+ *   snapshot đầu tiên ghi lại
+ * - Dữ liệu tách theo userId; logout xóa toàn bộ
+ *
+ * Mọi thao tác disk chạy tuần tự trên 1 thread riêng (không chặn snapshot thread).
+ */
+public class LocalMirror {
+
+    private static final String DATABASE_NAME = "lifehub_mirror.db";
+
+    /**
+     * Nhận dữ liệu đọc từ disk (chạy trên disk thread)
+     */
+    public interface LoadCallback {
+        void onLoaded(@NonNull Map<String, Map<String, Object>> documents);
+    }
+
+    /**
+     * Mã hóa cột data trước khi ghi / giải mã sau khi đọc (chạy trên disk thread)
+     */
+    public interface PayloadCipher {
+        /** @return ciphertext, null nếu không mã hóa được (document sẽ không được lưu) */
+        @Nullable
+        String encrypt(@NonNull String plainText);
+
+        /** @throws RuntimeException nếu giải mã thất bại */
+        @NonNull
+        String decrypt(@NonNull String cipherText);
+    }
+
+    private final MirrorDao dao;
+    private final Executor diskExecutor;
+    private final PayloadCipher cipher;
+
+    public LocalMirror(Context context, EncryptionHelper encryptionHelper) {
+        this(Room.databaseBuilder(context.getApplicationContext(), LocalMirrorDatabase.class, DATABASE_NAME)
+                        .fallbackToDestructiveMigration() // Chỉ là cache: đổi schema thì tải lại từ server
+                        .build()
+                        .mirrorDao(),
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "lifehub-mirror");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                keystoreCipher(encryptionHelper));
+    }
+
+    LocalMirror(MirrorDao dao, Executor diskExecutor, PayloadCipher cipher) {
+        this.dao = dao;
+        this.diskExecutor = diskExecutor;
+        this.cipher = cipher;
+    }
+
+    /**
+     * EncryptionHelper trả về nguyên văn khi thiếu khóa / giải mã lỗi (hỗ trợ dữ liệu cũ);
+     * với bản sao trên disk thì đó là lỗi: không ghi plaintext, không đọc dòng hỏng
+     */
+    private static PayloadCipher keystoreCipher(EncryptionHelper encryptionHelper) {
+        return new PayloadCipher() {
+            @Nullable
+            @Override
+            public String encrypt(@NonNull String plainText) {
+                if (!encryptionHelper.hasKey()) return null;
+                String cipherText = encryptionHelper.encrypt(plainText);
+                return cipherText.isEmpty() ? null : cipherText;
+            }
+
+            @NonNull
+            @Override
+            public String decrypt(@NonNull String cipherText) {
+                String plainText = encryptionHelper.decrypt(cipherText);
+                if (plainText.equals(cipherText)) throw new IllegalStateException("Cannot decrypt mirror row");
+                return plainText;
+            }
+        };
+    }
+
+    /**
+     * Mở phiên đồng bộ cho 1 collection của user (mỗi lần startListening)
+     */
+    public Session open(@NonNull String userId, @NonNull String collection) {
+        return new Session(userId, collection);
+    }
+
+    /**
+     * Xóa toàn bộ dữ liệu trên disk (logout)
+     * Gọi SAU khi đã close() các session để không còn ghi muộn
+     */
+    public void clear() {
+        diskExecutor.execute(dao::clearAll);
+    }
+
+    /**
+     * Phiên đồng bộ của 1 collection - chỉ truy cập state trên disk thread
+     */
+    public final class Session {
+
+        private final String userId;
+        private final String collection;
+        private volatile boolean closed = false;
+        // Bản trên disk lúc load, chờ đối chiếu với snapshot đầy đủ đầu tiên
+        private Map<String, Map<String, Object>> diskDocuments = null;
+        private final Set<String> unreadableIds = new HashSet<>(); // Dòng giải mã lỗi, chờ bị ghi đè / xóa
+        private boolean reconciled = false;
+
+        private Session(String userId, String collection) {
+            this.userId = userId;
+            this.collection = collection;
+        }
+
+        /**
+         * Đọc collection từ disk (bất đồng bộ), gọi callback trên disk thread
+         * Callback không được gọi nếu session đã đóng
+         */
+        public void load(@NonNull LoadCallback callback) {
+            diskExecutor.execute(() -> {
+                if (closed) return;
+                ensureLoaded();
+                if (!closed) callback.onLoaded(Collections.unmodifiableMap(diskDocuments));
+            });
+        }
+
+        /**
+         * Ghi thay đổi của 1 snapshot xuống disk (bất đồng bộ)
+         */
+        public void record(@NonNull SnapshotBatch batch) {
+            if (closed) return;
+            diskExecutor.execute(() -> {
+                if (!closed) write(batch);
+            });
+        }
+
+        /**
+         * Dừng ghi (stopListening / đổi user); các lượt ghi còn trong hàng đợi bị bỏ qua
+         */
+        public void close() {
+            closed = true;
+        }
+
+        private void ensureLoaded() {
+            if (diskDocuments != null) return;
+            List<MirrorDocument> rows = dao.loadDocuments(userId, collection);
+            Map<String, Map<String, Object>> documents = new HashMap<>(rows.size() * 2);
+            for (MirrorDocument row : rows) {
+                try {
+                    documents.put(row.documentId, DocumentJson.decode(cipher.decrypt(row.data)));
+                } catch (RuntimeException e) {
+                    // Dòng hỏng / khóa đã đổi -> bỏ qua, snapshot đầu tiên sẽ ghi lại hoặc xóa
+                    unreadableIds.add(row.documentId);
+                }
+            }
+            diskDocuments = documents;
+        }
+
+        private void write(SnapshotBatch batch) {
+            ensureLoaded();
+            boolean reconcile = !reconciled && !batch.emptyFromCache;
+
+            List<MirrorDocument> upserts = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+            Set<String> present = reconcile ? new HashSet<>() : null;
+
+            for (SnapshotBatch.Entry entry : batch.entries) {
+                if (present != null) present.add(entry.id);
+                if (entry.type == DocumentChange.Type.REMOVED || entry.data == null) {
+                    removedIds.add(entry.id);
+                    continue;
+                }
+                // Snapshot đầu tiên: document không đổi so với disk -> không ghi lại
+                if (reconcile && entry.data.equals(diskDocuments.get(entry.id))) continue;
+
+                String sealed = cipher.encrypt(DocumentJson.encode(entry.data));
+                if (sealed == null) {
+                    removedIds.add(entry.id); // Không lưu plaintext; bỏ luôn bản cũ đã lỗi thời
+                    continue;
+                }
+                upserts.add(new MirrorDocument(userId, collection, entry.id, sealed));
+            }
+
+            if (reconcile) {
+                // Có trên disk nhưng không còn trên server -> đã bị xóa khi app không chạy
+                for (String id : diskDocuments.keySet()) {
+                    if (!present.contains(id)) removedIds.add(id);
+                }
+                for (String id : unreadableIds) {
+                    if (!present.contains(id)) removedIds.add(id);
+                }
+                unreadableIds.clear();
+                reconciled = true;
+                diskDocuments = Collections.emptyMap(); // Không cần giữ trong bộ nhớ nữa
+            }
+
+            if (upserts.isEmpty() && removedIds.isEmpty()) return;
+            dao.applyDelta(userId, collection, upserts, removedIds);
+        }
+    }
+}
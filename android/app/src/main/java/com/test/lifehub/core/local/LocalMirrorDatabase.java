@@ -0,0 +1,15 @@
+package com.test.lifehub.core.local;
+
+import androidx.room.Database;
+import androidx.room.RoomDatabase;
+
+/**
+ * Room database của LocalMirror (lifehub_mirror.db, nằm trong bộ nhớ riêng của app)
+ *
+ * version 2: cột data mã hóa, bỏ bảng sync_state (destructive migration xóa bản plaintext cũ)
+ */
+@Database(entities = {MirrorDocument.class}, version = 2, exportSchema = false)
+public abstract class LocalMirrorDatabase extends RoomDatabase {
+
+    public abstract MirrorDao mirrorDao();
+}
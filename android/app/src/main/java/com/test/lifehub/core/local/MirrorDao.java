@@ -0,0 +1,46 @@
+package com.test.lifehub.core.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * DAO của LocalMirror - mọi hàm chạy trên disk executor của LocalMirror
+ */
+@Dao
+public abstract class MirrorDao {
+
+    // SQLite giới hạn 999 tham số / câu lệnh
+    private static final int MAX_BIND_ARGS = 900;
+
+    @Query("SELECT * FROM mirror_documents WHERE userId = :userId AND collection = :collection")
+    public abstract List<MirrorDocument> loadDocuments(String userId, String collection);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    protected abstract void upsertDocuments(List<MirrorDocument> documents);
+
+    @Query("DELETE FROM mirror_documents WHERE userId = :userId AND collection = :collection AND documentId IN (:documentIds)")
+    protected abstract void deleteDocuments(String userId, String collection, List<String> documentIds);
+
+    /**
+     * Ghi 1 lượt thay đổi của collection trong 1 transaction (1 lần fsync)
+     */
+    @Transaction
+    public void applyDelta(String userId, String collection, List<MirrorDocument> upserts,
+                           List<String> removedIds) {
+        if (!upserts.isEmpty()) upsertDocuments(upserts);
+        for (int i = 0; i < removedIds.size(); i += MAX_BIND_ARGS) {
+            deleteDocuments(userId, collection, removedIds.subList(i, Math.min(removedIds.size(), i + MAX_BIND_ARGS)));
+        }
+    }
+
+    /**
+     * Xóa dữ liệu của mọi user (logout)
+     */
+    @Query("DELETE FROM mirror_documents")
+    public abstract void clearAll();
+}
@@ -0,0 +1,31 @@
+package com.test.lifehub.core.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * 1 document Firestore lưu trên máy (bảng mirror_documents)
+ *
+ * data là raw data của Firestore dạng JSON, mã hóa AES-GCM bằng khóa thiết bị
+ * (LocalMirror.PayloadCipher); chỉ được giải mã trong bộ nhớ trên disk thread.
+ */
+@Entity(tableName = "mirror_documents", primaryKeys = {"userId", "collection", "documentId"})
+public class MirrorDocument {
+
+    @NonNull
+    public String userId;
+    @NonNull
+    public String collection;
+    @NonNull
+    public String documentId;
+    @NonNull
+    public String data;          // Ciphertext của JSON (DocumentJson)
+
+    public MirrorDocument(@NonNull String userId, @NonNull String collection, @NonNull String documentId,
+                          @NonNull String data) {
+        this.userId = userId;
+        this.collection = collection;
+        this.documentId = documentId;
+        this.data = data;
+    }
+}
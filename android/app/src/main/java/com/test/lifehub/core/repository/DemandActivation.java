@@ -0,0 +1,148 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.MainThread;
+
+/**
+ * DemandActivation - Bật / tạm dừng đồng bộ 1 collection theo nhu cầu của UI
+ *
+ * === MỤC ĐÍCH ===
+ * Trước đây MainActivity (và constructor của repository) bật listener cho TẤT CẢ
+ * collection ngay khi mở app: người dùng chỉ mở kho mật khẩu vẫn phải đồng bộ toàn bộ
+ * lịch, ghi chú, công việc, project. Giờ mỗi collection có 1 DemandActivation:
+ * - LiveData của collection có observer active đầu tiên -> start (gắn listener)
+ * - Không còn observer -> chờ grace period rồi mới pause (xoay màn hình, chuyển qua lại
+ *   giữa các màn hình không làm listener đóng / mở liên tục)
+ * - warmUp(): bật trước khi có observer (WarmUpSchedule), tự pause nếu hết grace
+ *   mà không ai dùng tới
+ *
+ * === PAUSE != STOP ===
+ * pause chỉ gỡ listener; dữ liệu trong store giữ nguyên để lần mở sau hiện ngay,
+ * snapshot đầy đủ đầu tiên của listener mới đối chiếu lại (SnapshotPublisher.pause()).
+ * stopListening() (logout) vẫn xóa dữ liệu như cũ và gọi reset().
+ *
+ * === THREAD ===
+ * Toàn bộ API gọi trên main thread (onActive / onInactive của LiveData).
+ * start / pause của repository phải idempotent (gọi lại khi đang chạy / đã dừng không sao).
+ */
+public class DemandActivation {
+
+    /** Thời gian giữ listener sau khi observer cuối cùng rời đi */
+    public static final long GRACE_MS = 30_000;
+
+    /**
+     * Hẹn giờ trên main thread (tách ra để test)
+     */
+    interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    private final String label;
+    private final Runnable start;
+    private final Runnable pause;
+    private final long graceMs;
+    private final Scheduler scheduler;
+    private final Runnable pauseTask = this::pauseIfIdle;
+
+    private int demand = 0;         // Số LiveData đang có observer active
+    private boolean active = false; // Đã start (và chưa pause / reset)
+    private int starts = 0;         // Số lần thật sự gắn listener (log / test)
+
+    /**
+     * @param label Tên hiển thị trong log ("Notes", "Accounts", ...)
+     * @param start Gắn listener (idempotent)
+     * @param pause Gỡ listener, giữ dữ liệu (idempotent)
+     */
+    public DemandActivation(String label, Runnable start, Runnable pause) {
+        this(label, start, pause, GRACE_MS, new Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMs) {
+                RepositoryExecutors.runOnMainDelayed(task, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                RepositoryExecutors.cancelOnMain(task);
+            }
+        });
+    }
+
+    DemandActivation(String label, Runnable start, Runnable pause, long graceMs, Scheduler scheduler) {
+        this.label = label;
+        this.start = start;
+        this.pause = pause;
+        this.graceMs = graceMs;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Có thêm 1 LiveData đang được xem
+     */
+    @MainThread
+    public void acquire() {
+        demand++;
+        scheduler.cancel(pauseTask);
+        startIfNeeded();
+    }
+
+    /**
+     * 1 LiveData không còn observer active; hết người xem -> pause sau grace period
+     */
+    @MainThread
+    public void release() {
+        if (demand == 0) return;
+        demand--;
+        if (demand == 0) scheduler.schedule(pauseTask, graceMs);
+    }
+
+    /**
+     * Bật trước khi UI cần (tab người dùng hay mở); không ai xem thì tự pause sau grace period
+     */
+    @MainThread
+    public void warmUp() {
+        if (active) return;
+        startIfNeeded();
+        if (demand == 0) scheduler.schedule(pauseTask, graceMs);
+    }
+
+    /**
+     * Quên trạng thái start (repository đã tự dừng hẳn: logout / đổi user)
+     * LiveData còn observer sẽ start lại ở lần acquire kế tiếp
+     */
+    @MainThread
+    public void reset() {
+        scheduler.cancel(pauseTask);
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int getDemand() {
+        return demand;
+    }
+
+    public int getStartCount() {
+        return starts;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    private void startIfNeeded() {
+        if (active) return;
+        active = true;
+        starts++;
+        start.run();
+    }
+
+    // Không kiểm tra active: start có thể đã tự reset (đổi user) nhưng listener vẫn được gắn
+    private void pauseIfIdle() {
+        if (demand > 0) return;
+        active = false;
+        pause.run();
+    }
+}
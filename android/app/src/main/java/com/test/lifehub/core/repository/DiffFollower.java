@@ -0,0 +1,106 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * DiffFollower - Giữ 1 index trong bộ nhớ đồng bộ với SnapshotPublisher bằng Diff
+ *
+ * === VẤN ĐỀ ===
+ * Publisher phát danh sách (getItems) và Diff (getChanges) thành 2 LiveData riêng.
+ * Index (cây thư mục, chỉ mục tìm kiếm...) chỉ muốn áp dụng Diff, nhưng:
+ * - Mới observe: LiveData Diff trả lại giá trị CŨ (Diff của lần cập nhật trước)
+ * - Logout: publisher phát danh sách rỗng mà không có Diff
+ * - Hết người xem: không nhận Diff nữa -> index lỡ mất thay đổi
+ *
+ * === CÁCH LÀM ===
+ * Drain của publisher setValue danh sách RỒI MỚI setValue Diff của cùng lần cập nhật,
+ * nên nhớ danh sách mà index đang phản ánh (so sánh bằng ==, danh sách là immutable):
+ * - onItems: index chưa đồng bộ hoặc danh sách rỗng -> dựng lại từ danh sách
+ * - onChanges: danh sách hiện tại chưa được index -> áp dụng Diff
+ *   (Diff cũ lúc mới observe: danh sách đã index rồi -> bỏ qua)
+ * - Sau khi áp dụng Diff mà số phần tử lệch với danh sách -> dựng lại (phòng hờ)
+ * - invalidate() khi hết người xem: lần sau dựng lại
+ *
+ * === THREAD ===
+ * Main thread.
+ */
+public final class DiffFollower<T> {
+
+    private final Consumer<List<T>> reset;
+    private final Consumer<SnapshotStore.Diff<T>> apply;
+    private final IntSupplier size;
+    @Nullable
+    private List<T> indexed; // Danh sách mà index đang phản ánh (null = chưa đồng bộ)
+
+    /**
+     * @param reset Dựng lại index từ toàn bộ danh sách
+     * @param apply Áp dụng 1 Diff
+     * @param size Số phần tử index đang giữ (để phát hiện lệch)
+     */
+    public DiffFollower(@NonNull Consumer<List<T>> reset, @NonNull Consumer<SnapshotStore.Diff<T>> apply,
+                        @NonNull IntSupplier size) {
+        this.reset = reset;
+        this.apply = apply;
+        this.size = size;
+    }
+
+    /**
+     * Gắn vào mediator: index chỉ cập nhật khi mediator có người xem
+     *
+     * @param onChanged Gọi sau mỗi lần index thay đổi (thường là setValue(index))
+     */
+    @MainThread
+    public void attach(@NonNull MediatorLiveData<?> mediator, @NonNull LiveData<List<T>> items,
+                       @NonNull LiveData<SnapshotStore.Diff<T>> changes, @NonNull Runnable onChanged) {
+        mediator.addSource(items, list -> {
+            if (onItems(list)) onChanged.run();
+        });
+        mediator.addSource(changes, diff -> {
+            if (onChanges(diff, items.getValue())) onChanged.run();
+        });
+    }
+
+    /**
+     * @return true nếu index được dựng lại
+     */
+    @MainThread
+    public boolean onItems(@Nullable List<T> items) {
+        if (items == null || (indexed != null && !items.isEmpty())) return false;
+        reset.accept(items);
+        indexed = items;
+        return true;
+    }
+
+    /**
+     * @param items Danh sách hiện tại của publisher (đã gồm Diff này)
+     * @return true nếu index thay đổi
+     */
+    @MainThread
+    public boolean onChanges(@Nullable SnapshotStore.Diff<T> diff, @Nullable List<T> items) {
+        if (diff == null || items == null || items == indexed) return false;
+        if (indexed == null) {
+            reset.accept(items);
+        } else {
+            apply.accept(diff);
+            if (size.getAsInt() != items.size()) reset.accept(items);
+        }
+        indexed = items;
+        return true;
+    }
+
+    /**
+     * Không còn nhận Diff (hết người xem) -> lần tới dựng lại từ danh sách
+     */
+    @MainThread
+    public void invalidate() {
+        indexed = null;
+    }
+}
@@ -0,0 +1,182 @@
+package com.test.lifehub.core.repository;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DocumentListenerMultiplexer - LiveData cho từng document, dùng chung listener (ref-count)
+ *
+ * === MỤC ĐÍCH ===
+ * Trước đây getNoteById / getEventById gắn thêm 1 listener document mỗi lần gọi và
+ * không bao giờ gỡ; getAccountById (Accounts / TOTP) luôn get() qua mạng dù collection
+ * listener đã có sẵn document đó. Multiplexer:
+ * - Document đã có trong store của collection -> phục vụ thẳng từ store
+ *   (theo dõi diff của publisher), KHÔNG mở listener mới
+ * - Chưa có -> mở 1 listener Firestore cho path đó; mọi người xem cùng path dùng chung
+ * - Người xem cuối cùng rời đi -> gỡ listener / bỏ theo dõi store
+ *
+ * === VÒNG ĐỜI ===
+ * Người xem = observer của LiveData trả về. observe(owner, ...) tự gỡ observer khi
+ * LifecycleOwner bị DESTROYED (LiveData gọi removeObserver) -> listener đóng theo.
+ * Màn hình chỉ STOPPED (ra background) vẫn giữ listener, quay lại không phải mở lại.
+ *
+ * === GIỮ HÀNH VI CŨ ===
+ * Document bị xóa / bị mapper lọc -> không phát null (màn hình giữ dữ liệu đang hiện).
+ *
+ * === THREAD ===
+ * API gọi trên main thread; snapshot được map trên RepositoryExecutors.snapshots()
+ * (giải mã TOTP / account không chạy trên UI thread).
+ */
+public class DocumentListenerMultiplexer {
+
+    private static final String TAG = "DocumentMultiplexer";
+
+    /**
+     * Gắn listener cho 1 document; sink nhận raw data (null = không tồn tại) trên background thread
+     */
+    interface Opener {
+        @Nullable
+        ListenerRegistration open(@NonNull DocumentReference ref, @NonNull Sink sink);
+    }
+
+    interface Sink {
+        void onDocument(@Nullable Map<String, Object> data);
+    }
+
+    private final Opener opener;
+    private final Map<String, DocumentLiveData<?>> documents = new HashMap<>(); // Đang có người xem, key = path
+    private int activeListeners = 0;
+
+    public DocumentListenerMultiplexer() {
+        this((ref, sink) -> ref.addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
+            if (e != null) {
+                Log.w(TAG, "Listen failed: " + ref.getPath(), e);
+                return;
+            }
+            if (snapshot != null) sink.onDocument(snapshot.exists() ? snapshot.getData() : null);
+        }));
+    }
+
+    DocumentListenerMultiplexer(Opener opener) {
+        this.opener = opener;
+    }
+
+    /**
+     * LiveData của 1 document; gọi nhiều lần với cùng path trả về cùng 1 LiveData
+     *
+     * @param collection Publisher của collection chứa document (store + mapper)
+     */
+    @MainThread
+    @SuppressWarnings("unchecked")
+    public <T> LiveData<T> observe(@NonNull DocumentReference ref, @NonNull SnapshotPublisher<T> collection) {
+        DocumentLiveData<T> live = (DocumentLiveData<T>) documents.get(ref.getPath());
+        if (live == null || live.collection != collection) {
+            // Chỉ vào map khi có observer (attach) -> LiveData không ai xem không bị giữ lại
+            live = new DocumentLiveData<>(ref, collection);
+        }
+        return live;
+    }
+
+    /**
+     * Số listener Firestore đang mở cho từng document (để log / kiểm tra rò rỉ)
+     */
+    @MainThread
+    public int getActiveListenerCount() {
+        return activeListeners;
+    }
+
+    /**
+     * Số document đang có người xem (từ store hoặc từ listener riêng)
+     */
+    @MainThread
+    public int getSubscribedDocumentCount() {
+        return documents.size();
+    }
+
+    /**
+     * LiveData 1 document: mở nguồn dữ liệu khi có observer đầu tiên, đóng khi observer cuối bị gỡ
+     */
+    private final class DocumentLiveData<T> extends LiveData<T> {
+        final DocumentReference ref;
+        final SnapshotPublisher<T> collection;
+        @Nullable
+        private ListenerRegistration registration;
+        @Nullable
+        private Observer<SnapshotStore.Diff<T>> storeObserver;
+
+        DocumentLiveData(DocumentReference ref, SnapshotPublisher<T> collection) {
+            this.ref = ref;
+            this.collection = collection;
+        }
+
+        @Override
+        public void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
+            boolean first = !hasObservers();
+            super.observe(owner, observer); // Owner đã DESTROYED -> bị bỏ qua
+            if (first && hasObservers()) attach();
+        }
+
+        @Override
+        public void observeForever(@NonNull Observer<? super T> observer) {
+            boolean first = !hasObservers();
+            super.observeForever(observer);
+            if (first) attach();
+        }
+
+        @Override
+        public void removeObserver(@NonNull Observer<? super T> observer) {
+            boolean had = hasObservers();
+            super.removeObserver(observer);
+            if (had && !hasObservers()) detach();
+        }
+
+        private void attach() {
+            documents.put(ref.getPath(), this);
+
+            T cached = collection.getStore().get(ref.getId());
+            if (cached != null) {
+                setValue(cached);
+                storeObserver = diff -> {
+                    T current = collection.getStore().get(ref.getId());
+                    if (current != null && current != getValue()) setValue(current);
+                };
+                collection.getChanges().observeForever(storeObserver);
+                return;
+            }
+
+            final SnapshotStore<T> store = collection.getStore();
+            final String documentId = ref.getId();
+            registration = opener.open(ref, data -> {
+                if (data == null) return;
+                T item = store.map(documentId, data);
+                if (item != null) postValue(item);
+            });
+            if (registration != null) activeListeners++;
+        }
+
+        private void detach() {
+            if (storeObserver != null) {
+                collection.getChanges().removeObserver(storeObserver);
+                storeObserver = null;
+            }
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+                activeListeners--;
+            }
+            if (documents.get(ref.getPath()) == this) documents.remove(ref.getPath());
+        }
+    }
+}
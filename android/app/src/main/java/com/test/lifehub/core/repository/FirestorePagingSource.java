@@ -0,0 +1,135 @@
+package com.test.lifehub.core.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import kotlin.Unit;
+
+/**
+ * FirestorePagingSource - PagingSource (Paging 3) đọc 1 query Firestore theo từng trang
+ *
+ * === CÁCH HOẠT ĐỘNG ===
+ * - Trang đầu: query.limit(n) với snapshot listener (realtime)
+ *   + Snapshot đầu tiên -> trả về trang
+ *   + Snapshot sau (thêm / sửa / xóa trong trang đầu) -> invalidate(), Pager tạo source mới
+ *     và DiffUtil của PagingDataAdapter chỉ cập nhật phần thay đổi
+ * - Trang sau: query.startAfter(document cuối trang trước).limit(n).get() (một lần, không listener)
+ * - Source bị invalidate -> gỡ listener trang đầu
+ *
+ * Query truyền vào phải có orderBy() ổn định (ví dụ lastModified DESC) để cursor đúng.
+ * Map document chạy trên RepositoryExecutors.snapshots() (không chặn main thread).
+ *
+ * @param <T> Kiểu POJO của trang (NoteEntry, TaskEntry, ...)
+ */
+public class FirestorePagingSource<T> extends ListenableFuturePagingSource<DocumentSnapshot, T> {
+
+    private static final String TAG = "FirestorePagingSource";
+
+    @Nullable
+    private final Query query;
+    private final SnapshotStore.Mapper<T> mapper;
+    private ListenerRegistration firstPageListener;
+
+    /**
+     * @param query Query đã sắp xếp, null nếu chưa đăng nhập (trả về trang rỗng)
+     * @param mapper Map document -> POJO, trả về null để bỏ qua document
+     */
+    public FirestorePagingSource(@Nullable Query query, SnapshotStore.Mapper<T> mapper) {
+        this.query = query;
+        this.mapper = mapper;
+        registerInvalidatedCallback(() -> {
+            removeFirstPageListener();
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<DocumentSnapshot, T>> loadFuture(@NonNull LoadParams<DocumentSnapshot> params) {
+        SettableFuture<LoadResult<DocumentSnapshot, T>> future = SettableFuture.create();
+        if (query == null) {
+            future.set(new LoadResult.Page<>(Collections.emptyList(), null, null));
+            return future;
+        }
+
+        int loadSize = params.getLoadSize();
+        DocumentSnapshot cursor = params.getKey();
+        if (cursor == null) {
+            listenFirstPage(loadSize, future);
+        } else {
+            query.startAfter(cursor).limit(loadSize).get()
+                    .addOnCompleteListener(RepositoryExecutors.snapshots(), task -> {
+                        if (!task.isSuccessful() || task.getResult() == null) {
+                            Log.w(TAG, "❌ Lỗi tải trang", task.getException());
+                            future.set(new LoadResult.Error<>(task.getException() != null
+                                    ? task.getException() : new IllegalStateException("Empty page result")));
+                            return;
+                        }
+                        future.set(toPage(task.getResult(), loadSize));
+                    });
+        }
+        return future;
+    }
+
+    private synchronized void listenFirstPage(int loadSize, SettableFuture<LoadResult<DocumentSnapshot, T>> future) {
+        removeFirstPageListener();
+        firstPageListener = query.limit(loadSize).addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
+            if (e != null) {
+                Log.w(TAG, "❌ Lỗi lắng nghe trang đầu", e);
+                if (!future.set(new LoadResult.Error<>(e))) invalidate();
+                return;
+            }
+            if (snapshot == null) return;
+            // Lần đầu: trả trang. Các lần sau: dữ liệu trang đầu đã đổi -> tải lại
+            if (!future.set(toPage(snapshot, loadSize))) {
+                invalidate();
+            }
+        });
+        if (getInvalid()) removeFirstPageListener(); // Bị invalidate trong lúc đăng ký
+    }
+
+    private synchronized void removeFirstPageListener() {
+        if (firstPageListener != null) {
+            firstPageListener.remove();
+            firstPageListener = null;
+        }
+    }
+
+    private LoadResult<DocumentSnapshot, T> toPage(QuerySnapshot snapshot, int loadSize) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        List<T> items = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            Map<String, Object> data = document.getData();
+            T item = data != null ? mapper.map(document.getId(), data) : null;
+            if (item != null) items.add(item);
+        }
+        // Trang thiếu -> đã hết dữ liệu
+        DocumentSnapshot nextKey = documents.size() < loadSize ? null : documents.get(documents.size() - 1);
+        return new LoadResult.Page<>(items, null, nextKey);
+    }
+
+    /**
+     * Luôn tải lại từ đầu (trang đầu là trang realtime)
+     */
+    @Nullable
+    @Override
+    public DocumentSnapshot getRefreshKey(@NonNull PagingState<DocumentSnapshot, T> state) {
+        return null;
+    }
+}
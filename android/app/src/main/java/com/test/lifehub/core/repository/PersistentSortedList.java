@@ -0,0 +1,193 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentSortedList - Danh sách đã sắp xếp, bất biến, sửa bằng cách tạo bản mới (persistent treap)
+ *
+ * === MỤC ĐÍCH ===
+ * SnapshotStore phát danh sách mới sau mỗi lần drain. Copy toàn bộ TreeSet ra ArrayList mỗi lần
+ * là O(n) dù snapshot chỉ đổi 1 document. Ở đây with() / without() chỉ chép lại các node trên
+ * đường từ gốc tới vị trí thay đổi (O(log n)); phần còn lại dùng chung với bản cũ, nên:
+ * - Danh sách đã phát ra không bao giờ đổi (an toàn cho AsyncListDiffer / background thread)
+ * - Phát danh sách mới là O(1), không phụ thuộc số document
+ *
+ * === CHI PHÍ ===
+ * - with / without: O(log n) kỳ vọng
+ * - get(i): O(log n) (node giữ kích thước cây con)
+ * - Duyệt bằng iterator: O(n)
+ *
+ * Độ ưu tiên của node lấy từ hashCode của phần tử (đã trộn bit) nên không cần Random
+ * dùng chung giữa các bản.
+ *
+ * @param <E> Kiểu phần tử (phải nhất quán với comparator: compare == 0 nghĩa là cùng phần tử)
+ */
+final class PersistentSortedList<E> extends AbstractList<E> {
+
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        final Node<E> left;
+        final Node<E> right;
+        final int size;
+
+        Node(E value, int priority, Node<E> left, Node<E> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        Node<E> withChildren(Node<E> newLeft, Node<E> newRight) {
+            return new Node<>(value, priority, newLeft, newRight);
+        }
+    }
+
+    private final Comparator<? super E> order;
+    private final Node<E> root;
+
+    PersistentSortedList(@NonNull Comparator<? super E> order) {
+        this(order, null);
+    }
+
+    private PersistentSortedList(Comparator<? super E> order, Node<E> root) {
+        this.order = order;
+        this.root = root;
+    }
+
+    /**
+     * Bản mới có thêm value (thay phần tử compare == 0 nếu đã có)
+     */
+    @NonNull
+    PersistentSortedList<E> with(@NonNull E value) {
+        return new PersistentSortedList<>(order, insert(root, value, priority(value)));
+    }
+
+    /**
+     * Bản mới không còn phần tử compare == 0 với value (trả về chính nó nếu không có)
+     */
+    @NonNull
+    PersistentSortedList<E> without(@NonNull E value) {
+        Node<E> newRoot = delete(root, value);
+        return newRoot == root ? this : new PersistentSortedList<>(order, newRoot);
+    }
+
+    @NonNull
+    PersistentSortedList<E> cleared() {
+        return root == null ? this : new PersistentSortedList<>(order, null);
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @NonNull
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Deque<Node<E>> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                for (; node != null; node = node.left) stack.push(node);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty()) throw new NoSuchElementException();
+                Node<E> node = stack.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    // ===== TREAP (path copying) =====
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int priority(Object value) {
+        int h = value.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Node<E> insert(Node<E> node, E value, int priority) {
+        if (node == null) return new Node<>(value, priority, null, null);
+        int c = order.compare(value, node.value);
+        if (c == 0) return new Node<>(value, node.priority, node.left, node.right);
+        if (c < 0) {
+            Node<E> left = insert(node.left, value, priority);
+            if (left.priority > node.priority) {
+                // Xoay phải
+                return left.withChildren(left.left, node.withChildren(left.right, node.right));
+            }
+            return node.withChildren(left, node.right);
+        }
+        Node<E> right = insert(node.right, value, priority);
+        if (right.priority > node.priority) {
+            // Xoay trái
+            return right.withChildren(node.withChildren(node.left, right.left), right.right);
+        }
+        return node.withChildren(node.left, right);
+    }
+
+    private Node<E> delete(Node<E> node, E value) {
+        if (node == null) return null;
+        int c = order.compare(value, node.value);
+        if (c == 0) return merge(node.left, node.right);
+        if (c < 0) {
+            Node<E> left = delete(node.left, value);
+            return left == node.left ? node : node.withChildren(left, node.right);
+        }
+        Node<E> right = delete(node.right, value);
+        return right == node.right ? node : node.withChildren(node.left, right);
+    }
+
+    /** Ghép 2 cây (mọi phần tử của a đứng trước b) */
+    private static <E> Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            return a.withChildren(a.left, merge(a.right, b));
+        }
+        return b.withChildren(merge(a, b.left), b.right);
+    }
+}
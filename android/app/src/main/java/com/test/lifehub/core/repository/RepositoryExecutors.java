@@ -0,0 +1,77 @@
+package com.test.lifehub.core.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RepositoryExecutors - Tầng thực thi chung cho các Repository
+ *
+ * === MỤC ĐÍCH ===
+ * Firestore mặc định gọi snapshot listener trên main thread, nên toObject (reflection),
+ * lọc theo owner, sắp xếp và giải mã đều chạy trước khi frame kế tiếp được vẽ.
+ * Khi một lần sync lớn về, UI bị giật.
+ *
+ * === CÁCH DÙNG ===
+ * - query.addSnapshotListener(RepositoryExecutors.snapshots(), listener)
+ *   -> map / lọc / giải mã chạy trên background thread
+ * - RepositoryExecutors.runOnMain(...) -> đưa kết quả về main thread
+ * - runOnMainDelayed / cancelOnMain -> hẹn giờ trên main thread (tạm dừng listener sau grace period)
+ *
+ * === LƯU Ý ===
+ * Executor snapshot là SERIAL (1 thread): snapshot của cùng 1 listener luôn được
+ * xử lý đúng thứ tự Firestore gửi tới, và SnapshotStore không bị apply song song.
+ */
+public final class RepositoryExecutors {
+
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lifehub-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile Handler mainHandler;
+
+    private RepositoryExecutors() {}
+
+    /**
+     * Executor cho snapshot listener (map / lọc / giải mã)
+     */
+    public static Executor snapshots() {
+        return SNAPSHOT_EXECUTOR;
+    }
+
+    /**
+     * Chạy trên main thread (post, không chạy đồng bộ kể cả khi đang ở main thread)
+     */
+    public static void runOnMain(Runnable runnable) {
+        mainHandler().post(runnable);
+    }
+
+    /**
+     * Chạy trên main thread sau delayMs (hủy bằng cancelOnMain với cùng runnable)
+     */
+    public static void runOnMainDelayed(Runnable runnable, long delayMs) {
+        mainHandler().postDelayed(runnable, delayMs);
+    }
+
+    public static void cancelOnMain(Runnable runnable) {
+        mainHandler().removeCallbacks(runnable);
+    }
+
+    private static Handler mainHandler() {
+        Handler handler = mainHandler;
+        if (handler == null) {
+            synchronized (RepositoryExecutors.class) {
+                if (mainHandler == null) {
+                    mainHandler = new Handler(Looper.getMainLooper());
+                }
+                handler = mainHandler;
+            }
+        }
+        return handler;
+    }
+}
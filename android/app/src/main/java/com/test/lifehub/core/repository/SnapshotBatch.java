@@ -0,0 +1,73 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SnapshotBatch - Các DocumentChange của 1 QuerySnapshot, đã lấy sẵn raw data
+ *
+ * === MỤC ĐÍCH ===
+ * document.getData() chuyển toàn bộ document sang Map mỗi lần gọi.
+ * Một snapshot có thể đi tới nhiều nơi (store Tasks + store Shopping + LocalMirror),
+ * nên lấy data MỘT LẦN trên background thread rồi dùng chung.
+ */
+public final class SnapshotBatch {
+
+    /**
+     * 1 document thay đổi (data = null nếu REMOVED)
+     */
+    public static final class Entry {
+        public final DocumentChange.Type type;
+        public final String id;
+        public final boolean hasPendingWrites;
+        @Nullable
+        public final Map<String, Object> data;
+
+        public Entry(DocumentChange.Type type, String id, boolean hasPendingWrites,
+                     @Nullable Map<String, Object> data) {
+            this.type = type;
+            this.id = id;
+            this.hasPendingWrites = hasPendingWrites;
+            this.data = data;
+        }
+    }
+
+    public final List<Entry> entries;
+    // Snapshot rỗng lấy từ cache Firestore (cache chưa có gì) - không dùng để đối chiếu xóa
+    public final boolean emptyFromCache;
+
+    public SnapshotBatch(List<Entry> entries, boolean emptyFromCache) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.emptyFromCache = emptyFromCache;
+    }
+
+    /**
+     * Đọc DocumentChange của snapshot (gọi trên background thread của listener)
+     */
+    public static SnapshotBatch of(@NonNull QuerySnapshot snapshot) {
+        List<DocumentChange> documentChanges = snapshot.getDocumentChanges();
+        List<Entry> entries = new ArrayList<>(documentChanges.size());
+        for (DocumentChange dc : documentChanges) {
+            DocumentSnapshot doc = dc.getDocument();
+            boolean removed = dc.getType() == DocumentChange.Type.REMOVED;
+            entries.add(new Entry(dc.getType(), doc.getId(), doc.getMetadata().hasPendingWrites(),
+                    removed ? null : doc.getData()));
+        }
+        boolean emptyFromCache = entries.isEmpty() && snapshot.isEmpty()
+                && snapshot.getMetadata().isFromCache();
+        return new SnapshotBatch(entries, emptyFromCache);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
@@ -0,0 +1,268 @@
+package com.test.lifehub.core.repository;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.test.lifehub.core.util.StartupTracer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SnapshotPublisher - Cầu nối giữa SnapshotStore (background) và LiveData (main thread)
+ *
+ * === LUỒNG DỮ LIỆU ===
+ * 1. Listener (trên RepositoryExecutors.snapshots()) gọi publish(snapshot, generation)
+ * 2. Store map / lọc / sắp xếp ngay trên background thread
+ * 3. Nếu có thay đổi -> post 1 lần drain lên main thread
+ * 4. drain() setValue danh sách immutable + diff cộng dồn
+ *
+ * === CONFLATION ===
+ * Giống postValue(): nhiều snapshot tới trước khi main thread kịp xử lý chỉ tạo ra
+ * 1 lần cập nhật UI. Khác postValue(): diff của các snapshot bị gộp được cộng dồn,
+ * không bị mất, và danh sách + diff luôn khớp nhau.
+ *
+ * === KHỞI TẠO TỪ DISK ===
+ * seed(documents, generation) đổ dữ liệu LocalMirror vào store -> UI có danh sách ngay
+ * khi mở app, snapshot Firestore tới sau chỉ phát phần khác biệt.
+ *
+ * === OPTIMISTIC UPDATE ===
+ * applyLocal() đưa update / delete của app lên UI ngay (không chờ WriteBehindQueue
+ * và server); ghi lỗi -> reconcile() đọc lại document từ cache Firestore (không qua mạng).
+ *
+ * === THEO NHU CẦU ===
+ * bindActivation(): items / changes có observer active -> activation.acquire(),
+ * hết observer -> release() (listener được gỡ sau grace period, xem DemandActivation).
+ * pause() giữ dữ liệu; snapshot đầy đủ đầu tiên của listener mới đối chiếu lại với store.
+ *
+ * === ĐO THỜI GIAN ===
+ * beginListener() thay cho generation() khi gắn listener: đo từ lúc gắn tới snapshot đầu tiên
+ * (bước "FirstSnapshot:<label>" trong StartupTracer / Perfetto).
+ *
+ * === GENERATION ===
+ * reset() (logout / đổi user) tăng generation. Snapshot của listener cũ còn nằm
+ * trong hàng đợi executor sẽ bị bỏ qua, tránh dữ liệu user cũ "sống lại".
+ */
+public class SnapshotPublisher<T> {
+
+    private final String tag;
+    private final String label;
+    private final SnapshotStore<T> store;
+    private final MutableLiveData<List<T>> items = new DemandLiveData<>();
+    private final MutableLiveData<SnapshotStore.Diff<T>> changes = new DemandLiveData<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private volatile int generation = 0;
+    @Nullable
+    private DemandActivation activation; // null = repository tự quản lý listener
+    @Nullable
+    private volatile StartupTracer.Step firstSnapshot; // Listener mới gắn, chưa có snapshot nào
+
+    /**
+     * @param tag Log tag của repository
+     * @param label Tên hiển thị trong log ("Accounts", "Notes", ...)
+     */
+    public SnapshotPublisher(String tag, String label, SnapshotStore<T> store) {
+        this.tag = tag;
+        this.label = label;
+        this.store = store;
+    }
+
+    /**
+     * Gắn listener theo nhu cầu của UI (gọi 1 lần, trước khi có observer)
+     * Nhiều publisher có thể dùng chung 1 activation (Tasks + Shopping cùng 1 listener)
+     */
+    @MainThread
+    public void bindActivation(@NonNull DemandActivation activation) {
+        this.activation = activation;
+    }
+
+    /**
+     * Generation hiện tại - lấy khi đăng ký listener rồi truyền lại vào publish()
+     */
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * Gọi khi gắn listener mới: trả về generation() và bắt đầu đo tới snapshot đầu tiên
+     */
+    public int beginListener() {
+        StartupTracer.Step previous = firstSnapshot;
+        if (previous != null) previous.end(); // Listener trước bị gỡ khi chưa kịp có snapshot
+        firstSnapshot = StartupTracer.beginStep("FirstSnapshot:" + label);
+        return generation;
+    }
+
+    /**
+     * Áp dụng snapshot (gọi trên background thread của listener)
+     */
+    public void publish(@NonNull QuerySnapshot snapshot, int listenerGeneration) {
+        publish(SnapshotBatch.of(snapshot), listenerGeneration);
+    }
+
+    /**
+     * Áp dụng snapshot đã đọc sẵn data (1 snapshot cho nhiều publisher / LocalMirror)
+     */
+    public void publish(@NonNull SnapshotBatch batch, int listenerGeneration) {
+        boolean changed;
+        synchronized (store) {
+            if (listenerGeneration != generation) {
+                Log.d(tag, "Bỏ qua snapshot " + label + " của listener cũ");
+                return;
+            }
+            changed = store.apply(batch);
+        }
+        StartupTracer.Step step = firstSnapshot;
+        if (step != null) {
+            firstSnapshot = null;
+            step.end();
+        }
+        if (changed) scheduleDrain(); // false = metadata-only / echo / trùng bản trên disk
+    }
+
+    /**
+     * Hiển thị dữ liệu đọc từ LocalMirror trong lúc chờ Firestore (gọi trên disk thread)
+     */
+    public void seed(@NonNull Map<String, Map<String, Object>> documents, int listenerGeneration) {
+        synchronized (store) {
+            if (listenerGeneration != generation) return;
+            if (!store.seed(documents)) return; // Disk rỗng / Firestore đã trả lời trước
+        }
+        Log.d(tag, "💾 " + label + " seeded from disk: " + documents.size() + " documents");
+        scheduleDrain();
+    }
+
+    /**
+     * Hiển thị ngay thay đổi của app trước khi ghi xong (gọi trên main thread)
+     *
+     * @param item null = document bị xóa
+     */
+    @MainThread
+    public void applyLocal(@NonNull String documentId, @Nullable T item) {
+        synchronized (store) {
+            if (!store.applyLocal(documentId, item)) return;
+        }
+        drain();
+    }
+
+    /**
+     * Bỏ thay đổi optimistic: lấy lại bản Firestore đang giữ trong cache
+     * (write bị từ chối đã được SDK rollback khỏi cache trước khi báo lỗi)
+     */
+    public void reconcile(@NonNull DocumentReference ref) {
+        final int reconcileGeneration = generation;
+        ref.get(Source.CACHE).addOnCompleteListener(RepositoryExecutors.snapshots(), task -> {
+            if (!task.isSuccessful()) {
+                Log.w(tag, "Không đọc lại được " + label + " từ cache: " + ref.getId(), task.getException());
+                return;
+            }
+            DocumentSnapshot snapshot = task.getResult();
+            synchronized (store) {
+                if (reconcileGeneration != generation) return;
+                if (!store.applyDocument(ref.getId(), snapshot.exists() ? snapshot.getData() : null)) return;
+            }
+            Log.d(tag, "↩️ " + label + " reconciled after failed write: " + ref.getId());
+            scheduleDrain();
+        });
+    }
+
+    /**
+     * Bọc callback của WriteBehindQueue: ghi lỗi -> reconcile(ref) rồi mới báo callback gốc
+     */
+    public WriteBehindQueue.Callback reconcileOnFailure(@NonNull DocumentReference ref,
+                                                       @Nullable WriteBehindQueue.Callback callback) {
+        return new WriteBehindQueue.Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                if (callback != null) callback.onSuccess(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                reconcile(ref);
+                if (callback != null) callback.onFailure(e);
+            }
+        };
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            RepositoryExecutors.runOnMain(this::drain);
+        }
+    }
+
+    @MainThread
+    private void drain() {
+        drainScheduled.set(false);
+        SnapshotStore.Result<T> result = store.drain();
+        if (result == null) return;
+        items.setValue(result.items);
+        changes.setValue(result.diff);
+        Log.d(tag, "✅ " + label + " updated: " + result.items.size() + " items (" + result.diff.size() + " changes)");
+    }
+
+    /**
+     * Listener đã bị gỡ tạm thời (không ai xem): GIỮ dữ liệu, bỏ qua snapshot của listener cũ
+     * còn trong hàng đợi; snapshot đầy đủ đầu tiên của listener mới sẽ đối chiếu lại
+     * (document bị xóa trong lúc tạm dừng được gỡ, document không đổi không phát lại)
+     */
+    public void pause() {
+        synchronized (store) {
+            generation++;
+            store.markResync();
+        }
+    }
+
+    /**
+     * Xóa dữ liệu và vô hiệu hóa các snapshot đang chờ (logout / đổi user)
+     */
+    @MainThread
+    public void reset() {
+        synchronized (store) {
+            generation++;
+            store.clear();
+        }
+        items.setValue(Collections.emptyList());
+    }
+
+    public LiveData<List<T>> getItems() {
+        return items;
+    }
+
+    /**
+     * Diff (ADDED / MODIFIED / REMOVED) của lần cập nhật gần nhất
+     */
+    public LiveData<SnapshotStore.Diff<T>> getChanges() {
+        return changes;
+    }
+
+    public SnapshotStore<T> getStore() {
+        return store;
+    }
+
+    /**
+     * LiveData báo cho activation khi có / hết observer active
+     */
+    private final class DemandLiveData<V> extends MutableLiveData<V> {
+        @Override
+        protected void onActive() {
+            if (activation != null) activation.acquire();
+        }
+
+        @Override
+        protected void onInactive() {
+            if (activation != null) activation.release();
+        }
+    }
+}
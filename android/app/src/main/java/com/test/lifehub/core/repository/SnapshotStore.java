@@ -0,0 +1,508 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * SnapshotStore - Bộ nhớ đệm có khóa (documentId) và đã sắp xếp cho 1 collection Firestore
+ *
+ * === MỤC ĐÍCH ===
+ * Thay vì gọi snapshot.toObjects(...) + gán lại documentId + sort toàn bộ danh sách
+ * mỗi khi có snapshot mới, store chỉ áp dụng snapshot.getDocumentChanges():
+ * - ADDED    -> map document mới, chèn vào cây đã sắp xếp (O(log n))
+ * - MODIFIED -> gỡ bản cũ, chèn bản mới (O(log n))
+ * - REMOVED  -> gỡ khỏi cây (O(log n))
+ *
+ * apply() chạy trên background thread và cộng dồn thay đổi; drain() (main thread)
+ * trả về danh sách mới (immutable, persistent - không copy, xem PersistentSortedList) và Diff để các lớp phía sau (index tìm kiếm,
+ * ViewModel, adapter) cập nhật tăng dần thay vì tính lại từ đầu.
+ * Nhiều snapshot liên tiếp trước 1 lần drain được gộp thành 1 Diff (không mất thay đổi).
+ *
+ * === BỎ QUA SNAPSHOT THỪA ===
+ * - Snapshot chỉ đổi metadata (không có document change) -> bỏ qua
+ * - "Echo" của pending write: bản server xác nhận có dữ liệu Y HỆT bản local
+ *   đã áp dụng trước đó -> bỏ qua (chỉ lưu data của các document đang pending)
+ *
+ * === KHỞI TẠO TỪ BỘ NHỚ MÁY (LocalMirror) ===
+ * - seed(): đổ dữ liệu đọc từ disk vào store để UI vẽ ngay, trước khi Firestore trả lời
+ * - Snapshot đầu tiên từ Firestore: document có data y hệt bản trên disk -> bỏ qua (không diff),
+ *   document đã seed nhưng không còn trong snapshot -> đã bị xóa khi app tắt -> gỡ
+ * - Seed tới SAU snapshot đầu tiên (disk chậm hơn mạng) -> bỏ qua, dữ liệu mạng mới hơn
+ *
+ * === TẠM DỪNG (DemandActivation) ===
+ * markResync(): listener bị gỡ nhưng dữ liệu giữ lại; snapshot đầy đủ của listener mới
+ * được đối chiếu như bản seed từ disk (mỗi Entry giữ raw data để so sánh)
+ *
+ * === THAY ĐỔI OPTIMISTIC ===
+ * applyLocal(): repository áp dụng ngay update / delete của chính app (không chờ ghi xong),
+ * snapshot tới sau ghi đè như bình thường; ghi lỗi -> applyDocument() với bản trong cache Firestore
+ *
+ * === LƯU Ý ===
+ * - Mapper có thể trả về null để lọc document (ví dụ: sai userOwnerId) -> coi như bị xóa
+ * - Sort key được tính MỘT LẦN khi item vào store và giữ cố định trong Entry,
+ *   nên UI có sửa trực tiếp object (setLastModified, ...) trước khi ghi lên Firestore
+ *   thì cây vẫn gỡ đúng bản cũ khi MODIFIED tới
+ *
+ * @param <T> Kiểu POJO (AccountEntry, TotpAccount, CalendarEvent, ...)
+ */
+public class SnapshotStore<T> {
+
+    /**
+     * Chuyển raw data của 1 document (snapshot hoặc LocalMirror) thành POJO (đã gán documentId)
+     * Trả về null nếu document không hợp lệ / cần lọc bỏ
+     */
+    public interface Mapper<T> {
+        @Nullable
+        T map(@NonNull String documentId, @NonNull Map<String, Object> data);
+    }
+
+    /**
+     * Thay đổi của một lần apply
+     */
+    public static class Diff<T> {
+        public final List<T> added;
+        public final List<T> modified;
+        public final List<String> removedIds;
+
+        Diff(List<T> added, List<T> modified, List<String> removedIds) {
+            this.added = Collections.unmodifiableList(added);
+            this.modified = Collections.unmodifiableList(modified);
+            this.removedIds = Collections.unmodifiableList(removedIds);
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && modified.isEmpty() && removedIds.isEmpty();
+        }
+
+        public int size() {
+            return added.size() + modified.size() + removedIds.size();
+        }
+    }
+
+    /**
+     * Kết quả drain: danh sách mới (đã sắp xếp, immutable) + diff
+     */
+    public static class Result<T> {
+        public final List<T> items;
+        public final Diff<T> diff;
+
+        Result(List<T> items, Diff<T> diff) {
+            this.items = items;
+            this.diff = diff;
+        }
+    }
+
+    /**
+     * Một thay đổi đã map sẵn (tách khỏi DocumentChange để dễ test)
+     */
+    public static class Change<T> {
+        final DocumentChange.Type type;
+        final String id;
+        final T item;                  // null nếu REMOVED hoặc bị mapper lọc
+        final boolean hasPendingWrites;
+        final Map<String, Object> data; // Chỉ dùng để phát hiện echo (pending write / seed)
+
+        public Change(DocumentChange.Type type, String id, @Nullable T item,
+                      boolean hasPendingWrites, @Nullable Map<String, Object> data) {
+            this.type = type;
+            this.id = id;
+            this.item = item;
+            this.hasPendingWrites = hasPendingWrites;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Item + sort key đã "đóng băng" tại thời điểm vào store
+     */
+    private static final class Entry<T> {
+        final String id;
+        final T item;
+        final Object key;
+        @Nullable
+        final Map<String, Object> data; // Raw data từ Firestore / disk (null = thay đổi local)
+
+        Entry(String id, T item, Object key, @Nullable Map<String, Object> data) {
+            this.id = id;
+            this.item = item;
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    private static final class PendingOp<T> {
+        final DocumentChange.Type type;
+        final T item;
+
+        PendingOp(DocumentChange.Type type, T item) {
+            this.type = type;
+            this.item = item;
+        }
+    }
+
+    private final Mapper<T> mapper;
+    private final Function<T, ?> sortKey;
+    private final Map<String, Entry<T>> byId = new HashMap<>();
+    // Bất biến: mỗi thay đổi tạo bản mới O(log n), danh sách đã phát ra dùng chung node với bản sau
+    private PersistentSortedList<Entry<T>> sorted;
+    // Data của các document đang có pending write (để nhận ra echo từ server)
+    private final Map<String, Map<String, Object>> pendingData = new HashMap<>();
+    // Diff cộng dồn chưa được drain (giữ thứ tự xuất hiện)
+    private final Map<String, PendingOp<T>> pendingOps = new LinkedHashMap<>();
+    // Data đã seed từ disk, chờ đối chiếu với snapshot đầu tiên (null = không seed / đã đối chiếu)
+    private Map<String, Map<String, Object>> seededData = null;
+    private boolean seedShown = false; // Đã phát danh sách seed từ disk
+    private boolean loaded = false; // Đã nhận snapshot đầu tiên chưa
+    private boolean dirty = false;  // Có thay đổi chưa drain
+
+    /**
+     * @param mapper Chuyển document -> POJO
+     * @param sortKey Tính sort key cho 1 item (gọi 1 lần khi item vào store)
+     * @param keyOrder Thứ tự của sort key; hòa thì so sánh theo documentId để thứ tự ổn định
+     */
+    @SuppressWarnings("unchecked")
+    public <K> SnapshotStore(Mapper<T> mapper, Function<T, K> sortKey, Comparator<? super K> keyOrder) {
+        this.mapper = mapper;
+        this.sortKey = sortKey;
+        Comparator<Object> order = (a, b) -> keyOrder.compare((K) a, (K) b);
+        this.sorted = new PersistentSortedList<>((e1, e2) -> {
+            int c = order.compare(e1.key, e2.key);
+            return c != 0 ? c : e1.id.compareTo(e2.id);
+        });
+    }
+
+    /**
+     * Store không cần thứ tự riêng: sắp xếp theo documentId (giống thứ tự mặc định của Firestore)
+     */
+    public SnapshotStore(Mapper<T> mapper) {
+        this(mapper, item -> "", Comparator.<String>naturalOrder());
+    }
+
+    /**
+     * Áp dụng một QuerySnapshot (chạy trên background thread của listener)
+     *
+     * @return true nếu dữ liệu thay đổi (cần drain() để phát ra), false nếu metadata-only / echo
+     */
+    public boolean apply(@NonNull QuerySnapshot snapshot) {
+        return apply(SnapshotBatch.of(snapshot));
+    }
+
+    /**
+     * Áp dụng các thay đổi đã đọc sẵn data (1 snapshot dùng chung cho nhiều store)
+     */
+    public boolean apply(@NonNull SnapshotBatch batch) {
+        List<Change<T>> changes = new ArrayList<>(batch.entries.size());
+        for (SnapshotBatch.Entry entry : batch.entries) {
+            T item = entry.data == null ? null : mapper.map(entry.id, entry.data);
+            changes.add(new Change<>(entry.type, entry.id, item, entry.hasPendingWrites, entry.data));
+        }
+        return applyChanges(changes, !batch.emptyFromCache);
+    }
+
+    /**
+     * Đổ dữ liệu đọc từ bộ nhớ máy vào store (chạy trên background thread)
+     * Không làm gì nếu store đã nhận snapshot từ Firestore
+     *
+     * @param documents documentId -> raw data (cùng dạng với DocumentSnapshot.getData())
+     * @return true nếu có dữ liệu cần phát ra
+     */
+    public synchronized boolean seed(@NonNull Map<String, Map<String, Object>> documents) {
+        if (loaded || documents.isEmpty()) return false;
+        seededData = new HashMap<>(documents);
+        for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+            T item = mapper.map(document.getKey(), document.getValue());
+            if (item == null) continue;
+            Entry<T> entry = new Entry<>(document.getKey(), item, sortKey.apply(item), document.getValue());
+            Entry<T> old = byId.put(entry.id, entry);
+            if (old != null) sorted = sorted.without(old);
+            sorted = sorted.with(entry);
+            recordUpserted(entry.id, item, old == null);
+        }
+        dirty = seedShown = !byId.isEmpty();
+        return dirty;
+    }
+
+    /**
+     * Áp dụng ngay thay đổi do chính app tạo ra, trước khi Firestore phát snapshot
+     *
+     * @param item null = gỡ document khỏi store
+     * @return true nếu có thay đổi cần phát ra
+     */
+    public synchronized boolean applyLocal(@NonNull String documentId, @Nullable T item) {
+        if (item == null) {
+            Entry<T> old = byId.remove(documentId);
+            if (old == null) return false;
+            sorted = sorted.without(old);
+            recordRemoved(documentId);
+        } else {
+            // Tính lại sort key (UI có thể đã sửa trực tiếp object đang nằm trong store)
+            Entry<T> entry = new Entry<>(documentId, item, sortKey.apply(item), null);
+            Entry<T> old = byId.put(documentId, entry);
+            if (old != null) sorted = sorted.without(old);
+            sorted = sorted.with(entry);
+            recordUpserted(documentId, item, old == null);
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Listener bị gỡ tạm thời (DemandActivation pause): giữ dữ liệu, coi dữ liệu hiện tại
+     * như bản seed -> snapshot đầy đủ đầu tiên của listener mới được đối chiếu giống lúc
+     * mở app (không đổi -> bỏ qua, không còn trên Firestore -> gỡ)
+     */
+    public synchronized void markResync() {
+        if (!loaded) return; // Chưa có snapshot nào: bản seed (nếu có) vẫn đang chờ đối chiếu
+        Map<String, Map<String, Object>> current = new HashMap<>();
+        for (Entry<T> entry : byId.values()) {
+            // Thay đổi local chưa có raw data -> không bao giờ bằng snapshot -> luôn được cập nhật
+            current.put(entry.id, entry.data != null ? entry.data : Collections.emptyMap());
+        }
+        seededData = current;
+        pendingData.clear();
+    }
+
+    /**
+     * Map raw data bằng mapper của store (không thay đổi store)
+     */
+    @Nullable
+    T map(@NonNull String documentId, @NonNull Map<String, Object> data) {
+        return mapper.map(documentId, data);
+    }
+
+    /**
+     * Thay bản trong store bằng raw data (đọc lại từ cache Firestore khi ghi lỗi)
+     *
+     * @param data null = document không tồn tại
+     */
+    public synchronized boolean applyDocument(@NonNull String documentId, @Nullable Map<String, Object> data) {
+        pendingData.remove(documentId);
+        return applyLocal(documentId, data != null ? mapper.map(documentId, data) : null);
+    }
+
+    /**
+     * Áp dụng danh sách thay đổi đã map sẵn
+     * Thay đổi được cộng dồn vào diff đang chờ cho tới lần drain() kế tiếp
+     *
+     * @return true nếu có thay đổi cần phát ra
+     */
+    public boolean applyChanges(@NonNull List<Change<T>> changes) {
+        return applyChanges(changes, true);
+    }
+
+    /**
+     * @param complete false nếu snapshot chưa đủ để đối chiếu với dữ liệu seed
+     *                 (snapshot rỗng từ cache Firestore) -> chờ snapshot sau
+     */
+    public synchronized boolean applyChanges(@NonNull List<Change<T>> changes, boolean complete) {
+        boolean changed = false;
+        Map<String, Map<String, Object>> seeded = complete ? seededData : null;
+        Set<String> present = seeded != null ? new HashSet<>() : null;
+
+        for (Change<T> change : changes) {
+            if (present != null) present.add(change.id);
+
+            // Snapshot đầu tiên trùng với bản đã seed từ disk -> UI đang hiển thị đúng rồi
+            if (seeded != null && change.type != DocumentChange.Type.REMOVED && !change.hasPendingWrites) {
+                Map<String, Object> diskData = seeded.get(change.id);
+                if (diskData != null && diskData.equals(change.data)
+                        && (change.item == null) == !byId.containsKey(change.id)) {
+                    continue;
+                }
+            }
+
+            if (change.type == DocumentChange.Type.REMOVED || change.item == null) {
+                pendingData.remove(change.id);
+                Entry<T> old = byId.remove(change.id);
+                if (old != null) {
+                    sorted = sorted.without(old);
+                    recordRemoved(change.id);
+                    changed = true;
+                }
+                continue;
+            }
+
+            // Echo: server xác nhận write đã được áp dụng local với cùng dữ liệu
+            if (!change.hasPendingWrites) {
+                Map<String, Object> localData = pendingData.remove(change.id);
+                if (localData != null && localData.equals(change.data) && byId.containsKey(change.id)) {
+                    continue;
+                }
+            } else if (change.data != null) {
+                pendingData.put(change.id, change.data);
+            }
+
+            Entry<T> entry = new Entry<>(change.id, change.item, sortKey.apply(change.item), change.data);
+            Entry<T> old = byId.put(change.id, entry);
+            if (old != null) {
+                sorted = sorted.without(old);
+            }
+            sorted = sorted.with(entry);
+            recordUpserted(change.id, change.item, old == null);
+            changed = true;
+        }
+
+        // Document seed từ disk không còn trên Firestore -> đã bị xóa (trên máy khác / web)
+        if (seeded != null) {
+            Iterator<Map.Entry<String, Entry<T>>> it = byId.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry<T>> e = it.next();
+                if (seeded.containsKey(e.getKey()) && !present.contains(e.getKey())) {
+                    it.remove();
+                    sorted = sorted.without(e.getValue());
+                    pendingData.remove(e.getKey());
+                    recordRemoved(e.getKey());
+                    changed = true;
+                }
+            }
+            seededData = null;
+        }
+
+        // Snapshot đầu tiên luôn được phát (kể cả rỗng) để UI thoát trạng thái loading
+        // (trừ khi danh sách seed từ disk đã được phát)
+        if (!loaded) {
+            loaded = true;
+            if (!seedShown) changed = true;
+        }
+        if (changed) dirty = true;
+        return changed;
+    }
+
+    /**
+     * Lấy danh sách hiện tại + diff cộng dồn kể từ lần drain trước
+     * Gọi trên main thread; nhiều snapshot tới liên tiếp chỉ cần 1 lần drain (conflation)
+     *
+     * @return null nếu không có gì mới
+     */
+    @Nullable
+    public synchronized Result<T> drain() {
+        if (!dirty) return null;
+        dirty = false;
+
+        List<T> added = new ArrayList<>();
+        List<T> modified = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, PendingOp<T>> op : pendingOps.entrySet()) {
+            switch (op.getValue().type) {
+                case ADDED: added.add(op.getValue().item); break;
+                case MODIFIED: modified.add(op.getValue().item); break;
+                case REMOVED: removed.add(op.getKey()); break;
+            }
+        }
+        pendingOps.clear();
+        return new Result<>(currentList(), new Diff<>(added, modified, removed));
+    }
+
+    // ----- Cộng dồn diff giữa 2 lần drain -----
+    // added -> modified  = added (item mới nhất)
+    // added -> removed   = không có gì
+    // removed -> added   = modified (document vẫn tồn tại ở lần drain trước)
+    // modified -> removed = removed
+
+    private void recordUpserted(String id, T item, boolean isNew) {
+        PendingOp<T> previous = pendingOps.get(id);
+        DocumentChange.Type type;
+        if (previous == null) {
+            type = isNew ? DocumentChange.Type.ADDED : DocumentChange.Type.MODIFIED;
+        } else if (previous.type == DocumentChange.Type.ADDED) {
+            type = DocumentChange.Type.ADDED;
+        } else {
+            type = DocumentChange.Type.MODIFIED;
+        }
+        pendingOps.put(id, new PendingOp<>(type, item));
+    }
+
+    private void recordRemoved(String id) {
+        PendingOp<T> previous = pendingOps.remove(id);
+        if (previous == null || previous.type != DocumentChange.Type.ADDED) {
+            pendingOps.put(id, new PendingOp<>(DocumentChange.Type.REMOVED, null));
+        }
+    }
+
+    /**
+     * Danh sách hiện tại (đã sắp xếp, immutable)
+     * O(1): là view trên bản PersistentSortedList hiện tại, không copy; thay đổi sau đó
+     * của store tạo bản mới nên list đã trả về không bao giờ đổi
+     */
+    public synchronized List<T> currentList() {
+        return new ItemList<>(sorted);
+    }
+
+    /**
+     * View chỉ đọc lấy item ra từ Entry
+     */
+    private static final class ItemList<T> extends AbstractList<T> {
+        private final PersistentSortedList<Entry<T>> entries;
+
+        ItemList(PersistentSortedList<Entry<T>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public T get(int index) {
+            return entries.get(index).item;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @NonNull
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Entry<T>> it = entries.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return it.next().item;
+                }
+            };
+        }
+    }
+
+    @Nullable
+    public synchronized T get(String documentId) {
+        Entry<T> entry = byId.get(documentId);
+        return entry != null ? entry.item : null;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    /**
+     * Xóa toàn bộ dữ liệu (logout / đổi user)
+     */
+    public synchronized void clear() {
+        byId.clear();
+        sorted = sorted.cleared();
+        pendingData.clear();
+        pendingOps.clear();
+        seededData = null;
+        seedShown = false;
+        loaded = false;
+        dirty = false;
+    }
+}
@@ -0,0 +1,151 @@
+package com.test.lifehub.core.repository;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * WarmUpSchedule - Bật trước listener của các mục người dùng hay mở tiếp theo
+ *
+ * === MỤC ĐÍCH ===
+ * DemandActivation chỉ bật listener khi màn hình đã mở -> lần đầu vào Ghi chú / Lịch
+ * phải chờ snapshot. Sau khi màn hình chính vẽ xong, schedule bật lần lượt các mục
+ * người dùng THƯỜNG mở (mỗi mục cách nhau STEP_MS để không tranh CPU / mạng với nhau và với UI):
+ * - Chỉ mục đã mở ít nhất MIN_OPEN_COUNT lần (đếm qua UsageStore, lưu trong SharedPreferences),
+ *   tối đa MAX_SECTIONS mục -> mục chưa từng mở không bị tải mỗi lần khởi động
+ * - Thứ tự: mục được mở nhiều nhất trước, hòa thì theo thứ tự add() (mặc định của app)
+ * - Mạng tính phí / pin yếu (DeviceState): không warm-up, mục nào mở thì tải mục đó
+ * - Mục không ai mở trong grace period tự tạm dừng (DemandActivation.warmUp)
+ * - cancel() khi Activity bị hủy: các bước chưa chạy bị bỏ
+ *
+ * === THREAD ===
+ * Main thread.
+ */
+public class WarmUpSchedule {
+
+    // Tên mục (key trong UsageStore)
+    public static final String SECTION_TASKS = "tasks";
+    public static final String SECTION_NOTES = "notes";
+    public static final String SECTION_CALENDAR = "calendar";
+
+    /** Chờ màn hình đầu tiên vẽ xong + listener đang được xem bắt đầu */
+    static final long FIRST_DELAY_MS = 1_500;
+    /** Khoảng cách giữa 2 mục */
+    static final long STEP_MS = 1_000;
+    /** Số lần mở tối thiểu để mục được warm-up */
+    static final int MIN_OPEN_COUNT = 3;
+    /** Số mục warm-up tối đa mỗi lần khởi động */
+    static final int MAX_SECTIONS = 2;
+
+    /**
+     * Số lần người dùng đã mở 1 mục
+     */
+    public interface UsageStore {
+        int getOpenCount(@NonNull String section);
+    }
+
+    /**
+     * Trạng thái thiết bị lúc khởi động
+     */
+    public interface DeviceState {
+        /** Mạng tính phí hoặc pin yếu -> không tải trước */
+        boolean isConstrained();
+    }
+
+    private static final class Section {
+        final String name;
+        final int defaultRank;
+        final List<DemandActivation> activations;
+
+        Section(String name, int defaultRank, List<DemandActivation> activations) {
+            this.name = name;
+            this.defaultRank = defaultRank;
+            this.activations = activations;
+        }
+    }
+
+    private final UsageStore usage;
+    private final DeviceState device;
+    private final DemandActivation.Scheduler scheduler;
+    private final List<Section> sections = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    public WarmUpSchedule(@NonNull UsageStore usage, @NonNull DeviceState device) {
+        this(usage, device, new DemandActivation.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMs) {
+                RepositoryExecutors.runOnMainDelayed(task, delayMs);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                RepositoryExecutors.cancelOnMain(task);
+            }
+        });
+    }
+
+    WarmUpSchedule(UsageStore usage, DeviceState device, DemandActivation.Scheduler scheduler) {
+        this.usage = usage;
+        this.device = device;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Thêm 1 mục; thứ tự add() là ưu tiên mặc định khi chưa có số liệu sử dụng
+     *
+     * @param activations Các collection mục đó cần (ví dụ Công việc: tasks + projects)
+     */
+    public WarmUpSchedule add(@NonNull String section, @NonNull DemandActivation... activations) {
+        sections.add(new Section(section, sections.size(), Arrays.asList(activations)));
+        return this;
+    }
+
+    /**
+     * Các mục sẽ warm-up, theo thứ tự: mở nhiều nhất trước, hòa thì theo thứ tự add()
+     */
+    List<String> order() {
+        List<String> names = new ArrayList<>();
+        for (Section section : selected()) names.add(section.name);
+        return names;
+    }
+
+    /**
+     * Hẹn lần lượt warm-up các mục (gọi lại khi đang chạy -> bắt đầu lại từ đầu)
+     */
+    @MainThread
+    public void start() {
+        cancel();
+        if (device.isConstrained()) return;
+        long delay = FIRST_DELAY_MS;
+        for (Section section : selected()) {
+            Runnable step = () -> {
+                for (DemandActivation activation : section.activations) activation.warmUp();
+            };
+            scheduled.add(step);
+            scheduler.schedule(step, delay);
+            delay += STEP_MS;
+        }
+    }
+
+    @MainThread
+    public void cancel() {
+        for (Runnable step : scheduled) scheduler.cancel(step);
+        scheduled.clear();
+    }
+
+    private List<Section> selected() {
+        List<Section> copy = new ArrayList<>();
+        for (Section section : sections) {
+            if (usage.getOpenCount(section.name) >= MIN_OPEN_COUNT) copy.add(section);
+        }
+        Collections.sort(copy, (a, b) -> {
+            int c = Integer.compare(usage.getOpenCount(b.name), usage.getOpenCount(a.name));
+            return c != 0 ? c : Integer.compare(a.defaultRank, b.defaultRank);
+        });
+        return copy.size() > MAX_SECTIONS ? copy.subList(0, MAX_SECTIONS) : copy;
+    }
+}
@@ -0,0 +1,581 @@
+package com.test.lifehub.core.repository;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+import com.test.lifehub.core.codec.DocumentCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBehindQueue - Hàng đợi ghi Firestore dùng chung cho các Repository
+ *
+ * === MỤC ĐÍCH ===
+ * Mỗi insert / update / delete trước đây là 1 round trip riêng. Tick liên tục 10 task
+ * hay migrate cả vault = hàng chục request. Queue giữ các thao tác trong 1 cửa sổ ngắn
+ * (WINDOW_MS) rồi commit chung bằng WriteBatch.
+ *
+ * === GỘP (COALESCE) THEO DOCUMENT ===
+ * Các thao tác chưa commit trên CÙNG document được gộp thành 1 (trạng thái cuối cùng):
+ * - set -> set        = set sau
+ * - set -> update     = set đã áp dụng các field của update
+ * - update -> update  = update gộp field (field sau đè field trước)
+ * - bất kỳ -> delete  = delete
+ * - delete -> set     = set
+ * - delete -> update  = update thất bại ngay (document đã bị xóa, giống Firestore)
+ * - arrayUnion (addToArray): phần tử được cộng dồn, không bị thao tác sau đè mất;
+ *   gộp vào set / update đã có giá trị của field đó -> thêm thẳng vào danh sách
+ * Callback của mọi thao tác được gộp đều được gọi khi commit xong.
+ *
+ * === THỨ TỰ ===
+ * - Mỗi document chỉ có 1 thao tác trong hàng đợi; hết cửa sổ gộp là MỌI write được đưa vào
+ *   Firestore SDK theo thứ tự flush, kể cả document còn write chờ server xác nhận.
+ *   SDK giữ thứ tự ghi và lưu write offline xuống đĩa -> app bị kill khi offline không mất sửa đổi
+ * - Batch lỗi (atomic: 1 write lỗi làm hỏng cả batch) -> commit lại từng write riêng
+ *   để write hợp lệ không bị mất, nhưng không để write cũ đè write mới hơn của cùng document:
+ *   - write mới hơn còn trong cửa sổ gộp -> gộp vào lần commit lại (rút khỏi hàng đợi)
+ *   - write mới hơn đã đưa vào SDK: set / delete -> bỏ write cũ (báo lỗi);
+ *     update -> set cũ được áp field mới trước khi commit lại, update cũ bỏ các field đó
+ *
+ * === METRICS ===
+ * getQueueDepth(): số write đang chờ + đang commit; getStats(): latency commit, số lần gộp...
+ * Latency write = từ lúc vào hàng đợi tới khi server xác nhận (gồm cả cửa sổ gộp);
+ * logging() ghi kèm số đo này để so sánh trên logcat.
+ *
+ * === LƯU Ý ===
+ * - save(): model load từ Firestore chỉ gửi field đã đổi (update), model mới -> set
+ * - update() chỉ hỗ trợ field cấp 1 (không dùng "a.b") khi gộp với set
+ * - Callback được gọi trên main thread (listener mặc định của Task)
+ * - flush() khi logout / dừng listener để không còn write nằm trong cửa sổ chờ
+ */
+public class WriteBehindQueue {
+
+    static final long WINDOW_MS = 100;
+    static final int MAX_BATCH_SIZE = 500; // Giới hạn của WriteBatch
+
+    /**
+     * Kết quả của 1 thao tác ghi
+     */
+    public interface Callback {
+        void onSuccess(String documentId);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Callback chỉ ghi log (thay cho addOnSuccessListener / addOnFailureListener chỉ để log)
+     */
+    public Callback logging(String tag, String successMessage, String failureMessage) {
+        return new Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                Log.d(tag, "✅ " + successMessage + ": " + documentId + " (" + getStats().lastWriteLatencyMs + "ms)");
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.w(tag, "❌ " + failureMessage, e);
+            }
+        };
+    }
+
+    /**
+     * Commit 1 nhóm write (mặc định: WriteBatch của Firestore)
+     */
+    interface Committer {
+        void commit(List<Write> writes, CommitListener listener);
+    }
+
+    interface CommitListener {
+        void onComplete(@Nullable Exception error);
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    enum Kind { SET, UPDATE, DELETE }
+
+    /**
+     * 1 write đã gộp của 1 document
+     */
+    static final class Write {
+        final DocumentReference ref;
+        final String path;
+        Kind kind;
+        Map<String, Object> data;
+        Map<String, List<Object>> arrayUnions;  // Chỉ với UPDATE: field -> phần tử cần thêm
+        final long enqueuedAtNanos;     // Thao tác đầu tiên vào hàng đợi
+        final List<Callback> callbacks = new ArrayList<>();
+        long sequence;                  // Thứ tự đưa vào SDK
+
+        Write(DocumentReference ref, String path) {
+            this.ref = ref;
+            this.path = path;
+            this.enqueuedAtNanos = System.nanoTime();
+        }
+
+        /** Bản sao để commit lại (batch cũ giữ nguyên) */
+        Write(Write source) {
+            this.ref = source.ref;
+            this.path = source.path;
+            this.enqueuedAtNanos = source.enqueuedAtNanos;
+            this.kind = source.kind;
+            this.data = source.data != null ? new HashMap<>(source.data) : null;
+            this.arrayUnions = source.arrayUnions != null ? copyUnions(source.arrayUnions) : null;
+            this.callbacks.addAll(source.callbacks);
+        }
+
+        /** Dữ liệu gửi đi của UPDATE (arrayUnions -> FieldValue.arrayUnion) */
+        Map<String, Object> updateData() {
+            if (arrayUnions == null || arrayUnions.isEmpty()) return data;
+            Map<String, Object> result = new HashMap<>(data);
+            for (Map.Entry<String, List<Object>> union : arrayUnions.entrySet()) {
+                result.put(union.getKey(), FieldValue.arrayUnion(union.getValue().toArray()));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ảnh chụp metrics của queue
+     */
+    public static final class Stats {
+        public final int pendingWrites;        // Đang chờ trong cửa sổ gộp
+        public final int inFlightWrites;       // Đã gửi, chờ server xác nhận
+        public final long commits;             // Số batch đã xong
+        public final long committedWrites;     // Số write (sau gộp) commit thành công
+        public final long coalescedWrites;     // Số thao tác được gộp vào write khác
+        public final long failedWrites;
+        public final long lastCommitLatencyMs;
+        public final long averageCommitLatencyMs;
+        public final long maxCommitLatencyMs;
+        public final long lastWriteLatencyMs;  // Vào hàng đợi -> server xác nhận
+        public final long averageWriteLatencyMs;
+        public final long maxWriteLatencyMs;
+
+        Stats(int pendingWrites, int inFlightWrites, long commits, long committedWrites, long coalescedWrites,
+              long failedWrites, long lastCommitLatencyMs, long averageCommitLatencyMs, long maxCommitLatencyMs,
+              long lastWriteLatencyMs, long averageWriteLatencyMs, long maxWriteLatencyMs) {
+            this.pendingWrites = pendingWrites;
+            this.inFlightWrites = inFlightWrites;
+            this.commits = commits;
+            this.committedWrites = committedWrites;
+            this.coalescedWrites = coalescedWrites;
+            this.failedWrites = failedWrites;
+            this.lastCommitLatencyMs = lastCommitLatencyMs;
+            this.averageCommitLatencyMs = averageCommitLatencyMs;
+            this.maxCommitLatencyMs = maxCommitLatencyMs;
+            this.lastWriteLatencyMs = lastWriteLatencyMs;
+            this.averageWriteLatencyMs = averageWriteLatencyMs;
+            this.maxWriteLatencyMs = maxWriteLatencyMs;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "pending=" + pendingWrites + ", inFlight=" + inFlightWrites + ", commits=" + commits
+                    + ", writes=" + committedWrites + ", coalesced=" + coalescedWrites + ", failed=" + failedWrites
+                    + ", latency last/avg/max=" + lastCommitLatencyMs + "/" + averageCommitLatencyMs
+                    + "/" + maxCommitLatencyMs + "ms, write last/avg/max=" + lastWriteLatencyMs + "/"
+                    + averageWriteLatencyMs + "/" + maxWriteLatencyMs + "ms";
+        }
+    }
+
+    private final Committer committer;
+    private final Scheduler scheduler;
+    private final long windowMs;
+
+    // Write chưa commit, theo path của document (giữ thứ tự thêm vào)
+    private final Map<String, Write> pending = new LinkedHashMap<>();
+    // Write đã đưa vào SDK, chờ server xác nhận (theo document, thứ tự đưa vào)
+    private final Map<String, List<Write>> inFlightByPath = new HashMap<>();
+    private long nextSequence = 0;
+    private boolean flushScheduled = false;
+
+    // ----- Metrics -----
+    private int inFlight = 0;
+    private long commits = 0;
+    private long committedWrites = 0;
+    private long coalescedWrites = 0;
+    private long failedWrites = 0;
+    private long totalLatencyMs = 0;
+    private long lastLatencyMs = 0;
+    private long maxLatencyMs = 0;
+    private long totalWriteLatencyMs = 0;
+    private long lastWriteLatencyMs = 0;
+    private long maxWriteLatencyMs = 0;
+
+    public WriteBehindQueue(FirebaseFirestore db) {
+        this(firestoreCommitter(db), delayedScheduler(), WINDOW_MS);
+    }
+
+    WriteBehindQueue(Committer committer, Scheduler scheduler, long windowMs) {
+        this.committer = committer;
+        this.scheduler = scheduler;
+        this.windowMs = windowMs;
+    }
+
+    // ===== API =====
+
+    public void set(@NonNull DocumentReference ref, @NonNull Map<String, Object> data, @Nullable Callback callback) {
+        enqueue(ref, Kind.SET, data, null, callback);
+    }
+
+    public void update(@NonNull DocumentReference ref, @NonNull Map<String, Object> fields, @Nullable Callback callback) {
+        enqueue(ref, Kind.UPDATE, fields, null, callback);
+    }
+
+    /**
+     * Thêm phần tử vào field mảng (FieldValue.arrayUnion) kèm các field khác, không đọc trước
+     * Nhiều lần thêm vào cùng document trong cửa sổ gộp được cộng dồn.
+     */
+    public void addToArray(@NonNull DocumentReference ref, @NonNull String field, @NonNull Object element,
+                           @NonNull Map<String, Object> fields, @Nullable Callback callback) {
+        List<Object> elements = new ArrayList<>();
+        elements.add(element);
+        enqueue(ref, Kind.UPDATE, fields, Collections.singletonMap(field, elements), callback);
+    }
+
+    /**
+     * Lưu model đã có trên Firestore, chỉ gửi các field đã đổi kể từ lúc load
+     *
+     * - Model không có trạng thái load (tạo mới / qua Bundle) -> set() toàn bộ
+     * - Không có field nào đổi -> không ghi, callback báo thành công ngay
+     * - Commit lỗi -> quên trạng thái load, lần lưu sau ghi lại toàn bộ document
+     */
+    public <T extends TrackedDocument> void save(@NonNull DocumentReference ref, @NonNull DocumentCodec<T> codec,
+                                                 @NonNull T object, @Nullable Callback callback) {
+        Map<String, Object> data = codec.toMap(object);
+        Map<String, Object> changes = object.changedFields(codec, data);
+        if (changes != null && changes.isEmpty()) {
+            if (callback != null) callback.onSuccess(ref.getId());
+            return;
+        }
+        object.markLoaded(data); // Lần lưu sau so sánh với bản vừa ghi
+        Callback tracking = new Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                if (callback != null) callback.onSuccess(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                object.markLoaded(null);
+                if (callback != null) callback.onFailure(e);
+            }
+        };
+        if (changes == null) {
+            set(ref, data, tracking);
+        } else {
+            update(ref, changes, tracking);
+        }
+    }
+
+    public void delete(@NonNull DocumentReference ref, @Nullable Callback callback) {
+        enqueue(ref, Kind.DELETE, null, null, callback);
+    }
+
+    /**
+     * Commit ngay mọi write đang chờ (không đợi hết cửa sổ gộp)
+     */
+    public void flush() {
+        List<List<Write>> batches = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            List<Write> current = new ArrayList<>();
+            for (Write write : pending.values()) {
+                if (current.size() == MAX_BATCH_SIZE) {
+                    batches.add(current);
+                    current = new ArrayList<>();
+                }
+                markInFlight(write);
+                current.add(write);
+            }
+            pending.clear();
+            if (!current.isEmpty()) batches.add(current);
+        }
+        for (List<Write> batch : batches) {
+            commit(batch);
+        }
+    }
+
+    /**
+     * Số write đang chờ + đang commit
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size() + inFlight;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(pending.size(), inFlight, commits, committedWrites, coalescedWrites, failedWrites,
+                lastLatencyMs, commits > 0 ? totalLatencyMs / commits : 0, maxLatencyMs,
+                lastWriteLatencyMs, committedWrites > 0 ? totalWriteLatencyMs / committedWrites : 0, maxWriteLatencyMs);
+    }
+
+    // ===== NỘI BỘ =====
+
+    private void enqueue(DocumentReference ref, Kind kind, @Nullable Map<String, Object> data,
+                         @Nullable Map<String, List<Object>> unions, @Nullable Callback callback) {
+        Exception rejected = null;
+        boolean flushNow = false;
+        boolean schedule = false;
+        synchronized (this) {
+            String path = ref.getPath();
+            Write write = pending.get(path);
+            if (write == null) {
+                write = new Write(ref, path);
+                write.kind = kind;
+                write.data = data != null ? new HashMap<>(data) : null;
+                if (unions != null) write.arrayUnions = copyUnions(unions);
+                pending.put(path, write);
+            } else if (kind == Kind.UPDATE && write.kind == Kind.DELETE) {
+                rejected = new FirebaseFirestoreException("Document was deleted before update: " + path,
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            } else {
+                merge(write, kind, data, unions);
+                coalescedWrites++;
+            }
+
+            if (rejected == null) {
+                if (callback != null) write.callbacks.add(callback);
+                if (pending.size() >= MAX_BATCH_SIZE) {
+                    flushNow = true;
+                } else if (!flushScheduled) {
+                    flushScheduled = schedule = true;
+                }
+            }
+        }
+        if (rejected != null) {
+            if (callback != null) callback.onFailure(rejected);
+            return;
+        }
+        if (flushNow) {
+            flush();
+        } else if (schedule) {
+            scheduler.schedule(this::flush, windowMs);
+        }
+    }
+
+    private static void merge(Write write, Kind kind, @Nullable Map<String, Object> data,
+                              @Nullable Map<String, List<Object>> unions) {
+        if (kind == Kind.DELETE) {
+            write.kind = Kind.DELETE;
+            write.data = null;
+            write.arrayUnions = null;
+        } else if (kind == Kind.SET || write.kind == Kind.DELETE) {
+            write.kind = Kind.SET;
+            write.data = new HashMap<>(data);
+            write.arrayUnions = null;
+        } else if (write.kind == Kind.SET) {
+            // Áp dụng update lên dữ liệu set đang chờ
+            for (Map.Entry<String, Object> field : data.entrySet()) {
+                if (FieldValue.delete().equals(field.getValue())) {
+                    write.data.remove(field.getKey());
+                } else {
+                    write.data.put(field.getKey(), field.getValue());
+                }
+            }
+            if (unions != null) {
+                for (Map.Entry<String, List<Object>> union : unions.entrySet()) {
+                    write.data.put(union.getKey(), union(write.data.get(union.getKey()), union.getValue()));
+                }
+            }
+        } else {
+            // Giá trị ghi thẳng thay cho phần tử đang chờ thêm vào cùng field
+            if (write.arrayUnions != null) write.arrayUnions.keySet().removeAll(data.keySet());
+            write.data.putAll(data);
+            if (unions == null) return;
+            for (Map.Entry<String, List<Object>> union : unions.entrySet()) {
+                String field = union.getKey();
+                if (write.data.get(field) instanceof List) {
+                    write.data.put(field, union(write.data.get(field), union.getValue()));
+                } else {
+                    if (write.arrayUnions == null) write.arrayUnions = new HashMap<>();
+                    List<Object> elements = write.arrayUnions.get(field);
+                    if (elements == null) {
+                        write.arrayUnions.put(field, new ArrayList<>(union.getValue()));
+                    } else {
+                        elements.addAll(union.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Danh sách mới = current (nếu là List) + các phần tử chưa có, giống arrayUnion */
+    private static List<Object> union(@Nullable Object current, List<Object> elements) {
+        List<Object> result = current instanceof List ? new ArrayList<>((List<?>) current) : new ArrayList<>();
+        for (Object element : elements) {
+            if (!result.contains(element)) result.add(element);
+        }
+        return result;
+    }
+
+    private static Map<String, List<Object>> copyUnions(Map<String, List<Object>> unions) {
+        Map<String, List<Object>> copy = new HashMap<>();
+        for (Map.Entry<String, List<Object>> union : unions.entrySet()) {
+            copy.put(union.getKey(), new ArrayList<>(union.getValue()));
+        }
+        return copy;
+    }
+
+    private void commit(List<Write> batch) {
+        final long start = System.nanoTime();
+        committer.commit(batch, error -> onCommitted(batch, start, error));
+    }
+
+    private void onCommitted(List<Write> batch, long start, @Nullable Exception error) {
+        long now = System.nanoTime();
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(now - start);
+        // Commit lại riêng từng write để tìm đúng write lỗi
+        boolean retry = error != null && batch.size() > 1;
+        List<Write> retries = new ArrayList<>();
+        List<Write> done = new ArrayList<>();
+        synchronized (this) {
+            commits++;
+            totalLatencyMs += latencyMs;
+            lastLatencyMs = latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+
+            for (Write write : batch) {
+                List<Write> newer = removeInFlight(write);
+                Write retried = retry ? retryOf(write, newer) : null;
+                if (retried != null) {
+                    markInFlight(retried);
+                    retries.add(retried);
+                    continue;
+                }
+                done.add(write);
+                if (error == null) {
+                    committedWrites++;
+                    lastWriteLatencyMs = TimeUnit.NANOSECONDS.toMillis(now - write.enqueuedAtNanos);
+                    totalWriteLatencyMs += lastWriteLatencyMs;
+                    maxWriteLatencyMs = Math.max(maxWriteLatencyMs, lastWriteLatencyMs);
+                } else {
+                    failedWrites++;
+                }
+            }
+        }
+
+        for (Write write : retries) {
+            commit(Collections.singletonList(write));
+        }
+        for (Write write : done) {
+            for (Callback callback : write.callbacks) {
+                if (error == null) {
+                    callback.onSuccess(write.ref.getId());
+                } else {
+                    callback.onFailure(error);
+                }
+            }
+        }
+    }
+
+    /** Guarded by this */
+    private void markInFlight(Write write) {
+        write.sequence = nextSequence++;
+        List<Write> writes = inFlightByPath.get(write.path);
+        if (writes == null) {
+            writes = new ArrayList<>();
+            inFlightByPath.put(write.path, writes);
+        }
+        writes.add(write);
+        inFlight++;
+    }
+
+    /**
+     * Guarded by this
+     * @return write của cùng document được đưa vào SDK SAU write này (còn chờ xác nhận)
+     */
+    private List<Write> removeInFlight(Write write) {
+        inFlight--;
+        List<Write> writes = inFlightByPath.get(write.path);
+        if (writes == null) return Collections.emptyList();
+        writes.remove(write);
+        if (writes.isEmpty()) inFlightByPath.remove(write.path);
+        List<Write> newer = new ArrayList<>();
+        for (Write other : writes) {
+            if (other.sequence > write.sequence) newer.add(other);
+        }
+        return newer;
+    }
+
+    /**
+     * Guarded by this. Write để commit lại thay cho write trong batch lỗi,
+     * null nếu write mới hơn của document đã thay thế hết nội dung của nó
+     */
+    @Nullable
+    private Write retryOf(Write write, List<Write> newer) {
+        Write retried = new Write(write);
+        for (Write other : newer) {
+            if (other.kind != Kind.UPDATE) return null; // set / delete mới hơn quyết định trạng thái cuối
+            if (retried.kind == Kind.SET) {
+                merge(retried, Kind.UPDATE, other.data, other.arrayUnions);
+            } else if (retried.kind == Kind.UPDATE) {
+                retried.data.keySet().removeAll(other.data.keySet());
+                if (other.arrayUnions != null) retried.data.keySet().removeAll(other.arrayUnions.keySet());
+                if (retried.arrayUnions != null) retried.arrayUnions.keySet().removeAll(other.data.keySet());
+            }
+        }
+        if (retried.kind == Kind.UPDATE && retried.data.isEmpty()
+                && (retried.arrayUnions == null || retried.arrayUnions.isEmpty())) {
+            return null;
+        }
+
+        // Write mới hơn còn trong cửa sổ gộp -> đi cùng lần commit lại, không commit riêng sau đó
+        Write pendingWrite = pending.get(write.path);
+        if (pendingWrite != null && !(retried.kind == Kind.DELETE && pendingWrite.kind == Kind.UPDATE)) {
+            pending.remove(write.path);
+            merge(retried, pendingWrite.kind, pendingWrite.data, pendingWrite.arrayUnions);
+            retried.callbacks.addAll(pendingWrite.callbacks);
+            coalescedWrites++;
+        }
+        return retried;
+    }
+
+    // ===== MẶC ĐỊNH =====
+
+    private static Committer firestoreCommitter(FirebaseFirestore db) {
+        return (writes, listener) -> {
+            WriteBatch batch = db.batch();
+            for (Write write : writes) {
+                switch (write.kind) {
+                    case SET: batch.set(write.ref, write.data); break;
+                    case UPDATE: batch.update(write.ref, write.updateData()); break;
+                    case DELETE: batch.delete(write.ref); break;
+                }
+            }
+            batch.commit().addOnCompleteListener(task -> {
+                Exception error = task.getException();
+                listener.onComplete(task.isSuccessful() ? null
+                        : error != null ? error : new IllegalStateException("Batch commit cancelled"));
+            });
+        };
+    }
+
+    private static Scheduler delayedScheduler() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lifehub-writes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return (task, delayMs) -> executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -5,6 +5,8 @@ import android.content.SharedPreferences;
 import android.util.Base64;
 import android.util.Log;
 
+import com.test.lifehub.core.util.StartupTracer;
+
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 
@@ -171,19 +173,7 @@ public class CrossPlatformEncryptionHelper {
             }
 
             // Derive key từ password + salt bằng PBKDF2
-            SecretKeyFactory factory = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(
-                masterPassword.toCharArray(),
-                saltBytes,
-                PBKDF2_ITERATIONS,
-                KEY_LENGTH_BITS
-            );
-            
-            SecretKey secretKey = factory.generateSecret(spec);
-            derivedKeyBytes = secretKey.getEncoded();
-            
-            // Clear password từ memory (security)
-            spec.clearPassword();
+            derivedKeyBytes = deriveKey(masterPassword, saltBytes);
             
             isInitialized = true;
             Log.d(TAG, "Encryption initialized successfully");
@@ -195,6 +185,48 @@ public class CrossPlatformEncryptionHelper {
         }
     }
 
+    /**
+     * PBKDF2 (100.000 vòng - bước chậm nhất khi mở khóa), không đổi trạng thái helper
+     * Tách riêng để EncryptionManager derive song song với việc đọc user document
+     */
+    public static byte[] deriveKey(String masterPassword, byte[] salt) throws Exception {
+        StartupTracer.beginSection("PBKDF2");
+        PBEKeySpec spec = new PBEKeySpec(masterPassword.toCharArray(), salt, PBKDF2_ITERATIONS, KEY_LENGTH_BITS);
+        try {
+            SecretKey secretKey = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec);
+            return secretKey.getEncoded();
+        } finally {
+            // Clear password từ memory (security)
+            spec.clearPassword();
+            StartupTracer.endSection();
+        }
+    }
+
+    /**
+     * Salt đang dùng (local hoặc đã đồng bộ từ Firestore), null nếu chưa setup
+     */
+    public byte[] getSaltBytes() {
+        return saltBytes != null ? saltBytes.clone() : null;
+    }
+
+    /**
+     * Mở khóa bằng key đã derive sẵn: thử decrypt chuỗi verification
+     * (thay cho verifyMasterPassword + initializeWithMasterPassword - 2 lần PBKDF2)
+     *
+     * @return true nếu key đúng (helper đã unlock)
+     */
+    public boolean unlockWithDerivedKey(byte[] key, String testEncrypted) {
+        derivedKeyBytes = key;
+        isInitialized = true;
+        String decrypted = decrypt(testEncrypted);
+        if (decrypted != null && !decrypted.equals(testEncrypted)) {
+            Log.d(TAG, "Encryption initialized successfully");
+            return true;
+        }
+        lock();
+        return false;
+    }
+
     /**
      * Xác thực Master Password (kiểm tra password đúng)
      * Bằng cách thử decrypt một chuỗi test đã biết
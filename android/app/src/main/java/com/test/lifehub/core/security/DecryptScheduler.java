@@ -0,0 +1,283 @@
+package com.test.lifehub.core.security;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * DecryptScheduler - Giải mã bất đồng bộ theo độ ưu tiên (dòng đang hiện trước)
+ *
+ * === VẤN ĐỀ CŨ ===
+ * MainActivity giải mã mọi mật khẩu cho cache autofill ngay khi vault tải xong, các màn chọn
+ * tài khoản giải mã trên main thread khi chạm vào. Vault càng lớn, dòng đầu tiên dùng được
+ * càng trễ.
+ *
+ * === CÁCH LÀM ===
+ * - 3 mức: VISIBLE (dòng đang bind) > PREFETCH (cửa sổ đón trước theo hướng cuộn,
+ *   xem DecryptWindow) > BACKGROUND; cùng mức thì yêu cầu trước chạy trước
+ * - 1 key (documentId) = 1 task: yêu cầu lại với mức cao hơn -> nâng mức, không giải mã 2 lần
+ * - Worker lấy task ưu tiên cao nhất TẠI LÚC CHẠY (không theo thứ tự gửi) -> dòng vừa cuộn
+ *   tới vượt lên trước phần prefetch / background còn lại
+ * - Kết quả giao qua delivery executor (main thread) tới callback của view holder;
+ *   holder bị recycle -> cancel() gỡ callback, task hạ xuống PREFETCH
+ * - Cache LRU nhỏ (theo key + ciphertext): bind lại / mở chi tiết không giải mã lại;
+ *   ciphertext đổi (tài khoản bị sửa) -> cache cũ không dùng; clear() khi khóa
+ * - Giải mã lỗi: báo ErrorListener (ghi log) + onDecryptFailed của các callback, task bị bỏ
+ *   (không cache) -> lần bind sau yêu cầu lại
+ *
+ * === THREAD ===
+ * request / cancel / peek gọi từ thread bất kỳ (thường là main), giải mã chạy trên worker.
+ */
+public class DecryptScheduler {
+
+    public enum Priority {
+        VISIBLE,    // Dòng đang hiển thị
+        PREFETCH,   // Sắp cuộn tới
+        BACKGROUND  // Còn lại (chỉ khi thật sự cần)
+    }
+
+    /**
+     * Hàm giải mã thật (EncryptionManager.decrypt)
+     */
+    public interface Decryptor {
+        String decrypt(String cipherText);
+    }
+
+    public interface Callback {
+        void onDecrypted(@NonNull String key, @NonNull String plainText);
+
+        /** Giải mã lỗi (sai khóa, dữ liệu hỏng...), gọi trên delivery executor */
+        default void onDecryptFailed(@NonNull String key, @NonNull Exception error) {
+        }
+    }
+
+    /**
+     * Nơi ghi lỗi giải mã (Log trên Android), gọi trên worker thread
+     */
+    public interface ErrorListener {
+        void onError(@NonNull String key, @NonNull Exception error);
+    }
+
+    private static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final class Task {
+        final String key;
+        final String cipherText;
+        Priority priority;
+        final List<Callback> callbacks = new ArrayList<>();
+
+        Task(String key, String cipherText, Priority priority) {
+            this.key = key;
+            this.cipherText = cipherText;
+            this.priority = priority;
+        }
+    }
+
+    /** 1 lần xếp hàng của task; task đổi mức -> entry cũ thành stale, bị bỏ qua khi lấy ra */
+    private static final class Entry implements Comparable<Entry> {
+        final Task task;
+        final Priority priority;
+        final long sequence;
+
+        Entry(Task task, Priority priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int c = priority.compareTo(other.priority);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class CachedPlain {
+        final String cipherText;
+        final String plainText;
+
+        CachedPlain(String cipherText, String plainText) {
+            this.cipherText = cipherText;
+            this.plainText = plainText;
+        }
+    }
+
+    private final Decryptor decryptor;
+    private final Executor worker;
+    private final Executor delivery;
+    private final ErrorListener errorListener;
+
+    // Tất cả guarded by this
+    private final Map<String, Task> pending = new HashMap<>();
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final LinkedHashMap<String, CachedPlain> cache;
+    private long sequence;
+    private int decryptCount;
+
+    /**
+     * @param worker Thread giải mã (nên là 1 thread: mỗi lần chạy lấy task ưu tiên cao nhất)
+     * @param delivery Nơi gọi callback (main thread trên Android)
+     */
+    public DecryptScheduler(@NonNull Decryptor decryptor, @NonNull Executor worker,
+                            @NonNull Executor delivery, @NonNull ErrorListener errorListener,
+                            int cacheSize) {
+        this.decryptor = decryptor;
+        this.worker = worker;
+        this.delivery = delivery;
+        this.errorListener = errorListener;
+        this.cache = new LinkedHashMap<String, CachedPlain>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPlain> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public DecryptScheduler(@NonNull Decryptor decryptor, @NonNull Executor delivery,
+                            @NonNull ErrorListener errorListener) {
+        this(decryptor, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lifehub-decrypt");
+            thread.setDaemon(true);
+            return thread;
+        }), delivery, errorListener, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Yêu cầu giải mã
+     *
+     * @param key ID ổn định của dữ liệu (documentId...)
+     * @param callback null = chỉ làm nóng cache (prefetch / background)
+     */
+    public void request(@NonNull String key, @Nullable String cipherText, @NonNull Priority priority,
+                        @Nullable Callback callback) {
+        if (cipherText == null || cipherText.isEmpty()) {
+            if (callback != null) delivery.execute(() -> callback.onDecrypted(key, ""));
+            return;
+        }
+        boolean schedule = false;
+        String ready = null;
+        synchronized (this) {
+            CachedPlain cached = cache.get(key);
+            if (cached != null && cached.cipherText.equals(cipherText)) {
+                ready = cached.plainText;
+            } else {
+                Task task = pending.get(key);
+                if (task != null && !task.cipherText.equals(cipherText)) {
+                    pending.remove(key); // Tài khoản vừa bị sửa: task cũ vô hiệu (entry thành stale)
+                    task = null;
+                }
+                if (task == null) {
+                    task = new Task(key, cipherText, priority);
+                    pending.put(key, task);
+                    queue.add(new Entry(task, priority, sequence++));
+                    schedule = true;
+                } else if (priority.compareTo(task.priority) < 0) {
+                    task.priority = priority;
+                    queue.add(new Entry(task, priority, sequence++));
+                }
+                if (callback != null && !task.callbacks.contains(callback)) task.callbacks.add(callback);
+            }
+        }
+        if (ready != null) {
+            if (callback != null) {
+                String plainText = ready;
+                delivery.execute(() -> callback.onDecrypted(key, plainText));
+            }
+        } else if (schedule) {
+            worker.execute(this::runNext);
+        }
+    }
+
+    /**
+     * Holder không còn hiển thị key này: bỏ callback, task (nếu chưa chạy) hạ xuống PREFETCH
+     */
+    public synchronized void cancel(@NonNull String key, @NonNull Callback callback) {
+        Task task = pending.get(key);
+        if (task == null) return;
+        task.callbacks.remove(callback);
+        if (task.callbacks.isEmpty() && task.priority == Priority.VISIBLE) {
+            task.priority = Priority.PREFETCH;
+            queue.add(new Entry(task, Priority.PREFETCH, sequence++));
+        }
+    }
+
+    /**
+     * Bản rõ đã có sẵn (không chặn, không giải mã)
+     * @return null nếu chưa giải mã xong hoặc ciphertext đã đổi
+     */
+    @Nullable
+    public synchronized String peek(@NonNull String key, @Nullable String cipherText) {
+        if (cipherText == null) return null;
+        CachedPlain cached = cache.get(key);
+        return cached != null && cached.cipherText.equals(cipherText) ? cached.plainText : null;
+    }
+
+    /**
+     * Bỏ hết hàng đợi + bản rõ đã cache (khóa mã hóa / đăng xuất)
+     */
+    public synchronized void clear() {
+        pending.clear();
+        queue.clear();
+        cache.clear();
+    }
+
+    /** Số lần đã giải mã thật (test / log) */
+    public synchronized int getDecryptCount() {
+        return decryptCount;
+    }
+
+    /**
+     * Chạy 1 task ưu tiên cao nhất hiện tại (mỗi task mới gửi đúng 1 lần vào worker)
+     */
+    void runNext() {
+        Task task;
+        synchronized (this) {
+            task = null;
+            while (!queue.isEmpty()) {
+                Entry entry = queue.poll();
+                if (entry.priority == entry.task.priority && pending.get(entry.task.key) == entry.task) {
+                    task = entry.task;
+                    break;
+                }
+            }
+            if (task == null) return; // Task đã bị nâng mức chạy trước / bị thay / clear()
+        }
+
+        String plainText = null;
+        Exception error = null;
+        try {
+            plainText = decryptor.decrypt(task.cipherText);
+            if (plainText == null) error = new IllegalStateException("Decryptor returned null");
+        } catch (Exception e) {
+            error = e;
+        }
+
+        final String key = task.key;
+        if (error != null) errorListener.onError(key, error);
+        List<Callback> callbacks;
+        synchronized (this) {
+            if (pending.get(task.key) != task) return; // clear() hoặc ciphertext mới trong lúc giải mã
+            pending.remove(task.key);
+            decryptCount++;
+            if (error == null) cache.put(task.key, new CachedPlain(task.cipherText, plainText));
+            callbacks = new ArrayList<>(task.callbacks);
+        }
+        final String result = plainText;
+        final Exception failure = error;
+        for (Callback callback : callbacks) {
+            if (failure != null) {
+                delivery.execute(() -> callback.onDecryptFailed(key, failure));
+            } else {
+                delivery.execute(() -> callback.onDecrypted(key, result));
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.test.lifehub.core.security;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * DecryptWindow - Cửa sổ giải mã đón trước theo hướng cuộn cho 1 adapter
+ *
+ * Mỗi lần adapter bind vị trí p: dòng p được xin VISIBLE (bởi holder), DecryptWindow xin
+ * PREFETCH cho size dòng kế tiếp theo hướng đang cuộn (suy ra từ vị trí bind trước đó).
+ * Chỉ dòng chưa được xin trong lần bind trước mới gửi lại -> cuộn đều chỉ thêm 1 task / dòng.
+ *
+ * === THREAD ===
+ * Main thread (onBindViewHolder).
+ */
+public class DecryptWindow {
+
+    /**
+     * Dữ liệu của adapter theo vị trí (null = dòng không cần giải mã, ví dụ header / TOTP)
+     */
+    public interface Source {
+        @Nullable
+        String keyAt(int position);
+
+        @Nullable
+        String cipherTextAt(int position);
+    }
+
+    private final DecryptScheduler scheduler;
+    private final int size;
+    private int lastBound = -1;
+    private int prefetchedFrom = -1;   // Khoảng [from, to] đã xin ở lần trước
+    private int prefetchedTo = -1;
+
+    public DecryptWindow(@NonNull DecryptScheduler scheduler, int size) {
+        this.scheduler = scheduler;
+        this.size = size;
+    }
+
+    public void onBind(int position, int itemCount, @NonNull Source source) {
+        boolean forward = lastBound < 0 || position >= lastBound;
+        lastBound = position;
+        int from = forward ? position + 1 : Math.max(0, position - size);
+        int to = forward ? Math.min(itemCount - 1, position + size) : position - 1;
+        for (int i = forward ? from : to; forward ? i <= to : i >= from; i += forward ? 1 : -1) {
+            if (i >= prefetchedFrom && i <= prefetchedTo) continue; // Đã xin rồi
+            String key = source.keyAt(i);
+            if (key != null) {
+                scheduler.request(key, source.cipherTextAt(i), DecryptScheduler.Priority.PREFETCH, null);
+            }
+        }
+        prefetchedFrom = from;
+        prefetchedTo = to;
+    }
+
+    /**
+     * Danh sách đổi (submitList): vị trí cũ không còn đúng
+     */
+    public void reset() {
+        lastBound = -1;
+        prefetchedFrom = -1;
+        prefetchedTo = -1;
+    }
+}
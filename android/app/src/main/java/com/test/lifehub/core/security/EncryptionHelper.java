@@ -8,6 +8,8 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
+import com.test.lifehub.core.util.StartupTracer;
+
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 
@@ -157,7 +159,10 @@ public class EncryptionHelper {
      */
     @Inject
     public EncryptionHelper(@ApplicationContext Context context) {
+        // EncryptedSharedPreferences + MasterKey (Keystore): bước chậm nhất lúc khởi động
+        StartupTracer.beginSection("EncryptionHelper.securePrefs");
         this.securePrefs = createSecurePrefs(context);
+        StartupTracer.endSection();
         loadOrGenerateKey();
     }
 
@@ -213,6 +218,13 @@ public class EncryptionHelper {
         secretKeyBytes = Base64.decode(base64Key, Base64.DEFAULT);
     }
 
+    /**
+     * Khóa AES đã sẵn sàng (false nếu Keystore / SecurePrefs lỗi -> encrypt() trả về nguyên văn)
+     */
+    public boolean hasKey() {
+        return secretKeyBytes != null;
+    }
+
     /**
      * Mã hóa văn bản thành chuỗi Base64 bằng thuật toán AES-GCM
      * 
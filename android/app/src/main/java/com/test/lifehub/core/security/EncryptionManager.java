@@ -4,18 +4,24 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.SetOptions;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.util.StartupTracer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -24,6 +30,19 @@ import dagger.hilt.android.qualifiers.ApplicationContext;
 
 /**
  * EncryptionManager - Quản lý mã hóa đa nền tảng
+ *
+ * === MỞ KHÓA NHANH ===
+ * - prefetchUserDocument(): bắt đầu đọc user document (salt + verification) sớm
+ *   (LifeHubApp bootstrap, MasterPasswordActivity.onCreate) - chạy song song với inflate
+ *   và lúc người dùng nhập PIN; checkSetupStatus() / initialize() dùng lại kết quả đó
+ * - initialize(): PBKDF2 với salt local chạy song song với việc chờ user document,
+ *   salt trên Firestore khớp -> dùng luôn key đó; chỉ derive 1 lần (trước đây 2 lần:
+ *   verifyMasterPassword + initializeWithMasterPassword)
+ *
+ * === GIẢI MÃ THEO NHU CẦU ===
+ * - getDecryptScheduler(): giải mã bất đồng bộ theo độ ưu tiên (dòng đang hiện > cửa sổ
+ *   prefetch > background), kết quả về main thread (xem DecryptScheduler, DecryptWindow)
+ * - lock() xóa luôn bản rõ đã cache + hàng đợi
  */
 @Singleton
 public class EncryptionManager {
@@ -33,6 +52,8 @@ public class EncryptionManager {
     private static final String KEY_ENCRYPTION_VERSION = "encryption_version";
     
     private static final int CURRENT_VERSION = 2;
+    // User document đọc trước quá lâu -> đọc lại (salt / verification có thể đã đổi trên Web)
+    private static final long PREFETCH_TTL_MS = 60_000;
 
     private final Context context;
     private final EncryptionHelper legacyHelper;
@@ -41,6 +62,13 @@ public class EncryptionManager {
     private final FirebaseFirestore db;
     private final FirebaseAuth auth;
     private final ExecutorService executor;
+    private final ExecutorService keyExecutor; // PBKDF2 song song với đọc user document
+    private final DecryptScheduler decryptScheduler;
+    
+    // User document đọc trước (dùng 1 lần)
+    private Task<DocumentSnapshot> prefetchedUserDoc;
+    private String prefetchedUserId;
+    private long prefetchedAt;
     
     private boolean isInitialized = false;
     private int currentVersion = 1;
@@ -60,7 +88,10 @@ public class EncryptionManager {
         this.auth = auth;
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.executor = Executors.newSingleThreadExecutor();
+        this.keyExecutor = Executors.newSingleThreadExecutor();
         this.currentVersion = prefs.getInt(KEY_ENCRYPTION_VERSION, 1);
+        this.decryptScheduler = new DecryptScheduler(this::decrypt, RepositoryExecutors::runOnMain,
+                (key, error) -> Log.e(TAG, "Decrypt failed for " + key, error));
     }
     
     public enum InitResult {
@@ -103,6 +134,45 @@ public class EncryptionManager {
         });
     }
 
+    /**
+     * Bắt đầu đọc user document trước khi cần (kết quả dùng 1 lần trong PREFETCH_TTL_MS)
+     */
+    public void prefetchUserDocument() {
+        FirebaseUser user = auth.getCurrentUser();
+        if (user == null) return;
+        Task<DocumentSnapshot> task = readUserDocument(user.getUid());
+        synchronized (this) {
+            prefetchedUserDoc = task;
+            prefetchedUserId = user.getUid();
+            prefetchedAt = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Lấy bản đọc trước nếu còn dùng được, không thì đọc mới
+     */
+    private Task<DocumentSnapshot> takeUserDocument(String userId) {
+        Task<DocumentSnapshot> task;
+        synchronized (this) {
+            task = prefetchedUserDoc;
+            boolean usable = task != null
+                    && userId.equals(prefetchedUserId)
+                    && SystemClock.uptimeMillis() - prefetchedAt < PREFETCH_TTL_MS
+                    && !(task.isComplete() && !task.isSuccessful());
+            prefetchedUserDoc = null;
+            prefetchedUserId = null;
+            if (!usable) task = null;
+        }
+        return task != null ? task : readUserDocument(userId);
+    }
+
+    private Task<DocumentSnapshot> readUserDocument(String userId) {
+        StartupTracer.Step step = StartupTracer.beginStep("UserDocument");
+        Task<DocumentSnapshot> task = db.collection("users").document(userId).get();
+        task.addOnCompleteListener(done -> step.end());
+        return task;
+    }
+
     /**
      * Kiểm tra trạng thái setup (không cần secret)
      */
@@ -115,7 +185,7 @@ public class EncryptionManager {
 
         executor.execute(() -> {
             try {
-                DocumentSnapshot snapshot = Tasks.await(db.collection("users").document(user.getUid()).get());
+                DocumentSnapshot snapshot = Tasks.await(takeUserDocument(user.getUid()));
                 String salt = snapshot.getString("encryptionSalt");
                 String verification = snapshot.getString("encryptionVerification");
 
@@ -144,11 +214,13 @@ public class EncryptionManager {
     }
 
     private InitResult initializeSynchronously(String userId, String secret) {
+        // Đã có salt local (lần mở khóa trước) -> derive song song trong lúc chờ Firestore
+        final byte[] localSalt = crossPlatformHelper.getSaltBytes();
+        Future<byte[]> earlyKey = localSalt == null ? null
+                : keyExecutor.submit(() -> CrossPlatformEncryptionHelper.deriveKey(secret, localSalt));
         try {
-            DocumentReference userDoc = db.collection("users").document(userId);
-            
-            // BLOCKING call
-            DocumentSnapshot snapshot = Tasks.await(userDoc.get());
+            // BLOCKING call (thường đã có sẵn nhờ prefetchUserDocument)
+            DocumentSnapshot snapshot = Tasks.await(takeUserDocument(userId));
             
             String remoteSalt = null;
             String remoteVerification = null;
@@ -166,13 +238,16 @@ public class EncryptionManager {
                 crossPlatformHelper.setSaltFromBase64(remoteSalt);
                 
                 if (remoteVerification != null) {
-                    boolean isValid = crossPlatformHelper.verifyMasterPassword(secret, remoteVerification);
-                    if (!isValid) {
+                    // Salt trên Firestore khớp salt local -> dùng key đã derive song song
+                    byte[] remoteSaltBytes = crossPlatformHelper.getSaltBytes();
+                    byte[] key = earlyKey != null && Arrays.equals(localSalt, remoteSaltBytes)
+                            ? earlyKey.get()
+                            : CrossPlatformEncryptionHelper.deriveKey(secret, remoteSaltBytes);
+                    // Decrypt được verification -> đúng PIN, helper đã unlock
+                    boolean success = crossPlatformHelper.unlockWithDerivedKey(key, remoteVerification);
+                    if (!success) {
                         Log.e(TAG, "Invalid secret (verification failed)");
-                        return finalizeInit(InitResult.FAILURE);
                     }
-                    // Verification success -> Unlock key
-                    boolean success = crossPlatformHelper.initializeWithMasterPassword(secret, false);
                     return finalizeInit(success ? InitResult.SUCCESS : InitResult.FAILURE);
                 } else {
                     // Legacy case: Salt exists but no verification string
@@ -185,6 +260,8 @@ public class EncryptionManager {
         } catch (Exception e) {
             Log.e(TAG, "Error in initializeSynchronously", e);
             return finalizeInit(InitResult.FAILURE);
+        } finally {
+            if (earlyKey != null) earlyKey.cancel(false); // Không dùng tới (salt đổi / chưa setup)
         }
     }
 
@@ -231,9 +308,17 @@ public class EncryptionManager {
         return legacyHelper.decrypt(encryptedText);
     }
 
+    /**
+     * Giải mã bất đồng bộ theo độ ưu tiên (dùng bởi adapter danh sách tài khoản)
+     */
+    public DecryptScheduler getDecryptScheduler() {
+        return decryptScheduler;
+    }
+
     public void lock() {
         crossPlatformHelper.lock();
         isInitialized = false;
+        decryptScheduler.clear();
     }
     
     public int getCurrentVersion() {
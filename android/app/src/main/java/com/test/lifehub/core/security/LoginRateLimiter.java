@@ -7,6 +7,8 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
+import com.test.lifehub.core.util.StartupTracer;
+
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
@@ -72,7 +74,10 @@ public class LoginRateLimiter {
     
     @Inject
     public LoginRateLimiter(@ApplicationContext Context context) {
+        // EncryptedSharedPreferences + MasterKey (Keystore): bước chậm nhất lúc khởi động
+        StartupTracer.beginSection("LoginRateLimiter.securePrefs");
         this.securePrefs = createSecurePrefs(context);
+        StartupTracer.endSection();
     }
     
     /**
@@ -7,6 +7,8 @@ import android.util.Log;
 import androidx.security.crypto.EncryptedSharedPreferences;
 import androidx.security.crypto.MasterKey;
 
+import com.test.lifehub.core.util.StartupTracer;
+
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
@@ -37,7 +39,10 @@ public class PasscodeRateLimiter {
     
     @Inject
     public PasscodeRateLimiter(@ApplicationContext Context context) {
+        // EncryptedSharedPreferences + MasterKey (Keystore): bước chậm nhất lúc khởi động
+        StartupTracer.beginSection("PasscodeRateLimiter.securePrefs");
         this.securePrefs = createSecurePrefs(context);
+        StartupTracer.endSection();
     }
     
     private SharedPreferences createSecurePrefs(Context context) {
@@ -11,6 +11,7 @@ public class AutofillField {
     public String hint;           // Autofill hint (username, password, email)
     public boolean isUsername;    // true nếu đây là username/email field
     public boolean isPassword;    // true nếu đây là password field
+    public boolean isOtp;         // true nếu đây là ô nhập mã một lần (OTP/2FA)
     public boolean isFocused;     // true nếu field đang có focus
     public String currentText;    // Giá trị hiện tại của field
     
@@ -24,6 +25,7 @@ public class AutofillField {
                 "hint='" + hint + '\'' +
                 ", isUsername=" + isUsername +
                 ", isPassword=" + isPassword +
+                ", isOtp=" + isOtp +
                 '}';
     }
 }
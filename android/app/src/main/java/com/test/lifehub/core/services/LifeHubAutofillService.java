@@ -25,13 +25,20 @@ import androidx.annotation.RequiresApi;
 import com.test.lifehub.R;
 import com.test.lifehub.core.security.EncryptionHelper;
 import com.test.lifehub.core.util.AutofillHelper;
+import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 import com.test.lifehub.ui.AutofillAuthActivity;
 import com.test.lifehub.ui.AutofillPickerActivity;
 import com.test.lifehub.ui.SaveCredentialActivity;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * LifeHubAutofillService - Android Autofill Framework Service
@@ -71,10 +78,17 @@ public class LifeHubAutofillService extends AutofillService {
     private static final String KEY_AUTOFILL_BIOMETRIC = "autofill_biometric_enabled";
     private static final String KEY_AUTOFILL_SERVICE = "autofill_service_enabled";
     
-    // Cache accounts để query nhanh (được load từ Firestore)
+    // Cache accounts để query nhanh (được load từ Firestore, password vẫn là CIPHERTEXT:
+    // chỉ giải mã tài khoản người dùng chọn điền)
     private static List<AccountEntry> cachedAccounts = null;
     private static EncryptionHelper encryptionHelper = null;
     
+    // Cache TOTP accounts (KHÔNG giữ secret dạng chuỗi) + HMAC key đã decode sẵn theo documentId
+    // để AutofillPickerActivity tính mã ngay sau khi xác thực mà không cần decode/giải mã lại.
+    // Map chỉ đọc, được THAY CẢ BẢN (volatile) từ main thread; binder thread của service đọc snapshot
+    private static volatile List<TotpAccount> cachedTotpAccounts = null;
+    private static volatile Map<String, SecretKeySpec> cachedTotpKeys = Collections.emptyMap();
+    
     // Static flag dự phòng (sẽ ưu tiên đọc từ SharedPreferences)
     private static boolean biometricEnabled = false;
     
@@ -93,6 +107,40 @@ public class LifeHubAutofillService extends AutofillService {
         Log.d(TAG, "Accounts cache updated: " + (accounts != null ? accounts.size() : 0) + " accounts");
     }
     
+    /**
+     * Cập nhật cache TOTP từ bên ngoài (gọi từ MainActivity khi TotpRepository có dữ liệu)
+     * 
+     * @param accounts TotpRepository.getDecryptedAccounts() (HMAC key đã dựng sẵn)
+     */
+    public static void updateTotpCache(List<TotpProjection> accounts) {
+        List<TotpAccount> metadata = new ArrayList<>();
+        Map<String, SecretKeySpec> keys = new HashMap<>();
+        if (accounts != null) {
+            for (TotpProjection account : accounts) {
+                if (account.getDocumentId() == null) continue;
+                SecretKeySpec key = account.getKey();
+                
+                // Chỉ giữ metadata, secret đã nằm trong key
+                TotpAccount copy = new TotpAccount();
+                copy.setDocumentId(account.getDocumentId());
+                copy.setIssuer(account.getIssuer());
+                copy.setAccountName(account.getAccountName());
+                metadata.add(copy);
+                keys.put(account.getDocumentId(), key);
+            }
+        }
+        cachedTotpKeys = Collections.unmodifiableMap(keys);
+        cachedTotpAccounts = Collections.unmodifiableList(metadata);
+        Log.d(TAG, "TOTP cache updated: " + metadata.size() + " keys");
+    }
+    
+    /**
+     * HMAC key của 1 TOTP account (dùng bởi AutofillPickerActivity sau khi xác thực)
+     */
+    public static SecretKeySpec getTotpKey(String documentId) {
+        return documentId != null ? cachedTotpKeys.get(documentId) : null;
+    }
+    
     /**
      * Cập nhật EncryptionHelper reference
      */
@@ -227,9 +275,11 @@ public class LifeHubAutofillService extends AutofillService {
             AutofillField usernameField = null;
             AutofillField passwordField = null;
             AutofillField focusedField = null;
+            AutofillField otpField = null;
             
             for (AutofillField field : fields) {
                 if (field.isFocused && focusedField == null) focusedField = field;
+                if (field.isOtp && (otpField == null || field.isFocused)) otpField = field;
                 
                 // Phân loại dựa trên hints/heuristics
                 if (field.isPassword && passwordField == null) {
@@ -242,7 +292,7 @@ public class LifeHubAutofillService extends AutofillService {
             // TÌM KIẾM BỔ SUNG: Nếu có Password nhưng chưa có Username (thường gặp ở Garena/Game)
             if (passwordField != null && usernameField == null) {
                 for (AutofillField field : fields) {
-                    if (field != passwordField) {
+                    if (field != passwordField && !field.isOtp) {
                         // Ưu tiên field đang được focus hoặc field đứng trên nó
                         usernameField = field;
                         Log.d(TAG, "Assumed username field from candidate list (fallback)");
@@ -251,6 +301,27 @@ public class LifeHubAutofillService extends AutofillService {
                 }
             }
             
+            // Màn hình 2FA: điền mã OTP từ TOTP vault (xác thực như điền mật khẩu)
+            List<Dataset> otpDatasets = new ArrayList<>();
+            if (otpField != null) {
+                List<TotpAccount> matchingTotp = AutofillHelper.findMatchingTotpAccounts(
+                        cachedTotpAccounts, cachedAccounts, webDomain, targetPackage);
+                for (TotpAccount totp : matchingTotp) {
+                    Dataset otpDataset = buildOtpDataset(otpField, totp);
+                    if (otpDataset != null) otpDatasets.add(otpDataset);
+                }
+                Log.d(TAG, "OTP field detected, " + otpDatasets.size() + " TOTP datasets");
+                
+                if (!otpDatasets.isEmpty() && usernameField == null && passwordField == null) {
+                    FillResponse.Builder otpResponse = new FillResponse.Builder();
+                    for (Dataset dataset : otpDatasets) {
+                        otpResponse.addDataset(dataset);
+                    }
+                    callback.onSuccess(otpResponse.build());
+                    return;
+                }
+            }
+            
             // Chọn Anchor (mỏ neo) để hiện trigger: Focused > Username > Password > Root
             AutofillField anchorField = focusedField != null ? focusedField : 
                                       (usernameField != null ? usernameField : passwordField);
@@ -291,6 +362,10 @@ public class LifeHubAutofillService extends AutofillService {
             // 5. Build FillResponse
             FillResponse.Builder responseBuilder = new FillResponse.Builder();
             
+            for (Dataset dataset : otpDatasets) {
+                responseBuilder.addDataset(dataset);
+            }
+            
             // Dataset duy nhất mở Picker
             Dataset triggerDataset = buildSingleAutofillTrigger(anchorField, passwordField, matchCount, targetPackage, webDomain);
             if (triggerDataset != null) {
@@ -386,6 +461,37 @@ public class LifeHubAutofillService extends AutofillService {
         return datasetBuilder.build();
     }
 
+    /**
+     * Tạo Dataset điền mã TOTP vào ô OTP
+     * Popup chỉ hiện issuer/account; mã được tính trong AutofillPickerActivity SAU khi
+     * xác thực (cùng cổng biometric với mật khẩu) nên không lộ mã khi chưa mở khóa
+     */
+    private Dataset buildOtpDataset(AutofillField otpField, TotpAccount totp) {
+        if (!cachedTotpKeys.containsKey(totp.getDocumentId())) return null;
+        
+        RemoteViews presentation = new RemoteViews(getPackageName(), R.layout.autofill_item);
+        presentation.setTextViewText(R.id.autofill_service_name, totp.getIssuer());
+        presentation.setTextViewText(R.id.autofill_username, totp.getAccountName());
+        presentation.setTextViewText(R.id.autofill_password_hint, getString(R.string.autofill_otp_hint));
+        
+        Intent authIntent = new Intent(this, AutofillPickerActivity.class);
+        authIntent.putExtra(AutofillPickerActivity.EXTRA_TOTP_ID, totp.getDocumentId());
+        authIntent.putExtra(AutofillPickerActivity.EXTRA_OTP_AUTOFILL_ID, otpField.autofillId);
+        
+        PendingIntent authPendingIntent = PendingIntent.getActivity(
+                this,
+                ("otp_" + totp.getDocumentId()).hashCode(),
+                authIntent,
+                PendingIntent.FLAG_MUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
+        );
+        
+        Dataset.Builder datasetBuilder = new Dataset.Builder(presentation);
+        datasetBuilder.setAuthentication(authPendingIntent.getIntentSender());
+        // Placeholder - mã thật được điền sau authentication
+        datasetBuilder.setValue(otpField.autofillId, AutofillValue.forText(""), presentation);
+        return datasetBuilder.build();
+    }
+
     /**
      * Tạo 1 Dataset duy nhất hiển thị "Tự động điền với LifeHub"
      */
@@ -437,41 +543,7 @@ public class LifeHubAutofillService extends AutofillService {
         
         return datasetBuilder.build();
     }
-    /**
-     * Build Dataset với data trực tiếp (đã decrypt)
-     * NOTE: Tạm thời bỏ authentication để debug
-     */
-    private Dataset buildDatasetWithAuth(AccountEntry account, 
-                                         AutofillField usernameField, 
-                                         AutofillField passwordField) {
-        
-        // Tạo presentation (hiển thị trong popup)
-        RemoteViews presentation = new RemoteViews(getPackageName(), R.layout.autofill_item);
-        presentation.setTextViewText(R.id.autofill_service_name, account.serviceName);
-        presentation.setTextViewText(R.id.autofill_username, account.username);
-        presentation.setTextViewText(R.id.autofill_password_hint, "••••••••");
-        
-        // Password đã được decrypt trong MainActivity trước khi cache
-        // Nên ở đây dùng trực tiếp
-        String password = account.password != null ? account.password : "";
-        
-        Log.d(TAG, "Building dataset for: " + account.serviceName + ", has password: " + (password.length() > 0));
-        
-        // Build Dataset với values thật (đã decrypt)
-        Dataset.Builder datasetBuilder = new Dataset.Builder(presentation);
-        
-        if (usernameField != null) {
-            datasetBuilder.setValue(usernameField.autofillId, 
-                    AutofillValue.forText(account.username), presentation);
-        }
-        if (passwordField != null) {
-            datasetBuilder.setValue(passwordField.autofillId, 
-                    AutofillValue.forText(password), presentation);
-        }
-        
-        return datasetBuilder.build();
-    }
-    
+
     @Override
     public void onSaveRequest(@NonNull SaveRequest request, 
                               @NonNull SaveCallback callback) {
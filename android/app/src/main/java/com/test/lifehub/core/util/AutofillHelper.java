@@ -10,24 +10,28 @@ import android.view.autofill.AutofillId;
 import androidx.annotation.RequiresApi;
 
 import com.test.lifehub.core.services.AutofillField;
+import com.test.lifehub.features.authenticator.data.TotpAccount;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * AutofillHelper - Helper class cho Android Autofill Framework
  * 
  * === MỤC ĐÍCH ===
- * 1. Parse AssistStructure để tìm username/password fields
+ * 1. Parse AssistStructure để tìm username/password/OTP fields
  * 2. Extract domain từ web page
- * 3. Match accounts với domain/package
+ * 3. Match accounts (và TOTP accounts) với domain/package
  * 
  * === HEURISTICS ===
  * Sử dụng nhiều cách để phát hiện fields:
  * - android:autofillHints (chuẩn nhất)
  * - android:hint text
- * - android:inputType
+ * - android:inputType (ô số maxLength=6 được coi là ô OTP)
  * - View ID name
  */
 @RequiresApi(api = Build.VERSION_CODES.O)
@@ -56,6 +60,22 @@ public class AutofillHelper {
             "password_", "_password", "pwd_", "_pwd", "pass_", "_pass", "mật", "mat"
     };
 
+    // Common hints for one-time-code (OTP/2FA) fields
+    // (giá trị của HintConstants.AUTOFILL_HINT_SMS_OTP, AUTOFILL_HINT_2FA_APP_OTP,
+    //  AUTOFILL_HINT_EMAIL_OTP và autocomplete="one-time-code" của HTML, đã lowercase)
+    private static final String[] OTP_HINTS = {
+            "smsotpcode", "2faappotpcode", "emailotpcode", "one-time-code", "onetimecode",
+            "verification code", "verificationcode", "verification_code",
+            "mã xác thực", "ma xac thuc", "mã xác minh", "ma xac minh", "maxacthuc", "maxacminh"
+    };
+
+    // Từ viết tắt ngắn: chỉ tính khi đứng thành 1 từ riêng (otp_code, etOtp, "Mã OTP")
+    // để không bắt nhầm "hotpot", "footprint", "hotp"... (xem containsOtpToken)
+    private static final Set<String> OTP_TOKENS = new HashSet<>(Arrays.asList("otp", "totp", "2fa"));
+
+    // Độ dài chuẩn của mã TOTP
+    private static final int OTP_LENGTH = 6;
+
     /**
      * Parse AssistStructure để tìm tất cả autofill fields
      */
@@ -128,22 +148,25 @@ public class AutofillHelper {
             for (String h : hints) {
                 if (h == null) continue;
                 String lh = h.toLowerCase();
-                if (containsAny(lh, USERNAME_HINTS) || containsAny(lh, PASSWORD_HINTS)) return true;
+                if (containsAny(lh, USERNAME_HINTS) || containsAny(lh, PASSWORD_HINTS)
+                        || isOtpText(h)) return true;
             }
         }
         // Also check combined info as some web browsers don't report hints separately
-        String combined = getCombinedNodeInfo(node);
-        return containsAny(combined, USERNAME_HINTS) || containsAny(combined, PASSWORD_HINTS);
+        String raw = getRawNodeInfo(node);
+        String combined = raw.toLowerCase();
+        return containsAny(combined, USERNAME_HINTS) || containsAny(combined, PASSWORD_HINTS)
+                || isOtpText(raw);
     }
 
-    private static String getCombinedNodeInfo(AssistStructure.ViewNode node) {
+    private static String getRawNodeInfo(AssistStructure.ViewNode node) {
         StringBuilder sb = new StringBuilder();
         if (node.getHint() != null) sb.append(node.getHint()).append(" ");
         if (node.getContentDescription() != null) sb.append(node.getContentDescription()).append(" ");
         if (node.getText() != null) sb.append(node.getText()).append(" ");
         if (node.getIdEntry() != null) sb.append(node.getIdEntry()).append(" ");
         if (node.getClassName() != null) sb.append(node.getClassName()).append(" ");
-        return sb.toString().toLowerCase();
+        return sb.toString();
     }
     
     /**
@@ -168,7 +191,10 @@ public class AutofillHelper {
     }
     
     /**
-     * Phát hiện loại field (username/password)
+     * Phát hiện loại field (username/password/OTP)
+     * 
+     * OTP được kiểm tra trước password vì hint của ô mã một lần thường
+     * chứa "code"/"pin"/"passcode" và sẽ bị nhận nhầm thành mật khẩu.
      */
     private static void detectFieldType(AssistStructure.ViewNode node, AutofillField field) {
         // 1. Check autofillHints (ưu tiên cao nhất)
@@ -177,6 +203,10 @@ public class AutofillHelper {
             for (String hint : hints) {
                 if (hint == null) continue;
                 String lh = hint.toLowerCase();
+                if (isOtpText(hint)) {
+                    field.isOtp = true;
+                    return;
+                }
                 if (containsAny(lh, PASSWORD_HINTS)) {
                     field.isPassword = true;
                     return;
@@ -197,6 +227,10 @@ public class AutofillHelper {
         
         String searchStr = combined.toString().toLowerCase();
         
+        if (isOtpText(combined.toString())) {
+            field.isOtp = true;
+            return;
+        }
         if (containsAny(searchStr, PASSWORD_HINTS)) {
             field.isPassword = true;
             return;
@@ -208,6 +242,10 @@ public class AutofillHelper {
         
         // 3. Check inputType
         int inputType = node.getInputType();
+        if (isNumericOtpInput(node)) {
+            field.isOtp = true;
+            return;
+        }
         if ((inputType & android.text.InputType.TYPE_TEXT_VARIATION_PASSWORD) != 0 ||
             (inputType & android.text.InputType.TYPE_TEXT_VARIATION_WEB_PASSWORD) != 0 ||
             (inputType & android.text.InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD) != 0) {
@@ -221,6 +259,36 @@ public class AutofillHelper {
         }
     }
     
+    /**
+     * Ô nhập số có maxLength = 6 (không có hint) - dạng phổ biến của ô nhập mã 2FA
+     */
+    private static boolean isNumericOtpInput(AssistStructure.ViewNode node) {
+        int inputType = node.getInputType();
+        boolean isNumber = (inputType & android.text.InputType.TYPE_MASK_CLASS)
+                == android.text.InputType.TYPE_CLASS_NUMBER;
+        return isNumber && node.getMaxTextLength() == OTP_LENGTH;
+    }
+    
+    /**
+     * Ô mã một lần: có hint chuẩn (smsOTPCode, one-time-code...) hoặc có từ "otp"/"totp"/"2fa"
+     * đứng riêng. Nhận chuỗi GỐC (chưa lowercase) để tách được camelCase (etOtp, OTPCode).
+     */
+    static boolean isOtpText(String raw) {
+        if (raw == null) return false;
+        return containsAny(raw.toLowerCase(), OTP_HINTS) || containsOtpToken(raw);
+    }
+
+    /**
+     * Tách theo ký tự không phải chữ/số và ranh giới camelCase rồi so từng từ với OTP_TOKENS
+     */
+    private static boolean containsOtpToken(String raw) {
+        if (raw == null) return false;
+        for (String token : raw.split("(?<=[a-z])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])|[^A-Za-z0-9]+")) {
+            if (OTP_TOKENS.contains(token.toLowerCase())) return true;
+        }
+        return false;
+    }
+
     /**
      * Helper: Kiểm tra string có chứa bất kỳ keyword nào không
      */
@@ -320,39 +388,86 @@ public class AutofillHelper {
         }
         
         for (AccountEntry account : allAccounts) {
-            // 1. Match by websiteUrl (which stores domain for web OR package name for native apps)
-            if (!TextUtils.isEmpty(account.websiteUrl)) {
-                String accountDomain = extractDomainFromUrl(account.websiteUrl);
-                if (accountDomain != null) {
-                    // Match with web domain if available
-                    if (webDomain != null && (accountDomain.contains(webDomain) || webDomain.contains(accountDomain))) {
-                        matching.add(account);
-                        continue;
-                    }
-                    // Match with native package name
-                    if (packageName != null && (accountDomain.contains(packageName) || packageName.contains(accountDomain))) {
-                        matching.add(account);
-                        continue;
-                    }
-                }
+            if (matchesTarget(account.websiteUrl, account.serviceName, webDomain, packageName)) {
+                matching.add(account);
             }
-            
-            // 2. Match by serviceName
-            if (!TextUtils.isEmpty(account.serviceName)) {
-                String serviceLower = account.serviceName.toLowerCase();
-                // Match with web domain
-                if (webDomain != null && webDomain.contains(serviceLower)) {
-                    matching.add(account);
-                    continue;
+        }
+        
+        Log.d(TAG, "Found " + matching.size() + " matching accounts for domain: " + webDomain);
+        return matching;
+    }
+
+    /**
+     * Tìm TOTP accounts phù hợp với domain hoặc package
+     * 
+     * Dùng cùng quy tắc match với mật khẩu:
+     * 1. issuer của TOTP khớp domain/package (giống serviceName)
+     * 2. issuer trùng serviceName của một tài khoản mật khẩu đã match domain/package
+     *    (tài khoản mật khẩu có websiteUrl nên match chính xác hơn)
+     */
+    public static List<TotpAccount> findMatchingTotpAccounts(List<TotpAccount> allTotpAccounts,
+                                                             List<AccountEntry> allAccounts,
+                                                             String webDomain,
+                                                             String packageName) {
+        List<TotpAccount> matching = new ArrayList<>();
+        if (allTotpAccounts == null || allTotpAccounts.isEmpty()) {
+            return matching;
+        }
+        
+        Set<String> matchedServices = new HashSet<>();
+        for (AccountEntry account : findMatchingAccounts(allAccounts, webDomain, packageName)) {
+            if (account.serviceName != null && !account.serviceName.isEmpty()) {
+                matchedServices.add(account.serviceName.toLowerCase());
+            }
+        }
+        
+        for (TotpAccount totp : allTotpAccounts) {
+            String issuer = totp.getIssuer();
+            if (matchesTarget(null, issuer, webDomain, packageName)
+                    || (issuer != null && matchedServices.contains(issuer.toLowerCase()))) {
+                matching.add(totp);
+            }
+        }
+        
+        Log.d(TAG, "Found " + matching.size() + " matching TOTP accounts for domain: " + webDomain);
+        return matching;
+    }
+
+    /**
+     * Quy tắc match chung cho domain/package
+     * 
+     * @param websiteUrl URL (domain cho web HOẶC package name cho native app), có thể null
+     * @param serviceName Tên dịch vụ / issuer, có thể null
+     */
+    static boolean matchesTarget(String websiteUrl, String serviceName,
+                                         String webDomain, String packageName) {
+        // 1. Match by websiteUrl (which stores domain for web OR package name for native apps)
+        if (websiteUrl != null && !websiteUrl.isEmpty()) {
+            String accountDomain = extractDomainFromUrl(websiteUrl);
+            if (accountDomain != null) {
+                // Match with web domain if available
+                if (webDomain != null && (accountDomain.contains(webDomain) || webDomain.contains(accountDomain))) {
+                    return true;
                 }
                 // Match with native package name
-                if (packageName != null && packageName.toLowerCase().contains(serviceLower)) {
-                    matching.add(account);
+                if (packageName != null && (accountDomain.contains(packageName) || packageName.contains(accountDomain))) {
+                    return true;
                 }
             }
         }
         
-        Log.d(TAG, "Found " + matching.size() + " matching accounts for domain: " + webDomain);
-        return matching;
+        // 2. Match by serviceName
+        if (serviceName != null && !serviceName.isEmpty()) {
+            String serviceLower = serviceName.toLowerCase();
+            // Match with web domain
+            if (webDomain != null && webDomain.contains(serviceLower)) {
+                return true;
+            }
+            // Match with native package name
+            if (packageName != null && packageName.toLowerCase().contains(serviceLower)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -44,6 +44,7 @@ public final class Constants {
     public static final String REPEAT_DAILY = "DAILY";
     public static final String REPEAT_WEEKLY = "WEEKLY";
     public static final String REPEAT_MONTHLY = "MONTHLY";
+    public static final String REPEAT_YEARLY = "YEARLY";
 
 
     // --- CÁC HẰNG SỐ CŨ ĐÃ BỊ XÓA ---
@@ -0,0 +1,99 @@
+package com.test.lifehub.core.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * NameSortKey - Khóa sắp xếp tên theo bảng chữ cái tiếng Việt, tính 1 lần rồi so sánh byte
+ *
+ * === VẤN ĐỀ CŨ ===
+ * compareToIgnoreCase / orderBy("name") so theo mã Unicode: "Đà Lạt" đứng sau "Zalo",
+ * "Ánh" sau "Zing". Mỗi lần sắp xếp lại so sánh chuỗi từ đầu.
+ *
+ * === CÁCH LÀM ===
+ * - Collator tiếng Việt, độ mạnh SECONDARY: không phân biệt hoa / thường, phân biệt dấu
+ *   (a < ă < â, d < đ; dấu thanh chỉ quyết định khi chữ gốc giống nhau)
+ * - CollationKey.toByteArray() 1 lần khi model được tải (model cache lại, xem getSortKey()),
+ *   mọi lần sắp xếp sau đó chỉ so sánh mảng byte (không dấu)
+ * - Collator không thread-safe -> mỗi thread 1 bản (key được tính trên thread snapshot
+ *   lẫn main thread)
+ *
+ * === CÁCH DÙNG ===
+ * new SnapshotStore<>(mapper, AccountEntry::getSortKey, Comparator.naturalOrder())
+ */
+public final class NameSortKey implements Comparable<NameSortKey> {
+
+    /** Tên rỗng / null: đứng cuối danh sách (giống nullsLast trước đây) */
+    public static final NameSortKey EMPTY = new NameSortKey(null, new byte[0]);
+
+    private static final Locale VIETNAMESE = new Locale("vi", "VN");
+
+    private static final ThreadLocal<Collator> COLLATOR = new ThreadLocal<Collator>() {
+        @Override
+        protected Collator initialValue() {
+            Collator collator = Collator.getInstance(VIETNAMESE);
+            collator.setStrength(Collator.SECONDARY);
+            return collator;
+        }
+    };
+
+    @Nullable
+    private final String source;
+    private final byte[] bytes;
+
+    private NameSortKey(@Nullable String source, byte[] bytes) {
+        this.source = source;
+        this.bytes = bytes;
+    }
+
+    @NonNull
+    public static NameSortKey of(@Nullable String name) {
+        if (name == null || name.trim().isEmpty()) return EMPTY;
+        return new NameSortKey(name, COLLATOR.get().getCollationKey(name).toByteArray());
+    }
+
+    /**
+     * Dùng lại cached nếu nó được tính từ đúng chuỗi này (model cho sửa tên trực tiếp)
+     */
+    @NonNull
+    public static NameSortKey reuse(@Nullable NameSortKey cached, @Nullable String name) {
+        if (cached != null && (cached.source == name || (name != null && name.equals(cached.source)))) {
+            return cached;
+        }
+        return of(name);
+    }
+
+    @Override
+    public int compareTo(@NonNull NameSortKey other) {
+        if (this == other) return 0;
+        if (bytes.length == 0 || other.bytes.length == 0) {
+            return Boolean.compare(bytes.length == 0, other.bytes.length == 0);
+        }
+        int length = Math.min(bytes.length, other.bytes.length);
+        for (int i = 0; i < length; i++) {
+            int c = (bytes[i] & 0xFF) - (other.bytes[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        return bytes.length - other.bytes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof NameSortKey && compareTo((NameSortKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "NameSortKey(" + source + ")";
+    }
+}
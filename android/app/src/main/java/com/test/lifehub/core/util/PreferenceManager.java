@@ -11,6 +11,7 @@ public class PreferenceManager {
 
     private static final String PREF_NAME = "LifeHubPrefs";
     private static final String KEY_SAVED_CITY = "saved_city";
+    private static final String KEY_SECTION_OPENS = "section_opens_"; // + tên mục (WarmUpSchedule)
     private final SharedPreferences prefs;
 
     @Inject
@@ -25,4 +26,14 @@ public class PreferenceManager {
     public String getSavedCity() {
         return prefs.getString(KEY_SAVED_CITY, null); // Trả về null nếu chưa lưu
     }
-}
\ No newline at end of file
+
+    // Số lần mở từng mục (Ghi chú, Công việc, Lịch...) - dùng để ưu tiên warm-up
+    public void recordSectionOpen(String section) {
+        String key = KEY_SECTION_OPENS + section;
+        prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+    }
+
+    public int getSectionOpenCount(String section) {
+        return prefs.getInt(KEY_SECTION_OPENS + section, 0);
+    }
+}
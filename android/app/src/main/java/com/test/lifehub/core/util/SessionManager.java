@@ -60,6 +60,8 @@ public class SessionManager {
      * - PrefValue: AES256-GCM (mã hóa giá trị)
      */
     public SessionManager(Context context) {
+        // EncryptedSharedPreferences + MasterKey (Keystore): bước chậm nhất lúc khởi động
+        StartupTracer.beginSection("SessionManager.securePrefs");
         try {
             MasterKey masterKey = new MasterKey.Builder(context)
                     .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
@@ -79,6 +81,8 @@ public class SessionManager {
             Log.e(TAG, "CRITICAL: Không thể tạo bộ nhớ bảo mật.", e);
             sharedPreferences = null;
             autofillPreferences = context.getSharedPreferences(AUTOFILL_PREF_NAME, Context.MODE_PRIVATE);
+        } finally {
+            StartupTracer.endSection();
         }
     }
 
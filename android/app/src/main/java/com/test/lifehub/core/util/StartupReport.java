@@ -0,0 +1,120 @@
+package com.test.lifehub.core.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * StartupReport - Số đo của 1 lần mở app (từ lúc khởi động tới khi có nội dung đầu tiên)
+ *
+ * === CÁC MỐC ===
+ * - launchAt: COLD = lúc process bắt đầu, WARM = lúc MainActivity được tạo lại
+ *   (process còn sống: quay lại từ background, mở lại sau auto-lock)
+ * - unlockAt: người dùng bấm mở khóa ở MasterPasswordActivity (nếu có)
+ * - firstContentAt: danh sách đầu tiên (từ disk hoặc Firestore) được đưa lên UI
+ *
+ * === CÁC BƯỚC ===
+ * Thời gian của từng bước (tạo EncryptedSharedPreferences, đọc user document, PBKDF2,
+ * snapshot đầu tiên của từng repository, ...) theo thứ tự kết thúc.
+ * Các bước chạy song song nên tổng các bước có thể lớn hơn tổng thời gian.
+ *
+ * Thời gian tính bằng ms theo SystemClock.uptimeMillis() (StartupTracer truyền vào),
+ * class này không gọi API Android để test được trên JVM.
+ */
+public final class StartupReport {
+
+    public enum Kind {
+        COLD,
+        WARM
+    }
+
+    private final Kind kind;
+    private final long launchAt;
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+    private long mainStartedAt = -1;
+    private long unlockAt = -1;
+    private long firstContentAt = -1;
+    @Nullable
+    private String firstContentLabel;
+
+    public StartupReport(@NonNull Kind kind, long launchAt) {
+        this.kind = kind;
+        this.launchAt = launchAt;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Ghi thời gian 1 bước (cùng tên ghi lần 2 -> giữ lần đầu, ví dụ listener bật lại sau pause)
+     */
+    public synchronized void recordStep(@NonNull String name, long durationMs) {
+        if (!steps.containsKey(name)) steps.put(name, durationMs);
+    }
+
+    public synchronized Map<String, Long> getSteps() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(steps));
+    }
+
+    /**
+     * MainActivity đã qua bước kiểm tra khóa -> từ đây dữ liệu tới mới tính là "nội dung đầu tiên"
+     */
+    public synchronized void markMainStarted(long at) {
+        if (mainStartedAt < 0) mainStartedAt = at;
+    }
+
+    public synchronized boolean isMainStarted() {
+        return mainStartedAt >= 0;
+    }
+
+    public synchronized void markUnlock(long at) {
+        unlockAt = at; // Nhập sai rồi nhập lại -> tính từ lần bấm cuối
+    }
+
+    /**
+     * @return true nếu đây là nội dung đầu tiên (report vừa hoàn tất)
+     */
+    public synchronized boolean markFirstContent(@NonNull String label, long at) {
+        if (firstContentAt >= 0 || mainStartedAt < 0) return false;
+        firstContentAt = at;
+        firstContentLabel = label;
+        return true;
+    }
+
+    public synchronized boolean isComplete() {
+        return firstContentAt >= 0;
+    }
+
+    /**
+     * Khởi động -> nội dung đầu tiên (gồm cả thời gian người dùng nhập PIN nếu phải mở khóa)
+     */
+    public synchronized long getLaunchToFirstContentMs() {
+        return firstContentAt >= 0 ? firstContentAt - launchAt : -1;
+    }
+
+    /**
+     * Bấm mở khóa -> nội dung đầu tiên (-1 nếu lần mở này không cần mở khóa)
+     */
+    public synchronized long getUnlockToFirstContentMs() {
+        return firstContentAt >= 0 && unlockAt >= 0 && unlockAt <= firstContentAt
+                ? firstContentAt - unlockAt : -1;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(kind).append(" start: ").append(getLaunchToFirstContentMs()).append("ms to first content");
+        if (firstContentLabel != null) sb.append(" (").append(firstContentLabel).append(")");
+        long unlock = getUnlockToFirstContentMs();
+        if (unlock >= 0) sb.append(", unlock -> content ").append(unlock).append("ms");
+        for (Map.Entry<String, Long> step : steps.entrySet()) {
+            sb.append("\n  ").append(step.getKey()).append(": ").append(step.getValue()).append("ms");
+        }
+        return sb.toString();
+    }
+}
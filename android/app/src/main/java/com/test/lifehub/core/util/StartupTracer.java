@@ -0,0 +1,137 @@
+package com.test.lifehub.core.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.tracing.Trace;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StartupTracer - Đo thời gian khởi động (androidx.tracing + StartupReport)
+ *
+ * === TRACE ===
+ * - beginSection / endSection: đoạn đồng bộ trên 1 thread (tạo EncryptedSharedPreferences,
+ *   inflate layout, PBKDF2, ...)
+ * - beginStep(): đoạn bất đồng bộ, có thể kết thúc ở thread khác (đọc user document,
+ *   snapshot đầu tiên của repository) -> async slice trong Perfetto + ghi vào report
+ * Xem bằng Perfetto / Android Studio Profiler (System Trace), lọc theo tên section.
+ *
+ * === REPORT ===
+ * 1. LifeHubApp.onCreate -> markProcessStart(): report COLD tính từ lúc process bắt đầu
+ * 2. MasterPasswordActivity / MainActivity -> markLaunch(): report trước đã xong -> WARM
+ * 3. Bấm mở khóa -> markUnlock()
+ * 4. MainActivity qua bước kiểm tra khóa -> markMainStarted()
+ * 5. Danh sách đầu tiên hiện lên -> markFirstContent(): report hoàn tất, ghi ra Logcat (tag StartupTrace)
+ *
+ * === THREAD ===
+ * Gọi từ thread bất kỳ. Trace.* là no-op khi không có ai đang ghi trace.
+ */
+public final class StartupTracer {
+
+    private static final String TAG = "StartupTrace";
+    private static final AtomicInteger COOKIES = new AtomicInteger();
+
+    private static volatile StartupReport current;
+    private static volatile StartupReport last;
+
+    private StartupTracer() {}
+
+    // ===== TRACE ĐỒNG BỘ =====
+
+    public static void beginSection(@NonNull String name) {
+        Trace.beginSection(name);
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    // ===== BƯỚC BẤT ĐỒNG BỘ =====
+
+    /**
+     * Bắt đầu 1 bước; gọi end() khi xong (ở thread nào cũng được, gọi nhiều lần không sao)
+     */
+    @NonNull
+    public static Step beginStep(@NonNull String name) {
+        return new Step(name, COOKIES.incrementAndGet(), SystemClock.uptimeMillis(), current);
+    }
+
+    public static final class Step {
+        private final String name;
+        private final int cookie;
+        private final long startedAt;
+        @Nullable
+        private final StartupReport report; // Report của lần mở app lúc bước bắt đầu
+        private final AtomicBoolean ended = new AtomicBoolean(false);
+
+        private Step(String name, int cookie, long startedAt, @Nullable StartupReport report) {
+            this.name = name;
+            this.cookie = cookie;
+            this.startedAt = startedAt;
+            this.report = report;
+            Trace.beginAsyncSection(name, cookie);
+        }
+
+        public void end() {
+            if (!ended.compareAndSet(false, true)) return;
+            Trace.endAsyncSection(name, cookie);
+            if (report != null && !report.isComplete()) {
+                report.recordStep(name, SystemClock.uptimeMillis() - startedAt);
+            }
+        }
+    }
+
+    // ===== CÁC MỐC CỦA REPORT =====
+
+    /**
+     * Process vừa khởi động (LifeHubApp.onCreate)
+     */
+    public static void markProcessStart() {
+        current = new StartupReport(StartupReport.Kind.COLD, Process.getStartUptimeMillis());
+    }
+
+    /**
+     * Màn hình mở khóa / màn hình chính được tạo; process còn sống từ lần trước -> WARM
+     */
+    public static synchronized void markLaunch() {
+        StartupReport report = current;
+        if (report == null || report.isComplete()) {
+            current = new StartupReport(StartupReport.Kind.WARM, SystemClock.uptimeMillis());
+        }
+    }
+
+    public static void markUnlock() {
+        markLaunch();
+        current.markUnlock(SystemClock.uptimeMillis());
+    }
+
+    public static void markMainStarted() {
+        markLaunch();
+        current.markMainStarted(SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Dữ liệu đầu tiên đã lên màn hình chính (gọi nhiều lần: chỉ lần đầu của mỗi report được tính)
+     *
+     * @param label Nguồn dữ liệu ("Accounts", ...)
+     */
+    public static void markFirstContent(@NonNull String label) {
+        StartupReport report = current;
+        if (report == null || !report.markFirstContent(label, SystemClock.uptimeMillis())) return;
+        last = report;
+        Log.i(TAG, report.toString());
+    }
+
+    /**
+     * Report hoàn tất gần nhất (null nếu chưa có)
+     */
+    @Nullable
+    public static StartupReport getLastReport() {
+        return last;
+    }
+}
@@ -0,0 +1,90 @@
+package com.test.lifehub.core.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TextFolding - Chuẩn hóa chữ cho tìm kiếm (bỏ dấu tiếng Việt, chữ thường)
+ *
+ * === VÍ DỤ ===
+ * "Ghi chú Đà Lạt" -> "ghi chu da lat"
+ * -> gõ "ghi chu" hay "ghi chú" đều tìm thấy
+ *
+ * === CÁCH LÀM ===
+ * 1. Unicode NFD: tách chữ có dấu thành chữ gốc + dấu (ú -> u + ◌́), gộp luôn các cách
+ *    gõ khác nhau của cùng 1 chữ (dựng sẵn / tổ hợp)
+ * 2. Bỏ dấu (NON_SPACING_MARK), đ / Đ -> d (không tách được bằng NFD)
+ * 3. Chữ thường, không phụ thuộc Locale máy (tránh lỗi chữ I của tiếng Thổ Nhĩ Kỳ)
+ * Chuỗi toàn ASCII đi đường tắt: chỉ đổi chữ thường.
+ */
+public final class TextFolding {
+
+    private TextFolding() {}
+
+    /**
+     * Bỏ dấu + chữ thường (null -> "")
+     */
+    @NonNull
+    public static String fold(@Nullable String text) {
+        if (text == null || text.isEmpty()) return "";
+        if (isAscii(text)) return toLowerAscii(text);
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (c == 'đ' || c == 'Đ') {
+                sb.append('d');
+            } else {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tách thành các từ đã fold (chữ / số liền nhau), bỏ ký tự phân cách
+     */
+    @NonNull
+    public static List<String> tokenize(@Nullable String text) {
+        String folded = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) tokens.add(folded.substring(start));
+        return tokens;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private static String toLowerAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = text.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') chars[j] += 'a' - 'A';
+                }
+                return new String(chars);
+            }
+        }
+        return text;
+    }
+}
@@ -214,6 +214,37 @@ public class TotpManager {
         return generateCode(secret, timeIndex);
     }
 
+    /**
+     * Giải mã Base32 secret thành HMAC key dùng lại được
+     * 
+     * Dùng cho các luồng cần trả mã rất nhanh (ví dụ: Autofill), tránh phải
+     * decode Base32 mỗi lần tạo mã.
+     * 
+     * @param secret Secret key (Base32)
+     * @return SecretKeySpec cho HmacSHA1, hoặc null nếu secret không hợp lệ
+     */
+    public static SecretKeySpec prepareKey(String secret) {
+        if (secret == null || secret.isEmpty()) return null;
+        try {
+            Base32 base32 = new Base32();
+            byte[] key = base32.decode(secret.toUpperCase().replaceAll("\\s", ""));
+            if (key.length == 0) return null;
+            return new SecretKeySpec(key, ALGORITHM);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tạo mã TOTP 6 chữ số hiện tại từ HMAC key đã chuẩn bị sẵn
+     * @param key Key trả về từ {@link #prepareKey(String)}
+     * @return Mã OTP 6 chữ số
+     */
+    public static String getCurrentCode(SecretKeySpec key) {
+        long timeIndex = new Date().getTime() / 1000 / TIME_STEP;
+        return generateCode(key, timeIndex);
+    }
+
     /**
      * Xác thực mã TOTP người dùng nhập vào
      * @param secret Secret key (Base32)
@@ -242,11 +273,24 @@ public class TotpManager {
         try {
             Base32 base32 = new Base32();
             byte[] key = base32.decode(secret.toUpperCase());
-            
+            return generateCode(new SecretKeySpec(key, ALGORITHM), timeIndex);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return "000000";
+        }
+    }
+
+    /**
+     * Tạo mã TOTP từ HMAC key đã decode cho một time index cụ thể
+     * @param key Key trả về từ {@link #prepareKey(String)}
+     * @param timeIndex Time index (Unix time / 30)
+     */
+    public static String generateCode(SecretKeySpec key, long timeIndex) {
+        try {
             byte[] data = ByteBuffer.allocate(8).putLong(timeIndex).array();
             
             Mac mac = Mac.getInstance(ALGORITHM);
-            mac.init(new SecretKeySpec(key, ALGORITHM));
+            mac.init(key);
             byte[] hash = mac.doFinal(data);
             
             int offset = hash[hash.length - 1] & 0xF;
@@ -3,6 +3,9 @@ package com.test.lifehub.di;
 import android.content.Context;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.test.lifehub.core.local.LocalMirror;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexer;
+import com.test.lifehub.core.repository.WriteBehindQueue;
 import com.test.lifehub.core.security.EncryptionHelper;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.security.LoginRateLimiter;
@@ -67,6 +70,28 @@ public class AppModule {
         return FirebaseFirestore.getInstance();
     }
 
+    // Bản sao offline (Room) của các collection - repository vẽ UI từ disk trước khi Firestore trả lời
+    // Cột data mã hóa bằng khóa thiết bị của EncryptionHelper
+    @Provides
+    @Singleton
+    public LocalMirror provideLocalMirror(@ApplicationContext Context context, EncryptionHelper encryptionHelper) {
+        return new LocalMirror(context, encryptionHelper);
+    }
+
+    // Hàng đợi ghi dùng chung: gộp write cùng document, commit theo WriteBatch
+    @Provides
+    @Singleton
+    public WriteBehindQueue provideWriteBehindQueue(FirebaseFirestore db) {
+        return new WriteBehindQueue(db);
+    }
+
+    // LiveData từng document (getXxxById): phục vụ từ store collection, dùng chung listener theo path
+    @Provides
+    @Singleton
+    public DocumentListenerMultiplexer provideDocumentListenerMultiplexer() {
+        return new DocumentListenerMultiplexer();
+    }
+
     // ----- CÁC HÀM CỦA TÍNH NĂNG THỜI TIẾT (ĐÃ THÊM TRƯỚC ĐÓ) -----
 
     @Provides
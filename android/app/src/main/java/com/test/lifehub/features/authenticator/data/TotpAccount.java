@@ -1,8 +1,11 @@
 package com.test.lifehub.features.authenticator.data;
 
+import com.test.lifehub.codec.FirestoreCodec;
+
 /**
  * Model cho tài khoản TOTP/2FA trên Firestore
  */
+@FirestoreCodec
 public class TotpAccount {
     
     public String documentId;        // ID document trên Firestore
@@ -0,0 +1,118 @@
+package com.test.lifehub.features.authenticator.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.util.NameSortKey;
+import com.test.lifehub.core.util.TotpManager;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * TotpProjection - Bản đọc (immutable) của 1 tài khoản TOTP: secret đã giải mã + HMAC key dựng sẵn
+ *
+ * === VẤN ĐỀ CŨ ===
+ * TotpRepository đã giải mã secret (EncryptionManager) trên thread snapshot, nhưng
+ * UnifiedAccountViewModel, TotpAccountsFragment, AuthenticatorActivity lại giải mã lần nữa
+ * bằng EncryptionHelper cũ (có thể ra kết quả khác key mới), và mỗi lần vẽ mã lại
+ * decode Base32 secret.
+ *
+ * === CÁCH LÀM ===
+ * - TotpRepository.getDecryptedAccounts() phát danh sách TotpProjection, mọi màn hình dùng chung
+ * - Base32 -> SecretKeySpec 1 lần khi tài khoản mới / đổi, mỗi lần tạo mã chỉ còn HMAC
+ * - Không sửa được: tài khoản đổi -> projection mới (so sánh bằng == là đủ)
+ * - Secret không phải Base32 hợp lệ (giải mã lỗi) -> không tạo projection
+ */
+public final class TotpProjection {
+
+    private final String documentId;
+    private final String issuer;
+    private final String accountName;
+    private final String secret;        // Base32 đã giải mã (hiển thị QR / xuất)
+    private final SecretKeySpec key;    // HMAC key dựng sẵn từ secret
+    private final long updatedAt;
+    private final NameSortKey sortKey;  // Theo issuer (giống thứ tự store)
+
+    private TotpProjection(TotpAccount account, String secret, SecretKeySpec key) {
+        this.documentId = account.getDocumentId();
+        this.issuer = account.getIssuer();
+        this.accountName = account.getAccountName();
+        this.secret = secret;
+        this.key = key;
+        this.updatedAt = account.getUpdatedAt();
+        this.sortKey = NameSortKey.of(account.getIssuer());
+    }
+
+    /**
+     * @param account Tài khoản trong store của TotpRepository (secretKey ĐÃ GIẢI MÃ)
+     * @return null nếu secret không phải Base32 hợp lệ (giải mã lỗi / dữ liệu hỏng)
+     */
+    @Nullable
+    public static TotpProjection of(@NonNull TotpAccount account) {
+        String secret = normalizeSecret(account.getSecretKey());
+        if (secret == null) return null;
+        SecretKeySpec key = TotpManager.prepareKey(secret);
+        if (key == null) return null;
+        return new TotpProjection(account, secret, key);
+    }
+
+    /**
+     * Chuẩn hóa secret Base32 (bỏ khoảng trắng, viết hoa)
+     * @return null nếu còn ký tự ngoài bảng Base32 (ví dụ ciphertext Base64 chưa giải mã được)
+     */
+    @Nullable
+    static String normalizeSecret(@Nullable String secret) {
+        if (secret == null) return null;
+        String normalized = secret.replaceAll("\\s", "").toUpperCase();
+        if (normalized.isEmpty() || !normalized.matches("^[A-Z2-7]+=*$")) return null;
+        return normalized;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public SecretKeySpec getKey() {
+        return key;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public NameSortKey getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Mã 6 số hiện tại (chỉ tính HMAC, không decode lại secret)
+     */
+    public String getCurrentCode() {
+        return TotpManager.getCurrentCode(key);
+    }
+
+    /**
+     * Mã cho 1 time index cụ thể (Unix time / 30)
+     */
+    public String getCode(long timeIndex) {
+        return TotpManager.generateCode(key, timeIndex);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TotpProjection(" + documentId + ", " + issuer + ")"; // Không in secret
+    }
+}
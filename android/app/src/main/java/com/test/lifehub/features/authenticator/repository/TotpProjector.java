@@ -0,0 +1,91 @@
+package com.test.lifehub.features.authenticator.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TotpProjector - Chuyển danh sách TotpAccount của store thành danh sách TotpProjection
+ *
+ * === CÁCH LÀM ===
+ * - Store chỉ tạo TotpAccount mới khi document đổi -> cùng object + cùng nội dung = dùng lại
+ *   projection cũ (so thêm nội dung vì TotpRepository.update sửa trực tiếp object rồi applyLocal)
+ * - Chỉ tài khoản mới / đổi mới phải dựng HMAC key
+ * - Giữ nguyên thứ tự store (đã sắp xếp theo issuer)
+ * - Secret không hợp lệ -> bỏ khỏi danh sách, không thử lại tới khi tài khoản đổi
+ *
+ * === THREAD ===
+ * Main thread (TotpRepository.getDecryptedAccounts()), không thread-safe.
+ */
+public class TotpProjector {
+
+    private static final class Cached {
+        final TotpAccount source;
+        final Object[] version;
+        @Nullable
+        final TotpProjection projection;
+
+        Cached(TotpAccount source, Object[] version, @Nullable TotpProjection projection) {
+            this.source = source;
+            this.version = version;
+            this.projection = projection;
+        }
+    }
+
+    private Map<String, Cached> cache = new HashMap<>();
+    private int reusedCount;
+    private int createdCount;
+
+    /**
+     * @param accounts Tài khoản trong store (secret đã giải mã), đã sắp xếp
+     * @return Danh sách mới (immutable), tài khoản không đổi giữ nguyên instance projection
+     */
+    @NonNull
+    public List<TotpProjection> project(@Nullable List<TotpAccount> accounts) {
+        reusedCount = 0;
+        createdCount = 0;
+        Map<String, Cached> next = new HashMap<>();
+        List<TotpProjection> projections = new ArrayList<>();
+        if (accounts != null) {
+            for (TotpAccount account : accounts) {
+                if (account.getDocumentId() == null) continue;
+                Object[] version = versionOf(account);
+                Cached cached = cache.get(account.getDocumentId());
+                if (cached != null && cached.source == account && Arrays.equals(cached.version, version)) {
+                    reusedCount++;
+                } else {
+                    cached = new Cached(account, version, TotpProjection.of(account));
+                    createdCount++;
+                }
+                next.put(account.getDocumentId(), cached);
+                if (cached.projection != null) projections.add(cached.projection);
+            }
+        }
+        cache = next; // Tài khoản đã xóa rơi khỏi cache
+        return Collections.unmodifiableList(projections);
+    }
+
+    /** Số projection dùng lại ở lần project() gần nhất */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /** Số projection dựng mới ở lần project() gần nhất */
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    private static Object[] versionOf(TotpAccount account) {
+        return new Object[]{account.getIssuer(), account.getAccountName(), account.getSecretKey(),
+                account.getUpdatedAt()};
+    }
+}
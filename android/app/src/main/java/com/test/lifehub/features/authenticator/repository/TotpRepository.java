@@ -3,19 +3,32 @@ package com.test.lifehub.features.authenticator.repository;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.test.lifehub.core.security.EncryptionHelper;
+import com.test.lifehub.core.local.LocalMirror;
+import com.test.lifehub.core.repository.DemandActivation;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexer;
+import com.test.lifehub.core.repository.SnapshotBatch;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.repository.WriteBehindQueue;
 import com.test.lifehub.core.security.EncryptionManager;
+import com.test.lifehub.core.util.NameSortKey;
 import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpAccountCodec;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,21 +50,52 @@ public class TotpRepository {
     private final FirebaseFirestore mDb;
     private final EncryptionManager encryptionManager;
     private final EncryptionHelper encryptionHelper; // For legacy migration
-    private final MutableLiveData<List<TotpAccount>> mAllAccounts = new MutableLiveData<>();
+    private final LocalMirror localMirror; // Bản sao offline (secretKey trên disk vẫn là ciphertext)
+    private final WriteBehindQueue writeQueue; // Hàng đợi ghi (gộp + WriteBatch)
+    private final DocumentListenerMultiplexer documents; // LiveData từng document (ref-count)
     
-    private boolean isListening = false; // Cờ để tránh listener trùng lặp
-    private String currentUserId = null; // Track current user to detect changes
+    // Store theo documentId, sắp xếp theo tên (issuer, NameSortKey) để danh sách hợp nhất
+    // chỉ cần trộn tuyến tính với tài khoản mật khẩu (xem UnifiedAccountMerger).
+    // Chỉ document thay đổi mới bị map + giải mã lại, trên background thread.
+    private final SnapshotPublisher<TotpAccount> accountPublisher =
+            new SnapshotPublisher<>(TAG, "TOTP accounts", new SnapshotStore<>(
+                    this::mapAccount,
+                    account -> NameSortKey.of(account.getIssuer()),
+                    Comparator.naturalOrder()));
+    
+    // Bản đọc dùng chung cho mọi màn hình: secret đã giải mã + HMAC key dựng sẵn,
+    // chỉ dựng lại cho tài khoản đổi (xem TotpProjector). Không màn hình nào tự giải mã nữa.
+    private final TotpProjector projector = new TotpProjector();
+    private final MediatorLiveData<List<TotpProjection>> decryptedAccounts = new MediatorLiveData<>();
+    
+    private volatile boolean isListening = false; // Cờ để tránh listener trùng lặp
+    private volatile String currentUserId = null; // Track current user to detect changes
     private ListenerRegistration listenerRegistration = null; // Store listener to remove later
+    private LocalMirror.Session mirrorSession = null;
+    // Listener chỉ chạy khi có màn hình / autofill đang xem (hoặc được warm-up)
+    private final DemandActivation activation =
+            new DemandActivation("TOTP accounts", this::listen, this::pauseListening);
 
     @Inject
-    public TotpRepository(FirebaseAuth auth, FirebaseFirestore db, EncryptionManager encryptionManager, EncryptionHelper encryptionHelper) {
+    public TotpRepository(FirebaseAuth auth, FirebaseFirestore db, EncryptionManager encryptionManager,
+                          EncryptionHelper encryptionHelper, LocalMirror localMirror,
+                          WriteBehindQueue writeQueue,
+                          DocumentListenerMultiplexer documents) {
         this.mAuth = auth;
         this.mDb = db;
         this.encryptionManager = encryptionManager;
         this.encryptionHelper = encryptionHelper;
+        this.localMirror = localMirror;
+        this.writeQueue = writeQueue;
+        this.documents = documents;
         
-        // Bắt đầu lắng nghe ngay khi Repository được tạo
-        startListening();
+        // Không bắt đầu listener ở đây: bật khi LiveData có observer đầu tiên
+        accountPublisher.bindActivation(activation);
+        decryptedAccounts.addSource(accountPublisher.getItems(), accounts -> {
+            decryptedAccounts.setValue(projector.project(accounts));
+            Log.d(TAG, "TOTP projections: reused " + projector.getReusedCount()
+                    + ", created " + projector.getCreatedCount());
+        });
     }
 
     private CollectionReference getTotpCollection() {
@@ -63,15 +107,25 @@ public class TotpRepository {
     }
 
     /**
-     * Bắt đầu lắng nghe thay đổi từ Firestore
+     * Bắt đầu lắng nghe ngay (warm-up); bình thường listener tự bật khi LiveData có observer
      */
     public void startListening() {
+        activation.warmUp();
+    }
+
+    public DemandActivation getActivation() {
+        return activation;
+    }
+
+    /**
+     * Bắt đầu lắng nghe thay đổi từ Firestore
+     */
+    private void listen() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
             Log.w(TAG, "User not logged in, cannot listen to TOTP accounts");
             // Clear data when no user
             stopListening();
-            mAllAccounts.setValue(new ArrayList<>());
             return;
         }
         
@@ -80,8 +134,7 @@ public class TotpRepository {
         // If user changed, stop old listener and clear data
         if (currentUserId != null && !currentUserId.equals(newUserId)) {
             Log.d(TAG, "User changed from " + currentUserId + " to " + newUserId + ", stopping old listener");
-            stopListening();
-            mAllAccounts.setValue(new ArrayList<>()); // Clear old data
+            stopListening(); // Clear old data
         }
         
         if (isListening && newUserId.equals(currentUserId)) {
@@ -109,7 +162,13 @@ public class TotpRepository {
         // Query tất cả TOTP accounts (đã được cách ly bởi path users/{userId}/totp_accounts)
         // KHÔNG dùng whereEqualTo() để tránh vấn đề với dữ liệu cũ không có field userOwnerId
         // Store listener registration so we can remove it later
-        listenerRegistration = ref.addSnapshotListener((snapshot, e) -> {
+        // Map + giải mã chạy trên background thread (RepositoryExecutors.snapshots())
+        // Danh sách được vẽ ngay từ LocalMirror (giải mã trong mapAccount như dữ liệu server)
+        final int generation = accountPublisher.beginListener();
+        final LocalMirror.Session session = localMirror.open(currentUserId, COLLECTION_TOTP);
+        mirrorSession = session;
+        session.load(documents -> accountPublisher.seed(documents, generation));
+        listenerRegistration = ref.addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
                 if (e != null) {
                     Log.e(TAG, "Error listening to TOTP accounts: " + e.getMessage(), e);
                     isListening = false; // Reset flag khi lỗi
@@ -117,95 +176,115 @@ public class TotpRepository {
                 }
                 
                 if (snapshot != null) {
-                    Log.d(TAG, "Snapshot received. Size: " + snapshot.size() + ", isEmpty: " + snapshot.isEmpty());
-                    
-                    if (snapshot.isEmpty()) {
-                        Log.d(TAG, "No TOTP accounts found in Firestore");
-                        mAllAccounts.setValue(new ArrayList<>());
-                        return;
-                    }
-                    
-                    List<TotpAccount> accounts = snapshot.toObjects(TotpAccount.class);
-                    // Gán documentId cho mỗi account
-                    for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                        accounts.get(i).setDocumentId(snapshot.getDocuments().get(i).getId());
-                        Log.d(TAG, "Account " + i + ": " + accounts.get(i).getIssuer() + " / " + accounts.get(i).getAccountName());
-                    }
-                    
-                    // ✅ Kiểm tra lại lần nữa để chắc chắn (defense in depth)
-                    List<TotpAccount> filteredAccounts = new ArrayList<>();
-                    for (TotpAccount account : accounts) {
-                        if (currentUserId.equals(account.getUserOwnerId())) {
-                            // 🔐 GIẢI MÃ SECRET KEY trước khi trả về
-                            try {
-                                String encryptedSecret = account.getSecretKey();
-                                if (encryptedSecret != null && !encryptedSecret.isEmpty()) {
-                                    String decryptedSecret = encryptionManager.decrypt(encryptedSecret);
-                                    account.setSecretKey(decryptedSecret);
-                                    Log.d(TAG, "Decrypted secret for: " + account.getIssuer());
-                                }
-                            } catch (Exception decryptError) {
-                                Log.e(TAG, "Failed to decrypt secret for " + account.getIssuer() + ": " + decryptError.getMessage());
-                                // Giữ nguyên secret nếu không giải mã được (có thể là data cũ chưa mã hóa)
-                            }
-                            filteredAccounts.add(account);
-                        } else {
-                            Log.w(TAG, "⚠️ Filtered out TOTP account with wrong userOwnerId: " + account.getUserOwnerId());
-                        }
-                    }
+                    Log.d(TAG, "Snapshot received. Size: " + snapshot.size() + ", changes: " + snapshot.getDocumentChanges().size());
                     
-                    Log.d(TAG, "Loaded " + filteredAccounts.size() + " TOTP accounts from Firestore (filtered from " + accounts.size() + ")");
-                    mAllAccounts.setValue(filteredAccounts);
+                    SnapshotBatch batch = SnapshotBatch.of(snapshot);
+                    accountPublisher.publish(batch, generation);
+                    session.record(batch);
                 } else {
                     Log.w(TAG, "Snapshot is null");
                 }
             });
     }
 
+    /**
+     * Map 1 document sang TotpAccount và giải mã secret
+     * (chỉ gọi cho document thay đổi, trên background thread)
+     * 
+     * @return null nếu userOwnerId không khớp (defense in depth) -> bị lọc khỏi store
+     */
+    private TotpAccount mapAccount(String documentId, Map<String, Object> data) {
+        TotpAccount account = TotpAccountCodec.INSTANCE.fromMap(documentId, data);
+        
+        // ✅ Kiểm tra lại lần nữa để chắc chắn (defense in depth)
+        if (currentUserId == null || !currentUserId.equals(account.getUserOwnerId())) {
+            Log.w(TAG, "⚠️ Filtered out TOTP account with wrong userOwnerId: " + account.getUserOwnerId());
+            return null;
+        }
+        
+        // 🔐 GIẢI MÃ SECRET KEY trước khi trả về
+        try {
+            String encryptedSecret = account.getSecretKey();
+            if (encryptedSecret != null && !encryptedSecret.isEmpty()) {
+                account.setSecretKey(encryptionManager.decrypt(encryptedSecret));
+                Log.d(TAG, "Decrypted secret for: " + account.getIssuer());
+            }
+        } catch (Exception decryptError) {
+            Log.e(TAG, "Failed to decrypt secret for " + account.getIssuer() + ": " + decryptError.getMessage());
+            // Giữ nguyên secret nếu không giải mã được (có thể là data cũ chưa mã hóa)
+        }
+        return account;
+    }
+
+    /**
+     * Tạm dừng khi không còn ai xem: gỡ listener, GIỮ dữ liệu (mở lại hiện ngay)
+     */
+    private void pauseListening() {
+        if (listenerRegistration == null) return;
+        Log.d(TAG, "⏸️ Pausing TOTP listener (no observers)");
+        listenerRegistration.remove();
+        listenerRegistration = null;
+        if (mirrorSession != null) {
+            mirrorSession.close();
+            mirrorSession = null;
+        }
+        isListening = false;
+        accountPublisher.pause();
+    }
+
     /**
      * Dừng lắng nghe Firestore
      * Gọi khi user logout để tránh memory leak và data leak
      */
     public void stopListening() {
+        activation.reset();
         if (listenerRegistration != null) {
             Log.d(TAG, "Removing Firestore listener for user: " + currentUserId);
             listenerRegistration.remove();
             listenerRegistration = null;
         }
+        if (mirrorSession != null) {
+            mirrorSession.close();
+            mirrorSession = null;
+        }
+        writeQueue.flush(); // Không để write của user cũ nằm lại trong cửa sổ gộp
         isListening = false;
         currentUserId = null;
-        mAllAccounts.setValue(new ArrayList<>()); // Clear all data
+        accountPublisher.reset(); // Clear all data + bỏ qua snapshot cũ còn trong hàng đợi
     }
 
     /**
      * Lấy tất cả TOTP accounts
-     * Listener đã được khởi động trong constructor
+     * Listener tự bật khi LiveData này có observer
      */
     public LiveData<List<TotpAccount>> getAllAccounts() {
         Log.d(TAG, "getAllAccounts() called, isListening: " + isListening);
-        return mAllAccounts;
+        return accountPublisher.getItems();
+    }
+
+    /**
+     * Tất cả TOTP accounts dạng TotpProjection (immutable, secret đã giải mã, HMAC key sẵn)
+     * Cùng 1 LiveData cho mọi màn hình; listener tự bật khi có observer
+     */
+    public LiveData<List<TotpProjection>> getDecryptedAccounts() {
+        return decryptedAccounts;
+    }
+
+    /**
+     * Diff của lần cập nhật gần nhất (ADDED / MODIFIED / REMOVED)
+     */
+    public LiveData<SnapshotStore.Diff<TotpAccount>> getAccountChanges() {
+        return accountPublisher.getChanges();
     }
 
     /**
      * Lấy một TOTP account theo ID
      */
     public LiveData<TotpAccount> getAccountById(String documentId) {
-        MutableLiveData<TotpAccount> result = new MutableLiveData<>();
         CollectionReference ref = getTotpCollection();
-        
-        if (ref != null && documentId != null) {
-            ref.document(documentId).get().addOnSuccessListener(snapshot -> {
-                if (snapshot.exists()) {
-                    TotpAccount account = snapshot.toObject(TotpAccount.class);
-                    if (account != null) {
-                        account.setDocumentId(snapshot.getId());
-                        result.setValue(account);
-                    }
-                }
-            });
-        }
-        
-        return result;
+        if (ref == null || documentId == null) return new MutableLiveData<>();
+        // Collection listener thường đã có sẵn (secret đã giải mã) -> không phải get() qua mạng
+        return documents.observe(ref.document(documentId), accountPublisher);
     }
 
     /**
@@ -233,15 +312,19 @@ public class TotpRepository {
         account.setCreatedAt(System.currentTimeMillis());
         account.setUpdatedAt(System.currentTimeMillis());
 
-        ref.add(account)
-            .addOnSuccessListener(docRef -> {
-                Log.d(TAG, "TOTP account added: " + docRef.getId());
-                if (listener != null) listener.onSuccess(docRef.getId());
-            })
-            .addOnFailureListener(e -> {
+        writeQueue.set(ref.document(), TotpAccountCodec.INSTANCE.toMap(account), new WriteBehindQueue.Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                Log.d(TAG, "TOTP account added: " + documentId);
+                if (listener != null) listener.onSuccess(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
                 Log.e(TAG, "Error adding TOTP account", e);
                 if (listener != null) listener.onFailure(e.getMessage());
-            });
+            }
+        });
     }
 
     /**
@@ -261,16 +344,29 @@ public class TotpRepository {
         // ✅ Đảm bảo userOwnerId không bị mất khi update
         updates.put("userOwnerId", mAuth.getCurrentUser().getUid());
 
-        ref.document(account.getDocumentId())
-            .update(updates)
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "TOTP account updated: " + account.getDocumentId());
-                if (listener != null) listener.onSuccess(account.getDocumentId());
-            })
-            .addOnFailureListener(e -> {
+        // Hiện ngay trên UI: sửa bản trong store (đã giải mã secret), không dùng object từ UI
+        TotpAccount known = accountPublisher.getStore().get(account.getDocumentId());
+        if (known != null) {
+            known.setAccountName(account.getAccountName());
+            known.setIssuer(account.getIssuer());
+            known.setUpdatedAt((Long) updates.get("updatedAt"));
+            accountPublisher.applyLocal(account.getDocumentId(), known);
+        }
+
+        DocumentReference docRef = ref.document(account.getDocumentId());
+        writeQueue.update(docRef, updates, accountPublisher.reconcileOnFailure(docRef, new WriteBehindQueue.Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                Log.d(TAG, "TOTP account updated: " + documentId);
+                if (listener != null) listener.onSuccess(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
                 Log.e(TAG, "Error updating TOTP account", e);
                 if (listener != null) listener.onFailure(e.getMessage());
-            });
+            }
+        }));
     }
 
     /**
@@ -299,17 +395,22 @@ public class TotpRepository {
         Log.d(TAG, "Full path: " + deletePath);
         Log.d(TAG, "========================================");
 
-        ref.document(documentId)
-            .delete()
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "✓ TOTP account deleted successfully: " + documentId);
-                if (listener != null) listener.onSuccess(documentId);
-            })
-            .addOnFailureListener(e -> {
+        DocumentReference docRef = ref.document(documentId);
+        accountPublisher.applyLocal(documentId, null);
+        writeQueue.delete(docRef, accountPublisher.reconcileOnFailure(docRef, new WriteBehindQueue.Callback() {
+            @Override
+            public void onSuccess(String deletedId) {
+                Log.d(TAG, "✓ TOTP account deleted successfully: " + deletedId);
+                if (listener != null) listener.onSuccess(deletedId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
                 Log.e(TAG, "✗ Error deleting TOTP account: " + documentId, e);
                 Log.e(TAG, "Error message: " + e.getMessage());
                 if (listener != null) listener.onFailure(e.getMessage());
-            });
+            }
+        }));
     }
 
     /**
@@ -386,17 +487,21 @@ public class TotpRepository {
                     updates.put("encryptionVersion", 2);
                     updates.put("migratedAt", System.currentTimeMillis());
                     
-                    ref.document(docId).update(updates)
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "✓ Migrated TOTP: " + docId);
+                    writeQueue.update(ref.document(docId), updates, new WriteBehindQueue.Callback() {
+                        @Override
+                        public void onSuccess(String documentId) {
+                            Log.d(TAG, "✓ Migrated TOTP: " + documentId);
                             successCount.incrementAndGet();
                             checkMigrationComplete(successCount.get(), failCount.get(), totalCount);
-                        })
-                        .addOnFailureListener(e -> {
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
                             Log.e(TAG, "✗ Failed to update TOTP: " + docId, e);
                             failCount.incrementAndGet();
                             checkMigrationComplete(successCount.get(), failCount.get(), totalCount);
-                        });
+                        }
+                    });
                 } catch (Exception e) {
                     Log.e(TAG, "Error migrating TOTP " + docId + ": " + e.getMessage());
                     failCount.incrementAndGet();
@@ -19,15 +19,16 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.test.lifehub.R;
-import com.test.lifehub.core.security.EncryptionHelper;
 import com.test.lifehub.core.util.TotpManager;
-import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
 import com.test.lifehub.features.authenticator.viewmodel.AuthenticatorViewModel;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -53,9 +54,6 @@ public class AuthenticatorActivity extends AppCompatActivity {
     private Handler handler;
     private Runnable updateRunnable;
 
-    @javax.inject.Inject
-    EncryptionHelper encryptionHelper;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -92,43 +90,14 @@ public class AuthenticatorActivity extends AppCompatActivity {
 
     private void observeAccounts() {
         Log.d(TAG, "Setting up Firestore observer... Activity instance: " + this.hashCode());
-        viewModel.getAllAccounts().observe(this, totpAccounts -> {
+        // Secret đã giải mã + HMAC key dựng sẵn ở TotpRepository (không giải mã lại ở đây)
+        viewModel.getDecryptedAccounts().observe(this, totpAccounts -> {
             Log.d(TAG, "[Activity " + this.hashCode() + "] Observer triggered with " + (totpAccounts != null ? totpAccounts.size() : 0) + " accounts");
             
             if (totpAccounts != null) {
                 accounts.clear();
-                
-                // Kiểm tra EncryptionHelper
-                if (encryptionHelper == null) {
-                    Log.e(TAG, "EncryptionHelper is NULL! Cannot decrypt secrets.");
-                    updateEmptyView();
-                    return;
-                }
-                
-                // Convert TotpAccount to TotpAccountItem
-                for (TotpAccount account : totpAccounts) {
-                    try {
-                        Log.d(TAG, "Processing account: " + account.getIssuer() + " / " + account.getAccountName());
-                        
-                        // Giải mã secret key
-                        String decryptedSecret = encryptionHelper.decrypt(account.getSecretKey());
-                        
-                        if (decryptedSecret == null || decryptedSecret.isEmpty()) {
-                            Log.e(TAG, "Failed to decrypt secret for: " + account.getIssuer());
-                            continue;
-                        }
-                        
-                        accounts.add(new TotpAccountItem(
-                            account.getDocumentId(),
-                            account.getAccountName(),
-                            account.getIssuer(),
-                            decryptedSecret
-                        ));
-                        
-                        Log.d(TAG, "Successfully added account: " + account.getIssuer());
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error decrypting secret for account: " + account.getIssuer(), e);
-                    }
+                for (TotpProjection account : totpAccounts) {
+                    accounts.add(new TotpAccountItem(account));
                 }
                 
                 Log.d(TAG, "Calling updateEmptyView() and notifyDataSetChanged()");
@@ -274,6 +243,7 @@ public class AuthenticatorActivity extends AppCompatActivity {
         private String accountName;
         private String issuer;
         private String secret;
+        private SecretKeySpec key;  // HMAC key dựng sẵn (null = decode secret mỗi lần tạo mã)
 
         public TotpAccountItem(String documentId, String accountName, String issuer, String secret) {
             this.documentId = documentId;
@@ -282,6 +252,15 @@ public class AuthenticatorActivity extends AppCompatActivity {
             this.secret = secret;
         }
 
+        /**
+         * Từ TotpRepository.getDecryptedAccounts(): dùng lại HMAC key của projection
+         */
+        public TotpAccountItem(TotpProjection projection) {
+            this(projection.getDocumentId(), projection.getAccountName(), projection.getIssuer(),
+                    projection.getSecret());
+            this.key = projection.getKey();
+        }
+
         public String getDocumentId() {
             return documentId;
         }
@@ -306,7 +285,7 @@ public class AuthenticatorActivity extends AppCompatActivity {
         }
 
         public String getCurrentCode() {
-            return TotpManager.getCurrentCode(secret);
+            return key != null ? TotpManager.getCurrentCode(key) : TotpManager.getCurrentCode(secret);
         }
 
         public int getTimeRemaining() {
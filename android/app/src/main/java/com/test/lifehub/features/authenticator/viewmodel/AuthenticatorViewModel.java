@@ -6,6 +6,7 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
 
 import java.util.List;
@@ -25,6 +26,7 @@ public class AuthenticatorViewModel extends ViewModel {
     
     private final TotpRepository repository;
     private final LiveData<List<TotpAccount>> allAccounts;
+    private final LiveData<List<TotpProjection>> decryptedAccounts;
 
     @Inject
     public AuthenticatorViewModel(TotpRepository repository) {
@@ -32,6 +34,7 @@ public class AuthenticatorViewModel extends ViewModel {
         this.repository = repository;
         // Khởi tạo ngay để nhận LiveData từ Repository
         this.allAccounts = repository.getAllAccounts();
+        this.decryptedAccounts = repository.getDecryptedAccounts();
         Log.d(TAG, "LiveData initialized from repository");
     }
 
@@ -40,6 +43,14 @@ public class AuthenticatorViewModel extends ViewModel {
         return allAccounts;
     }
 
+    /**
+     * Danh sách để hiển thị / tạo mã: secret đã giải mã, HMAC key dựng sẵn (dùng chung với
+     * màn Tài khoản, không cần tự giải mã)
+     */
+    public LiveData<List<TotpProjection>> getDecryptedAccounts() {
+        return decryptedAccounts;
+    }
+
     public LiveData<TotpAccount> getAccountById(String documentId) {
         return repository.getAccountById(documentId);
     }
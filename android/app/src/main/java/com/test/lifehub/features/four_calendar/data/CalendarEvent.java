@@ -2,14 +2,25 @@ package com.test.lifehub.features.four_calendar.data;
 
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.ServerTimestamp;
+import com.test.lifehub.codec.FirestoreCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.List;
 
 /**
  * POJO cho Calendar Event (Sự kiện Lịch)
+ *
+ * Sự kiện lặp lại (repeatType != NONE) chỉ lưu 1 document "master", các lần lặp được sinh
+ * khi hiển thị (RecurrenceExpander). Ngoại lệ của từng lần:
+ * - Xóa 1 lần: startTime gốc của lần đó nằm trong deletedOccurrences của master
+ * - Sửa 1 lần: document riêng (repeatType NONE) có recurrenceId = id master và
+ *   originalStartTime = startTime gốc của lần bị thay thế
+ * Lần lặp sinh ra (chưa lưu) cũng mang recurrenceId + originalStartTime, documentId = null.
  */
-public class CalendarEvent implements Serializable {
+@FirestoreCodec
+public class CalendarEvent extends TrackedDocument implements Serializable {
 
     @Exclude
     public String documentId;
@@ -35,6 +46,11 @@ public class CalendarEvent implements Serializable {
     // Repeat options
     private String repeatType; // NONE, DAILY, WEEKLY, MONTHLY
     private Date repeatUntil;
+    private List<Long> deletedOccurrences; // startTime gốc (epoch ms) các lần đã xóa (chỉ master)
+
+    // Ngoại lệ / lần lặp của 1 sự kiện lặp
+    private String recurrenceId;      // documentId của master
+    private Date originalStartTime;   // startTime gốc của lần này trong chuỗi
 
     public CalendarEvent() {
         this.color = "#2196F3"; // Default blue
@@ -88,6 +104,27 @@ public class CalendarEvent implements Serializable {
     public Date getRepeatUntil() { return repeatUntil; }
     public void setRepeatUntil(Date repeatUntil) { this.repeatUntil = repeatUntil; }
 
+    public List<Long> getDeletedOccurrences() { return deletedOccurrences; }
+    public void setDeletedOccurrences(List<Long> deletedOccurrences) { this.deletedOccurrences = deletedOccurrences; }
+
+    public String getRecurrenceId() { return recurrenceId; }
+    public void setRecurrenceId(String recurrenceId) { this.recurrenceId = recurrenceId; }
+
+    public Date getOriginalStartTime() { return originalStartTime; }
+    public void setOriginalStartTime(Date originalStartTime) { this.originalStartTime = originalStartTime; }
+
+    /** Master của chuỗi lặp (bản sửa riêng 1 lần không bao giờ lặp) */
+    @Exclude
+    public boolean isRecurring() {
+        return repeatType != null && !"NONE".equals(repeatType) && recurrenceId == null;
+    }
+
+    /** 1 lần của chuỗi lặp: lần sinh ra (documentId null) hoặc bản sửa riêng đã lưu */
+    @Exclude
+    public boolean isOccurrence() {
+        return recurrenceId != null;
+    }
+
     @Exclude
     public String getDocumentId() { return documentId; }
     @Exclude
@@ -0,0 +1,326 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * CalendarEventIndex - Chỉ mục khoảng thời gian cho sự kiện lịch (interval tree)
+ *
+ * === VẤN ĐỀ CŨ ===
+ * Lưới tháng / năm / tuần / ngày đều duyệt TOÀN BỘ getAllEvents() cho từng ngày và tạo
+ * 2 Calendar cho mỗi sự kiện -> 1 lưới tháng = 35 x số sự kiện lần so sánh.
+ *
+ * === CÁCH LÀM ===
+ * - Treap (cây nhị phân cân bằng ngẫu nhiên) sắp theo (start, end, documentId),
+ *   thời gian lưu theo PHÚT epoch; mỗi node giữ maxEnd của cây con (augmented)
+ * - overlapping(start, end): bỏ qua cây con có maxEnd < start, không xuống nhánh phải khi
+ *   node.start >= end -> O(log n + k), kết quả đã sắp theo startTime
+ * - startingIn(start, end): sự kiện BẮT ĐẦU trong khoảng (dấu chấm của Year View)
+ * - Cập nhật tăng dần từ diff của repository (apply), dựng lại toàn bộ O(n log n) bằng
+ *   rebuild() (sắp xếp + dựng Cartesian tree bằng stack)
+ *
+ * === SỰ KIỆN LẶP LẠI ===
+ * Master lặp (repeatType != NONE) không vào cây mà vào RecurrenceExpander: truy vấn trả về
+ * các lần lặp sinh theo khoảng đang hỏi, trộn với sự kiện thường theo startTime.
+ * Bản sửa riêng 1 lần nằm trong cây như sự kiện thường và che lần gốc tương ứng.
+ *
+ * === QUY ƯỚC GIAO NHAU ===
+ * Giống query cửa sổ của EventWindowRegistry: start < end(query) VÀ (end > start(query) HOẶC start >= start(query)),
+ * sự kiện 0 phút đúng tại đầu khoảng vẫn tính. Sự kiện thiếu startTime / endTime không vào chỉ mục.
+ *
+ * === THREAD ===
+ * Main thread (EventIndexLiveData dựng, các view truy vấn), không thread-safe.
+ */
+public class CalendarEventIndex {
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final Comparator<CalendarEvent> BY_START =
+            (a, b) -> Long.compare(a.getStartTime().getTime(), b.getStartTime().getTime());
+
+    private static final class Node {
+        final CalendarEvent event;
+        final String id;
+        final long start;       // Phút epoch
+        final long end;         // Phút epoch (>= start)
+        final int priority;
+        Node left;
+        Node right;
+        long maxEnd;
+
+        Node(CalendarEvent event, String id, long start, long end, int priority) {
+            this.event = event;
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    // documentId -> node đang nằm trong cây (giữ start / end lúc chèn: sự kiện có thể bị sửa tại chỗ)
+    private final Map<String, Node> byId = new HashMap<>();
+    private final Random random = new Random(0x11FEB0BL);
+    private final RecurrenceExpander recurrences;
+
+    public CalendarEventIndex() {
+        this(TimeZone.getDefault());
+    }
+
+    CalendarEventIndex(@NonNull TimeZone timeZone) {
+        recurrences = new RecurrenceExpander(timeZone);
+    }
+
+    // ===== TRUY VẤN =====
+
+    /**
+     * Sự kiện giao với [startMillis, endMillis), sắp theo startTime
+     */
+    @NonNull
+    public List<CalendarEvent> overlapping(long startMillis, long endMillis) {
+        List<CalendarEvent> result = new ArrayList<>();
+        collectOverlapping(root, floorMinute(startMillis), ceilMinute(endMillis), result);
+        if (!recurrences.isEmpty()) {
+            recurrences.collectOverlapping(startMillis, endMillis, result);
+            result.sort(BY_START); // Stable: sự kiện thường giữ thứ tự của cây
+        }
+        return result;
+    }
+
+    /**
+     * Sự kiện có startTime trong [startMillis, endMillis), sắp theo startTime
+     */
+    @NonNull
+    public List<CalendarEvent> startingIn(long startMillis, long endMillis) {
+        List<CalendarEvent> result = new ArrayList<>();
+        collectStarting(root, floorMinute(startMillis), ceilMinute(endMillis), result);
+        if (!recurrences.isEmpty()) {
+            recurrences.collectStarting(startMillis, endMillis, result);
+            result.sort(BY_START);
+        }
+        return result;
+    }
+
+    /**
+     * Số document trong chỉ mục (master lặp tính 1, không tính các lần lặp)
+     */
+    public int size() {
+        return byId.size() + recurrences.seriesCount();
+    }
+
+    // ===== CẬP NHẬT =====
+
+    /**
+     * Áp diff của SnapshotStore (chỉ chạm sự kiện đã đổi)
+     */
+    public void apply(@NonNull SnapshotStore.Diff<CalendarEvent> diff) {
+        for (String id : diff.removedIds) remove(id);
+        for (CalendarEvent event : diff.added) put(event);
+        for (CalendarEvent event : diff.modified) put(event);
+    }
+
+    /**
+     * Thêm / cập nhật 1 sự kiện theo documentId (đọc lại startTime / endTime hiện tại)
+     */
+    public void put(@NonNull CalendarEvent event) {
+        String id = event.getDocumentId();
+        if (id == null) return;
+        remove(id);
+        if (event.isRecurring()) {
+            recurrences.putMaster(id, event);
+            return;
+        }
+        Node node = newNode(event, id);
+        if (node == null) return; // Thiếu thời gian -> không hiển thị trên lưới
+        root = insert(root, node);
+        byId.put(id, node);
+        putOverride(id, event);
+    }
+
+    public void remove(@NonNull String documentId) {
+        Node node = byId.remove(documentId);
+        if (node != null) root = delete(root, node);
+        recurrences.remove(documentId);
+    }
+
+    /**
+     * Dựng lại toàn bộ từ danh sách của store
+     */
+    public void rebuild(@Nullable List<CalendarEvent> events) {
+        clear();
+        if (events == null || events.isEmpty()) return;
+        List<Node> nodes = new ArrayList<>(events.size());
+        for (CalendarEvent event : events) {
+            String id = event.getDocumentId();
+            if (id == null || byId.containsKey(id)) continue;
+            if (event.isRecurring()) {
+                recurrences.putMaster(id, event);
+                continue;
+            }
+            Node node = newNode(event, id);
+            if (node == null) continue;
+            nodes.add(node);
+            byId.put(id, node);
+            putOverride(id, event);
+        }
+        Collections.sort(nodes, CalendarEventIndex::compare);
+
+        // Cartesian tree: duyệt theo thứ tự khóa, stack giữ nhánh phải (priority giảm dần)
+        ArrayDeque<Node> rightSpine = new ArrayDeque<>();
+        for (Node node : nodes) {
+            Node last = null;
+            while (!rightSpine.isEmpty() && rightSpine.peek().priority < node.priority) {
+                last = rightSpine.pop();
+            }
+            node.left = last;
+            if (!rightSpine.isEmpty()) rightSpine.peek().right = node;
+            rightSpine.push(node);
+        }
+        root = rightSpine.peekLast();
+        updateAll(root);
+    }
+
+    public void clear() {
+        root = null;
+        byId.clear();
+        recurrences.clear();
+    }
+
+    /** Bản sửa riêng 1 lần -> che lần gốc của master */
+    private void putOverride(String id, CalendarEvent event) {
+        if (event.getRecurrenceId() != null && event.getOriginalStartTime() != null) {
+            recurrences.putOverride(id, event.getRecurrenceId(), event.getOriginalStartTime().getTime());
+        }
+    }
+
+    // ===== TREAP =====
+
+    @Nullable
+    private Node newNode(CalendarEvent event, String id) {
+        if (event.getStartTime() == null || event.getEndTime() == null) return null;
+        long start = floorMinute(event.getStartTime().getTime());
+        long end = Math.max(start, ceilMinute(event.getEndTime().getTime()));
+        return new Node(event, id, start, end, random.nextInt());
+    }
+
+    private static int compare(Node a, Node b) {
+        if (a.start != b.start) return Long.compare(a.start, b.start);
+        if (a.end != b.end) return Long.compare(a.end, b.end);
+        return a.id.compareTo(b.id);
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) return node;
+        if (compare(node, root) < 0) {
+            root.left = insert(root.left, node);
+            if (root.left.priority > root.priority) root = rotateRight(root);
+        } else {
+            root.right = insert(root.right, node);
+            if (root.right.priority > root.priority) root = rotateLeft(root);
+        }
+        update(root);
+        return root;
+    }
+
+    private static Node delete(Node root, Node node) {
+        if (root == null) return null;
+        if (root == node) return merge(root.left, root.right);
+        if (compare(node, root) < 0) {
+            root.left = delete(root.left, node);
+        } else {
+            root.right = delete(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    /** Ghép 2 cây (mọi khóa của a < mọi khóa của b) */
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        if (node.right != null) maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        node.maxEnd = maxEnd;
+    }
+
+    /** Tính maxEnd cho cả cây (sau rebuild), hậu thứ tự không đệ quy */
+    private static void updateAll(Node root) {
+        if (root == null) return;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        List<Node> order = new ArrayList<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            order.add(node);
+            if (node.left != null) stack.push(node.left);
+            if (node.right != null) stack.push(node.right);
+        }
+        for (int i = order.size() - 1; i >= 0; i--) update(order.get(i)); // Con luôn đứng sau cha
+    }
+
+    private static void collectOverlapping(Node node, long start, long end, List<CalendarEvent> out) {
+        if (node == null || node.maxEnd < start) return; // Cả cây con kết thúc trước khoảng
+        collectOverlapping(node.left, start, end, out);
+        if (node.start >= end) return;                  // Node + nhánh phải bắt đầu sau khoảng
+        if (node.end > start || node.start >= start) out.add(node.event);
+        collectOverlapping(node.right, start, end, out);
+    }
+
+    private static void collectStarting(Node node, long start, long end, List<CalendarEvent> out) {
+        if (node == null) return;
+        if (node.start >= start) collectStarting(node.left, start, end, out);
+        if (node.start >= start && node.start < end) out.add(node.event);
+        if (node.start < end) collectStarting(node.right, start, end, out);
+    }
+
+    private static long floorMinute(long millis) {
+        return Math.floorDiv(millis, MILLIS_PER_MINUTE);
+    }
+
+    private static long ceilMinute(long millis) {
+        return -Math.floorDiv(-millis, MILLIS_PER_MINUTE);
+    }
+}
@@ -4,18 +4,34 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.test.lifehub.core.repository.DemandActivation;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexer;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.repository.WriteBehindQueue;
+import com.test.lifehub.core.util.Constants;
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.data.CalendarEventCodec;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -51,9 +67,42 @@ import javax.inject.Singleton;
  *    - Nếu user thay đổi -> dừng listener cũ và xóa dữ liệu cũ
  * 
  * 4. Listener Lifecycle Management:
- *    - startListening(): Bắt đầu lắng nghe Firestore
- *    - stopListening(): Dừng listener (quan trọng để tránh memory leak)
- *    - ListenerRegistration: Đối tượng để hủy listener
+ *    - KHÔNG có listener toàn bộ collection: mọi view lịch đọc qua cửa sổ theo tháng
+ *    - Listener của cửa sổ bật khi LiveData của khoảng thời gian có observer, gỡ khi hết
+ *    - startListening() / getActivation(): warm-up tháng hiện tại (+ 2 tháng prefetch)
+ *    - stopListening(): gỡ mọi cửa sổ và xóa dữ liệu (logout / đổi user)
+ * 
+ * 5. Truy vấn theo khoảng thời gian (getEventIndex / getEventsForDateRange):
+ *    - EventWindowRegistry chia theo tháng, dùng chung listener giữa các màn hình (ref-count)
+ *      và gỡ listener khi không còn ai observe; prefetch tháng liền trước / liền sau.
+ *      Khoảng dài (màn hình Năm) dùng 1 cửa sổ lớn thay vì 12 cửa sổ tháng
+ *    - Mỗi cửa sổ 2 query (xem openWindow):
+ *      + Sự kiện giao với cửa sổ: startTime < end AND endTime >= start
+ *        (composite index endTime + startTime)
+ *      + Bản sửa riêng: originalStartTime trong cửa sổ (index 1 field, tự có)
+ *    - Master lặp: 1 query repeatType in [DAILY..YEARLY] dùng chung cho mọi cửa sổ
+ *      (xem openSeries); chuỗi đã kết thúc không sinh lần lặp khi mở rộng
+ * 
+ * 6. Offline: dựa vào cache của Firestore SDK cho các query cửa sổ
+ *    (LocalMirror chỉ dùng cho listener toàn bộ collection, lịch không còn listener đó)
+ * 
+ * 7. Ghi không đọc trước (updateEvent / deleteEvent):
+ *    - Không get() để so userOwnerId: Firestore rules đã giới hạn theo owner,
+ *      client chỉ kiểm tra lại bằng bản trong các cửa sổ đang mở (defense in depth)
+ *    - Áp dụng ngay lên các cửa sổ (optimistic), ghi qua WriteBehindQueue;
+ *      lỗi / bị rules từ chối (lastModified cũ hơn server) -> lấy lại bản trong cache
+ * 
+ * 8. getEventById(): qua DocumentListenerMultiplexer - lấy từ cửa sổ nếu đã có,
+ *    không thì 1 listener dùng chung theo document, gỡ khi màn hình Edit bị hủy
+ * 
+ * 9. getEventIndex(start, end): CalendarEventIndex (interval tree) cho lưới ngày / tuần /
+ *    tháng / năm, dựng từ các cửa sổ đang xem thay vì mỗi ô lịch duyệt lại toàn bộ sự kiện
+ * 
+ * 10. Sự kiện lặp lại: chỉ lưu master, các lần lặp sinh khi hiển thị (RecurrenceExpander).
+ *    - Sửa 1 lần (updateOccurrence): ghi 1 document riêng có recurrenceId + originalStartTime
+ *    - Xóa 1 lần (deleteOccurrence): arrayUnion startTime gốc vào deletedOccurrences của master
+ *    - Sửa cả chuỗi (updateSeries): ngoại lệ đi theo đúng lần lặp (tính lại bằng RecurrenceExpander);
+ *      đổi kiểu lặp / bỏ lặp hoặc xóa master -> bỏ ngoại lệ, xóa bản sửa riêng
  * 
  * === SCOPE ===
  * @Singleton: 
@@ -64,36 +113,34 @@ import javax.inject.Singleton;
  * === LIÊN KẾT VỚI MVVM ===
  * Repository -> ViewModel -> Fragment:
  * ```java
- * // 1. Repository expose LiveData
- * LiveData<List<CalendarEvent>> events = repository.getAllEvents();
+ * // 1. Repository expose LiveData theo khoảng thời gian
+ * LiveData<CalendarEventIndex> index = repository.getEventIndex(monthStart, nextMonthStart);
  * 
- * // 2. ViewModel observe repository
- * calendarViewModel.getEvents().observe(this, events -> {
- *     adapter.submitList(events);
+ * // 2. ViewModel switchMap theo setDateRange(), Fragment observe
+ * calendarViewModel.getEventIndex().observe(this, index -> {
+ *     adapter.submitList(buildGrid(index));
  * });
  * 
  * // 3. Fragment hiển thị dữ liệu
  * ```
  * 
  * === LƯU Ý QUAN TRỌNG ===
- * 1. Không dùng .orderBy() trong Firestore query:
- *    - Tránh phải tạo composite index
- *    - Sắp xếp sẽ thực hiện ở client (Fragment)
+ * 1. Query cửa sổ không dùng .orderBy():
+ *    - Sắp xếp bằng SnapshotStore / CalendarEventIndex ở client
+ *    - Composite index khai báo trong firestore.indexes.json
  * 
  * 2. Lifecycle:
- *    - startListening() gọi trong constructor
+ *    - Constructor chỉ gắn user; listener bật theo nhu cầu (LiveData có observer)
  *    - stopListening() gọi khi user logout hoặc app destroy
  * 
  * 3. Thread Safety:
- *    - Firestore listener chạy trên background thread
- *    - MutableLiveData.setValue() tự động switch về main thread
+ *    - Firestore listener đăng ký với RepositoryExecutors.snapshots() -> map/lọc trên background thread
+ *    - SnapshotPublisher / postValue() đưa kết quả về main thread (có conflation)
  * 
  * === TODO: TÍNH NĂNG TƯƠNG LAI ===
- * TODO: Thêm filter theo khoảng thời gian (startTime >= date1 AND endTime <= date2)
- * TODO: Hỗ trợ offline mode với Firestore cache
  * TODO: Thêm pagination cho danh sách sự kiện dài
  * TODO: Export/Import sự kiện sang iCal format
- * FIXME: Xử lý trường hợp network error khi insert/update/delete
+ * FIXME: insertEvent lỗi chỉ ghi log (update / delete đã tự reconcile)
  * 
  * @see CalendarEvent POJO cho sự kiện lịch
  * @see CalendarViewModel ViewModel expose data cho UI
@@ -104,22 +151,44 @@ public class CalendarRepository {
     private static final String TAG = "CalendarRepository";
     private static final String COLLECTION_EVENTS = "calendar_events"; // Tên collection trong Firestore
 
+    // Giá trị repeatType của master lặp (query series dùng chung của mọi cửa sổ)
+    private static final List<String> REPEATING_TYPES = Arrays.asList(
+            Constants.REPEAT_DAILY, Constants.REPEAT_WEEKLY, Constants.REPEAT_MONTHLY, Constants.REPEAT_YEARLY);
+
     private final FirebaseAuth mAuth;           // Quản lý xác thực user
     private final FirebaseFirestore mDb;        // Database Firestore
+    private final WriteBehindQueue mWriteQueue; // Hàng đợi ghi (gộp + WriteBatch)
+    private final DocumentListenerMultiplexer mDocuments; // LiveData từng document (ref-count)
     private CollectionReference mEventsCollection; // Tham chiếu đến collection events
 
-    private final MutableLiveData<List<CalendarEvent>> mAllEvents = new MutableLiveData<>();
-    
-    // Quản lý lifecycle của Firestore listener
-    private boolean isListening = false;          // Đang lắng nghe Firestore?
-    private String currentUserId = null;          // User ID hiện tại đang lắng nghe
-    private ListenerRegistration listenerRegistration = null; // Để hủy listener khi cần
+    private volatile String currentUserId = null; // User ID hiện tại (đọc từ background thread)
+
+    // Listener theo tháng cho mọi view lịch (ref-count, gỡ khi không còn observer)
+    private final EventWindowRegistry windowRegistry = new EventWindowRegistry(
+            TAG, this::mapEvent, this::openWindow, this::openSeries, RepositoryExecutors::runOnMain);
+
+    // Store rỗng chỉ để map document cho getEventById khi sự kiện không nằm trong cửa sổ nào
+    private final SnapshotPublisher<CalendarEvent> detachedEvents = new SnapshotPublisher<>(TAG, "Event",
+            new SnapshotStore<>(
+                    this::mapEvent,
+                    event -> event.getStartTime() != null ? event.getStartTime().getTime() : null,
+                    Comparator.nullsLast(Comparator.<Long>naturalOrder())));
+
+    // Warm-up: giữ cửa sổ tháng hiện tại trước khi mở màn hình Lịch
+    private final DemandActivation activation =
+            new DemandActivation("Events", this::openCurrentMonth, this::releaseCurrentMonth);
+    private EventWindowRegistry.Lease currentMonthLease = null;
 
     @Inject
-    public CalendarRepository(FirebaseAuth auth, FirebaseFirestore db) {
+    public CalendarRepository(FirebaseAuth auth, FirebaseFirestore db,
+                              WriteBehindQueue writeQueue,
+                              DocumentListenerMultiplexer documents) {
         this.mAuth = auth;
         this.mDb = db;
-        startListening();
+        this.mWriteQueue = writeQueue;
+        this.mDocuments = documents;
+        // Chỉ gắn user + collection (để ghi được ngay); listener bật khi LiveData có observer
+        bindCurrentUser();
     }
 
     /**
@@ -137,23 +206,14 @@ public class CalendarRepository {
     }
 
     /**
-     * Bắt đầu lắng nghe thay đổi sự kiện realtime từ Firestore
-     * 
-     * Quy trình:
-     * 1. Kiểm tra user hiện tại có đăng nhập không
-     * 2. Nếu user thay đổi: dừng listener cũ và xóa dữ liệu cũ
-     * 3. Nếu đã lắng nghe cho cùng user: không làm gì (tránh duplicate)
-     * 4. Tạo listener mới với filter theo userOwnerId
-     * 
-     * Lưu ý: KHÔNG dùng .orderBy() để tránh phải tạo composite index.
-     *         Sắp xếp sẽ được thực hiện phía client trong Fragment.
+     * Gắn user hiện tại + collection (không gắn listener)
+     * Gọi lại khi mở MainActivity để chắc chắn đúng user (đổi user -> xóa dữ liệu cũ)
      */
-    public void startListening() {
+    public void bindCurrentUser() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
             Log.w(TAG, "User not logged in, cannot listen to events");
             stopListening();
-            mAllEvents.setValue(new ArrayList<>());
             return;
         }
         
@@ -163,144 +223,144 @@ public class CalendarRepository {
         if (currentUserId != null && !currentUserId.equals(newUserId)) {
             Log.d(TAG, "User changed from " + currentUserId + " to " + newUserId + ", stopping old listener");
             stopListening();
-            mAllEvents.setValue(new ArrayList<>());
-        }
-        
-        // Nếu đã đang lắng nghe cho cùng user, không làm gì
-        if (isListening && newUserId.equals(currentUserId)) {
-            Log.d(TAG, "Already listening to Firestore for user: " + newUserId);
-            return;
         }
         
         currentUserId = newUserId;
         mEventsCollection = getEventsCollection();
-        
-        Log.d(TAG, "========================================");
-        Log.d(TAG, "Starting Firestore listener for calendar events");
-        Log.d(TAG, "User ID: " + currentUserId);
-        Log.d(TAG, "========================================");
-        
-        if (mEventsCollection == null) {
-            Log.w(TAG, "CollectionReference is null");
-            return;
-        }
-        
-        listenForEventChanges();
     }
-    
+
+    /**
+     * Mở trước cửa sổ tháng hiện tại (warm-up); bình thường cửa sổ tự mở khi LiveData có observer
+     */
+    public void startListening() {
+        activation.warmUp();
+    }
+
+    public DemandActivation getActivation() {
+        return activation;
+    }
+
+    /**
+     * Giữ cửa sổ tháng hiện tại (+ prefetch) để màn hình Lịch mở ra đã có dữ liệu
+     */
+    private void openCurrentMonth() {
+        bindCurrentUser();
+        if (currentUserId == null || mEventsCollection == null || currentMonthLease != null) return;
+        long monthStart = EventWindowRegistry.monthStart(System.currentTimeMillis());
+        currentMonthLease = windowRegistry.acquire(monthStart, monthStart + 1);
+    }
+
+    /**
+     * Hết grace period mà không ai xem: trả cửa sổ warm-up (màn hình đang mở vẫn giữ cửa sổ của nó)
+     */
+    private void releaseCurrentMonth() {
+        if (currentMonthLease == null) return;
+        windowRegistry.release(currentMonthLease);
+        currentMonthLease = null;
+    }
+
     /**
      * ✅ THÊM: Dừng lắng nghe Firestore
      */
     public void stopListening() {
-        if (listenerRegistration != null) {
-            Log.d(TAG, "Removing Firestore listener for user: " + currentUserId);
-            listenerRegistration.remove();
-            listenerRegistration = null;
-        }
-        isListening = false;
+        activation.reset();
+        currentMonthLease = null; // clear() bên dưới đóng luôn cửa sổ của lease này
+        mWriteQueue.flush(); // Không để write của user cũ nằm lại trong cửa sổ gộp
         currentUserId = null;
-        mAllEvents.setValue(new ArrayList<>());
+        windowRegistry.clear(); // Gỡ listener + xóa dữ liệu, bỏ qua snapshot cũ còn trong hàng đợi
     }
 
-    private void listenForEventChanges() {
-        if (mEventsCollection == null || mAuth.getCurrentUser() == null) return;
-        String currentUserId = mAuth.getCurrentUser().getUid();
-        
-        // Query tất cả events trong collection của user (đã được cách ly bởi path users/{userId}/calendar_events)
-        // KHÔNG dùng whereEqualTo() để tránh vấn đề với dữ liệu cũ không có field userOwnerId
-        // Path-based security đã đủ để cách ly dữ liệu giữa các user
-        listenerRegistration = mEventsCollection
-                .addSnapshotListener((snapshot, e) -> {
-                    if (e != null) {
-                        Log.w(TAG, "❌ Error listening to events", e);
-                        Log.w(TAG, "Error details: " + e.getMessage());
-                        return;
-                    }
-                    if (snapshot != null) {
-                        List<CalendarEvent> events = snapshot.toObjects(CalendarEvent.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            events.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-                        
-                        // ✅ Client-side validation: log warning nếu phát hiện event với userOwnerId sai
-                        List<CalendarEvent> validEvents = new ArrayList<>();
-                        for (CalendarEvent event : events) {
-                            if (event.getUserOwnerId() == null || currentUserId.equals(event.getUserOwnerId())) {
-                                validEvents.add(event);
-                            } else {
-                                Log.w(TAG, "⚠️ Found event with wrong userOwnerId: " + event.getUserOwnerId() + " (expected: " + currentUserId + ")");
-                            }
-                        }
-                        
-                        mAllEvents.setValue(validEvents);
-                        Log.d(TAG, "✅ Events updated: " + validEvents.size() + " items (from " + events.size() + " total)");
-                    }
-                });
+    /**
+     * Map 1 document sang CalendarEvent (chỉ gọi cho document thay đổi, trên background thread)
+     * 
+     * ✅ Client-side validation: event với userOwnerId sai bị lọc (trả về null)
+     */
+    private CalendarEvent mapEvent(String documentId, Map<String, Object> data) {
+        CalendarEvent event = CalendarEventCodec.INSTANCE.fromMap(documentId, data);
         
-        isListening = true;
-        Log.d(TAG, "Firestore listener started successfully");
+        if (event.getUserOwnerId() != null && currentUserId != null && !currentUserId.equals(event.getUserOwnerId())) {
+            Log.w(TAG, "⚠️ Found event with wrong userOwnerId: " + event.getUserOwnerId() + " (expected: " + currentUserId + ")");
+            return null;
+        }
+        return event;
     }
 
-    public LiveData<List<CalendarEvent>> getAllEvents() {
-        return mAllEvents;
+    /**
+     * Chỉ mục sự kiện của khoảng [startDate, endDate) (overlapping / startingIn, gồm cả lần lặp)
+     * 
+     * Listener chỉ được gắn khi LiveData có observer và tự gỡ khi mất observer,
+     * nên dùng an toàn trong switchMap (không rò listener khi đổi khoảng thời gian).
+     * Chỉ mục được cập nhật tăng dần theo Diff và phát lại (cùng 1 đối tượng) mỗi lần dữ liệu đổi.
+     */
+    public LiveData<CalendarEventIndex> getEventIndex(Date startDate, Date endDate) {
+        if (mEventsCollection == null || mAuth.getCurrentUser() == null) return new MutableLiveData<>();
+        return new EventIndexLiveData(windowRegistry, startDate.getTime(), endDate.getTime());
     }
 
+    /**
+     * Sự kiện giao với khoảng [startDate, endDate), sắp xếp theo startTime (gồm cả lần lặp)
+     */
     public LiveData<List<CalendarEvent>> getEventsForDateRange(Date startDate, Date endDate) {
-        MutableLiveData<List<CalendarEvent>> eventsData = new MutableLiveData<>();
-        if (mEventsCollection == null || mAuth.getCurrentUser() == null) return eventsData;
-        String currentUserId = mAuth.getCurrentUser().getUid();
+        return Transformations.map(getEventIndex(startDate, endDate),
+                index -> index.overlapping(startDate.getTime(), endDate.getTime()));
+    }
 
-        // Query tất cả events, filter theo date range ở client-side
-        mEventsCollection
-                .addSnapshotListener((snapshot, e) -> {
-                    if (e != null) {
-                        Log.w(TAG, "❌ Error getting events for range", e);
-                        return;
-                    }
-                    if (snapshot != null) {
-                        List<CalendarEvent> events = snapshot.toObjects(CalendarEvent.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            events.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-                        
-                        // ✅ Filter theo date range và validate userOwnerId ở client-side
-                        List<CalendarEvent> filteredEvents = new java.util.ArrayList<>();
-                        for (CalendarEvent event : events) {
-                            // Validate userOwnerId
-                            if (event.getUserOwnerId() != null && !currentUserId.equals(event.getUserOwnerId())) {
-                                Log.w(TAG, "⚠️ Skipping event with wrong userOwnerId in date range query");
-                                continue;
-                            }
-                            
-                            if (event.getStartTime() != null) {
-                                long eventTime = event.getStartTime().getTime();
-                                if (eventTime >= startDate.getTime() && eventTime < endDate.getTime()) {
-                                    filteredEvents.add(event);
-                                }
-                            }
-                        }
-                        
-                        eventsData.setValue(filteredEvents);
-                        Log.d(TAG, "✅ Events for range: " + filteredEvents.size() + " items");
-                    }
-                });
-        return eventsData;
+    /**
+     * Gắn listener cho 1 cửa sổ của EventWindowRegistry (2 query, 1 registration)
+     * 
+     * - Sự kiện: startTime < window.end AND endTime >= window.start (giao với cửa sổ)
+     * - Bản sửa riêng: window.start <= originalStartTime < window.end
+     * Master lặp nằm ở query series dùng chung (openSeries), không mở lại theo từng cửa sổ.
+     * Sự kiện thiếu startTime / endTime không khớp query nào -> không hiển thị trên lịch
+     */
+    private ListenerRegistration openWindow(EventWindowRegistry.Window window) {
+        if (mEventsCollection == null) return null;
+
+        Date start = new Date(window.start);
+        Date end = new Date(window.end);
+        ListenerRegistration events = listenWindow(window.publisher, mEventsCollection
+                .whereLessThan("startTime", end)
+                .whereGreaterThanOrEqualTo("endTime", start));
+        ListenerRegistration overrides = listenWindow(window.overrides, mEventsCollection
+                .whereGreaterThanOrEqualTo("originalStartTime", start)
+                .whereLessThan("originalStartTime", end));
+        Log.d(TAG, "Event window opened, active windows: " + (windowRegistry.activeWindowCount() + 1));
+        return () -> {
+            events.remove();
+            overrides.remove();
+        };
     }
 
-    public LiveData<CalendarEvent> getEventById(String documentId) {
-        MutableLiveData<CalendarEvent> eventData = new MutableLiveData<>();
-        if (mEventsCollection == null) return eventData;
-
-        mEventsCollection.document(documentId).addSnapshotListener((snapshot, e) -> {
-            if (snapshot != null && snapshot.exists()) {
-                CalendarEvent event = snapshot.toObject(CalendarEvent.class);
-                if (event != null) {
-                    event.documentId = snapshot.getId();
-                    eventData.setValue(event);
-                }
+    /**
+     * Gắn listener cho master lặp: repeatType in REPEATING_TYPES (lần đầu có thể ở rất lâu
+     * trước nên query theo cửa sổ không bắt được). 1 listener cho cả registry, mở cùng
+     * cửa sổ đầu tiên và gỡ khi cửa sổ cuối cùng đóng
+     */
+    private ListenerRegistration openSeries(SnapshotPublisher<CalendarEvent> series) {
+        if (mEventsCollection == null) return null;
+        Log.d(TAG, "Recurring series listener opened");
+        return listenWindow(series, mEventsCollection.whereIn("repeatType", REPEATING_TYPES));
+    }
+
+    private ListenerRegistration listenWindow(SnapshotPublisher<CalendarEvent> publisher, Query query) {
+        final int generation = publisher.generation();
+        return query.addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
+            if (e != null) {
+                Log.w(TAG, "❌ Error listening to event window", e);
+                return;
+            }
+            if (snapshot != null) {
+                publisher.publish(snapshot, generation);
             }
         });
-        return eventData;
+    }
+
+    public LiveData<CalendarEvent> getEventById(String documentId) {
+        if (mEventsCollection == null) return new MutableLiveData<>();
+        // Lấy từ cửa sổ đang mở nếu đã có, không thì dùng chung 1 listener; gỡ khi màn hình bị hủy
+        SnapshotPublisher<CalendarEvent> holder = windowRegistry.publisherOf(documentId);
+        return mDocuments.observe(mEventsCollection.document(documentId),
+                holder != null ? holder : detachedEvents);
     }
 
     public void insertEvent(CalendarEvent event) {
@@ -315,9 +375,8 @@ public class CalendarRepository {
         event.setUserOwnerId(currentUserId);
         
         Log.d(TAG, "Inserting event for user: " + currentUserId);
-        mEventsCollection.add(event)
-                .addOnSuccessListener(ref -> Log.d(TAG, "✅ Event added: " + ref.getId()))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Error adding event", e));
+        mWriteQueue.set(mEventsCollection.document(), CalendarEventCodec.INSTANCE.toMap(event),
+                mWriteQueue.logging(TAG, "Event added", "Error adding event"));
     }
 
     public void updateEvent(CalendarEvent event) {
@@ -332,32 +391,20 @@ public class CalendarRepository {
             return;
         }
         
+        String currentUserId = currentUser.getUid();
+        if (!isOwnedLocally(event.documentId, currentUserId, "update")) return;
+
         // ✅ BẢO MẬT: Luôn ghi đè userOwnerId bằng UID của user hiện tại
         // Ngăn chặn việc user A update event với userOwnerId của user B
-        String currentUserId = currentUser.getUid();
         event.setUserOwnerId(currentUserId);
-        
-        // ✅ BẢO MẬT: Verify event thuộc về user hiện tại trước khi update
-        mEventsCollection.document(event.documentId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        CalendarEvent existingEvent = documentSnapshot.toObject(CalendarEvent.class);
-                        if (existingEvent != null && existingEvent.getUserOwnerId() != null) {
-                            if (!existingEvent.getUserOwnerId().equals(currentUserId)) {
-                                Log.w(TAG, "❌ SECURITY VIOLATION: User " + currentUserId + " attempted to update event owned by " + existingEvent.getUserOwnerId());
-                                return;
-                            }
-                        }
-                        
-                        // OK, user owns this event, proceed with update
-                        mEventsCollection.document(event.documentId).set(event)
-                                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Event updated"))
-                                .addOnFailureListener(e -> Log.w(TAG, "❌ Error updating event", e));
-                    } else {
-                        Log.w(TAG, "❌ Event not found: " + event.documentId);
-                    }
-                })
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Error verifying event ownership", e));
+        // Rules từ chối write có lastModified cũ hơn bản trên server (bản sửa offline tới muộn)
+        event.setLastModified(new Date());
+
+        // Hiển thị ngay, ghi nền; lỗi (kể cả bị rules từ chối) -> lấy lại bản trong cache
+        DocumentReference ref = mEventsCollection.document(event.documentId);
+        windowRegistry.applyLocal(event.documentId, event);
+        mWriteQueue.save(ref, CalendarEventCodec.INSTANCE, event, windowRegistry.reconcileOnFailure(ref,
+                mWriteQueue.logging(TAG, "Event updated", "Error updating event")));
     }
 
     public void deleteEvent(CalendarEvent event) {
@@ -372,28 +419,161 @@ public class CalendarRepository {
             return;
         }
         
-        String currentUserId = currentUser.getUid();
-        
-        // ✅ BẢO MẬT: Verify event thuộc về user hiện tại trước khi delete
-        mEventsCollection.document(event.documentId).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        CalendarEvent existingEvent = documentSnapshot.toObject(CalendarEvent.class);
-                        if (existingEvent != null && existingEvent.getUserOwnerId() != null) {
-                            if (!existingEvent.getUserOwnerId().equals(currentUserId)) {
-                                Log.w(TAG, "❌ SECURITY VIOLATION: User " + currentUserId + " attempted to delete event owned by " + existingEvent.getUserOwnerId());
-                                return;
-                            }
+        if (!isOwnedLocally(event.documentId, currentUser.getUid(), "delete")) return;
+
+        DocumentReference ref = mEventsCollection.document(event.documentId);
+        windowRegistry.applyLocal(event.documentId, null);
+        mWriteQueue.delete(ref, windowRegistry.reconcileOnFailure(ref,
+                mWriteQueue.logging(TAG, "Event deleted", "Error deleting event")));
+
+        // Xóa cả chuỗi -> bản sửa riêng của từng lần không còn ý nghĩa
+        if (event.isRecurring()) {
+            loadOverrides(event.documentId, overrides -> {
+                for (CalendarEvent override : overrides) {
+                    deleteEvent(override);
+                }
+            });
+        }
+    }
+
+    // ===== SỰ KIỆN LẶP LẠI =====
+
+    /**
+     * Master của 1 lần lặp (lần sinh ra hoặc bản sửa riêng), null nếu chưa có trong cửa sổ nào
+     * (lần lặp đang hiển thị thì master luôn nằm trong query series dùng chung)
+     */
+    public CalendarEvent getSeriesMaster(CalendarEvent occurrence) {
+        if (occurrence.getRecurrenceId() == null) return null;
+        return windowRegistry.find(occurrence.getRecurrenceId());
+    }
+
+    /**
+     * Chỉ sửa 1 lần: lần sinh ra -> tạo bản sửa riêng, bản sửa riêng đã có -> cập nhật nó
+     * Master không bị ghi lại.
+     */
+    public void updateOccurrence(CalendarEvent occurrence) {
+        if (occurrence.getRecurrenceId() == null || occurrence.getOriginalStartTime() == null) {
+            Log.w(TAG, "❌ Cannot update occurrence: not part of a repeating event");
+            return;
+        }
+        // Bản sửa riêng không tự lặp lại
+        occurrence.setRepeatType(Constants.REPEAT_NONE);
+        occurrence.setRepeatUntil(null);
+        occurrence.setDeletedOccurrences(null);
+        if (occurrence.documentId != null) {
+            updateEvent(occurrence);
+        } else {
+            insertEvent(occurrence);
+        }
+    }
+
+    /**
+     * Chỉ xóa 1 lần: arrayUnion startTime gốc vào deletedOccurrences của master
+     * (không đọc - sửa - ghi cả mảng, lần xóa từ thiết bị khác không bị đè mất)
+     * Bản sửa riêng của lần đó cũng bị xóa.
+     */
+    public void deleteOccurrence(CalendarEvent occurrence) {
+        CalendarEvent master = getSeriesMaster(occurrence);
+        FirebaseUser currentUser = mAuth.getCurrentUser();
+        if (master == null || master.documentId == null || occurrence.getOriginalStartTime() == null) {
+            Log.w(TAG, "⚠️ Master of occurrence not loaded, only the override is deleted");
+        } else if (mEventsCollection != null && currentUser != null
+                && isOwnedLocally(master.documentId, currentUser.getUid(), "update")) {
+            long originalStart = occurrence.getOriginalStartTime().getTime();
+            Date now = new Date();
+
+            // Ẩn ngay bằng bản sao của master (bản trong cửa sổ không bị sửa tại chỗ)
+            CalendarEvent updated = CalendarEventCodec.INSTANCE.fromMap(master.documentId,
+                    CalendarEventCodec.INSTANCE.toMap(master));
+            List<Long> deleted = updated.getDeletedOccurrences() != null
+                    ? new ArrayList<>(updated.getDeletedOccurrences()) : new ArrayList<>();
+            deleted.add(originalStart);
+            updated.setDeletedOccurrences(deleted);
+            updated.setLastModified(now);
+            windowRegistry.applyLocal(master.documentId, updated);
+
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("lastModified", now);
+            DocumentReference ref = mEventsCollection.document(master.documentId);
+            mWriteQueue.addToArray(ref, "deletedOccurrences", originalStart, fields,
+                    windowRegistry.reconcileOnFailure(ref,
+                            mWriteQueue.logging(TAG, "Occurrence deleted", "Error deleting occurrence")));
+        }
+        if (occurrence.documentId != null) deleteEvent(occurrence);
+    }
+
+    /**
+     * Sửa cả chuỗi; master đã mang giá trị mới, previousStart / previousRepeatType là của chuỗi cũ
+     *
+     * - Cùng kiểu lặp: lần đã xóa / bản sửa riêng thứ k của chuỗi cũ -> lần thứ k của chuỗi mới,
+     *   tính bằng RecurrenceExpander (đúng qua đổi giờ mùa hè, ngày cuối tháng của MONTHLY / YEARLY)
+     * - Đổi kiểu lặp / không còn lặp: các lần cũ không còn tương ứng -> bỏ lần đã xóa,
+     *   xóa bản sửa riêng (giống xóa master)
+     */
+    public void updateSeries(CalendarEvent master, long previousStart, String previousRepeatType) {
+        if (master.documentId != null && master.getStartTime() != null) {
+            long start = master.getStartTime().getTime();
+            String repeatType = master.getRepeatType();
+            boolean sameRule = master.isRecurring() && repeatType.equals(previousRepeatType);
+            if (!sameRule || start != previousStart) {
+                RecurrenceExpander expander = new RecurrenceExpander();
+                if (master.getDeletedOccurrences() != null) {
+                    List<Long> moved = new ArrayList<>();
+                    for (Long deleted : master.getDeletedOccurrences()) {
+                        long k = sameRule && deleted != null ? expander.indexOf(previousStart, previousRepeatType, deleted) : -1;
+                        if (k >= 0) moved.add(expander.startOf(start, repeatType, k));
+                    }
+                    master.setDeletedOccurrences(moved.isEmpty() ? null : moved);
+                }
+                loadOverrides(master.documentId, overrides -> {
+                    for (CalendarEvent override : overrides) {
+                        long original = override.getOriginalStartTime().getTime();
+                        long k = sameRule ? expander.indexOf(previousStart, previousRepeatType, original) : -1;
+                        if (k < 0) {
+                            deleteEvent(override);
+                        } else {
+                            override.setOriginalStartTime(new Date(expander.startOf(start, repeatType, k)));
+                            updateEvent(override);
+                        }
+                    }
+                });
+            }
+        }
+        updateEvent(master);
+    }
+
+    /**
+     * Mọi bản sửa riêng của 1 master (1 query theo recurrenceId, kể cả tháng chưa mở cửa sổ)
+     * Kết quả trả về trên main thread; lỗi chỉ ghi log (bản sửa riêng còn lại vẫn hiển thị đúng)
+     */
+    private void loadOverrides(String masterId, Consumer<List<CalendarEvent>> callback) {
+        if (mEventsCollection == null) return;
+        mEventsCollection.whereEqualTo("recurrenceId", masterId).get()
+                .addOnSuccessListener(snapshot -> {
+                    List<CalendarEvent> overrides = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot) {
+                        CalendarEvent override = mapEvent(document.getId(), document.getData());
+                        if (override != null && override.getOriginalStartTime() != null) {
+                            overrides.add(override);
                         }
-                        
-                        // OK, user owns this event, proceed with delete
-                        mEventsCollection.document(event.documentId).delete()
-                                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Event deleted"))
-                                .addOnFailureListener(e -> Log.w(TAG, "❌ Error deleting event", e));
-                    } else {
-                        Log.w(TAG, "❌ Event not found: " + event.documentId);
                     }
+                    callback.accept(overrides);
                 })
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Error verifying event ownership", e));
+                .addOnFailureListener(e -> Log.w(TAG, "❌ Error loading overrides of " + masterId, e));
+    }
+
+    /**
+     * ✅ BẢO MẬT: Kiểm tra chủ sở hữu bằng bản trong cửa sổ đang mở (không get() lên server)
+     * Firestore rules (users/{userId}/calendar_events) mới là lớp chặn thật sự;
+     * đây chỉ là defense in depth, event chưa tải được để rules quyết định.
+     */
+    private boolean isOwnedLocally(String documentId, String currentUserId, String action) {
+        CalendarEvent known = windowRegistry.find(documentId);
+        if (known != null && known.getUserOwnerId() != null && !known.getUserOwnerId().equals(currentUserId)) {
+            Log.w(TAG, "❌ SECURITY VIOLATION: User " + currentUserId + " attempted to " + action
+                    + " event owned by " + known.getUserOwnerId());
+            return false;
+        }
+        return true;
     }
-}
\ No newline at end of file
+}
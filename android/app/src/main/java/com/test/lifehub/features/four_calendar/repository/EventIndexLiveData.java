@@ -0,0 +1,171 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import androidx.lifecycle.MediatorLiveData;
+
+import com.test.lifehub.core.repository.DiffFollower;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LiveData phát CalendarEventIndex của khoảng [start, end), ghép từ các cửa sổ
+ * của EventWindowRegistry (sự kiện giao với cửa sổ + bản sửa riêng) và query master lặp dùng chung
+ *
+ * - onActive: acquire cửa sổ (listener Firestore chỉ tồn tại khi có người observe)
+ * - onInactive: release -> switchMap đổi khoảng thời gian không còn rò listener
+ * - 1 chỉ mục cho mỗi LiveData, cập nhật tăng dần bằng Diff của từng publisher (DiffFollower):
+ *   mỗi thay đổi chỉ chạm các sự kiện đã đổi, O(k log n)
+ * - Sự kiện nằm ở nhiều cửa sổ / nhiều query: đếm số publisher đang giữ documentId,
+ *   chỉ gỡ khỏi chỉ mục khi không còn publisher nào giữ
+ * - Dựng lại toàn bộ chỉ khi đổi lease (onActive) hoặc 1 publisher cần đồng bộ lại
+ *   (reset / logout / Diff lệch số phần tử)
+ * - Chờ đủ snapshot đầu tiên của mọi cửa sổ rồi mới phát; các lần sau phát lại cùng 1 chỉ mục
+ */
+class EventIndexLiveData extends MediatorLiveData<CalendarEventIndex> {
+
+    /**
+     * 1 publisher của lease + documentId mà nó đang góp vào chỉ mục
+     */
+    private final class Source {
+        final SnapshotPublisher<CalendarEvent> publisher;
+        final Set<String> ids = new HashSet<>();
+        final DiffFollower<CalendarEvent> follower =
+                new DiffFollower<>(items -> resync(), this::apply, ids::size);
+
+        Source(SnapshotPublisher<CalendarEvent> publisher) {
+            this.publisher = publisher;
+        }
+
+        void apply(SnapshotStore.Diff<CalendarEvent> diff) {
+            if (stale) return; // Sắp dựng lại toàn bộ
+            for (String id : diff.removedIds) {
+                if (ids.remove(id)) release(id);
+            }
+            for (CalendarEvent event : diff.added) retain(event);
+            for (CalendarEvent event : diff.modified) retain(event);
+        }
+
+        private void retain(CalendarEvent event) {
+            String id = event.getDocumentId();
+            if (id == null) return;
+            if (ids.add(id)) {
+                Integer count = refCounts.get(id);
+                refCounts.put(id, count != null ? count + 1 : 1);
+            }
+            index.put(event); // Bản mới nhất thắng
+        }
+    }
+
+    private final EventWindowRegistry registry;
+    private final long start;
+    private final long end;
+    private final CalendarEventIndex index = new CalendarEventIndex();
+    private final Map<String, Integer> refCounts = new HashMap<>(); // documentId -> số publisher giữ
+    private final List<Source> sources = new ArrayList<>();
+    private EventWindowRegistry.Lease lease;
+    private boolean activating = false;
+    private boolean stale = true; // Chỉ mục chưa khớp các publisher -> dựng lại
+
+    EventIndexLiveData(EventWindowRegistry registry, long start, long end) {
+        this.registry = registry;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        lease = registry.acquire(start, end);
+        stale = true;
+        // addSource phát lại ngay giá trị có sẵn của cửa sổ đã mở -> gộp thành 1 lần dựng
+        activating = true;
+        for (EventWindowRegistry.Window window : lease.visible) {
+            for (SnapshotPublisher<CalendarEvent> publisher : window.publishers()) {
+                if (contains(publisher)) continue; // Publisher dùng chung giữa các cửa sổ
+                Source source = new Source(publisher);
+                sources.add(source);
+                addSource(publisher.getItems(), items -> {
+                    if (source.follower.onItems(items)) publish();
+                });
+                addSource(publisher.getChanges(), diff -> {
+                    if (source.follower.onChanges(diff, publisher.getItems().getValue())) publish();
+                });
+            }
+        }
+        activating = false;
+        publish();
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        if (lease == null) return;
+        for (Source source : sources) {
+            removeSource(source.publisher.getItems());
+            removeSource(source.publisher.getChanges());
+        }
+        sources.clear();
+        registry.release(lease);
+        lease = null;
+    }
+
+    private boolean contains(SnapshotPublisher<CalendarEvent> publisher) {
+        for (Source source : sources) {
+            if (source.publisher == publisher) return true;
+        }
+        return false;
+    }
+
+    /** 1 publisher cần đồng bộ lại -> dựng lại chỉ mục từ mọi publisher */
+    private void resync() {
+        stale = true;
+    }
+
+    private void release(String id) {
+        Integer count = refCounts.get(id);
+        if (count == null || count <= 1) {
+            refCounts.remove(id);
+            index.remove(id);
+        } else {
+            refCounts.put(id, count - 1);
+        }
+    }
+
+    private void publish() {
+        if (lease == null || activating) return;
+        if (stale && !rebuild()) return;
+        setValue(index);
+    }
+
+    /**
+     * @return false nếu còn cửa sổ chưa có snapshot đầu tiên
+     */
+    private boolean rebuild() {
+        List<CalendarEvent> events = new ArrayList<>();
+        for (Source source : sources) {
+            List<CalendarEvent> items = source.publisher.getItems().getValue();
+            if (items == null) return false; // Chờ đủ các cửa sổ có snapshot đầu tiên
+            events.addAll(items);
+        }
+        refCounts.clear();
+        for (Source source : sources) {
+            source.ids.clear();
+            for (CalendarEvent event : source.publisher.getItems().getValue()) {
+                String id = event.getDocumentId();
+                if (id == null || !source.ids.add(id)) continue;
+                Integer count = refCounts.get(id);
+                refCounts.put(id, count != null ? count + 1 : 1);
+            }
+        }
+        index.rebuild(events); // Bỏ bản trùng theo documentId
+        stale = false;
+        return true;
+    }
+}
@@ -0,0 +1,431 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Source;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.repository.WriteBehindQueue;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * EventWindowRegistry - Quản lý listener sự kiện theo "cửa sổ" thời gian (ref-count)
+ *
+ * === MỤC ĐÍCH ===
+ * Trước đây mỗi lần gọi getEventsForDateRange() gắn thêm 1 listener lên TOÀN BỘ
+ * collection calendar_events và không bao giờ gỡ ra (switchMap trong CalendarViewModel
+ * -> mỗi lần chuyển tháng rò thêm 1 listener). Giờ đây là nguồn dữ liệu DUY NHẤT
+ * của các view lịch (không còn listener toàn bộ collection). Registry này:
+ * - Chia thời gian thành cửa sổ theo THÁNG (giờ địa phương); khoảng dài hơn
+ *   MAX_MONTH_WINDOWS tháng (màn hình Năm) dùng 1 cửa sổ lớn thay vì 12 cửa sổ tháng
+ * - Mỗi cửa sổ có 2 query Firestore, mỗi query 1 SnapshotPublisher:
+ *   + events: sự kiện giao với cửa sổ (startTime < end AND endTime >= start)
+ *   + overrides: bản sửa riêng có originalStartTime trong cửa sổ (bản đã dời sang tháng khác
+ *     vẫn phải che lần gốc của tháng này)
+ * - series: master lặp (lần đầu có thể ở rất lâu trước nên query events không bắt được).
+ *   1 query DUY NHẤT cho cả registry, dùng chung bởi mọi cửa sổ: mở cùng cửa sổ đầu tiên,
+ *   gỡ khi cửa sổ cuối cùng đóng. Chuỗi đã kết thúc (repeatUntil) không sinh lần lặp nào
+ *   khi CalendarEventIndex mở rộng
+ * - Nhiều màn hình / khoảng thời gian chồng nhau dùng chung cửa sổ (refCount)
+ * - Cửa sổ không còn ai dùng thì gỡ listener
+ * - Prefetch: mỗi lần acquire cửa sổ tháng giữ thêm tháng trước và tháng sau, nên khi
+ *   người dùng chuyển tháng thì dữ liệu đã có sẵn (cửa sổ lớn không prefetch)
+ *
+ * === GỠ LISTENER TRỄ ===
+ * switchMap gỡ LiveData cũ TRƯỚC khi gắn LiveData mới. Nếu gỡ listener ngay thì
+ * tháng đang xem / tháng prefetch bị đóng rồi mở lại. Vì vậy release() chỉ giảm
+ * refCount, việc đóng cửa sổ được đẩy qua releaseExecutor (main thread, lượt sau):
+ * nếu trong lúc đó đã có acquire mới thì cửa sổ được giữ lại.
+ *
+ * === THREAD ===
+ * Toàn bộ API gọi trên main thread (onActive / onInactive của LiveData).
+ */
+class EventWindowRegistry {
+
+    /**
+     * Gắn listener Firestore cho 1 cửa sổ, đẩy snapshot vào các publisher của window
+     * (nhiều query -> trả về 1 registration gỡ tất cả)
+     */
+    interface Opener {
+        @Nullable
+        ListenerRegistration open(@NonNull Window window);
+    }
+
+    /**
+     * Gắn listener Firestore cho query master lặp dùng chung của registry
+     */
+    interface SeriesOpener {
+        @Nullable
+        ListenerRegistration open(@NonNull SnapshotPublisher<CalendarEvent> series);
+    }
+
+    /**
+     * Số tháng tối đa chia thành cửa sổ tháng; khoảng dài hơn -> 1 cửa sổ lớn
+     * (tuần / tháng hiển thị tối đa 3 tháng, màn hình Năm 12 tháng)
+     */
+    static final int MAX_MONTH_WINDOWS = 3;
+
+    /**
+     * 1 cửa sổ = [start, end) của 1 tháng (hoặc nhiều tháng liền nhau với cửa sổ lớn)
+     */
+    static final class Window {
+        final long start;
+        final long end;
+        final SnapshotPublisher<CalendarEvent> publisher; // Sự kiện giao với cửa sổ
+        final SnapshotPublisher<CalendarEvent> series;    // Master lặp (dùng chung cả registry)
+        final SnapshotPublisher<CalendarEvent> overrides; // Bản sửa riêng của lần lặp trong cửa sổ
+        ListenerRegistration registration;
+        int refCount = 0;
+
+        Window(long start, long end, SnapshotPublisher<CalendarEvent> publisher,
+               SnapshotPublisher<CalendarEvent> series, SnapshotPublisher<CalendarEvent> overrides) {
+            this.start = start;
+            this.end = end;
+            this.publisher = publisher;
+            this.series = series;
+            this.overrides = overrides;
+        }
+
+        /** Mọi publisher góp vào chỉ mục của cửa sổ (gồm series dùng chung) */
+        List<SnapshotPublisher<CalendarEvent>> publishers() {
+            return Arrays.asList(publisher, series, overrides);
+        }
+
+        /** Publisher riêng của cửa sổ (series thuộc registry) */
+        List<SnapshotPublisher<CalendarEvent>> ownPublishers() {
+            return Arrays.asList(publisher, overrides);
+        }
+
+        /**
+         * Document có thuộc query của từng publisher không (để áp thay đổi optimistic
+         * đúng chỗ, giống điều kiện của query Firestore trong CalendarRepository.openWindow)
+         */
+        boolean matches(SnapshotPublisher<CalendarEvent> target, CalendarEvent event) {
+            if (target == publisher) {
+                return event.getStartTime() != null && event.getEndTime() != null
+                        && event.getStartTime().getTime() < end && event.getEndTime().getTime() >= start;
+            }
+            if (target == series) {
+                return event.isRecurring() && event.getStartTime() != null;
+            }
+            return event.getOriginalStartTime() != null
+                    && event.getOriginalStartTime().getTime() >= start
+                    && event.getOriginalStartTime().getTime() < end;
+        }
+    }
+
+    /**
+     * Các cửa sổ mà 1 người dùng (LiveData) đang giữ
+     */
+    static final class Lease {
+        final List<Window> visible;   // Cửa sổ phủ khoảng thời gian được yêu cầu
+        final List<Window> prefetch;  // Tháng liền trước / liền sau (rỗng với cửa sổ lớn)
+        private boolean released = false;
+
+        Lease(List<Window> visible, List<Window> prefetch) {
+            this.visible = Collections.unmodifiableList(visible);
+            this.prefetch = Collections.unmodifiableList(prefetch);
+        }
+    }
+
+    private final String tag;
+    private final SnapshotStore.Mapper<CalendarEvent> mapper;
+    private final Opener opener;
+    private final SeriesOpener seriesOpener;
+    private final Executor releaseExecutor;
+    private final Map<List<Long>, Window> windows = new HashMap<>(); // key = [start, end)
+    private SnapshotPublisher<CalendarEvent> series; // null = chưa mở (mỗi lần mở 1 publisher mới)
+    private ListenerRegistration seriesRegistration;
+    private int generation = 0; // Tăng khi clear(): bỏ kết quả reconcile của user cũ
+
+    /**
+     * @param mapper Map document -> CalendarEvent (lọc owner sai)
+     * @param opener Gắn listener Firestore cho cửa sổ
+     * @param seriesOpener Gắn listener Firestore cho query master lặp dùng chung
+     * @param releaseExecutor Nơi chạy việc đóng cửa sổ trễ (main thread)
+     */
+    EventWindowRegistry(String tag, SnapshotStore.Mapper<CalendarEvent> mapper,
+                        Opener opener, SeriesOpener seriesOpener, Executor releaseExecutor) {
+        this.tag = tag;
+        this.mapper = mapper;
+        this.opener = opener;
+        this.seriesOpener = seriesOpener;
+        this.releaseExecutor = releaseExecutor;
+    }
+
+    /**
+     * Giữ các cửa sổ phủ [start, end) + 2 cửa sổ prefetch hai bên
+     * Khoảng dài hơn MAX_MONTH_WINDOWS tháng: 1 cửa sổ lớn, không prefetch
+     */
+    @MainThread
+    Lease acquire(long start, long end) {
+        List<long[]> months = monthWindows(start, end);
+        if (months.size() > MAX_MONTH_WINDOWS) {
+            Window span = retain(months.get(0)[0], months.get(months.size() - 1)[1]);
+            return new Lease(Collections.singletonList(span), Collections.emptyList());
+        }
+        List<Window> visible = new ArrayList<>(months.size());
+        for (long[] month : months) {
+            visible.add(retain(month[0], month[1]));
+        }
+
+        List<Window> prefetch = new ArrayList<>(2);
+        long first = months.get(0)[0];
+        long last = months.get(months.size() - 1)[1];
+        prefetch.add(retain(monthStart(first - 1), first));
+        prefetch.add(retain(last, monthStart(last, 1)));
+        return new Lease(visible, prefetch);
+    }
+
+    /**
+     * Trả lại các cửa sổ của lease; cửa sổ hết người dùng sẽ bị đóng ở lượt main thread sau
+     */
+    @MainThread
+    void release(@NonNull Lease lease) {
+        if (lease.released) return;
+        lease.released = true;
+
+        List<Window> all = new ArrayList<>(lease.visible);
+        all.addAll(lease.prefetch);
+        for (Window window : all) {
+            if (windows.get(key(window.start, window.end)) != window) continue; // Đã bị clear()
+            window.refCount--;
+        }
+        releaseExecutor.execute(() -> {
+            for (Window window : all) {
+                List<Long> key = key(window.start, window.end);
+                if (window.refCount <= 0 && windows.get(key) == window) {
+                    close(window);
+                    windows.remove(key);
+                }
+            }
+            if (windows.isEmpty()) closeSeries(); // Cửa sổ cuối cùng đã đóng
+        });
+    }
+
+    /**
+     * Đóng toàn bộ cửa sổ (logout / đổi user)
+     * Lease đang giữ vẫn trỏ tới cửa sổ cũ nhưng dữ liệu đã được xóa
+     */
+    @MainThread
+    void clear() {
+        for (Window window : windows.values()) {
+            close(window);
+        }
+        windows.clear();
+        closeSeries();
+        generation++;
+    }
+
+    // ===== DỮ LIỆU TRONG CÁC CỬA SỔ ĐANG MỞ =====
+
+    /**
+     * Bản mới nhất của document trong các cửa sổ đang mở (null nếu chưa tải)
+     */
+    @MainThread
+    @Nullable
+    CalendarEvent find(@NonNull String documentId) {
+        SnapshotPublisher<CalendarEvent> holder = publisherOf(documentId);
+        return holder != null ? holder.getStore().get(documentId) : null;
+    }
+
+    /**
+     * Publisher đang giữ document (null nếu không cửa sổ nào có)
+     */
+    @MainThread
+    @Nullable
+    SnapshotPublisher<CalendarEvent> publisherOf(@NonNull String documentId) {
+        if (series != null && series.getStore().get(documentId) != null) return series;
+        for (Window window : windows.values()) {
+            for (SnapshotPublisher<CalendarEvent> target : window.ownPublishers()) {
+                if (target.getStore().get(documentId) != null) return target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hiển thị ngay thay đổi của app: đưa document vào / ra khỏi từng publisher theo
+     * điều kiện query của nó (sự kiện bị dời sang tháng khác rời cửa sổ cũ ngay)
+     *
+     * @param event null = document bị xóa
+     */
+    @MainThread
+    void applyLocal(@NonNull String documentId, @Nullable CalendarEvent event) {
+        if (series != null) {
+            boolean keep = event != null && event.isRecurring() && event.getStartTime() != null;
+            series.applyLocal(documentId, keep ? event : null);
+        }
+        for (Window window : windows.values()) {
+            for (SnapshotPublisher<CalendarEvent> target : window.ownPublishers()) {
+                boolean keep = event != null && window.matches(target, event);
+                target.applyLocal(documentId, keep ? event : null);
+            }
+        }
+    }
+
+    /**
+     * Bọc callback của WriteBehindQueue: ghi lỗi -> đọc lại document từ cache Firestore
+     * (1 lần cho mọi cửa sổ) rồi áp như applyLocal, sau đó mới báo callback gốc
+     */
+    WriteBehindQueue.Callback reconcileOnFailure(@NonNull DocumentReference ref,
+                                                 @Nullable WriteBehindQueue.Callback callback) {
+        return new WriteBehindQueue.Callback() {
+            @Override
+            public void onSuccess(String documentId) {
+                if (callback != null) callback.onSuccess(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                reconcile(ref);
+                if (callback != null) callback.onFailure(e);
+            }
+        };
+    }
+
+    private void reconcile(DocumentReference ref) {
+        final int reconcileGeneration = generation;
+        ref.get(Source.CACHE).addOnCompleteListener(RepositoryExecutors.snapshots(), task -> {
+            if (!task.isSuccessful()) {
+                Log.w(tag, "Không đọc lại được sự kiện từ cache: " + ref.getId(), task.getException());
+                return;
+            }
+            DocumentSnapshot snapshot = task.getResult();
+            Map<String, Object> data = snapshot.exists() ? snapshot.getData() : null;
+            CalendarEvent event = data != null ? mapper.map(ref.getId(), data) : null;
+            RepositoryExecutors.runOnMain(() -> {
+                if (reconcileGeneration != generation) return;
+                applyLocal(ref.getId(), event);
+                Log.d(tag, "↩️ Event reconciled after failed write: " + ref.getId());
+            });
+        });
+    }
+
+    /**
+     * Số cửa sổ đang có listener (để log / kiểm tra rò rỉ)
+     */
+    int activeWindowCount() {
+        return windows.size();
+    }
+
+    /**
+     * Có query master lặp dùng chung đang mở không (để log / kiểm tra rò rỉ)
+     */
+    boolean isSeriesOpen() {
+        return series != null;
+    }
+
+    private Window retain(long start, long end) {
+        List<Long> key = key(start, end);
+        Window window = windows.get(key);
+        if (window == null) {
+            if (series == null) openSeries();
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM", Locale.US);
+            String label = format.format(new Date(start));
+            if (monthStart(start, 1) != end) label += ".." + format.format(new Date(end - 1));
+            window = new Window(start, end,
+                    newPublisher("Events " + label, mapper), series,
+                    newPublisher("Overrides " + label, mapper));
+            window.registration = opener.open(window);
+            windows.put(key, window);
+        }
+        window.refCount++;
+        return window;
+    }
+
+    private static List<Long> key(long start, long end) {
+        return Arrays.asList(start, end);
+    }
+
+    private SnapshotPublisher<CalendarEvent> newPublisher(String label, SnapshotStore.Mapper<CalendarEvent> storeMapper) {
+        return new SnapshotPublisher<>(tag, label, new SnapshotStore<>(
+                storeMapper,
+                event -> event.getStartTime() != null ? event.getStartTime().getTime() : null,
+                Comparator.nullsLast(Comparator.<Long>naturalOrder())));
+    }
+
+    private static void close(Window window) {
+        if (window.registration != null) {
+            window.registration.remove();
+            window.registration = null;
+        }
+        for (SnapshotPublisher<CalendarEvent> target : window.ownPublishers()) {
+            target.reset();
+        }
+    }
+
+    /** Publisher mới: cửa sổ mở sau này chờ snapshot đầu tiên của series như query riêng */
+    private void openSeries() {
+        series = newPublisher("Series", (id, data) -> {
+            CalendarEvent event = mapper.map(id, data);
+            return event != null && event.isRecurring() ? event : null;
+        });
+        seriesRegistration = seriesOpener.open(series);
+    }
+
+    private void closeSeries() {
+        if (series == null) return;
+        if (seriesRegistration != null) {
+            seriesRegistration.remove();
+            seriesRegistration = null;
+        }
+        series.reset(); // Lease cũ còn trỏ tới -> xóa dữ liệu như các cửa sổ
+        series = null;
+    }
+
+    // ===== TÍNH CỬA SỔ THEO THÁNG =====
+
+    /**
+     * Các tháng [start, end) phủ khoảng thời gian yêu cầu (ít nhất 1 tháng)
+     */
+    static List<long[]> monthWindows(long start, long end) {
+        List<long[]> months = new ArrayList<>();
+        long cursor = monthStart(start);
+        do {
+            long next = monthStart(cursor, 1);
+            months.add(new long[]{cursor, next});
+            cursor = next;
+        } while (cursor < end);
+        return months;
+    }
+
+    /** 00:00 ngày 1 của tháng chứa time */
+    static long monthStart(long time) {
+        return monthStart(time, 0);
+    }
+
+    /** 00:00 ngày 1 của tháng chứa time, dịch thêm offset tháng */
+    private static long monthStart(long time, int offset) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.MONTH, offset);
+        return cal.getTimeInMillis();
+    }
+}
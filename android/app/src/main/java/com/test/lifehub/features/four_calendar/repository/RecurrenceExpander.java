@@ -0,0 +1,340 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.util.Constants;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * RecurrenceExpander - Sinh các lần lặp của sự kiện lặp lại theo cửa sổ đang xem
+ *
+ * === VẤN ĐỀ ===
+ * Master DAILY không có repeatUntil = vô hạn lần lặp: không thể sinh sẵn toàn bộ.
+ *
+ * === CÁCH LÀM ===
+ * - Chỉ sinh các lần BẮT ĐẦU trong những tháng mà view hỏi tới, nhảy thẳng tới lần đầu
+ *   của tháng (không đi từ startTime của master), cache theo (master, tháng)
+ * - Cache mỗi master giữ tối đa MAX_CACHED_MONTHS tháng gần nhất (LRU)
+ * - Sửa master / thêm / xóa ngoại lệ -> bỏ cache của riêng master đó
+ * - Lần lặp = CalendarEvent mới (documentId null, recurrenceId + originalStartTime),
+ *   cùng object cho tới khi cache bị bỏ
+ *
+ * === QUY TẮC LẶP ===
+ * - Tính theo giờ địa phương (Calendar.add): giữ nguyên giờ qua đổi giờ mùa hè
+ * - MONTHLY / YEARLY tính từ startTime gốc, ngày không tồn tại lấy ngày cuối tháng
+ *   (31/1 -> 28/2 -> 31/3), giống Calendar.add
+ * - repeatUntil tính cả ngày đó
+ * - Bỏ qua lần có startTime gốc nằm trong deletedOccurrences hoặc đã có bản sửa riêng
+ *
+ * === THREAD ===
+ * Main thread (qua CalendarEventIndex), không thread-safe.
+ */
+final class RecurrenceExpander {
+
+    private static final int MAX_CACHED_MONTHS = 24;
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /** 1 chuỗi lặp + cache các tháng đã sinh */
+    private final class Series {
+        final CalendarEvent master;
+        final long start;
+        final long duration;
+        final int field;            // Calendar.DAY_OF_MONTH / MONTH / YEAR
+        final int step;             // DAILY 1 ngày, WEEKLY 7 ngày
+        final long until;           // Hết ngày repeatUntil (exclusive), Long.MAX_VALUE nếu không có
+        final int startMonth;       // Tháng (monthKey) của lần đầu / lần cuối
+        final int untilMonth;
+        final Set<Long> deleted = new HashSet<>();
+        final Map<Integer, List<CalendarEvent>> months =
+                new LinkedHashMap<Integer, List<CalendarEvent>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Integer, List<CalendarEvent>> eldest) {
+                        return size() > MAX_CACHED_MONTHS;
+                    }
+                };
+
+        Series(CalendarEvent master, int field, int step) {
+            this.master = master;
+            this.start = master.getStartTime().getTime();
+            this.duration = Math.max(0, master.getEndTime().getTime() - start);
+            this.field = field;
+            this.step = step;
+            this.until = master.getRepeatUntil() != null
+                    ? startOfNextDay(master.getRepeatUntil().getTime()) : Long.MAX_VALUE;
+            this.startMonth = monthKey(start);
+            this.untilMonth = until != Long.MAX_VALUE ? monthKey(Math.max(start, until - 1)) : Integer.MAX_VALUE;
+            if (master.getDeletedOccurrences() != null) {
+                for (Object value : master.getDeletedOccurrences()) {
+                    if (value instanceof Number) deleted.add(((Number) value).longValue());
+                }
+            }
+        }
+
+        boolean isSkipped(String id, long originalStart) {
+            if (deleted.contains(originalStart)) return true;
+            Set<Long> overridden = overriddenStarts.get(id);
+            return overridden != null && overridden.contains(originalStart);
+        }
+    }
+
+    private final Calendar calendar;    // Giờ địa phương, dùng lại cho mọi phép tính
+    private final Map<String, Series> series = new HashMap<>();
+    // Bản sửa riêng: documentId -> (master, startTime gốc); master -> các startTime gốc đã bị thay
+    private final Map<String, String> overrideMaster = new HashMap<>();
+    private final Map<String, Long> overrideStart = new HashMap<>();
+    private final Map<String, Set<Long>> overriddenStarts = new HashMap<>();
+    private long maxDuration = 0;
+
+    RecurrenceExpander() {
+        this(TimeZone.getDefault());
+    }
+
+    RecurrenceExpander(@NonNull TimeZone timeZone) {
+        this.calendar = Calendar.getInstance(timeZone);
+    }
+
+    // ===== CẬP NHẬT =====
+
+    /**
+     * Thêm / thay master (repeatType không hợp lệ hoặc thiếu thời gian -> bỏ qua)
+     * @return true nếu master được nhận
+     */
+    boolean putMaster(@NonNull String id, @NonNull CalendarEvent master) {
+        series.remove(id);
+        if (master.getStartTime() == null || master.getEndTime() == null) return false;
+        int field = fieldOf(master.getRepeatType());
+        if (field < 0) return false;
+        Series added = new Series(master, field, stepOf(master.getRepeatType()));
+        series.put(id, added);
+        maxDuration = Math.max(maxDuration, added.duration);
+        return true;
+    }
+
+    /**
+     * Bản sửa riêng của 1 lần: lần gốc tại originalStart không còn được sinh
+     */
+    void putOverride(@NonNull String id, @NonNull String masterId, long originalStart) {
+        remove(id);
+        overrideMaster.put(id, masterId);
+        overrideStart.put(id, originalStart);
+        Set<Long> starts = overriddenStarts.get(masterId);
+        if (starts == null) {
+            starts = new HashSet<>();
+            overriddenStarts.put(masterId, starts);
+        }
+        starts.add(originalStart);
+        invalidate(masterId);
+    }
+
+    /**
+     * Gỡ master hoặc bản sửa riêng theo documentId
+     */
+    void remove(@NonNull String id) {
+        series.remove(id);
+        String masterId = overrideMaster.remove(id);
+        if (masterId == null) return;
+        Long start = overrideStart.remove(id);
+        Set<Long> starts = overriddenStarts.get(masterId);
+        if (starts != null) {
+            starts.remove(start);
+            if (starts.isEmpty()) overriddenStarts.remove(masterId);
+        }
+        invalidate(masterId);
+    }
+
+    void clear() {
+        series.clear();
+        overrideMaster.clear();
+        overrideStart.clear();
+        overriddenStarts.clear();
+        maxDuration = 0;
+    }
+
+    int seriesCount() {
+        return series.size();
+    }
+
+    boolean isEmpty() {
+        return series.isEmpty();
+    }
+
+    // ===== TRUY VẤN =====
+
+    /**
+     * Các lần lặp giao với [startMillis, endMillis) (cùng quy ước với CalendarEventIndex)
+     * Chưa sắp xếp.
+     */
+    void collectOverlapping(long startMillis, long endMillis, @NonNull List<CalendarEvent> out) {
+        // Lần bắt đầu trước startMillis tối đa maxDuration vẫn có thể giao với khoảng
+        collect(startMillis - maxDuration, endMillis, startMillis, out);
+    }
+
+    /**
+     * Các lần lặp có startTime trong [startMillis, endMillis), chưa sắp xếp
+     */
+    void collectStarting(long startMillis, long endMillis, @NonNull List<CalendarEvent> out) {
+        collect(startMillis, endMillis, Long.MIN_VALUE, out);
+    }
+
+    /**
+     * Chỉ số (từ 0) của lần lặp bắt đầu đúng tại millis trong chuỗi (start, repeatType)
+     * @return -1 nếu millis không phải 1 lần lặp của chuỗi
+     */
+    long indexOf(long start, @Nullable String repeatType, long millis) {
+        int field = fieldOf(repeatType);
+        if (field < 0 || millis < start) return -1;
+        int step = stepOf(repeatType);
+        long near = firstIndexNear(start, field, step, millis);
+        for (long k = Math.max(0, near - 1); k <= near + 1; k++) {
+            if (nth(start, field, step, k) == millis) return k;
+        }
+        return -1;
+    }
+
+    /**
+     * startTime của lần thứ k trong chuỗi (start, repeatType), cùng phép tính với lúc sinh
+     * @return -1 nếu repeatType không lặp
+     */
+    long startOf(long start, @Nullable String repeatType, long k) {
+        int field = fieldOf(repeatType);
+        return field < 0 ? -1 : nth(start, field, stepOf(repeatType), k);
+    }
+
+    // ===== SINH LẦN LẶP =====
+
+    /**
+     * Lần lặp bắt đầu trong [from, to) và giao với [overlapStart, ...)
+     * Tháng của khoảng chỉ tính 1 lần cho mọi master.
+     */
+    private void collect(long from, long to, long overlapStart, List<CalendarEvent> out) {
+        if (series.isEmpty() || to <= from) return;
+        int fromMonth = monthKey(from);
+        int toMonth = monthKey(to - 1);
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            Series s = entry.getValue();
+            if (s.start >= to || s.until <= from) continue;
+            int last = Math.min(toMonth, s.untilMonth);
+            for (int month = Math.max(fromMonth, s.startMonth); month <= last; month++) {
+                List<CalendarEvent> occurrences = s.months.get(month);
+                if (occurrences == null) {
+                    occurrences = expandMonth(entry.getKey(), s, month);
+                    s.months.put(month, occurrences);
+                }
+                for (CalendarEvent occurrence : occurrences) {
+                    long start = occurrence.getStartTime().getTime();
+                    if (start < from || start >= to) continue;
+                    if (start + s.duration > overlapStart || start >= overlapStart) out.add(occurrence);
+                }
+            }
+        }
+    }
+
+    /** Sinh các lần bắt đầu trong 1 tháng (giờ địa phương) */
+    private List<CalendarEvent> expandMonth(String id, Series s, int month) {
+        long monthStart = monthStart(month);
+        long monthEnd = monthStart(month + 1);
+        long from = Math.max(monthStart, s.start);
+        long to = Math.min(monthEnd, s.until);
+        if (from >= to) return Collections.emptyList();
+
+        List<CalendarEvent> occurrences = new ArrayList<>();
+        // Nhảy tới gần lần đầu của tháng, lùi 1 bước để bù đổi giờ / độ dài tháng
+        for (long k = Math.max(0, firstIndexNear(s.start, s.field, s.step, from) - 1); ; k++) {
+            long start = nth(s.start, s.field, s.step, k);
+            if (start >= to) break;
+            if (start < from || s.isSkipped(id, start)) continue;
+            occurrences.add(occurrence(id, s.master, start, start + s.duration));
+        }
+        return occurrences;
+    }
+
+    /** Ước lượng chỉ số lần lặp đầu tiên có start >= millis (có thể lệch 1) */
+    private long firstIndexNear(long start, int field, int step, long millis) {
+        if (field == Calendar.DAY_OF_MONTH) {
+            return (millis - start) / (step * MILLIS_PER_DAY);
+        }
+        calendar.setTimeInMillis(start);
+        int startMonth = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+        calendar.setTimeInMillis(millis);
+        int months = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH) - startMonth;
+        return field == Calendar.MONTH ? months : months / 12;
+    }
+
+    /** startTime của lần thứ k, luôn tính từ startTime gốc (không cộng dồn) */
+    private long nth(long start, int field, int step, long k) {
+        calendar.setTimeInMillis(start);
+        calendar.add(field, (int) (k * step));
+        return calendar.getTimeInMillis();
+    }
+
+    /** Đơn vị Calendar của repeatType, -1 nếu không lặp */
+    private static int fieldOf(@Nullable String repeatType) {
+        if (Constants.REPEAT_DAILY.equals(repeatType) || Constants.REPEAT_WEEKLY.equals(repeatType)) {
+            return Calendar.DAY_OF_MONTH;
+        } else if (Constants.REPEAT_MONTHLY.equals(repeatType)) {
+            return Calendar.MONTH;
+        } else if (Constants.REPEAT_YEARLY.equals(repeatType)) {
+            return Calendar.YEAR;
+        }
+        return -1;
+    }
+
+    private static int stepOf(@Nullable String repeatType) {
+        return Constants.REPEAT_WEEKLY.equals(repeatType) ? 7 : 1;
+    }
+
+    @NonNull
+    private static CalendarEvent occurrence(String masterId, CalendarEvent master, long start, long end) {
+        CalendarEvent occurrence = new CalendarEvent(master.getTitle(), new Date(start), new Date(end));
+        occurrence.setDescription(master.getDescription());
+        occurrence.setLocation(master.getLocation());
+        occurrence.setColor(master.getColor());
+        occurrence.setUserOwnerId(master.getUserOwnerId());
+        occurrence.setRepeatType(master.getRepeatType());
+        occurrence.setRepeatUntil(master.getRepeatUntil());
+        occurrence.setRecurrenceId(masterId);
+        occurrence.setOriginalStartTime(new Date(start));
+        return occurrence;
+    }
+
+    // ===== THÁNG =====
+
+    private void invalidate(@Nullable String masterId) {
+        Series s = masterId != null ? series.get(masterId) : null;
+        if (s != null) s.months.clear();
+    }
+
+    private int monthKey(long millis) {
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    private long monthStart(int monthKey) {
+        calendar.clear();
+        calendar.set(Math.floorDiv(monthKey, 12), Math.floorMod(monthKey, 12), 1, 0, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private long startOfNextDay(long millis) {
+        calendar.setTimeInMillis(millis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+}
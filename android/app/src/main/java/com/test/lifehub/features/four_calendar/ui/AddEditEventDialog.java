@@ -149,6 +149,9 @@ public class AddEditEventDialog extends DialogFragment {
                 case Constants.REPEAT_MONTHLY:
                     spinnerRepeat.setSelection(3);
                     break;
+                case Constants.REPEAT_YEARLY:
+                    spinnerRepeat.setSelection(4);
+                    break;
             }
         }
     }
@@ -162,13 +165,13 @@ public class AddEditEventDialog extends DialogFragment {
                     .setTitle(R.string.title_confirm_delete)
                     .setMessage(R.string.event_delete_confirm_msg)
                     .setPositiveButton("Xóa", (dialog, which) -> {
-                        if (mCurrentEvent != null) {
-                            if (mCurrentEvent.getAlarmRequestCode() != 0) {
-                                AlarmHelper.cancelAlarm(requireContext(), mCurrentEvent.getAlarmRequestCode());
-                            }
-                            mViewModel.deleteEvent(mCurrentEvent);
-                            Toast.makeText(getContext(), R.string.event_deleted_msg, Toast.LENGTH_SHORT).show();
-                            dismiss();
+                        if (mCurrentEvent == null) return;
+                        if (mCurrentEvent.isOccurrence()) {
+                            chooseRecurringScope(
+                                    () -> deleteAndDismiss(mCurrentEvent, true),
+                                    () -> deleteAndDismiss(mViewModel.getSeriesMaster(mCurrentEvent), false));
+                        } else {
+                            deleteAndDismiss(mCurrentEvent, false);
                         }
                     })
                     .setNegativeButton("Hủy", null)
@@ -246,44 +249,112 @@ public class AddEditEventDialog extends DialogFragment {
 
     private void saveEvent() {
         String title = etTitle.getText().toString().trim();
-        String description = etDescription.getText().toString().trim();
-        String location = etLocation.getText().toString().trim();
 
         if (TextUtils.isEmpty(title)) {
             Toast.makeText(getContext(), R.string.event_title_required, Toast.LENGTH_SHORT).show();
             return;
         }
 
+        if (mCurrentEvent != null && mCurrentEvent.isOccurrence()) {
+            chooseRecurringScope(this::saveOccurrence, this::saveSeries);
+            return;
+        }
+
         CalendarEvent event;
         if (mCurrentEvent != null) {
             event = mCurrentEvent;
-            // Cancel old alarm
-            if (event.getAlarmRequestCode() != 0) {
-                AlarmHelper.cancelAlarm(requireContext(), event.getAlarmRequestCode());
-            }
         } else {
             event = new CalendarEvent();
         }
 
-        event.setTitle(title);
-        event.setDescription(description);
-        event.setLocation(location);
-        event.setStartTime(mStartCalendar.getTime());
-        event.setEndTime(mEndCalendar.getTime());
+        applyForm(event, mStartCalendar.getTime(), mEndCalendar.getTime(), true);
 
-        // Set repeat type
-        int repeatPosition = spinnerRepeat.getSelectedItemPosition();
-        String repeatType;
-        switch (repeatPosition) {
-            case 1: repeatType = Constants.REPEAT_DAILY; break;
-            case 2: repeatType = Constants.REPEAT_WEEKLY; break;
-            case 3: repeatType = Constants.REPEAT_MONTHLY; break;
-            default: repeatType = Constants.REPEAT_NONE; break;
+        if (mCurrentEvent != null) {
+            mViewModel.updateEvent(event);
+            Toast.makeText(getContext(), R.string.event_updated, Toast.LENGTH_SHORT).show();
+        } else {
+            mViewModel.insertEvent(event);
+            Toast.makeText(getContext(), R.string.event_added, Toast.LENGTH_SHORT).show();
+        }
+
+        dismiss();
+    }
+
+    /**
+     * Chỉ sửa lần đang mở của sự kiện lặp (master giữ nguyên)
+     */
+    private void saveOccurrence() {
+        CalendarEvent occurrence;
+        if (mCurrentEvent.getDocumentId() != null) {
+            occurrence = mCurrentEvent; // Bản sửa riêng đã lưu
+        } else {
+            // Lần sinh ra đang nằm trong cache của chỉ mục -> không sửa tại chỗ
+            occurrence = new CalendarEvent();
+            occurrence.setColor(mCurrentEvent.getColor());
+            occurrence.setRecurrenceId(mCurrentEvent.getRecurrenceId());
+            occurrence.setOriginalStartTime(mCurrentEvent.getOriginalStartTime());
+        }
+        applyForm(occurrence, mStartCalendar.getTime(), mEndCalendar.getTime(), false);
+        mViewModel.updateOccurrence(occurrence);
+        Toast.makeText(getContext(), R.string.event_updated, Toast.LENGTH_SHORT).show();
+        dismiss();
+    }
+
+    /**
+     * Sửa cả chuỗi: master dời theo đúng khoảng lần này bị dời trên form
+     */
+    private void saveSeries() {
+        CalendarEvent master = mViewModel.getSeriesMaster(mCurrentEvent);
+        if (master == null || master.getStartTime() == null) {
+            Toast.makeText(getContext(), R.string.event_series_not_loaded, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        long previousStart = master.getStartTime().getTime();
+        String previousRepeatType = master.getRepeatType();
+        long shift = mStartCalendar.getTimeInMillis() - mCurrentEvent.getStartTime().getTime();
+        long duration = mEndCalendar.getTimeInMillis() - mStartCalendar.getTimeInMillis();
+        Date start = new Date(previousStart + shift);
+        applyForm(master, start, new Date(start.getTime() + duration), true);
+        mViewModel.updateSeries(master, previousStart, previousRepeatType);
+        Toast.makeText(getContext(), R.string.event_updated, Toast.LENGTH_SHORT).show();
+        dismiss();
+    }
+
+    /**
+     * Ghi nội dung form vào event + đặt lại nhắc nhở (15 phút trước startTime)
+     * @param withRepeat false với bản sửa riêng 1 lần (không tự lặp lại)
+     */
+    private void applyForm(CalendarEvent event, Date start, Date end, boolean withRepeat) {
+        String title = etTitle.getText().toString().trim();
+
+        // Cancel old alarm
+        if (event.getAlarmRequestCode() != 0) {
+            AlarmHelper.cancelAlarm(requireContext(), event.getAlarmRequestCode());
+        }
+
+        event.setTitle(title);
+        event.setDescription(etDescription.getText().toString().trim());
+        event.setLocation(etLocation.getText().toString().trim());
+        event.setStartTime(start);
+        event.setEndTime(end);
+
+        if (withRepeat) {
+            // Set repeat type
+            int repeatPosition = spinnerRepeat.getSelectedItemPosition();
+            String repeatType;
+            switch (repeatPosition) {
+                case 1: repeatType = Constants.REPEAT_DAILY; break;
+                case 2: repeatType = Constants.REPEAT_WEEKLY; break;
+                case 3: repeatType = Constants.REPEAT_MONTHLY; break;
+                case 4: repeatType = Constants.REPEAT_YEARLY; break;
+                default: repeatType = Constants.REPEAT_NONE; break;
+            }
+            event.setRepeatType(repeatType);
         }
-        event.setRepeatType(repeatType);
 
         // Set reminder (15 minutes before)
-        Calendar reminderCal = (Calendar) mStartCalendar.clone();
+        Calendar reminderCal = Calendar.getInstance();
+        reminderCal.setTime(start);
         reminderCal.add(Calendar.MINUTE, -15);
 
         if (reminderCal.getTimeInMillis() > System.currentTimeMillis()) {
@@ -298,15 +369,43 @@ public class AddEditEventDialog extends DialogFragment {
                     title
             );
         }
+    }
 
-        if (mCurrentEvent != null) {
-            mViewModel.updateEvent(event);
-            Toast.makeText(getContext(), R.string.event_updated, Toast.LENGTH_SHORT).show();
+    private void deleteAndDismiss(@Nullable CalendarEvent event, boolean occurrenceOnly) {
+        if (event == null) {
+            Toast.makeText(getContext(), R.string.event_series_not_loaded, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (event.getAlarmRequestCode() != 0) {
+            AlarmHelper.cancelAlarm(requireContext(), event.getAlarmRequestCode());
+        }
+        if (occurrenceOnly) {
+            mViewModel.deleteOccurrence(event);
         } else {
-            mViewModel.insertEvent(event);
-            Toast.makeText(getContext(), R.string.event_added, Toast.LENGTH_SHORT).show();
+            mViewModel.deleteEvent(event);
         }
-
+        Toast.makeText(getContext(), R.string.event_deleted_msg, Toast.LENGTH_SHORT).show();
         dismiss();
     }
+
+    /**
+     * Sự kiện lặp: hỏi áp dụng cho riêng lần này hay cả chuỗi
+     */
+    private void chooseRecurringScope(Runnable thisOccurrence, Runnable wholeSeries) {
+        CharSequence[] scopes = {
+                getString(R.string.event_scope_this),
+                getString(R.string.event_scope_all)
+        };
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.event_recurring_scope_title)
+                .setItems(scopes, (dialog, which) -> {
+                    if (which == 0) {
+                        thisOccurrence.run();
+                    } else {
+                        wholeSeries.run();
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndex;
 import com.test.lifehub.features.four_calendar.repository.CalendarRepository;
 
 import java.util.Calendar;
@@ -21,9 +22,9 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * 
  * === MỤC ĐÍCH ===
  * Quản lý UI state và expose LiveData cho màn hình Lịch.
- * Cung cấp 2 chế độ xem:
- * 1. Tất cả sự kiện (getAllEvents)
- * 2. Sự kiện trong khoảng thời gian (getEventsForRange)
+ * Mọi dữ liệu đều theo khoảng thời gian đang xem (setDateRange):
+ * 1. Chỉ mục sự kiện cho lưới ngày / tuần / tháng / năm (getEventIndex)
+ * 2. Danh sách sự kiện trong khoảng (getEventsForRange)
  * 
  * === KIẾN TRÚC MVVM ===
  * ```
@@ -55,13 +56,13 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  *    Date end = new Date(2024, 11, 31);   // 31/12/2024
  *    viewModel.setDateRange(start, end);
  *    
- *    // ViewModel tự động query Firestore:
- *    // WHERE startTime >= start AND endTime <= end
+ *    // Repository mở cửa sổ tháng (query startTime / endTime + bản sửa riêng;
+ *    // master lặp dùng chung 1 query), gỡ listener khi view đổi khoảng thời gian
  *    ```
  * 
  * 2. TRANSFORMATIONS.SWITCHMAP PATTERN:
  *    - Khi dateRangeLiveData thay đổi -> switchMap tự động gọi repository
- *    - eventsForRange tự động cập nhật với events mới
+ *    - eventIndex / eventsForRange tự động cập nhật với events mới
  * 
  *    Flow:
  *    ```
@@ -71,10 +72,10 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  *    dateRangeLiveData.setValue([start, end])
  *         |
  *         v
- *    switchMap() triggers -> repository.getEventsForDateRange()
+ *    switchMap() triggers -> repository.getEventIndex(start, end)
  *         |
  *         v
- *    eventsForRange.setValue(filteredEvents)
+ *    eventIndex.setValue(index)
  *         |
  *         v
  *    Fragment observe và cập nhật UI
@@ -88,15 +89,13 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * 
  * === LIVEDATA TYPES ===
  * 
- * 1. allEvents (LiveData<List<CalendarEvent>>):
- *    - Tất cả sự kiện của user
- *    - Dùng cho month view, list view
- *    - Tự động sync với Firestore realtime
+ * 1. eventIndex (LiveData<CalendarEventIndex>):
+ *    - Chỉ mục sự kiện (kể cả lần lặp) của khoảng đang xem
+ *    - Dùng cho month / year / week / day view
+ *    - Tự động sync với Firestore realtime, chỉ tải các tháng đang xem (+ 2 tháng prefetch)
  * 
  * 2. eventsForRange (LiveData<List<CalendarEvent>>):
- *    - Chỉ sự kiện trong khoảng thời gian
- *    - Dùng khi user zoom vào 1 tháng cụ thể
- *    - Giảm data transfer từ Firestore
+ *    - Danh sách sự kiện giao với khoảng thời gian, sắp theo startTime
  * 
  * 3. dateRangeLiveData (MutableLiveData<Date[]>):
  *    - Internal state chứa [startDate, endDate]
@@ -114,20 +113,12 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  *     public void onViewCreated(View view, Bundle savedInstanceState) {
  *         viewModel = new ViewModelProvider(this).get(CalendarViewModel.class);
  * 
- *         // 1. Hiển thị tất cả events
- *         viewModel.getAllEvents().observe(getViewLifecycleOwner(), events -> {
- *             calendarView.setEvents(events);
- *         });
- * 
- *         // 2. Lọc theo tháng khi user thay đổi
- *         calendarView.setOnMonthChangeListener((year, month) -> {
- *             Date start = getFirstDayOfMonth(year, month);
- *             Date end = getLastDayOfMonth(year, month);
- *             viewModel.setDateRange(start, end);
- *         });
+ *         // 1. Báo khoảng đang hiển thị (và mỗi lần user chuyển tháng)
+ *         viewModel.setDateRange(getFirstDayOfMonth(year, month), getFirstDayOfMonth(year, month + 1));
  * 
- *         viewModel.getEventsForRange().observe(getViewLifecycleOwner(), events -> {
- *             adapter.submitList(events);
+ *         // 2. Vẽ lưới từ chỉ mục của khoảng đó
+ *         viewModel.getEventIndex().observe(getViewLifecycleOwner(), index -> {
+ *             adapter.submitList(buildGrid(index));
  *         });
  * 
  *         // 3. Thêm event mới
@@ -146,15 +137,14 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * - Destroy khi Fragment destroy
  * 
  * === LƯU Ý QUAN TRỌNG ===
- * 1. switchMap() chỉ active khi Fragment observe eventsForRange
- * 2. Nếu không cần filter -> dùng getAllEvents() thay vì eventsForRange
+ * 1. switchMap() chỉ active khi Fragment observe -> listener chỉ mở khi có view đang xem
+ * 2. Chưa gọi setDateRange() thì eventIndex chưa có giá trị
  * 3. dateRangeLiveData PRIVATE - không expose ra Fragment
  * 4. ViewModel không giữ reference đến Context/View
  * 
  * === TODO: TÍNH NĂNG TƯƠNG LAI ===
  * TODO: Thêm search events theo keyword
  * TODO: Filter theo loại sự kiện (công việc, cá nhân, ...)
- * TODO: Hỗ trợ recurring events (sự kiện lặp lại)
  * TODO: Export events sang iCal format
  * FIXME: Xử lý timezone cho events cross-timezone
  * 
@@ -166,16 +156,21 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 public class CalendarViewModel extends ViewModel {
 
     private final CalendarRepository mRepository;
-    private final LiveData<List<CalendarEvent>> allEvents;
 
     private final MutableLiveData<Date[]> dateRangeLiveData = new MutableLiveData<>();
+    private final LiveData<CalendarEventIndex> eventIndex;
     private final LiveData<List<CalendarEvent>> eventsForRange;
 
     @Inject
     public CalendarViewModel(CalendarRepository repository) {
         this.mRepository = repository;
-        allEvents = mRepository.getAllEvents();
 
+        eventIndex = Transformations.switchMap(dateRangeLiveData, dateRange -> {
+            if (dateRange != null && dateRange.length == 2) {
+                return mRepository.getEventIndex(dateRange[0], dateRange[1]);
+            }
+            return new MutableLiveData<>();
+        });
         eventsForRange = Transformations.switchMap(dateRangeLiveData, dateRange -> {
             if (dateRange != null && dateRange.length == 2) {
                 return mRepository.getEventsForDateRange(dateRange[0], dateRange[1]);
@@ -184,15 +179,23 @@ public class CalendarViewModel extends ViewModel {
         });
     }
 
-    public LiveData<List<CalendarEvent>> getAllEvents() {
-        return allEvents;
+    /**
+     * Chỉ mục của khoảng đã setDateRange() cho lưới ngày / tuần / tháng / năm
+     */
+    public LiveData<CalendarEventIndex> getEventIndex() {
+        return eventIndex;
     }
 
     public LiveData<List<CalendarEvent>> getEventsForRange() {
         return eventsForRange;
     }
 
+    /**
+     * Khoảng [startDate, endDate) view đang hiển thị; giữ nguyên khoảng cũ thì không mở lại listener
+     */
     public void setDateRange(Date startDate, Date endDate) {
+        Date[] current = dateRangeLiveData.getValue();
+        if (current != null && current[0].equals(startDate) && current[1].equals(endDate)) return;
         dateRangeLiveData.setValue(new Date[]{startDate, endDate});
     }
 
@@ -211,4 +214,22 @@ public class CalendarViewModel extends ViewModel {
     public void deleteEvent(CalendarEvent event) {
         mRepository.deleteEvent(event);
     }
+
+    // ===== SỰ KIỆN LẶP LẠI =====
+
+    public CalendarEvent getSeriesMaster(CalendarEvent occurrence) {
+        return mRepository.getSeriesMaster(occurrence);
+    }
+
+    public void updateOccurrence(CalendarEvent occurrence) {
+        mRepository.updateOccurrence(occurrence);
+    }
+
+    public void deleteOccurrence(CalendarEvent occurrence) {
+        mRepository.deleteOccurrence(occurrence);
+    }
+
+    public void updateSeries(CalendarEvent master, long previousStart, String previousRepeatType) {
+        mRepository.updateSeries(master, previousStart, previousRepeatType);
+    }
 }
\ No newline at end of file
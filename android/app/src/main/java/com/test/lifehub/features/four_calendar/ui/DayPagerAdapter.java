@@ -15,10 +15,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.test.lifehub.R;
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndex;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -181,24 +181,24 @@ public class DayPagerAdapter extends RecyclerView.Adapter<DayPagerAdapter.DayPag
         }
 
         private void observeEvents() {
-            mViewModel.getAllEvents().observe(mFragment.getViewLifecycleOwner(), events -> {
-                if (events != null) {
-                    renderEvents(events);
+            mViewModel.getEventIndex().observe(mFragment.getViewLifecycleOwner(), index -> {
+                if (index != null) {
+                    renderEvents(index);
                 }
             });
         }
 
-        private void renderEvents(List<CalendarEvent> allEvents) {
+        private void renderEvents(CalendarEventIndex index) {
             // Clear overlay container
             if (mEventsOverlayContainer != null) {
                 mEventsOverlayContainer.removeAllViews();
             }
             
-            List<CalendarEvent> dayEvents = getEventsForDay(allEvents);
+            List<CalendarEvent> dayEvents = getEventsForDay(index);
             
-            // Tạo segments và tính toán layout
+            // Tạo segments và chia cột (dùng chung với Week View)
             List<EventSegment> segments = createSegmentsForDay(dayEvents);
-            calculateOverlappingLayout(segments);
+            EventColumnLayout.layout(segments);
             
             // Render từng segment
             for (EventSegment segment : segments) {
@@ -238,83 +238,19 @@ public class DayPagerAdapter extends RecyclerView.Adapter<DayPagerAdapter.DayPag
         }
         
         /**
-         * Tính toán layout cho các events overlap
+         * Sự kiện giao với ngày đang hiển thị (truy vấn chỉ mục, đã sắp theo startTime)
          */
-        private void calculateOverlappingLayout(List<EventSegment> segments) {
-            // Sắp xếp theo thời gian bắt đầu
-            Collections.sort(segments, (s1, s2) -> {
-                int startCompare = s1.segmentStart.compareTo(s2.segmentStart);
-                if (startCompare != 0) return startCompare;
-                return s1.segmentEnd.compareTo(s2.segmentEnd);
-            });
-            
-            // Gán column cho từng segment
-            for (EventSegment segment : segments) {
-                int column = 0;
-                boolean columnFound = false;
-                
-                while (!columnFound) {
-                    columnFound = true;
-                    
-                    // Kiểm tra column này có bị chiếm không
-                    for (EventSegment other : segments) {
-                        if (other == segment) continue;
-                        if (other.layoutColumn != column) continue;
-                        
-                        // Kiểm tra overlap
-                        if (segment.overlaps(other)) {
-                            column++;
-                            columnFound = false;
-                            break;
-                        }
-                    }
-                }
-                
-                segment.layoutColumn = column;
-            }
-            
-            // Tính totalLayoutColumns cho từng segment
-            for (EventSegment segment : segments) {
-                int maxColumnInGroup = segment.layoutColumn + 1;
-                
-                for (EventSegment other : segments) {
-                    if (other == segment) continue;
-                    
-                    if (segment.overlaps(other)) {
-                        maxColumnInGroup = Math.max(maxColumnInGroup, other.layoutColumn + 1);
-                    }
-                }
-                
-                segment.totalLayoutColumns = maxColumnInGroup;
-            }
-        }
-
-        private List<CalendarEvent> getEventsForDay(List<CalendarEvent> allEvents) {
-            List<CalendarEvent> dayEvents = new ArrayList<>();
-            
+        private List<CalendarEvent> getEventsForDay(CalendarEventIndex index) {
             Calendar dayStart = (Calendar) mDayCalendar.clone();
             dayStart.set(Calendar.HOUR_OF_DAY, 0);
             dayStart.clear(Calendar.MINUTE);
             dayStart.clear(Calendar.SECOND);
+            dayStart.clear(Calendar.MILLISECOND);
             
             Calendar dayEnd = (Calendar) dayStart.clone();
             dayEnd.add(Calendar.DAY_OF_MONTH, 1);
             
-            for (CalendarEvent event : allEvents) {
-                if (event.getStartTime() == null || event.getEndTime() == null) continue;
-                
-                Calendar eventStart = Calendar.getInstance();
-                eventStart.setTime(event.getStartTime());
-                Calendar eventEnd = Calendar.getInstance();
-                eventEnd.setTime(event.getEndTime());
-                
-                if (eventStart.before(dayEnd) && eventEnd.after(dayStart)) {
-                    dayEvents.add(event);
-                }
-            }
-            
-            Collections.sort(dayEvents, (e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime()));
-            return dayEvents;
+            return index.overlapping(dayStart.getTimeInMillis(), dayEnd.getTimeInMillis());
         }
 
         /**
@@ -117,6 +117,7 @@ public class DayViewFragment extends Fragment {
         int dayOfWeek = targetDay.get(Calendar.DAY_OF_WEEK);
         mCurrentDayIndex = (dayOfWeek == Calendar.SUNDAY) ? 6 : dayOfWeek - Calendar.MONDAY;
 
+        requestDateRange();
         setupViewPager();
         setupWeekDaysTabs();
         updateDayTitle();
@@ -292,9 +293,25 @@ public class DayViewFragment extends Fragment {
         }
     }
 
+    /**
+     * Báo ViewModel tuần đang hiển thị (Thứ 2 - Chủ Nhật) -> chỉ tải các tháng chứa tuần này
+     */
+    private void requestDateRange() {
+        Calendar start = (Calendar) mCurrentWeekStart.clone();
+        start.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.set(Calendar.MINUTE, 0);
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MILLISECOND, 0);
+        Calendar end = (Calendar) start.clone();
+        end.add(Calendar.DAY_OF_MONTH, 7);
+        mViewModel.setDateRange(start.getTime(), end.getTime());
+    }
+
     public void nextWeek() {
         mCurrentWeekStart.add(Calendar.WEEK_OF_YEAR, 1);
         setupWeekDaysTabs();
+        requestDateRange();
         mPagerAdapter.updateWeek(mCurrentWeekStart);
         updateDayTitle();
     }
@@ -302,6 +319,7 @@ public class DayViewFragment extends Fragment {
     public void previousWeek() {
         mCurrentWeekStart.add(Calendar.WEEK_OF_YEAR, -1);
         setupWeekDaysTabs();
+        requestDateRange();
         mPagerAdapter.updateWeek(mCurrentWeekStart);
         updateDayTitle();
     }
@@ -315,6 +333,7 @@ public class DayViewFragment extends Fragment {
         mCurrentDayIndex = (dayOfWeek == Calendar.SUNDAY) ? 6 : dayOfWeek - Calendar.MONDAY;
         
         setupWeekDaysTabs();
+        requestDateRange();
         mPagerAdapter.updateWeek(mCurrentWeekStart);
         mDayPager.setCurrentItem(mCurrentDayIndex, true);
         updateDayTitle();
@@ -0,0 +1,109 @@
+package com.test.lifehub.features.four_calendar.ui;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * EventColumnLayout - Chia cột cho các segment chồng giờ trong 1 ngày (Week View + Day View)
+ *
+ * === VẤN ĐỀ CŨ ===
+ * WeekViewFragment và DayPagerAdapter mỗi nơi 1 bản: với mỗi segment thử từng cột và duyệt
+ * lại TOÀN BỘ segment (O(n² x số cột)), rồi tính số cột bằng 1 vòng O(n²) nữa. 2 bản đã lệch
+ * nhau, và độ rộng chỉ tính theo segment chồng TRỰC TIẾP nên các ô trong cùng 1 nhóm có thể
+ * rộng khác nhau rồi đè lên nhau.
+ *
+ * === CÁCH LÀM (sweep line, O(n log n)) ===
+ * - Sắp theo (start, end), quét từ trên xuống
+ * - Min-heap các segment đang mở theo end: segment đã kết thúc trả cột về heap cột trống,
+ *   segment mới lấy cột trống nhỏ nhất (không có thì mở cột mới)
+ * - Heap đang mở rỗng = hết 1 cụm (các segment chồng nhau bắc cầu): cả cụm dùng chung
+ *   totalLayoutColumns = số cột cụm đó cần, cụm sau bắt đầu lại từ cột 0
+ *
+ * Segment ngắn hơn MIN_VISIBLE_MILLIS được tính như đang chiếm MIN_VISIBLE_MILLIS
+ * (ô được vẽ tối thiểu 15 phút), nên 2 ô vẽ chồng lên nhau luôn ở 2 cột khác nhau.
+ * Kết thúc đúng lúc segment khác bắt đầu thì không tính là chồng.
+ */
+public final class EventColumnLayout {
+
+    /** Chiều cao tối thiểu của 1 ô sự kiện khi vẽ */
+    public static final long MIN_VISIBLE_MILLIS = 15 * 60_000L;
+
+    private EventColumnLayout() {
+    }
+
+    private static final class Item {
+        final EventSegment segment;
+        final long start;
+        final long end;
+        int column;
+
+        Item(EventSegment segment, long start, long end) {
+            this.segment = segment;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Gán layoutColumn / totalLayoutColumns cho các segment của 1 ngày
+     * List được sắp lại theo (segmentStart, segmentEnd).
+     */
+    public static void layout(@NonNull List<EventSegment> segments) {
+        layout(segments, MIN_VISIBLE_MILLIS);
+    }
+
+    static void layout(@NonNull List<EventSegment> segments, long minVisibleMillis) {
+        int count = segments.size();
+        if (count == 0) return;
+
+        List<Item> items = new ArrayList<>(count);
+        for (EventSegment segment : segments) {
+            long start = segment.segmentStart.getTimeInMillis();
+            long end = Math.max(segment.segmentEnd.getTimeInMillis(), start + minVisibleMillis);
+            items.add(new Item(segment, start, end));
+        }
+        // Sắp theo thời gian thật (không phải end đã nới) để giữ thứ tự cũ của list
+        Collections.sort(items, (a, b) -> {
+            if (a.start != b.start) return Long.compare(a.start, b.start);
+            return Long.compare(a.segment.segmentEnd.getTimeInMillis(), b.segment.segmentEnd.getTimeInMillis());
+        });
+
+        PriorityQueue<Item> open = new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+        PriorityQueue<Integer> freeColumns = new PriorityQueue<>();
+        int clusterStart = 0;
+        int clusterColumns = 0;
+
+        for (int i = 0; i < count; i++) {
+            Item item = items.get(i);
+            while (!open.isEmpty() && open.peek().end <= item.start) {
+                freeColumns.add(open.poll().column);
+            }
+            if (open.isEmpty() && i > clusterStart) {
+                // Không còn gì đang mở -> đóng cụm trước
+                finishCluster(items, clusterStart, i, clusterColumns);
+                clusterStart = i;
+                clusterColumns = 0;
+                freeColumns.clear();
+            }
+            item.column = freeColumns.isEmpty() ? clusterColumns++ : freeColumns.poll();
+            open.add(item);
+        }
+        finishCluster(items, clusterStart, count, clusterColumns);
+
+        for (int i = 0; i < count; i++) {
+            segments.set(i, items.get(i).segment);
+        }
+    }
+
+    private static void finishCluster(List<Item> items, int from, int to, int columns) {
+        for (int i = from; i < to; i++) {
+            Item item = items.get(i);
+            item.segment.layoutColumn = item.column;
+            item.segment.totalLayoutColumns = columns;
+        }
+    }
+}
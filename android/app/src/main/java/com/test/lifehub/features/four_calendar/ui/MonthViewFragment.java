@@ -15,10 +15,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.test.lifehub.features.four_calendar.utils.LunarCalendar;
 import com.test.lifehub.R;
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndex;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -40,7 +40,7 @@ import dagger.hilt.android.AndroidEntryPoint;
  * - Hỗ trợ cả ngày lễ dương lịch và âm lịch Việt Nam
  * 
  * Cách hoạt động:
- * - Lắng nghe thay đổi sự kiện từ CalendarViewModel (LiveData)
+ * - Lắng nghe chỉ mục sự kiện (CalendarEventIndex) từ CalendarViewModel (LiveData)
  * - Mỗi khi có thay đổi: tính toán lại 42 ngày và cập nhật adapter
  * - generateMonthDays(): tạo danh sách 42 ngày (bao gồm ngày tháng trước/sau)
  * - getVietnameseHolidayName(): xác định ngày lễ (cả dương và âm lịch)
@@ -103,6 +103,7 @@ public class MonthViewFragment extends Fragment {
             }
         }
 
+        requestDateRange();
         setupRecyclerView(); // Đổi tên
 
         observeEvents();
@@ -125,9 +126,24 @@ public class MonthViewFragment extends Fragment {
 
     // (Xóa setupDayEventsRecyclerView và updateAgendaForDay)
 
+    /**
+     * Báo ViewModel tháng đang hiển thị -> chỉ tải sự kiện của tháng này (+ tháng trước / sau)
+     */
+    private void requestDateRange() {
+        Calendar start = (Calendar) mCurrentMonth.clone();
+        start.set(Calendar.DAY_OF_MONTH, 1);
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.clear(Calendar.MINUTE);
+        start.clear(Calendar.SECOND);
+        start.clear(Calendar.MILLISECOND);
+        Calendar end = (Calendar) start.clone();
+        end.add(Calendar.MONTH, 1);
+        mViewModel.setDateRange(start.getTime(), end.getTime());
+    }
+
     private void observeEvents() {
-        mViewModel.getAllEvents().observe(getViewLifecycleOwner(), events -> {
-            if (events != null) {
+        mViewModel.getEventIndex().observe(getViewLifecycleOwner(), index -> {
+            if (index != null) {
                 loadMonthGrid();
             }
         });
@@ -159,8 +175,7 @@ public class MonthViewFragment extends Fragment {
      */
     private List<MonthDayData> generateMonthDays() {
         List<MonthDayData> days = new ArrayList<>();
-        List<CalendarEvent> allEvents = mViewModel.getAllEvents().getValue();
-        if (allEvents == null) allEvents = new ArrayList<>();
+        CalendarEventIndex index = mViewModel.getEventIndex().getValue();
 
         // Tính số ngày trong tháng
         Calendar cal = (Calendar) mCurrentMonth.clone();
@@ -185,7 +200,7 @@ public class MonthViewFragment extends Fragment {
             MonthDayData dayData = new MonthDayData();
             dayData.date = cal.getTime();
             dayData.isCurrentMonth = true;
-            dayData.events = getEventsForDay(allEvents, cal);
+            dayData.events = getEventsForDay(index, cal);
             dayData.holidayName = getVietnameseHolidayName(cal);
             dayData.lunarDate = LunarCalendar.getLunarDateString(cal.getTime());
             days.add(dayData);
@@ -300,23 +315,17 @@ public class MonthViewFragment extends Fragment {
         return null;
     }
 
-    private List<CalendarEvent> getEventsForDay(List<CalendarEvent> allEvents, Calendar day) {
-        List<CalendarEvent> dayEvents = new ArrayList<>();
+    /**
+     * Sự kiện giao với ngày (truy vấn chỉ mục, đã sắp theo startTime)
+     */
+    private List<CalendarEvent> getEventsForDay(@Nullable CalendarEventIndex index, Calendar day) {
+        if (index == null) return new ArrayList<>();
         Calendar dayStart = (Calendar) day.clone();
         dayStart.set(Calendar.HOUR_OF_DAY, 0); dayStart.clear(Calendar.MINUTE); dayStart.clear(Calendar.SECOND);
+        dayStart.clear(Calendar.MILLISECOND);
         Calendar dayEnd = (Calendar) dayStart.clone();
         dayEnd.add(Calendar.DAY_OF_MONTH, 1);
-        for (CalendarEvent event : allEvents) {
-            Calendar eventStart = Calendar.getInstance();
-            eventStart.setTime(event.getStartTime());
-            Calendar eventEnd = Calendar.getInstance();
-            eventEnd.setTime(event.getEndTime());
-            if (eventStart.before(dayEnd) && eventEnd.after(dayStart)) {
-                dayEvents.add(event);
-            }
-        }
-        Collections.sort(dayEvents, (e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime()));
-        return dayEvents;
+        return index.overlapping(dayStart.getTimeInMillis(), dayEnd.getTimeInMillis());
     }
 
 
@@ -340,18 +349,21 @@ public class MonthViewFragment extends Fragment {
 
     public void nextMonth() {
         mCurrentMonth.add(Calendar.MONTH, 1);
+        requestDateRange();
         loadMonthGrid();
         updateDateTitle();
     }
 
     public void previousMonth() {
         mCurrentMonth.add(Calendar.MONTH, -1);
+        requestDateRange();
         loadMonthGrid();
         updateDateTitle();
     }
 
     public void scrollToToday() {
         mCurrentMonth = Calendar.getInstance();
+        requestDateRange();
         loadMonthGrid();
         updateDateTitle();
 
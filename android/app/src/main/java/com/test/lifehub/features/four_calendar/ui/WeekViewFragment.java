@@ -16,10 +16,10 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import com.test.lifehub.R;
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndex;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -60,6 +60,7 @@ public class WeekViewFragment extends Fragment {
         mCurrentWeek = Calendar.getInstance();
         setupTimeAxis();
         setupWeekDays();
+        requestDateRange();
         observeEvents();
     }
 
@@ -187,23 +188,26 @@ public class WeekViewFragment extends Fragment {
         return slot;
     }
 
-    private void observeEvents() {
-        mViewModel.getAllEvents().observe(getViewLifecycleOwner(), events -> {
-            renderEvents(events);
-        });
+    /**
+     * Báo ViewModel tuần đang hiển thị (Thứ 2 - Chủ Nhật) -> chỉ tải các tháng chứa tuần này
+     */
+    private void requestDateRange() {
+        Calendar start = (Calendar) mCurrentWeek.clone();
+        start.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.set(Calendar.MINUTE, 0);
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MILLISECOND, 0);
+        Calendar end = (Calendar) start.clone();
+        end.add(Calendar.DAY_OF_MONTH, 7);
+        mViewModel.setDateRange(start.getTime(), end.getTime());
     }
 
-    private void renderEvents(List<CalendarEvent> events) {
-        if (events == null) events = new ArrayList<>();
-        
-        // Sắp xếp events theo startTime
-        List<CalendarEvent> sortedEvents = new ArrayList<>(events);
-        Collections.sort(sortedEvents, (e1, e2) -> {
-            if (e1.getStartTime() == null) return 1;
-            if (e2.getStartTime() == null) return -1;
-            return e1.getStartTime().compareTo(e2.getStartTime());
-        });
+    private void observeEvents() {
+        mViewModel.getEventIndex().observe(getViewLifecycleOwner(), this::renderEvents);
+    }
 
+    private void renderEvents(@Nullable CalendarEventIndex index) {
         // Clear tất cả events cũ
         for (int i = 0; i < 7; i++) {
             int actualIndex = i * 2; // Có divider giữa các ngày
@@ -213,6 +217,7 @@ public class WeekViewFragment extends Fragment {
             FrameLayout eventsContainer = dayColumn.findViewById(R.id.events_container);
             if (eventsContainer != null) eventsContainer.removeAllViews();
         }
+        if (index == null) return;
 
         // Xác định tuần hiện tại
         Calendar weekStart = (Calendar) mCurrentWeek.clone();
@@ -222,116 +227,37 @@ public class WeekViewFragment extends Fragment {
         weekStart.set(Calendar.SECOND, 0);
         weekStart.set(Calendar.MILLISECOND, 0);
         
-        Calendar weekEnd = (Calendar) weekStart.clone();
-        weekEnd.add(Calendar.DAY_OF_MONTH, 7);
-
         // === BƯỚC 1: PHÂN ĐOẠN SỰ KIỆN ===
+        // Mỗi ngày 1 truy vấn chỉ mục (chỉ sự kiện giao với ngày đó), cắt theo biên ngày
         Map<Integer, List<EventSegment>> segmentsPerDay = new HashMap<>();
-        
-        for (CalendarEvent event : sortedEvents) {
-            if (event.getStartTime() == null || event.getEndTime() == null) continue;
-            
-            Calendar eventStart = Calendar.getInstance();
-            eventStart.setTime(event.getStartTime());
-            Calendar eventEnd = Calendar.getInstance();
-            eventEnd.setTime(event.getEndTime());
-            
-            // Bỏ qua events ngoài tuần này
-            if (eventEnd.before(weekStart) || eventStart.after(weekEnd)) continue;
-            
-            // Duyệt qua 7 ngày trong tuần
-            Calendar currentDay = (Calendar) weekStart.clone();
-            for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
-                // Xác định khoảng thời gian của ngày này
-                Calendar dayStart = (Calendar) currentDay.clone();
-                dayStart.set(Calendar.HOUR_OF_DAY, 0);
-                dayStart.set(Calendar.MINUTE, 0);
-                dayStart.set(Calendar.SECOND, 0);
-                dayStart.set(Calendar.MILLISECOND, 0);
-                
-                Calendar dayEnd = (Calendar) dayStart.clone();
-                dayEnd.add(Calendar.DAY_OF_MONTH, 1);
-                
-                // Kiểm tra event có giao với ngày này không
-                if (eventStart.before(dayEnd) && eventEnd.after(dayStart)) {
-                    // Tạo segment cho ngày này
-                    Calendar segmentStart = eventStart.after(dayStart) ? (Calendar) eventStart.clone() : (Calendar) dayStart.clone();
-                    Calendar segmentEnd = eventEnd.before(dayEnd) ? (Calendar) eventEnd.clone() : (Calendar) dayEnd.clone();
-                    
-                    EventSegment segment = new EventSegment(event, segmentStart, segmentEnd);
-                    
-                    if (!segmentsPerDay.containsKey(dayIndex)) {
-                        segmentsPerDay.put(dayIndex, new ArrayList<>());
-                    }
-                    segmentsPerDay.get(dayIndex).add(segment);
+
+        Calendar dayStart = (Calendar) weekStart.clone();
+        for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
+            Calendar dayEnd = (Calendar) dayStart.clone();
+            dayEnd.add(Calendar.DAY_OF_MONTH, 1);
+
+            List<CalendarEvent> dayEvents = index.overlapping(dayStart.getTimeInMillis(), dayEnd.getTimeInMillis());
+            if (!dayEvents.isEmpty()) {
+                List<EventSegment> segments = new ArrayList<>(dayEvents.size());
+                for (CalendarEvent event : dayEvents) {
+                    Calendar eventStart = Calendar.getInstance();
+                    eventStart.setTime(event.getStartTime());
+                    Calendar eventEnd = Calendar.getInstance();
+                    eventEnd.setTime(event.getEndTime());
+
+                    Calendar segmentStart = eventStart.after(dayStart) ? eventStart : (Calendar) dayStart.clone();
+                    Calendar segmentEnd = eventEnd.before(dayEnd) ? eventEnd : (Calendar) dayEnd.clone();
+                    segments.add(new EventSegment(event, segmentStart, segmentEnd));
                 }
-                
-                currentDay.add(Calendar.DAY_OF_MONTH, 1);
+                segmentsPerDay.put(dayIndex, segments);
             }
+            dayStart = dayEnd;
         }
 
         // === BƯỚC 2: TÍNH TOÁN LAYOUT ===
-        for (int dayIndex = 0; dayIndex < 7; dayIndex++) {
-            List<EventSegment> segments = segmentsPerDay.get(dayIndex);
-            if (segments == null || segments.isEmpty()) continue;
-            
-            // Sắp xếp theo thời gian bắt đầu, sau đó theo thời gian kết thúc
-            Collections.sort(segments, (s1, s2) -> {
-                int startCompare = s1.segmentStart.compareTo(s2.segmentStart);
-                if (startCompare != 0) return startCompare;
-                return s1.segmentEnd.compareTo(s2.segmentEnd);
-            });
-            
-            // Gán column cho từng segment (Greedy Algorithm)
-            for (EventSegment segment : segments) {
-                int column = 0;
-                boolean columnFound = false;
-                
-                while (!columnFound) {
-                    columnFound = true;
-                    
-                    // Kiểm tra xem column này có bị chiếm bởi segment nào overlap không
-                    for (EventSegment other : segments) {
-                        if (other == segment) continue;
-                        if (other.layoutColumn != column) continue;
-                        
-                        // Kiểm tra overlap
-                        if (segment.segmentStart.before(other.segmentEnd) && 
-                            segment.segmentEnd.after(other.segmentStart)) {
-                            // Column này bị chiếm, thử column tiếp theo
-                            column++;
-                            columnFound = false;
-                            break;
-                        }
-                    }
-                }
-                
-                segment.layoutColumn = column;
-            }
-            
-            // Tìm số columns tối đa trong ngày
-            int maxColumns = 1;
-            for (EventSegment segment : segments) {
-                maxColumns = Math.max(maxColumns, segment.layoutColumn + 1);
-            }
-            
-            // Với mỗi segment, tìm tất cả segments overlap với nó
-            // và tính totalColumns cho nhóm overlap đó
-            for (EventSegment segment : segments) {
-                int maxColumnInGroup = segment.layoutColumn + 1;
-                
-                for (EventSegment other : segments) {
-                    if (other == segment) continue;
-                    
-                    // Kiểm tra overlap
-                    if (segment.segmentStart.before(other.segmentEnd) && 
-                        segment.segmentEnd.after(other.segmentStart)) {
-                        maxColumnInGroup = Math.max(maxColumnInGroup, other.layoutColumn + 1);
-                    }
-                }
-                
-                segment.totalLayoutColumns = maxColumnInGroup;
-            }
+        // Chia cột cho segment chồng giờ (dùng chung với Day View)
+        for (List<EventSegment> segments : segmentsPerDay.values()) {
+            EventColumnLayout.layout(segments);
         }
 
         // === BƯỚC 3: VẼ SEGMENTS ===
@@ -537,19 +463,22 @@ public class WeekViewFragment extends Fragment {
     public void nextWeek() {
         mCurrentWeek.add(Calendar.WEEK_OF_YEAR, 1);
         setupWeekDays();
-        renderEvents(mViewModel.getAllEvents().getValue());
+        requestDateRange();
+        renderEvents(mViewModel.getEventIndex().getValue());
     }
 
     public void previousWeek() {
         mCurrentWeek.add(Calendar.WEEK_OF_YEAR, -1);
         setupWeekDays();
-        renderEvents(mViewModel.getAllEvents().getValue());
+        requestDateRange();
+        renderEvents(mViewModel.getEventIndex().getValue());
     }
 
     public void scrollToToday() {
         mCurrentWeek = Calendar.getInstance();
         setupWeekDays();
-        renderEvents(mViewModel.getAllEvents().getValue());
+        requestDateRange();
+        renderEvents(mViewModel.getEventIndex().getValue());
 
         if (mScrollView == null) return;
         Calendar now = Calendar.getInstance();
@@ -13,6 +13,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.test.lifehub.R;
 import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndex;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -57,6 +58,7 @@ public class YearViewFragment extends Fragment {
         mViewModel = new ViewModelProvider(requireActivity()).get(CalendarViewModel.class);
         mCurrentYear = Calendar.getInstance();
 
+        requestDateRange();
         setupRecyclerView();
         observeEvents();
         updateYearTitle();
@@ -77,9 +79,26 @@ public class YearViewFragment extends Fragment {
         loadYear();
     }
 
+    /**
+     * Báo ViewModel năm đang hiển thị: cả năm là 1 cửa sổ lớn của EventWindowRegistry
+     * (1 cặp listener thay vì 12 cửa sổ tháng + prefetch), chỉ tải năm này
+     */
+    private void requestDateRange() {
+        Calendar start = (Calendar) mCurrentYear.clone();
+        start.set(Calendar.MONTH, Calendar.JANUARY);
+        start.set(Calendar.DAY_OF_MONTH, 1);
+        start.set(Calendar.HOUR_OF_DAY, 0);
+        start.clear(Calendar.MINUTE);
+        start.clear(Calendar.SECOND);
+        start.clear(Calendar.MILLISECOND);
+        Calendar end = (Calendar) start.clone();
+        end.add(Calendar.YEAR, 1);
+        mViewModel.setDateRange(start.getTime(), end.getTime());
+    }
+
     private void observeEvents() {
-        mViewModel.getAllEvents().observe(getViewLifecycleOwner(), events -> {
-            if (events != null) {
+        mViewModel.getEventIndex().observe(getViewLifecycleOwner(), index -> {
+            if (index != null) {
                 loadYear(); // Reload để cập nhật dấu chấm sự kiện
             }
         });
@@ -95,18 +114,21 @@ public class YearViewFragment extends Fragment {
      */
     private List<YearMonthData> generate12Months() {
         List<YearMonthData> months = new ArrayList<>();
-        List<CalendarEvent> allEvents = mViewModel.getAllEvents().getValue();
-        if (allEvents == null) allEvents = new ArrayList<>();
+        CalendarEventIndex index = mViewModel.getEventIndex().getValue();
 
         Calendar cal = (Calendar) mCurrentYear.clone();
         cal.set(Calendar.MONTH, Calendar.JANUARY);
         cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.clear(Calendar.MINUTE);
+        cal.clear(Calendar.SECOND);
+        cal.clear(Calendar.MILLISECOND);
 
         for (int month = 0; month < 12; month++) {
             YearMonthData monthData = new YearMonthData();
             monthData.monthCalendar = (Calendar) cal.clone();
             monthData.monthName = new SimpleDateFormat("MMMM", Locale.getDefault()).format(cal.getTime());
-            monthData.eventsInMonth = getEventsForMonth(allEvents, cal);
+            monthData.eventsInMonth = getEventsForMonth(index, cal);
             months.add(monthData);
             cal.add(Calendar.MONTH, 1);
         }
@@ -114,20 +136,16 @@ public class YearViewFragment extends Fragment {
         return months;
     }
 
-    private List<CalendarEvent> getEventsForMonth(List<CalendarEvent> allEvents, Calendar month) {
-        List<CalendarEvent> monthEvents = new ArrayList<>();
-        int targetMonth = month.get(Calendar.MONTH);
-        int targetYear = month.get(Calendar.YEAR);
-
-        for (CalendarEvent event : allEvents) {
-            if (event.getStartTime() == null) continue;
-            Calendar eventCal = Calendar.getInstance();
-            eventCal.setTime(event.getStartTime());
-            if (eventCal.get(Calendar.MONTH) == targetMonth && eventCal.get(Calendar.YEAR) == targetYear) {
-                monthEvents.add(event);
-            }
-        }
-        return monthEvents;
+    /**
+     * Sự kiện BẮT ĐẦU trong tháng (YearMonthAdapter chấm theo ngày bắt đầu)
+     *
+     * @param month Đầu tháng (00:00 ngày 1)
+     */
+    private List<CalendarEvent> getEventsForMonth(@Nullable CalendarEventIndex index, Calendar month) {
+        if (index == null) return new ArrayList<>();
+        Calendar nextMonth = (Calendar) month.clone();
+        nextMonth.add(Calendar.MONTH, 1);
+        return index.startingIn(month.getTimeInMillis(), nextMonth.getTimeInMillis());
     }
 
     private void updateYearTitle() {
@@ -139,18 +157,21 @@ public class YearViewFragment extends Fragment {
 
     public void nextYear() {
         mCurrentYear.add(Calendar.YEAR, 1);
+        requestDateRange();
         loadYear();
         updateYearTitle();
     }
 
     public void previousYear() {
         mCurrentYear.add(Calendar.YEAR, -1);
+        requestDateRange();
         loadYear();
         updateYearTitle();
     }
 
     public void scrollToCurrentYear() {
         mCurrentYear = Calendar.getInstance();
+        requestDateRange();
         loadYear();
         updateYearTitle();
     }
@@ -22,6 +22,7 @@ import com.test.lifehub.core.security.BiometricHelper;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.security.PasscodeRateLimiter;
 import com.test.lifehub.core.util.SessionManager;
+import com.test.lifehub.core.util.StartupTracer;
 
 import java.util.Locale;
 
@@ -58,7 +59,14 @@ public class MasterPasswordActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_SECURE, WindowManager.LayoutParams.FLAG_SECURE);
         super.onCreate(savedInstanceState);
+        StartupTracer.markLaunch();
+
+        // Đọc salt + verification ngay (song song với inflate và lúc người dùng nhập PIN)
+        encryptionManager.prefetchUserDocument();
+
+        StartupTracer.beginSection("MasterPasswordActivity.inflate");
         setContentView(R.layout.activity_master_password);
+        StartupTracer.endSection();
         
         initViews();
         setupUI();
@@ -141,6 +149,7 @@ public class MasterPasswordActivity extends AppCompatActivity {
     }
 
     private void processUnlock(String pin) {
+        StartupTracer.markUnlock();
         showLoading(true);
         encryptionManager.initialize(pin, result -> {
             showLoading(false);
@@ -2,11 +2,15 @@ package com.test.lifehub.features.one_accounts.data;
 
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.ServerTimestamp;
+import com.test.lifehub.codec.FirestoreCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
+import com.test.lifehub.core.util.NameSortKey;
 
 import java.io.Serializable;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * AccountEntry - POJO cho Tài khoản
@@ -23,7 +27,7 @@ import java.util.Map;
  *   ├─ notes: String             -> Ghi chú (optional)
  *   ├─ customFields: Map         -> Fields tùy chỉnh
  *   ├─ userOwnerId: String       -> Firebase Auth UID
- *   └─ lastModified: Timestamp  -> Tự động set bởi Firestore
+ *   └─ lastModified: Timestamp  -> Server gán khi tạo, client đặt lại mỗi lần sửa (rules kiểm tra)
  * 
  * === BẢO MẬT QUAN TRỌNG ===
  * ⚠️ MẬT KHẨU PHẢI ĐƯỢC MÃ HÓA TRƯỚC KHI LƯU:
@@ -42,20 +46,17 @@ import java.util.Map;
  * ```
  * 
  * === CUSTOM FIELDS ===
- * Hỗ trợ thêm fields tùy chỉnh cho từng loại tài khoản:
+ * Hỗ trợ thêm fields tùy chỉnh cho từng loại tài khoản (xem CustomField):
  * 
  * ```java
- * // Ví dụ: Thêm "Security Question" cho Gmail
- * Map<String, Object> field = new HashMap<>();
- * field.put("value", "Tên thú cưng của bạn?");
- * field.put("type", AccountEntry.FIELD_TYPE_TEXT);
- * account.customFields.put("securityQuestion", field);
+ * // Ví dụ: Thêm "Security Question" cho Gmail, "PIN" cho Banking (mã hóa riêng từng trường)
+ * List<CustomField> fields = new ArrayList<>(account.getCustomFieldList());
+ * fields.add(CustomField.text("securityQuestion", "Tên thú cưng của bạn?"));
+ * fields.add(CustomField.secret("pin", encryptionManager.encrypt("1234")));
+ * account.setCustomFieldList(fields);
  * 
- * // Ví dụ: Thêm "PIN" cho Banking (mã hóa)
- * Map<String, Object> pinField = new HashMap<>();
- * pinField.put("value", encryptedPIN);
- * pinField.put("type", AccountEntry.FIELD_TYPE_PASSWORD);
- * account.customFields.put("pin", pinField);
+ * // Chỉ giải mã đúng trường cần xem / copy
+ * String pin = field.reveal(encryptionManager::decrypt);
  * ```
  * 
  * === ANNOTATIONS ===
@@ -78,7 +79,8 @@ import java.util.Map;
  * @see AccountRepository Repository quản lý accounts
  * @see EncryptionHelper Mã hóa/giải mã mật khẩu
  */
-public class AccountEntry implements Serializable {
+@FirestoreCodec
+public class AccountEntry extends TrackedDocument implements Serializable {
 
     // ===== FIRESTORE DOCUMENT ID =====
     @Exclude // Báo Firestore: "Đừng lưu trường này"
@@ -96,24 +98,56 @@ public class AccountEntry implements Serializable {
     // ----- Trường Tùy chỉnh (Dùng Object để tránh crash nếu Firestore lưu [] thay vì {}) -----
     public Object customFields;
 
+    // ----- Bản đã parse của customFields (không lưu Firestore, parse lại khi customFields đổi) -----
+    @Exclude
+    private transient List<CustomField> customFieldList;
+    @Exclude
+    private transient Object customFieldSource;
+
     /**
-     * Helper để lấy customFields dưới dạng Map an toàn
+     * Danh sách trường tùy chỉnh có kiểu (trường PASSWORD vẫn là ciphertext)
+     * Parse 1 lần cho mỗi object customFields, không giải mã gì.
      */
     @Exclude
-    public Map<String, Object> asCustomFieldsMap() {
-        if (customFields instanceof Map) {
-            return (Map<String, Object>) customFields;
+    public List<CustomField> getCustomFieldList() {
+        if (customFieldList == null || customFieldSource != customFields) {
+            customFieldList = CustomField.listFrom(customFields);
+            customFieldSource = customFields;
         }
-        return new HashMap<>();
+        return customFieldList;
+    }
+
+    /**
+     * Gán lại toàn bộ trường tùy chỉnh (ghi xuống customFields dạng Map cho Firestore)
+     */
+    @Exclude
+    public void setCustomFieldList(List<CustomField> fields) {
+        customFields = CustomField.toFirestoreMap(fields);
+        customFieldList = fields != null
+                ? Collections.unmodifiableList(new ArrayList<>(fields)) : Collections.emptyList();
+        customFieldSource = customFields;
     }
 
     // ----- Thông tin Người sở hữu (Bắt buộc cho Luật Bảo mật) -----
     public String userOwnerId; // Sẽ lưu UID của Firebase Auth
 
     // ----- Thông tin đồng bộ -----
-    @ServerTimestamp // Firestore sẽ tự động gán ngày giờ của Server
+    @ServerTimestamp // null -> server gán giờ (tạo mới); AccountRepository.update đặt giờ sửa
     public Date lastModified;
 
+    // ----- Khóa sắp xếp (không lưu Firestore, tính lại khi serviceName đổi) -----
+    @Exclude
+    private transient NameSortKey sortKey;
+
+    /**
+     * Khóa sắp xếp theo serviceName (bảng chữ cái tiếng Việt), tính 1 lần và cache lại
+     */
+    @Exclude
+    public NameSortKey getSortKey() {
+        sortKey = NameSortKey.reuse(sortKey, serviceName);
+        return sortKey;
+    }
+
     // Hằng số cho Loại Trường (Field Type) - Vẫn giữ
     public static final int FIELD_TYPE_TEXT = 0;
     public static final int FIELD_TYPE_PASSWORD = 1;
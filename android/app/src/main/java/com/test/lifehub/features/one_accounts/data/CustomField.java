@@ -0,0 +1,165 @@
+package com.test.lifehub.features.one_accounts.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.security.DecryptScheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CustomField - 1 trường tùy chỉnh của AccountEntry (kiểu rõ ràng thay cho Map lồng Map)
+ *
+ * === FIRESTORE ===
+ * customFields: { "<nhãn>": { value: String, type: 0|1, encrypted: Boolean } }
+ * - encrypted = true: value là ciphertext (EncryptionManager), chỉ trường PASSWORD
+ * - Không có encrypted (dữ liệu cũ / web cũ): value là văn bản thuần
+ *
+ * === BẢO MẬT ===
+ * Model chỉ giữ ciphertext. reveal() giải mã ĐÚNG 1 trường khi người dùng xem / copy
+ * (hoặc autofill cần), không cache bản rõ -> mở tài khoản 20 trường không giải mã cả 20.
+ *
+ * Immutable: sửa trường = tạo CustomField mới.
+ */
+public final class CustomField {
+
+    static final String KEY_VALUE = "value";
+    static final String KEY_TYPE = "type";
+    static final String KEY_ENCRYPTED = "encrypted";
+
+    private final String name;
+    private final int type;
+    @Nullable
+    private final String value;     // Ciphertext nếu encrypted
+    private final boolean encrypted;
+
+    private CustomField(@NonNull String name, int type, @Nullable String value, boolean encrypted) {
+        this.name = name;
+        this.type = type;
+        this.value = value;
+        this.encrypted = encrypted;
+    }
+
+    /** Trường văn bản thường (không mã hóa) */
+    @NonNull
+    public static CustomField text(@NonNull String name, @Nullable String value) {
+        return new CustomField(name, AccountEntry.FIELD_TYPE_TEXT, value, false);
+    }
+
+    /**
+     * Trường mật khẩu đã mã hóa
+     * @param cipherText Kết quả EncryptionManager.encrypt()
+     */
+    @NonNull
+    public static CustomField secret(@NonNull String name, @Nullable String cipherText) {
+        return new CustomField(name, AccountEntry.FIELD_TYPE_PASSWORD, cipherText, true);
+    }
+
+    /**
+     * Trường mật khẩu dạng văn bản thuần (dữ liệu cũ, hoặc form chưa lưu)
+     * AddEditAccountViewModel mã hóa trước khi ghi.
+     */
+    @NonNull
+    public static CustomField plainSecret(@NonNull String name, @Nullable String plainText) {
+        return new CustomField(name, AccountEntry.FIELD_TYPE_PASSWORD, plainText, false);
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isSecret() {
+        return type == AccountEntry.FIELD_TYPE_PASSWORD;
+    }
+
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    /**
+     * Giá trị như đang lưu (ciphertext nếu encrypted) - dùng làm key cache / so sánh thay đổi
+     */
+    @Nullable
+    public String getStoredValue() {
+        return value;
+    }
+
+    /**
+     * Bản rõ của trường này (chỉ giải mã khi encrypted)
+     * @return "" nếu rỗng, null nếu giải mã lỗi
+     */
+    @Nullable
+    public String reveal(@NonNull DecryptScheduler.Decryptor decryptor) {
+        if (value == null || value.isEmpty()) return "";
+        if (!encrypted) return value;
+        try {
+            return decryptor.decrypt(value);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Trường mật khẩu còn văn bản thuần -> cần mã hóa trước khi lưu
+     */
+    public boolean needsEncryption() {
+        return isSecret() && !encrypted && value != null && !value.isEmpty();
+    }
+
+    // ===== CHUYỂN ĐỔI FIRESTORE =====
+
+    /**
+     * Đọc customFields từ Firestore (Map, hoặc [] / null với dữ liệu hỏng)
+     * Giữ thứ tự của Map nguồn; mục không phải Map bị bỏ qua.
+     */
+    @NonNull
+    public static List<CustomField> listFrom(@Nullable Object customFields) {
+        if (!(customFields instanceof Map)) return Collections.emptyList();
+        List<CustomField> fields = new ArrayList<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) customFields).entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof Map)) continue;
+            Map<?, ?> data = (Map<?, ?>) entry.getValue();
+            Object rawValue = data.get(KEY_VALUE);
+            Object rawType = data.get(KEY_TYPE);
+            int type = rawType instanceof Number ? ((Number) rawType).intValue() : AccountEntry.FIELD_TYPE_TEXT;
+            boolean encrypted = Boolean.TRUE.equals(data.get(KEY_ENCRYPTED))
+                    && type == AccountEntry.FIELD_TYPE_PASSWORD;
+            fields.add(new CustomField((String) entry.getKey(), type,
+                    rawValue != null ? rawValue.toString() : null, encrypted));
+        }
+        return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Ghi danh sách trường về dạng Map cho Firestore (nhãn trùng: trường sau thắng)
+     */
+    @NonNull
+    public static Map<String, Object> toFirestoreMap(@Nullable List<CustomField> fields) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (fields == null) return map;
+        for (CustomField field : fields) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put(KEY_VALUE, field.value != null ? field.value : "");
+            data.put(KEY_TYPE, (long) field.type); // Firestore trả về Long -> trường không đổi không bị ghi lại
+            if (field.encrypted) data.put(KEY_ENCRYPTED, true);
+            map.put(field.name, data);
+        }
+        return map;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        // Không in value (ciphertext / mật khẩu cũ chưa mã hóa)
+        return "CustomField{" + name + ", type=" + type + ", encrypted=" + encrypted + "}";
+    }
+}
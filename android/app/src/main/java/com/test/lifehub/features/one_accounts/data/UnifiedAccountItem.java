@@ -1,5 +1,11 @@
 package com.test.lifehub.features.one_accounts.data;
 
+import com.test.lifehub.core.util.NameSortKey;
+import com.test.lifehub.core.util.TotpManager;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
+
+import javax.crypto.spec.SecretKeySpec;
+
 /**
  * Model thống nhất đại diện cho CẢ tài khoản mật khẩu VÀ tài khoản TOTP
  * 
@@ -27,15 +33,18 @@ public class UnifiedAccountItem {
     private String id;           // ID duy nhất
     
     // ===== Chỉ dành cho PASSWORD =====
-    private String password;  // Mật khẩu (chỉ có khi type = PASSWORD)
-    private String notes;     // Ghi chú thêm
+    private String password;    // Mật khẩu (chỉ có khi type = PASSWORD)
+    private String notes;       // Ghi chú thêm
+    private String websiteUrl;  // URL website (tìm kiếm theo tên miền)
     
     // ===== Chỉ dành cho TOTP =====
     private String secret;  // Mã bí mật Base32 để tạo OTP (chỉ có khi type = TOTP)
     private String issuer;  // Nhà phát hành (thường giống serviceName)
+    private SecretKeySpec totpKey;  // HMAC key dựng sẵn (từ TotpProjection), null = decode secret khi cần
     
     // ===== Để sắp xếp =====
     private long timestamp;  // Thời gian tạo (Unix timestamp)
+    private NameSortKey sortKey;  // Theo serviceName (tính 1 lần, xem NameSortKey)
     
     /**
      * Constructor cho TÀI KHOẢN MẬT KHẨU (từ AccountEntry - Firebase)
@@ -49,6 +58,8 @@ public class UnifiedAccountItem {
         this.username = accountEntry.username;
         this.password = accountEntry.password;
         this.notes = accountEntry.notes;
+        this.websiteUrl = accountEntry.websiteUrl;
+        this.sortKey = accountEntry.getSortKey(); // Dùng lại key đã tính khi tải tài khoản
         this.timestamp = accountEntry.lastModified != null ? 
                         accountEntry.lastModified.getTime() : 
                         System.currentTimeMillis();
@@ -74,6 +85,24 @@ public class UnifiedAccountItem {
         this.timestamp = timestamp;
     }
     
+    /**
+     * Constructor cho TÀI KHOẢN TOTP từ TotpRepository.getDecryptedAccounts()
+     * (secret đã giải mã, HMAC key dựng sẵn -> không giải mã / decode lại)
+     * 
+     * @param projection Bản đọc của tài khoản TOTP
+     */
+    public UnifiedAccountItem(TotpProjection projection) {
+        this.type = AccountType.TOTP;
+        this.id = projection.getDocumentId();
+        this.serviceName = projection.getIssuer();
+        this.username = projection.getAccountName();
+        this.secret = projection.getSecret();
+        this.issuer = projection.getIssuer();
+        this.totpKey = projection.getKey();
+        this.sortKey = projection.getSortKey();
+        this.timestamp = projection.getUpdatedAt();
+    }
+    
     /**
      * Constructor cho TÀI KHOẢN TOTP (Authenticator)
      * 
@@ -138,6 +167,10 @@ public class UnifiedAccountItem {
         return notes;
     }
     
+    public String getWebsiteUrl() {
+        return websiteUrl;
+    }
+    
     // Chỉ dành cho TOTP
     public String getSecret() {
         return secret;
@@ -147,7 +180,22 @@ public class UnifiedAccountItem {
         return issuer;
     }
     
+    /**
+     * Mã TOTP hiện tại (dùng HMAC key dựng sẵn nếu có)
+     */
+    public String getCurrentCode() {
+        return totpKey != null ? TotpManager.getCurrentCode(totpKey) : TotpManager.getCurrentCode(secret);
+    }
+    
     public long getTimestamp() {
         return timestamp;
     }
+    
+    /**
+     * Khóa sắp xếp theo serviceName (bảng chữ cái tiếng Việt)
+     */
+    public NameSortKey getSortKey() {
+        if (sortKey == null) sortKey = NameSortKey.of(serviceName);
+        return sortKey;
+    }
 }
@@ -6,12 +6,24 @@ import androidx.lifecycle.MutableLiveData;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.test.lifehub.core.local.LocalMirror;
+import com.test.lifehub.core.repository.DemandActivation;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexer;
+import com.test.lifehub.core.repository.SnapshotBatch;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.repository.WriteBehindQueue;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
-import java.util.ArrayList;
+import com.test.lifehub.features.one_accounts.data.AccountEntryCodec;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -30,16 +42,17 @@ import javax.inject.Singleton;
  *   ├─ username: String (email/username)
  *   ├─ password: String (đã mã hóa AES-256)
  *   ├─ notes: String (ghi chú optional)
- *   └─ customFields: Map<String, String> (fields tùy chỉnh)
+ *   └─ customFields: Map<String, Map> (xem CustomField; trường mật khẩu mã hóa riêng)
  * 
  * === DEPENDENCIES ===
  * @Inject FirebaseFirestore: Firestore database instance
  * @Inject FirebaseAuth: Lấy userId hiện tại
  * 
  * === LIFECYCLE ===
- * 1. Constructor: Tự động gọi startListening()
- * 2. startListening(): Bắt đầu realtime listener
- * 3. stopListening(): Dừng listener (gọi khi logout)
+ * 1. Constructor: chỉ gắn DemandActivation, CHƯA có listener
+ * 2. LiveData có observer đầu tiên (hoặc startListening() để warm-up) -> bắt đầu realtime listener
+ * 3. Hết observer -> tạm dừng sau grace period (giữ dữ liệu)
+ * 4. stopListening(): Dừng listener + xóa dữ liệu (gọi khi logout)
  * 
  * === LƯU Ý BẢO MẬT ===
  * - Mật khẩu PHẢI được mã hóa bằng EncryptionHelper trước khi lưu
@@ -64,13 +77,24 @@ public class AccountRepository {
     }
 
     private static final String TAG = "AccountRepository";
+    private static final String COLLECTION_ACCOUNTS = "accounts";
     
     // ===== DEPENDENCIES =====
     private final FirebaseAuth mAuth;          // Firebase Authentication
     private final FirebaseFirestore mDb;       // Firestore Database
+    private final LocalMirror mLocalMirror;    // Bản sao offline trên disk
+    private final WriteBehindQueue mWriteQueue; // Hàng đợi ghi (gộp + WriteBatch)
+    private final DocumentListenerMultiplexer mDocuments; // LiveData từng document (ref-count)
     
-    // ===== LIVEDATA =====
-    private final MutableLiveData<List<AccountEntry>> mAllAccounts = new MutableLiveData<>();
+    // ===== IN-MEMORY STORE + LIVEDATA =====
+    // Giữ accounts theo documentId, đã sắp xếp theo serviceName (NameSortKey: thứ tự tiếng Việt, tính 1 lần / account).
+    // Mỗi snapshot chỉ áp dụng DocumentChange (O(log n) / thay đổi) thay vì map + sort lại toàn bộ.
+    // Map / sort chạy trên background thread, publisher đưa kết quả về main thread.
+    private final SnapshotPublisher<AccountEntry> accountPublisher = new SnapshotPublisher<>(TAG, "Accounts",
+            new SnapshotStore<>(
+                    this::mapAccount,
+                    AccountEntry::getSortKey,
+                    Comparator.naturalOrder()));
     
     // ===== LISTENER MANAGEMENT =====
     /**
@@ -81,22 +105,33 @@ public class AccountRepository {
      * listenerRegistration: Reference để remove listener sau
      */
     private boolean isListening = false;
-    private String currentUserId = null;
+    private volatile String currentUserId = null; // Đọc từ background thread trong mapAccount
     private ListenerRegistration listenerRegistration = null;
+    private LocalMirror.Session mirrorSession = null;
+    // Listener chỉ chạy khi có màn hình đang xem accounts (hoặc được warm-up)
+    private final DemandActivation activation =
+            new DemandActivation("Accounts", this::listen, this::pauseListening);
 
     /**
      * Constructor - Hilt tự động inject dependencies
      * 
      * @param auth FirebaseAuth instance
      * @param db FirebaseFirestore instance
+     * @param localMirror Bản sao offline (hiển thị từ disk trước khi Firestore trả lời)
+     * @param writeQueue Hàng đợi ghi dùng chung (gộp write, commit bằng WriteBatch)
      */
     @Inject
-    public AccountRepository(FirebaseAuth auth, FirebaseFirestore db) {
+    public AccountRepository(FirebaseAuth auth, FirebaseFirestore db, LocalMirror localMirror,
+                             WriteBehindQueue writeQueue,
+                             DocumentListenerMultiplexer documents) {
         this.mAuth = auth;
         this.mDb = db;
+        this.mLocalMirror = localMirror;
+        this.mWriteQueue = writeQueue;
+        this.mDocuments = documents;
         
-        // Tự động bắt đầu listener khi repository được tạo
-        startListening();
+        // Không bắt đầu listener ở đây: bật khi LiveData có observer đầu tiên
+        accountPublisher.bindActivation(activation);
     }
 
     /**
@@ -109,7 +144,7 @@ public class AccountRepository {
         if (user != null) {
             return mDb.collection("users")
                      .document(user.getUid())
-                     .collection("accounts");
+                     .collection(COLLECTION_ACCOUNTS);
         }
         return null;
     }
@@ -118,8 +153,8 @@ public class AccountRepository {
      * Bắt đầu lắng nghe thay đổi từ Firestore
      * 
      * === KHI NÀO GỌI ===
-     * - Tự động gọi trong constructor
-     * - Gọi lại trong MainActivity.onCreate() để ensure đúng user
+     * - Tự động: getAllAccounts() / getAccountChanges() có observer đầu tiên (DemandActivation)
+     * - Gọi tay (warm-up): bật trước khi UI cần, tự tạm dừng nếu không ai xem
      * 
      * === LUỒNG HOẠT ĐỘNG ===
      * 1. Kiểm tra user có đăng nhập không
@@ -140,13 +175,19 @@ public class AccountRepository {
      * - Phải gọi stopListening() khi logout để tránh memory leak
      * - Firestore giới hạn 1 triệu reads/tháng (free tier)
      */
-
     public void startListening() {
+        activation.warmUp();
+    }
+
+    public DemandActivation getActivation() {
+        return activation;
+    }
+
+    private void listen() {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser == null) {
             Log.w(TAG, "User not logged in, cannot listen to accounts");
             stopListening();
-            mAllAccounts.setValue(new ArrayList<>());
             return;
         }
         
@@ -156,7 +197,6 @@ public class AccountRepository {
         if (currentUserId != null && !currentUserId.equals(newUserId)) {
             Log.d(TAG, "User changed from " + currentUserId + " to " + newUserId + ", stopping old listener");
             stopListening();
-            mAllAccounts.setValue(new ArrayList<>());
         }
         
         // Nếu đã đang lắng nghe cho cùng user, không làm gì
@@ -181,37 +221,21 @@ public class AccountRepository {
         
         // Query tất cả accounts trong collection của user (đã được cách ly bởi path users/{userId}/accounts)
         // KHÔNG dùng whereEqualTo() hay orderBy() để tránh cần composite index
-        // Sẽ validate và sắp xếp ở client-side
-        listenerRegistration = ref.addSnapshotListener((snapshot, e) -> {
+        // Sẽ validate và sắp xếp ở client-side (trên background thread)
+        // Danh sách được vẽ ngay từ LocalMirror, listener chỉ phát phần khác biệt so với disk
+        final int generation = accountPublisher.beginListener();
+        final LocalMirror.Session session = mLocalMirror.open(currentUserId, COLLECTION_ACCOUNTS);
+        mirrorSession = session;
+        session.load(documents -> accountPublisher.seed(documents, generation));
+        listenerRegistration = ref.addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
                     if (e != null) {
                         Log.w(TAG, "❌ Error listening to accounts", e);
                         return;
                     }
                     if (snapshot != null) {
-                        List<AccountEntry> accounts = snapshot.toObjects(AccountEntry.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            accounts.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-                        
-                        // ✅ Validation: Kiểm tra userOwnerId (chỉ cảnh báo, không filter)
-                        // Path-based security đã đảm bảo cách ly dữ liệu
-                        for (AccountEntry account : accounts) {
-                            if (account.userOwnerId == null) {
-                                Log.w(TAG, "⚠️ Account missing userOwnerId (old data?): " + account.serviceName);
-                            } else if (!currentUserId.equals(account.userOwnerId)) {
-                                Log.e(TAG, "🔥 SECURITY WARNING: Account userOwnerId mismatch! Expected: " + currentUserId + ", Got: " + account.userOwnerId);
-                            }
-                        }
-                        
-                        // Sắp xếp theo tên dịch vụ ở client (thay vì Firestore orderBy)
-                        accounts.sort((a1, a2) -> {
-                            if (a1.serviceName == null) return 1;
-                            if (a2.serviceName == null) return -1;
-                            return a1.serviceName.compareToIgnoreCase(a2.serviceName);
-                        });
-                        
-                        mAllAccounts.setValue(accounts);
-                        Log.d(TAG, "✅ Accounts updated: " + accounts.size() + " items");
+                        SnapshotBatch batch = SnapshotBatch.of(snapshot);
+                        accountPublisher.publish(batch, generation);
+                        session.record(batch);
                     }
                 });
         
@@ -219,19 +243,58 @@ public class AccountRepository {
         Log.d(TAG, "Firestore listener started successfully");
     }
     
+    /**
+     * Map 1 document sang AccountEntry (chỉ gọi cho document thay đổi, trên background thread)
+     * 
+     * ✅ Validation: Kiểm tra userOwnerId (chỉ cảnh báo, không filter)
+     * Path-based security đã đảm bảo cách ly dữ liệu
+     */
+    private AccountEntry mapAccount(String documentId, Map<String, Object> data) {
+        AccountEntry account = AccountEntryCodec.INSTANCE.fromMap(documentId, data);
+        
+        if (account.userOwnerId == null) {
+            Log.w(TAG, "⚠️ Account missing userOwnerId (old data?): " + account.serviceName);
+        } else if (currentUserId != null && !currentUserId.equals(account.userOwnerId)) {
+            Log.e(TAG, "🔥 SECURITY WARNING: Account userOwnerId mismatch! Expected: " + currentUserId + ", Got: " + account.userOwnerId);
+        }
+        return account;
+    }
+    
+    /**
+     * Tạm dừng khi không còn ai xem: gỡ listener, GIỮ dữ liệu (mở lại hiện ngay)
+     */
+    private void pauseListening() {
+        if (listenerRegistration == null) return;
+        Log.d(TAG, "⏸️ Pausing accounts listener (no observers)");
+        listenerRegistration.remove();
+        listenerRegistration = null;
+        if (mirrorSession != null) {
+            mirrorSession.close();
+            mirrorSession = null;
+        }
+        isListening = false;
+        accountPublisher.pause();
+    }
+
     /**
      * ✅ THÊM: Dừng lắng nghe Firestore
      * Gọi khi user logout để tránh memory leak và data leak
      */
     public void stopListening() {
+        activation.reset();
         if (listenerRegistration != null) {
             Log.d(TAG, "Removing Firestore listener for user: " + currentUserId);
             listenerRegistration.remove();
             listenerRegistration = null;
         }
+        if (mirrorSession != null) {
+            mirrorSession.close();
+            mirrorSession = null;
+        }
+        mWriteQueue.flush(); // Không để write của user cũ nằm lại trong cửa sổ gộp
         isListening = false;
         currentUserId = null;
-        mAllAccounts.setValue(new ArrayList<>()); // Clear all data
+        accountPublisher.reset(); // Clear all data + bỏ qua snapshot cũ còn trong hàng đợi
     }
 
     /**
@@ -242,7 +305,15 @@ public class AccountRepository {
      */
     public LiveData<List<AccountEntry>> getAllAccounts() {
         Log.d(TAG, "getAllAccounts() called, isListening: " + isListening);
-        return mAllAccounts;
+        return accountPublisher.getItems();
+    }
+
+    /**
+     * Diff của lần cập nhật gần nhất (ADDED / MODIFIED / REMOVED)
+     * Dùng cho các thành phần cần cập nhật tăng dần (index tìm kiếm, merge, ...)
+     */
+    public LiveData<SnapshotStore.Diff<AccountEntry>> getAccountChanges() {
+        return accountPublisher.getChanges();
     }
 
     /**
@@ -252,20 +323,10 @@ public class AccountRepository {
      * @return LiveData chứa AccountEntry, hoặc null nếu không tìm thấy
      */
     public LiveData<AccountEntry> getAccountById(String documentId) {
-        MutableLiveData<AccountEntry> result = new MutableLiveData<>();
         CollectionReference ref = getAccountCollection();
-        if (ref != null && documentId != null) {
-            ref.document(documentId).get().addOnSuccessListener(snapshot -> {
-                if (snapshot.exists()) {
-                    AccountEntry account = snapshot.toObject(AccountEntry.class);
-                    if (account != null) {
-                        account.documentId = snapshot.getId();
-                        result.setValue(account);
-                    }
-                }
-            });
-        }
-        return result;
+        if (ref == null || documentId == null) return new MutableLiveData<>();
+        // Collection listener thường đã có sẵn -> không phải get() qua mạng
+        return mDocuments.observe(ref.document(documentId), accountPublisher);
     }
     // ----------------------------------------
 
@@ -281,11 +342,8 @@ public class AccountRepository {
             FirebaseUser currentUser = mAuth.getCurrentUser();
             if (currentUser != null) {
                 account.userOwnerId = currentUser.getUid();
-                ref.add(account).addOnSuccessListener(docRef -> {
-                    Log.d(TAG, "✅ Account inserted: " + docRef.getId() + " for user: " + account.userOwnerId);
-                }).addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to insert account", e);
-                });
+                mWriteQueue.set(ref.document(), AccountEntryCodec.INSTANCE.toMap(account),
+                        mWriteQueue.logging(TAG, "Account inserted", "Failed to insert account"));
             } else {
                 Log.w(TAG, "⚠️ Cannot insert account - user not logged in");
             }
@@ -305,13 +363,14 @@ public class AccountRepository {
             if (currentUser != null) {
                 // Đảm bảo userOwnerId không bị thay đổi
                 account.userOwnerId = currentUser.getUid();
-                ref.document(account.documentId).set(account)
-                        .addOnSuccessListener(aVoid -> {
-                            Log.d(TAG, "✅ Account updated: " + account.documentId);
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "❌ Failed to update account", e);
-                        });
+                // Thời điểm sửa (không dùng server timestamp): rules từ chối bản sửa cũ hơn bản đang lưu
+                account.lastModified = new Date();
+                // Chỉ gửi field đã đổi (password mã hóa không bị upload lại nếu không sửa)
+                // Hiện ngay trên UI; ghi lỗi -> lấy lại bản trong cache Firestore
+                DocumentReference docRef = ref.document(account.documentId);
+                accountPublisher.applyLocal(account.documentId, account);
+                mWriteQueue.save(docRef, AccountEntryCodec.INSTANCE, account, accountPublisher.reconcileOnFailure(docRef,
+                        mWriteQueue.logging(TAG, "Account updated", "Failed to update account")));
             } else {
                 Log.w(TAG, "⚠️ Cannot update account - user not logged in");
             }
@@ -326,13 +385,10 @@ public class AccountRepository {
     public void delete(AccountEntry account) {
         CollectionReference ref = getAccountCollection();
         if (ref != null && account.documentId != null) {
-            ref.document(account.documentId).delete()
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "✅ Account deleted: " + account.documentId);
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "❌ Failed to delete account", e);
-                    });
+            DocumentReference docRef = ref.document(account.documentId);
+            accountPublisher.applyLocal(account.documentId, null);
+            mWriteQueue.delete(docRef, accountPublisher.reconcileOnFailure(docRef,
+                    mWriteQueue.logging(TAG, "Account deleted", "Failed to delete account")));
         }
     }
     /**
@@ -342,7 +398,7 @@ public class AccountRepository {
      * @param callback Callback thông báo tiến độ
      */
     public void migrateEncryption(EncryptionManager encryptionManager, MigrationCallback callback) {
-        List<AccountEntry> accounts = mAllAccounts.getValue();
+        List<AccountEntry> accounts = accountPublisher.getItems().getValue();
         if (accounts == null || accounts.isEmpty()) {
             if (callback != null) callback.onComplete(0, 0);
             return;
@@ -371,23 +427,30 @@ public class AccountRepository {
             // Nếu mật khẩu thay đổi (nghĩa là nó vừa được upgrade lên chuẩn mới)
             if (!newEncrypted.equals(encryptedPwd)) {
                 account.password = newEncrypted;
+                account.lastModified = new Date();
                 CollectionReference ref = getAccountCollection();
                 if (ref != null && account.documentId != null) {
-                    ref.document(account.documentId).set(account)
-                        .addOnSuccessListener(aVoid -> {
-                            successCount.incrementAndGet();
-                            int current = processedCount.incrementAndGet();
-                            if (callback != null) callback.onProgress(current, total);
-                            if (current == total && callback != null) {
-                                callback.onComplete(successCount.get(), failedCount.get());
+                    // Cả vault đi chung vài WriteBatch thay vì 1 request / tài khoản, mỗi write chỉ có password
+                    mWriteQueue.save(ref.document(account.documentId), AccountEntryCodec.INSTANCE, account,
+                        new WriteBehindQueue.Callback() {
+                            @Override
+                            public void onSuccess(String documentId) {
+                                successCount.incrementAndGet();
+                                int current = processedCount.incrementAndGet();
+                                if (callback != null) callback.onProgress(current, total);
+                                if (current == total && callback != null) {
+                                    callback.onComplete(successCount.get(), failedCount.get());
+                                }
                             }
-                        })
-                        .addOnFailureListener(e -> {
-                            failedCount.incrementAndGet();
-                            int current = processedCount.incrementAndGet();
-                            if (callback != null) callback.onProgress(current, total);
-                            if (current == total && callback != null) {
-                                callback.onComplete(successCount.get(), failedCount.get());
+
+                            @Override
+                            public void onFailure(Exception e) {
+                                failedCount.incrementAndGet();
+                                int current = processedCount.incrementAndGet();
+                                if (callback != null) callback.onProgress(current, total);
+                                if (current == total && callback != null) {
+                                    callback.onComplete(successCount.get(), failedCount.get());
+                                }
                             }
                         });
                 }
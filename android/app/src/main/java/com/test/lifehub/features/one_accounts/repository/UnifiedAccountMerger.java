@@ -0,0 +1,147 @@
+package com.test.lifehub.features.one_accounts.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.features.authenticator.data.TotpProjection;
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UnifiedAccountMerger - Ghép tài khoản mật khẩu + TOTP thành danh sách hợp nhất theo tên
+ *
+ * === VẤN ĐỀ CŨ ===
+ * Mỗi lần 1 trong 2 nguồn phát, combineAccounts tạo lại UnifiedAccountItem cho TẤT CẢ
+ * tài khoản rồi sort toàn bộ. Item mới hết -> adapter không
+ * biết dòng nào thực sự đổi.
+ *
+ * === CÁCH LÀM ===
+ * - 2 nguồn đã sắp xếp sẵn theo NameSortKey trong repository
+ *   (AccountRepository theo serviceName, TotpRepository.getDecryptedAccounts() theo issuer)
+ * - Dùng lại UnifiedAccountItem theo documentId + phiên bản: store chỉ tạo object mới khi
+ *   document đổi, nên cùng object nguồn + cùng nội dung hiển thị = item cũ dùng được
+ *   (so thêm nội dung vì màn hình sửa có thể sửa trực tiếp object rồi applyLocal)
+ * - TOTP đến dạng TotpProjection (đã giải mã, immutable) -> cùng instance là đủ
+ * - Trộn tuyến tính 2 danh sách đã sắp xếp (O(n), không sort lại); cùng tên -> mật khẩu trước
+ * - Item không đổi giữ nguyên instance -> DiffUtil của adapter so sánh bằng ==
+ *
+ * === THREAD ===
+ * Main thread (UnifiedAccountViewModel), không thread-safe.
+ */
+public class UnifiedAccountMerger {
+
+    private static final class Cached<S> {
+        final S source;
+        @Nullable
+        final Object[] version;            // Nội dung nguồn lúc tạo item (bắt sửa trực tiếp trên object)
+        final UnifiedAccountItem item;
+
+        Cached(S source, Object[] version, UnifiedAccountItem item) {
+            this.source = source;
+            this.version = version;
+            this.item = item;
+        }
+    }
+
+    private Map<String, Cached<AccountEntry>> passwordCache = new HashMap<>();
+    private Map<String, Cached<TotpProjection>> totpCache = new HashMap<>();
+    private int reusedCount;
+    private int createdCount;
+
+    /**
+     * @param passwords Tài khoản mật khẩu, đã sắp xếp theo AccountEntry.getSortKey()
+     * @param totps Tài khoản TOTP (TotpRepository.getDecryptedAccounts()), đã sắp xếp theo issuer
+     * @return Danh sách mới (immutable), item không đổi giữ nguyên instance
+     */
+    @NonNull
+    public List<UnifiedAccountItem> merge(@Nullable List<AccountEntry> passwords, @Nullable List<TotpProjection> totps) {
+        reusedCount = 0;
+        createdCount = 0;
+        List<UnifiedAccountItem> passwordItems = mapPasswords(passwords);
+        List<UnifiedAccountItem> totpItems = mapTotps(totps);
+
+        List<UnifiedAccountItem> merged = new ArrayList<>(passwordItems.size() + totpItems.size());
+        int i = 0;
+        int j = 0;
+        while (i < passwordItems.size() && j < totpItems.size()) {
+            UnifiedAccountItem password = passwordItems.get(i);
+            UnifiedAccountItem totp = totpItems.get(j);
+            if (password.getSortKey().compareTo(totp.getSortKey()) <= 0) {
+                merged.add(password);
+                i++;
+            } else {
+                merged.add(totp);
+                j++;
+            }
+        }
+        while (i < passwordItems.size()) merged.add(passwordItems.get(i++));
+        while (j < totpItems.size()) merged.add(totpItems.get(j++));
+        return Collections.unmodifiableList(merged);
+    }
+
+    /** Số item dùng lại ở lần merge() gần nhất */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /** Số item tạo mới ở lần merge() gần nhất */
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    private List<UnifiedAccountItem> mapPasswords(@Nullable List<AccountEntry> accounts) {
+        Map<String, Cached<AccountEntry>> next = new HashMap<>();
+        List<UnifiedAccountItem> items = new ArrayList<>();
+        if (accounts != null) {
+            for (AccountEntry account : accounts) {
+                if (account.documentId == null) continue;
+                Object[] version = versionOf(account);
+                Cached<AccountEntry> cached = passwordCache.get(account.documentId);
+                if (cached != null && cached.source == account && Arrays.equals(cached.version, version)) {
+                    reusedCount++;
+                } else {
+                    cached = new Cached<>(account, version, new UnifiedAccountItem(account));
+                    createdCount++;
+                }
+                next.put(account.documentId, cached);
+                items.add(cached.item);
+            }
+        }
+        passwordCache = next; // Tài khoản đã xóa rơi khỏi cache
+        return items;
+    }
+
+    private List<UnifiedAccountItem> mapTotps(@Nullable List<TotpProjection> accounts) {
+        Map<String, Cached<TotpProjection>> next = new HashMap<>();
+        List<UnifiedAccountItem> items = new ArrayList<>();
+        if (accounts != null) {
+            for (TotpProjection account : accounts) {
+                if (account.getDocumentId() == null) continue;
+                Cached<TotpProjection> cached = totpCache.get(account.getDocumentId());
+                if (cached != null && cached.source == account) {
+                    reusedCount++; // Projection immutable: cùng instance = không đổi
+                } else {
+                    cached = new Cached<>(account, null, new UnifiedAccountItem(account));
+                    createdCount++;
+                }
+                next.put(account.getDocumentId(), cached);
+                items.add(cached.item);
+            }
+        }
+        totpCache = next;
+        return items;
+    }
+
+    /** Các field mà item hiển thị / dùng (so bằng equals, thường chỉ là so tham chiếu) */
+    private static Object[] versionOf(AccountEntry account) {
+        return new Object[]{account.serviceName, account.username, account.password, account.notes,
+                account.websiteUrl, account.lastModified};
+    }
+}
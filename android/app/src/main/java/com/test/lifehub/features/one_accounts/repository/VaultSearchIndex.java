@@ -0,0 +1,367 @@
+package com.test.lifehub.features.one_accounts.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.util.TextFolding;
+import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * VaultSearchIndex - Chỉ mục tìm kiếm mờ (fuzzy) cho kho tài khoản (mật khẩu + TOTP)
+ *
+ * === VẤN ĐỀ CŨ ===
+ * AccountFragment.filterAccounts lowercase serviceName / username của TẤT CẢ tài khoản rồi
+ * contains() mỗi lần gõ phím, bỏ qua website, và gõ sai 1 chữ ("gogle") là không thấy gì.
+ *
+ * === CÁCH LÀM ===
+ * - Mỗi tài khoản tách thành từ (TextFolding) theo 3 trường: tên dịch vụ, tên miền
+ *   (lấy từ websiteUrl, bỏ "https://", "www.", đường dẫn) và username
+ * - postings: từ -> (tài khoản -> trường chứa từ); grams: trigram -> các từ chứa nó.
+ *   Trigram lấy trên "^" + từ nên đầu từ có trigram riêng (ưu tiên khớp tiền tố)
+ * - Từ truy vấn >= 3 ký tự: lấy các từ chung đủ trigram làm ứng viên (mỗi lỗi gõ làm mất
+ *   tối đa 3 trigram), rồi xác minh bằng khoảng cách sửa (có đổi chỗ 2 ký tự) tới TIỀN TỐ
+ *   của từ -> "gogl" vẫn khớp "google"
+ * - Từ truy vấn ngắn (1-2 ký tự): chỉ khớp tiền tố (TreeMap.subMap)
+ * - Nhiều từ: tài khoản phải khớp TẤT CẢ (AND)
+ * - sync(): so danh sách mới với index theo id + nội dung tìm kiếm, chỉ index lại tài khoản
+ *   thay đổi (danh sách hợp nhất được tạo lại mỗi lần, nên không có Diff để áp dụng)
+ *
+ * === XẾP HẠNG ===
+ * Điểm 1 từ = mức khớp x trọng số trường (lấy cao nhất):
+ *   Mức: đúng từ 10 > tiền tố 8 > sai 1 chữ 5 > nằm giữa từ 4 > sai 2 chữ 3
+ *   Trường: tên dịch vụ 3 > tên miền, username 2
+ * Điểm tài khoản = tổng điểm các từ, + thưởng nếu cả truy vấn là tiền tố của tên dịch vụ.
+ * Cùng điểm: theo tên dịch vụ (giống thứ tự danh sách).
+ *
+ * === THREAD ===
+ * KHÔNG thread-safe: UnifiedAccountViewModel chỉ gọi trên 1 thread tìm kiếm riêng.
+ * search() nhận cờ hủy để bỏ truy vấn cũ khi người dùng gõ tiếp.
+ */
+public class VaultSearchIndex {
+
+    private static final int FIELD_SERVICE = 1;
+    private static final int FIELD_DOMAIN = 2;
+    private static final int FIELD_USERNAME = 4;
+
+    private static final int MATCH_EXACT = 10;
+    private static final int MATCH_PREFIX = 8;
+    private static final int MATCH_TYPO_1 = 5;
+    private static final int MATCH_SUBSTRING = 4;
+    private static final int MATCH_TYPO_2 = 3;
+
+    private static final int SERVICE_PREFIX_BONUS = 20;
+    private static final int GRAM = 3;
+    private static final char WORD_START = '^';
+    private static final int CANCEL_CHECK_INTERVAL = 64;
+
+    /**
+     * 1 tài khoản đã index
+     */
+    private static final class Doc {
+        final String key;                 // type:id (id mật khẩu và TOTP thuộc 2 collection khác nhau)
+        UnifiedAccountItem item;          // Cập nhật khi danh sách mới có object mới nhưng cùng nội dung
+        final String signature;           // Nội dung tìm kiếm, để biết có phải index lại không
+        final String serviceName;         // Đã fold, cho thưởng tiền tố
+        final Map<String, Integer> terms; // Từ -> các trường chứa từ đó
+
+        Doc(String key, UnifiedAccountItem item, String signature, String serviceName, Map<String, Integer> terms) {
+            this.key = key;
+            this.item = item;
+            this.signature = signature;
+            this.serviceName = serviceName;
+            this.terms = terms;
+        }
+    }
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Map<Doc, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+
+    // ===== CẬP NHẬT =====
+
+    /**
+     * Đồng bộ với danh sách hợp nhất mới
+     *
+     * @return true nếu có tài khoản được thêm / xóa / index lại
+     */
+    public boolean sync(@NonNull List<UnifiedAccountItem> items) {
+        boolean changed = false;
+        Set<String> seen = new HashSet<>();
+        for (UnifiedAccountItem item : items) {
+            String key = keyOf(item);
+            if (key == null || !seen.add(key)) continue;
+            Doc doc = docs.get(key);
+            String signature = signatureOf(item);
+            if (doc != null && doc.signature.equals(signature)) {
+                doc.item = item;
+            } else {
+                remove(key);
+                put(key, item, signature);
+                changed = true;
+            }
+        }
+        if (seen.size() != docs.size()) {
+            for (String key : new ArrayList<>(docs.keySet())) {
+                if (!seen.contains(key)) {
+                    remove(key);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    private void put(String key, UnifiedAccountItem item, String signature) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, item.getServiceName(), FIELD_SERVICE);
+        if (item.getIssuer() != null && !item.getIssuer().equals(item.getServiceName())) {
+            addTerms(terms, item.getIssuer(), FIELD_SERVICE);
+        }
+        addTerms(terms, domainOf(item.getWebsiteUrl()), FIELD_DOMAIN);
+        addTerms(terms, item.getUsername(), FIELD_USERNAME);
+
+        Doc doc = new Doc(key, item, signature, joinTokens(item.getServiceName()), terms);
+        docs.put(key, doc);
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            Map<Doc, Integer> posting = postings.get(term.getKey());
+            if (posting == null) {
+                posting = new HashMap<>();
+                postings.put(term.getKey(), posting);
+                for (String gram : gramsOf(term.getKey())) {
+                    grams.computeIfAbsent(gram, g -> new HashSet<>()).add(term.getKey());
+                }
+            }
+            posting.put(doc, term.getValue());
+        }
+    }
+
+    private void remove(String key) {
+        Doc doc = docs.remove(key);
+        if (doc == null) return;
+        for (String term : doc.terms.keySet()) {
+            Map<Doc, Integer> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(doc);
+            if (!posting.isEmpty()) continue;
+            postings.remove(term);
+            for (String gram : gramsOf(term)) {
+                Set<String> gramTerms = grams.get(gram);
+                if (gramTerms == null) continue;
+                gramTerms.remove(term);
+                if (gramTerms.isEmpty()) grams.remove(gram);
+            }
+        }
+    }
+
+    // ===== TÌM KIẾM =====
+
+    /**
+     * Tài khoản khớp mọi từ trong truy vấn, đã xếp hạng. Truy vấn rỗng -> danh sách rỗng.
+     *
+     * @param cancelled Trả true khi truy vấn đã cũ (người dùng gõ tiếp) -> dừng sớm
+     * @return null nếu bị hủy giữa chừng
+     */
+    @Nullable
+    public List<UnifiedAccountItem> search(@Nullable String query, @NonNull BooleanSupplier cancelled) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(TextFolding.tokenize(query)));
+        if (tokens.isEmpty()) return Collections.emptyList();
+        // Từ dài chọn lọc hơn -> xét trước để tập ứng viên nhỏ sớm
+        Collections.sort(tokens, (a, b) -> Integer.compare(b.length(), a.length()));
+
+        Map<Doc, Integer> scores = null;
+        for (String token : tokens) {
+            if (cancelled.getAsBoolean()) return null;
+            Map<Doc, Integer> tokenScores = matchToken(token, cancelled);
+            if (tokenScores == null) return null;
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                Map<Doc, Integer> merged = new HashMap<>();
+                for (Map.Entry<Doc, Integer> entry : scores.entrySet()) {
+                    Integer score = tokenScores.get(entry.getKey());
+                    if (score != null) merged.put(entry.getKey(), entry.getValue() + score);
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) return Collections.emptyList();
+        }
+
+        // Thưởng khi cả truy vấn là đầu tên dịch vụ ("google d" -> "Google Drive" trước "Drive" của user google)
+        String phrase = String.join(" ", TextFolding.tokenize(query));
+        List<Doc> ranked = new ArrayList<>(scores.keySet());
+        final Map<Doc, Integer> finalScores = scores;
+        for (Doc doc : ranked) {
+            if (doc.serviceName.startsWith(phrase)) finalScores.merge(doc, SERVICE_PREFIX_BONUS, Integer::sum);
+        }
+        if (cancelled.getAsBoolean()) return null;
+
+        Collections.sort(ranked, Comparator.<Doc>comparingInt(finalScores::get).reversed()
+                .thenComparing(doc -> doc.item.getSortKey())
+                .thenComparing(doc -> doc.key));
+        List<UnifiedAccountItem> results = new ArrayList<>(ranked.size());
+        for (Doc doc : ranked) results.add(doc.item);
+        return results;
+    }
+
+    /**
+     * Điểm cao nhất của 1 từ truy vấn trên từng tài khoản khớp
+     */
+    @Nullable
+    private Map<Doc, Integer> matchToken(String token, BooleanSupplier cancelled) {
+        Map<Doc, Integer> best = new HashMap<>();
+        if (token.length() < GRAM) {
+            for (Map.Entry<String, Map<Doc, Integer>> entry
+                    : postings.subMap(token, token + Character.MAX_VALUE).entrySet()) {
+                score(entry.getValue(), entry.getKey().equals(token) ? MATCH_EXACT : MATCH_PREFIX, best);
+            }
+            return best;
+        }
+
+        int maxTypos = token.length() >= 8 ? 2 : (token.length() >= 4 ? 1 : 0);
+        List<String> tokenGrams = gramsOf(token);
+        int threshold = Math.max(1, tokenGrams.size() - GRAM * maxTypos);
+
+        Map<String, int[]> shared = new HashMap<>();
+        for (String gram : tokenGrams) {
+            Set<String> terms = grams.get(gram);
+            if (terms == null) continue;
+            for (String term : terms) shared.computeIfAbsent(term, t -> new int[1])[0]++;
+        }
+
+        int checked = 0;
+        for (Map.Entry<String, int[]> entry : shared.entrySet()) {
+            if (entry.getValue()[0] < threshold) continue;
+            if (++checked % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return null;
+            int quality = matchQuality(token, entry.getKey(), maxTypos);
+            if (quality > 0) score(postings.get(entry.getKey()), quality, best);
+        }
+        return best;
+    }
+
+    private static void score(Map<Doc, Integer> posting, int quality, Map<Doc, Integer> best) {
+        for (Map.Entry<Doc, Integer> entry : posting.entrySet()) {
+            int fields = entry.getValue();
+            int weight = (fields & FIELD_SERVICE) != 0 ? 3 : 2;
+            best.merge(entry.getKey(), quality * weight, Math::max);
+        }
+    }
+
+    static int matchQuality(String token, String term, int maxTypos) {
+        if (term.equals(token)) return MATCH_EXACT;
+        if (term.startsWith(token)) return MATCH_PREFIX;
+        int distance = maxTypos > 0 ? prefixDistance(token, term, maxTypos) : Integer.MAX_VALUE;
+        if (distance <= 1) return MATCH_TYPO_1;
+        if (term.contains(token)) return MATCH_SUBSTRING;
+        if (distance <= 2) return MATCH_TYPO_2;
+        return 0;
+    }
+
+    /**
+     * Khoảng cách sửa nhỏ nhất từ token tới MỘT TIỀN TỐ của term (thêm / xóa / thay /
+     * đổi chỗ 2 ký tự kề nhau). Dừng sớm khi vượt max -> trả max + 1.
+     */
+    static int prefixDistance(String token, String term, int max) {
+        int n = term.length();
+        int[] before = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) previous[j] = j;
+
+        for (int i = 1; i <= token.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char tc = token.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                char sc = term.charAt(j - 1);
+                int cost = tc == sc ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && tc == term.charAt(j - 2) && token.charAt(i - 2) == sc) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        int distance = Integer.MAX_VALUE;
+        for (int j = 0; j <= n; j++) distance = Math.min(distance, previous[j]);
+        return Math.min(distance, max + 1);
+    }
+
+    // ===== TIỆN ÍCH =====
+
+    @Nullable
+    private static String keyOf(UnifiedAccountItem item) {
+        if (item.getId() == null) return null;
+        return item.getType() + ":" + item.getId();
+    }
+
+    private static String signatureOf(UnifiedAccountItem item) {
+        return item.getServiceName() + '\u0000' + item.getIssuer() + '\u0000'
+                + item.getWebsiteUrl() + '\u0000' + item.getUsername();
+    }
+
+    private static void addTerms(Map<String, Integer> terms, @Nullable String text, int field) {
+        for (String term : TextFolding.tokenize(text)) terms.merge(term, field, (a, b) -> a | b);
+    }
+
+    private static String joinTokens(@Nullable String text) {
+        return String.join(" ", TextFolding.tokenize(text));
+    }
+
+    /**
+     * "https://www.accounts.google.com:443/login?x=1" -> "accounts.google.com"
+     */
+    @Nullable
+    static String domainOf(@Nullable String url) {
+        if (url == null) return null;
+        String host = url.trim();
+        int scheme = host.indexOf("://");
+        if (scheme >= 0) host = host.substring(scheme + 3);
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || c == ':') {
+                host = host.substring(0, i);
+                break;
+            }
+        }
+        int credentials = host.lastIndexOf('@');
+        if (credentials >= 0) host = host.substring(credentials + 1);
+        if (host.regionMatches(true, 0, "www.", 0, 4)) host = host.substring(4);
+        return host;
+    }
+
+    /**
+     * Trigram (không trùng) của "^" + từ
+     */
+    private static List<String> gramsOf(String term) {
+        String padded = WORD_START + term;
+        List<String> result = new ArrayList<>(Math.max(0, padded.length() - GRAM + 1));
+        for (int i = 0; i + GRAM <= padded.length(); i++) {
+            String gram = padded.substring(i, i + GRAM);
+            if (!result.contains(gram)) result.add(gram);
+        }
+        return result;
+    }
+}
@@ -27,8 +27,7 @@ import com.test.lifehub.core.security.BiometricHelper;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.util.SessionManager;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
-
-import java.util.Map;
+import com.test.lifehub.features.one_accounts.data.CustomField;
 
 import javax.inject.Inject;
 import dagger.hilt.android.AndroidEntryPoint;
@@ -53,6 +52,7 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
     private LinearLayout layoutCustomFields;
 
     private boolean isPasswordVisible = false;
+    private Runnable mPendingReveal; // Chờ xác thực sinh trắc học
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,7 +102,7 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
 
         btnCopyPassword.setOnClickListener(v -> {
             if (mAccount != null) {
-                copyToClipboard("Mật khẩu", mAccount.password, true);
+                copyToClipboard("Mật khẩu", revealPassword(), true);
             }
         });
     }
@@ -118,57 +118,42 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
         btnTogglePassword.setImageResource(R.drawable.ic_visibility);
 
         // --- XỬ LÝ CÁC TRƯỜNG TÙY CHỈNH ---
+        // Trường mật khẩu giữ ciphertext, chỉ giải mã đúng trường được chạm xem / copy
         layoutCustomFields.removeAllViews();
-        Map<String, Object> fieldsMap = account.asCustomFieldsMap();
-        if (fieldsMap != null && !fieldsMap.isEmpty()) {
-            LayoutInflater inflater = LayoutInflater.from(this);
-
-            for (Map.Entry<String, Object> entry : fieldsMap.entrySet()) {
-                String label = entry.getKey();
-                Object valueObj = entry.getValue();
-
-                if (valueObj instanceof Map) {
-                    Map<String, Object> fieldData = (Map<String, Object>) valueObj;
-                    String value = (String) fieldData.get("value");
-
-                    // Kiểm tra kiểu dữ liệu (nếu cần xử lý ẩn/hiện sau này)
-                    int type = AccountEntry.FIELD_TYPE_TEXT;
-                    if (fieldData.get("type") instanceof Long) {
-                        type = ((Long) fieldData.get("type")).intValue();
-                    } else if (fieldData.get("type") instanceof Integer) {
-                        type = (Integer) fieldData.get("type");
-                    }
-
-                    // Inflate layout item_custom_field_detail.xml
-                    View customView = inflater.inflate(R.layout.item_custom_field_detail, layoutCustomFields, false);
-
-                    // --- SỬA LỖI Ở ĐÂY: Dùng đúng ID trong file XML bạn gửi ---
-                    TextView tvLabel = customView.findViewById(R.id.tv_field_label);
-                    TextView tvValue = customView.findViewById(R.id.tv_field_value);
-                    ImageButton btnCopy = customView.findViewById(R.id.btn_copy_field);
-
-                    if (tvLabel != null && tvValue != null) {
-                        tvLabel.setText(label);
-
-                        // Nếu là mật khẩu tùy chỉnh, hiển thị dấu chấm tròn
-                        if (type == AccountEntry.FIELD_TYPE_PASSWORD) {
-                            tvValue.setText("••••••••");
-                        } else {
-                            tvValue.setText(value);
-                        }
-
-                        // Xử lý nút Copy cho trường tùy chỉnh
-                        final String finalValue = value;
-                        final int finalType = type;
-                        btnCopy.setOnClickListener(v -> {
-                            // Nếu là password, copy giá trị thật (finalValue), coi là nhạy cảm
-                            copyToClipboard(label, finalValue, finalType == AccountEntry.FIELD_TYPE_PASSWORD);
-                        });
-
-                        layoutCustomFields.addView(customView);
+        LayoutInflater inflater = LayoutInflater.from(this);
+        for (CustomField field : account.getCustomFieldList()) {
+            View customView = inflater.inflate(R.layout.item_custom_field_detail, layoutCustomFields, false);
+            TextView tvLabel = customView.findViewById(R.id.tv_field_label);
+            TextView tvValue = customView.findViewById(R.id.tv_field_value);
+            ImageButton btnCopy = customView.findViewById(R.id.btn_copy_field);
+            if (tvLabel == null || tvValue == null) continue;
+
+            tvLabel.setText(field.getName());
+            if (field.isSecret()) {
+                tvValue.setText("••••••••");
+                final boolean[] revealed = {false};
+                tvValue.setOnClickListener(v -> {
+                    if (revealed[0]) {
+                        revealed[0] = false;
+                        tvValue.setText("••••••••");
+                        return;
                     }
-                }
+                    requestReveal(() -> {
+                        String plain = field.reveal(encryptionManager::decrypt);
+                        if (plain == null) return;
+                        revealed[0] = true;
+                        tvValue.setText(plain);
+                    });
+                });
+            } else {
+                tvValue.setText(field.getStoredValue());
             }
+
+            btnCopy.setOnClickListener(v -> {
+                String plain = field.reveal(encryptionManager::decrypt);
+                copyToClipboard(field.getName(), plain, field.isSecret());
+            });
+            layoutCustomFields.addView(customView);
         }
     }
 
@@ -184,6 +169,14 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
         }
         
         // Nếu đang ẩn → Muốn hiển thị mật khẩu
+        requestReveal(this::showPassword);
+    }
+
+    /**
+     * Hiện dữ liệu nhạy cảm (mật khẩu chính / trường tùy chỉnh) sau khi qua xác thực nếu đã bật
+     */
+    private void requestReveal(Runnable reveal) {
+        mPendingReveal = reveal;
         // Kiểm tra xem user có bật biometric trong Settings không
         if (sessionManager.isBiometricEnabled()) {
             // Đã bật biometric → Kiểm tra thiết bị có hỗ trợ không
@@ -197,32 +190,46 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
                 Toast.makeText(this, 
                     "Thiết bị không hỗ trợ sinh trắc học. Đã tự động tắt xác thực vân tay.", 
                     Toast.LENGTH_LONG).show();
-                showPassword();
+                runPendingReveal();
             }
         } else {
             // Chưa bật biometric → Hiển thị trực tiếp
-            showPassword();
+            runPendingReveal();
         }
     }
+
+    private void runPendingReveal() {
+        Runnable reveal = mPendingReveal;
+        mPendingReveal = null;
+        if (reveal != null) reveal.run();
+    }
     
     private void showPassword() {
         if (mAccount == null) return;
         isPasswordVisible = true;
-        String plain = encryptionManager.decrypt(mAccount.password);
-        tvPassword.setText(plain);
+        tvPassword.setText(revealPassword());
         btnTogglePassword.setImageResource(R.drawable.ic_visibility_off);
     }
 
+    private String revealPassword() {
+        if (mAccount.password == null) return "";
+        // Thường đã được giải mã sẵn khi dòng hiện trong danh sách (DecryptScheduler)
+        String plain = mAccount.documentId != null
+                ? encryptionManager.getDecryptScheduler().peek(mAccount.documentId, mAccount.password) : null;
+        return plain != null ? plain : encryptionManager.decrypt(mAccount.password);
+    }
+
     // --- BIOMETRIC CALLBACKS ---
     @Override
     public void onBiometricAuthSuccess() {
-        // Xác thực thành công → Hiển thị mật khẩu
-        showPassword();
+        // Xác thực thành công → Hiển thị mật khẩu / trường đang chờ
+        runPendingReveal();
     }
 
     @Override
     public void onBiometricAuthError(String errorMessage) {
         // Xác thực thất bại/hủy → Không làm gì
+        mPendingReveal = null;
         Toast.makeText(this, getString(R.string.account_auth_failed, errorMessage), Toast.LENGTH_SHORT).show();
     }
 
@@ -231,21 +238,14 @@ public class AccountDetailActivity extends AppCompatActivity implements Biometri
         // Vân tay không khớp → Hệ thống cho phép thử lại
     }
 
+    /**
+     * @param text Bản rõ (người gọi đã giải mã đúng trường cần copy)
+     */
     private void copyToClipboard(String label, String text, boolean isSensitive) {
         if (text == null) return;
-        String contentToCopy = text;
-
-        if (isSensitive) {
-            // Giải mã nếu chuỗi đang bị mã hóa (dành cho mật khẩu chính)
-            // Lưu ý: Trường tùy chỉnh hiện tại chưa được mã hóa trong DB nên text đã là plain text.
-            // Hàm này check nếu là mật khẩu chính thì cần decrypt, còn custom field thì dùng trực tiếp.
-            if (label.equals("Mật khẩu")) {
-                contentToCopy = encryptionManager.decrypt(text);
-            }
-        }
 
         ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
-        ClipData clip = ClipData.newPlainText(label, contentToCopy);
+        ClipData clip = ClipData.newPlainText(label, text);
         clipboard.setPrimaryClip(clip);
 
         Toast.makeText(this, getString(R.string.account_copied, label), Toast.LENGTH_SHORT).show();
@@ -28,6 +28,7 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.test.lifehub.R;
+import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.util.TotpManager;
 import com.test.lifehub.features.authenticator.ui.AddTotpAccountActivity;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
@@ -37,6 +38,8 @@ import com.test.lifehub.features.one_accounts.viewmodel.UnifiedAccountViewModel;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -59,9 +62,9 @@ import dagger.hilt.android.AndroidEntryPoint;
  *    - Dừng khi Fragment destroy (tránh memory leak)
  * 
  * 3. SEARCH FUNCTIONALITY:
- *    - Tìm kiếm theo serviceName, username, issuer
- *    - Filter realtime khi user gõ phím
- *    - Case-insensitive search
+ *    - Tìm kiếm theo serviceName, username, tên miền website (VaultSearchIndex)
+ *    - Không phân biệt dấu / hoa thường, chịu được gõ sai 1-2 chữ, ưu tiên khớp tiền tố
+ *    - Truy vấn chạy ngoài main thread, truy vấn cũ bị hủy khi user gõ tiếp
  * 
  * 4. SWIPE REFRESH:
  *    - Kéo xuống để refresh data từ Firestore
@@ -76,7 +79,7 @@ import dagger.hilt.android.AndroidEntryPoint;
  * ```
  * AccountFragment (View Layer)
  *        |
- *        | observe allAccounts
+ *        | observe searchResults (setSearchQuery khi gõ phím)
  *        v
  * UnifiedAccountViewModel
  *        |
@@ -112,20 +115,14 @@ import dagger.hilt.android.AndroidEntryPoint;
  * 
  * === SEARCH IMPLEMENTATION ===
  * ```java
- * searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
- *     public boolean onQueryTextChange(String query) {
- *         if (query.isEmpty()) {
- *             filteredAccounts = new ArrayList<>(allAccounts);
- *         } else {
- *             String lowerQuery = query.toLowerCase(Locale.ROOT).trim();
- *             filteredAccounts = allAccounts.stream()
- *                 .filter(item -> matchesQuery(item, lowerQuery))
- *                 .collect(Collectors.toList());
- *         }
- *         adapter.submitList(filteredAccounts);
- *         return true;
- *     }
- * });
+ * // Gõ phím -> ViewModel (không lọc trên main thread)
+ * public boolean onQueryTextChange(String query) {
+ *     viewModel.setSearchQuery(query);
+ *     return true;
+ * }
+ *
+ * // Kết quả đã xếp hạng (cả danh sách khi query rỗng)
+ * viewModel.getSearchResults().observe(owner, accounts -> adapter.submitList(accounts));
  * ```
  * 
  * === LIFECYCLE ===
@@ -181,9 +178,11 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
     private Handler totpUpdateHandler;
     private Runnable totpUpdateRunnable;
     
-    private List<UnifiedAccountItem> allAccounts = new ArrayList<>();
     private List<UnifiedAccountItem> filteredAccounts = new ArrayList<>();
 
+    @Inject
+    EncryptionManager encryptionManager;
+
 
     @Nullable
     @Override
@@ -212,9 +211,10 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
     private void setupViewModel() {
         viewModel = new ViewModelProvider(this).get(UnifiedAccountViewModel.class);
         
-        viewModel.getUnifiedAccounts().observe(getViewLifecycleOwner(), accounts -> {
-            allAccounts = accounts != null ? accounts : new ArrayList<>();
-            filterAccounts(searchView.getQuery().toString());
+        // Danh sách đã lọc theo query hiện tại (ViewModel giữ query qua xoay màn hình)
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), accounts -> {
+            filteredAccounts = accounts != null ? accounts : new ArrayList<>();
+            adapter.submitList(filteredAccounts);
             updateEmptyState();
         });
     }
@@ -222,6 +222,7 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
     private void setupRecyclerView() {
         adapter = new UnifiedAccountAdapter();
         adapter.setOnItemClickListener(this);
+        adapter.setDecryptScheduler(encryptionManager.getDecryptScheduler());
         
         // Restore expansion state from SharedPreferences
         loadExpansionState();
@@ -255,7 +256,7 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                filterAccounts(newText);
+                viewModel.setSearchQuery(newText);
                 return true;
             }
         });
@@ -295,27 +296,6 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
         };
     }
 
-    private void filterAccounts(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            filteredAccounts = new ArrayList<>(allAccounts);
-        } else {
-            String lowerQuery = query.toLowerCase().trim();
-            filteredAccounts = new ArrayList<>();
-            
-            for (UnifiedAccountItem item : allAccounts) {
-                String serviceName = item.getServiceName() != null ? item.getServiceName().toLowerCase() : "";
-                String username = item.getUsername() != null ? item.getUsername().toLowerCase() : "";
-                
-                if (serviceName.contains(lowerQuery) || username.contains(lowerQuery)) {
-                    filteredAccounts.add(item);
-                }
-            }
-        }
-        
-        adapter.submitList(filteredAccounts);
-        updateEmptyState();
-    }
-
     private void updateEmptyState() {
         boolean isEmpty = filteredAccounts.isEmpty();
         emptyListText.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
@@ -369,8 +349,8 @@ public class AccountFragment extends Fragment implements UnifiedAccountAdapter.O
 
     @Override
     public void onTotpAccountClick(UnifiedAccountItem item) {
-        // Generate TOTP code from secret using getCurrentCode
-        String code = TotpManager.getCurrentCode(item.getSecret());
+        // HMAC key đã dựng sẵn trong item (TotpProjection)
+        String code = item.getCurrentCode();
         
         // Copy TOTP code to clipboard
         ClipboardManager clipboard = (ClipboardManager) requireContext().getSystemService(Context.CLIPBOARD_SERVICE);
@@ -22,11 +22,10 @@ import com.google.android.material.textfield.TextInputLayout;
 import com.test.lifehub.R;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.CustomField;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import javax.inject.Inject;
 import dagger.hilt.android.AndroidEntryPoint;
@@ -61,6 +60,8 @@ public class AddEditAccountActivity extends AppCompatActivity implements Passwor
         final TextInputEditText etValue;
         final ImageButton btnToggleType;
         int fieldType = AccountEntry.FIELD_TYPE_TEXT;
+        // Trường mật khẩu đã mã hóa chưa mở: giữ ciphertext, chỉ giải mã khi người dùng chạm vào
+        CustomField sealedField;
 
         CustomFieldViewHolder(View block) {
             this.block = block;
@@ -72,6 +73,11 @@ public class AddEditAccountActivity extends AppCompatActivity implements Passwor
         // (Các hàm clear/updateUI giữ nguyên như cũ, tôi lược bớt để code ngắn gọn)
         void clear() {
             etLabel.setText(""); etValue.setText(""); fieldType = AccountEntry.FIELD_TYPE_TEXT; updateFieldTypeUI(this, false);
+            seal(null);
+        }
+        void seal(CustomField field) {
+            sealedField = field;
+            layoutValue.setHelperText(field != null ? "Đã mã hóa - chạm để xem / sửa" : null);
         }
         void updateFieldTypeUI(CustomFieldViewHolder vh, boolean showToast) {
             Context context = vh.block.getContext();
@@ -161,39 +167,42 @@ public class AddEditAccountActivity extends AppCompatActivity implements Passwor
         // ------------------------------------
 
         mCurrentCustomFieldCount = 0;
-        // (Logic populate custom field giữ nguyên)
         for (CustomFieldViewHolder vh : mCustomFieldViews) { vh.block.setVisibility(View.GONE); vh.clear(); }
-        Map<String, Object> fieldsMap = account.asCustomFieldsMap();
-        if (fieldsMap != null && !fieldsMap.isEmpty()) {
-            int i = 0;
-            for (Map.Entry<String, Object> entry : fieldsMap.entrySet()) {
-                if (i >= MAX_CUSTOM_FIELDS) break;
-                Object val = entry.getValue();
-                if (val instanceof Map) {
-                    Map<String, Object> map = (Map<String, Object>) val;
-                    String v = (String) map.get("value");
-                    // Nếu là field password tùy chỉnh, cũng nên giải mã (tùy bạn, ở đây tôi giữ nguyên text)
-                    int t = AccountEntry.FIELD_TYPE_TEXT;
-                    if (map.get("type") instanceof Long) t = ((Long)map.get("type")).intValue();
-                    populateCustomFieldUI(i, entry.getKey(), v, t);
-                    i++;
-                }
-            }
+        List<CustomField> fields = account.getCustomFieldList();
+        for (int i = 0; i < fields.size() && i < MAX_CUSTOM_FIELDS; i++) {
+            populateCustomFieldUI(i, fields.get(i));
         }
         updateFieldButtons();
         mIsDataLoaded = true;
     }
 
-    private void populateCustomFieldUI(int index, String label, String value, int type) {
+    private void populateCustomFieldUI(int index, CustomField field) {
         CustomFieldViewHolder vh = mCustomFieldViews.get(index);
         vh.block.setVisibility(View.VISIBLE);
-        vh.etLabel.setText(label);
-        vh.etValue.setText(value);
-        vh.fieldType = type;
+        vh.etLabel.setText(field.getName());
+        if (field.isEncrypted()) {
+            // Không giải mã khi mở màn sửa: đa số lần sửa không đụng tới trường mật khẩu
+            vh.etValue.setText("");
+            vh.seal(field);
+        } else {
+            vh.etValue.setText(field.getStoredValue());
+        }
+        vh.fieldType = field.getType();
         vh.updateFieldTypeUI(vh, false);
         mCurrentCustomFieldCount++;
     }
 
+    /**
+     * Giải mã 1 trường khi người dùng thật sự muốn xem / sửa
+     */
+    private void unsealCustomField(CustomFieldViewHolder vh) {
+        if (vh.sealedField == null) return;
+        String plain = vh.sealedField.reveal(encryptionManager::decrypt);
+        vh.seal(null);
+        vh.etValue.setText(plain != null ? plain : "");
+        vh.etValue.setSelection(vh.etValue.getText() != null ? vh.etValue.getText().length() : 0);
+    }
+
     private void setupListeners() {
         btnGeneratePassword.setOnClickListener(v -> {
             PasswordGeneratorDialog dialog = new PasswordGeneratorDialog();
@@ -216,7 +225,11 @@ public class AddEditAccountActivity extends AppCompatActivity implements Passwor
             }
         });
         for(CustomFieldViewHolder vh : mCustomFieldViews) {
+            vh.etValue.setOnFocusChangeListener((v, hasFocus) -> {
+                if (hasFocus) unsealCustomField(vh);
+            });
             vh.btnToggleType.setOnClickListener(v -> {
+                unsealCustomField(vh); // Đổi sang TEXT cần bản rõ
                 vh.fieldType = (vh.fieldType == AccountEntry.FIELD_TYPE_TEXT) ? AccountEntry.FIELD_TYPE_PASSWORD : AccountEntry.FIELD_TYPE_TEXT;
                 vh.updateFieldTypeUI(vh, true);
             });
@@ -293,19 +306,21 @@ public class AddEditAccountActivity extends AppCompatActivity implements Passwor
         account.websiteUrl = etWebsiteUrl.getText().toString().trim();
         account.notes = etNotes.getText().toString().trim();
 
-        // (Logic save custom field giữ nguyên)
-        Map<String, Object> customMap = new HashMap<>();
+        // Trường mật khẩu: ViewModel mã hóa riêng từng trường; trường chưa mở giữ nguyên ciphertext
+        List<CustomField> fields = new ArrayList<>();
         for (int i = 0; i < mCurrentCustomFieldCount; i++) {
             CustomFieldViewHolder vh = mCustomFieldViews.get(i);
             String l = vh.etLabel.getText().toString().trim();
-            if(!l.isEmpty()){
-                Map<String, Object> d = new HashMap<>();
-                d.put("value", vh.etValue.getText().toString().trim());
-                d.put("type", vh.fieldType);
-                customMap.put(l, d);
+            if (l.isEmpty()) continue;
+            if (vh.sealedField != null) {
+                fields.add(CustomField.secret(l, vh.sealedField.getStoredValue()));
+            } else {
+                String v = vh.etValue.getText().toString().trim();
+                fields.add(vh.fieldType == AccountEntry.FIELD_TYPE_PASSWORD
+                        ? CustomField.plainSecret(l, v) : CustomField.text(l, v));
             }
         }
-        account.customFields = customMap;
+        account.setCustomFieldList(fields);
 
         if (mAccountDocumentId == null) {
             // Tạo mới - không set documentId
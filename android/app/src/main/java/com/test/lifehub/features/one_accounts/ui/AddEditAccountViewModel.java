@@ -5,15 +5,19 @@ import androidx.lifecycle.ViewModel;
 
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.CustomField;
 import com.test.lifehub.features.one_accounts.repository.AccountRepository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.inject.Inject;
 import dagger.hilt.android.lifecycle.HiltViewModel;
 
 /**
  * ViewModel cho Add/Edit Account
  * 
- * Sử dụng EncryptionManager để mã hóa mật khẩu trước khi lưu Firestore.
+ * Sử dụng EncryptionManager để mã hóa mật khẩu (và trường tùy chỉnh kiểu mật khẩu) trước khi lưu Firestore.
  * EncryptionManager hỗ trợ cả legacy (Android Keystore) và cross-platform (PBKDF2).
  */
 @HiltViewModel
@@ -33,19 +37,35 @@ public class AddEditAccountViewModel extends ViewModel {
     }
 
     public void insert(AccountEntry account) {
-        // Mã hóa mật khẩu trước khi lưu (dùng cross-platform encryption)
-        if (account.password != null) {
-            account.password = mEncryptionManager.encrypt(account.password);
-        }
+        encryptSecrets(account);
         mRepository.insert(account);
     }
 
     public void update(AccountEntry account) {
-        // Mã hóa mật khẩu trước khi lưu (dùng cross-platform encryption)
+        encryptSecrets(account);
+        mRepository.update(account);
+    }
+
+    /**
+     * Mã hóa mật khẩu + từng trường tùy chỉnh kiểu PASSWORD còn văn bản thuần trước khi lưu
+     * (dùng cross-platform encryption). Trường đã mã hóa giữ nguyên ciphertext.
+     */
+    private void encryptSecrets(AccountEntry account) {
         if (account.password != null) {
             account.password = mEncryptionManager.encrypt(account.password);
         }
-        mRepository.update(account);
+        List<CustomField> fields = account.getCustomFieldList();
+        List<CustomField> sealed = new ArrayList<>(fields.size());
+        boolean changed = false;
+        for (CustomField field : fields) {
+            if (field.needsEncryption()) {
+                sealed.add(CustomField.secret(field.getName(), mEncryptionManager.encrypt(field.getStoredValue())));
+                changed = true;
+            } else {
+                sealed.add(field);
+            }
+        }
+        if (changed) account.setCustomFieldList(sealed);
     }
 
     public void delete(AccountEntry account) {
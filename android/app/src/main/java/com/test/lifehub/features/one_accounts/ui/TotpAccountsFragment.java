@@ -22,9 +22,8 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.test.lifehub.R;
-import com.test.lifehub.core.security.EncryptionHelper;
 import com.test.lifehub.core.util.SessionManager;
-import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
 import com.test.lifehub.features.authenticator.ui.AuthenticatorActivity;
 import com.test.lifehub.features.authenticator.ui.TotpAccountsAdapter;
@@ -37,8 +36,6 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.inject.Inject;
-
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -65,9 +62,6 @@ public class TotpAccountsFragment extends Fragment {
     private Handler handler;
     private Runnable updateRunnable;
 
-    @Inject
-    EncryptionHelper encryptionHelper;
-
     // Listener to notify parent fragment
     private OnFabClickListener fabClickListener;
 
@@ -150,43 +144,14 @@ public class TotpAccountsFragment extends Fragment {
      */
     private void observeAccounts() {
         Log.d(TAG, "Setting up Firestore observer...");
-        viewModel.getAllAccounts().observe(getViewLifecycleOwner(), totpAccounts -> {
+        // Secret đã giải mã + HMAC key dựng sẵn ở TotpRepository (không giải mã lại ở đây)
+        viewModel.getDecryptedAccounts().observe(getViewLifecycleOwner(), totpAccounts -> {
             Log.d(TAG, "Observer triggered with " + (totpAccounts != null ? totpAccounts.size() : 0) + " accounts");
             
             if (totpAccounts != null) {
                 accounts.clear();
-                
-                // Kiểm tra EncryptionHelper
-                if (encryptionHelper == null) {
-                    Log.e(TAG, "EncryptionHelper is NULL! Cannot decrypt secrets.");
-                    updateEmptyView();
-                    return;
-                }
-                
-                // Convert TotpAccount to TotpAccountItem
-                for (TotpAccount account : totpAccounts) {
-                    try {
-                        Log.d(TAG, "Processing account: " + account.getIssuer() + " / " + account.getAccountName());
-                        
-                        // Giải mã secret key
-                        String decryptedSecret = encryptionHelper.decrypt(account.getSecretKey());
-                        
-                        if (decryptedSecret == null || decryptedSecret.isEmpty()) {
-                            Log.e(TAG, "Failed to decrypt secret for: " + account.getIssuer());
-                            continue;
-                        }
-                        
-                        accounts.add(new AuthenticatorActivity.TotpAccountItem(
-                            account.getDocumentId(),
-                            account.getAccountName(),
-                            account.getIssuer(),
-                            decryptedSecret
-                        ));
-                        
-                        Log.d(TAG, "Successfully added account: " + account.getIssuer());
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error decrypting secret for account: " + account.getIssuer(), e);
-                    }
+                for (TotpProjection account : totpAccounts) {
+                    accounts.add(new AuthenticatorActivity.TotpAccountItem(account));
                 }
                 
                 Log.d(TAG, "Final account count in UI: " + accounts.size());
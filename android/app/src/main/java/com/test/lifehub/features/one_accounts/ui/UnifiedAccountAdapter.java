@@ -11,9 +11,14 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.test.lifehub.R;
+import com.test.lifehub.core.security.DecryptScheduler;
+import com.test.lifehub.core.security.DecryptWindow;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 import com.test.lifehub.core.util.ServiceIconHelper;
 import com.test.lifehub.core.util.TotpManager;
@@ -24,17 +29,31 @@ import java.util.List;
 
 /**
  * Unified adapter for both password and TOTP accounts with collapsible sections
+ *
+ * Danh sách hiển thị (header + item) đi qua AsyncListDiffer: DiffUtil tính trên background
+ * thread, chỉ dòng thay đổi được bind lại. UnifiedAccountMerger giữ nguyên instance của item
+ * không đổi nên so sánh nội dung chỉ cần ==.
+ *
+ * Mật khẩu không giải mã trước: dòng password đang bind xin DecryptScheduler mức VISIBLE,
+ * vài dòng kế tiếp theo hướng cuộn mức PREFETCH (DecryptWindow); bản rõ nằm sẵn trong cache
+ * của scheduler cho màn chi tiết. Dòng đầu dùng được ngay, không phụ thuộc số tài khoản.
  */
-public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+        implements DecryptWindow.Source {
 
     private static final int VIEW_TYPE_HEADER_TOTP = 0;
     private static final int VIEW_TYPE_HEADER_PASSWORD = 1;
     private static final int VIEW_TYPE_PASSWORD = 2;
     private static final int VIEW_TYPE_TOTP = 3;
 
+    private static final Object PAYLOAD_TOTP_CODE = new Object(); // Chỉ đổi mã / thời gian còn lại
+    private static final int PREFETCH_WINDOW = 8;
+
     private List<UnifiedAccountItem> allItems = new ArrayList<>();
-    private List<Object> displayList = new ArrayList<>();
+    private final AsyncListDiffer<Object> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnItemClickListener listener;
+    private DecryptScheduler decryptScheduler;  // null = không giải mã trong danh sách
+    private DecryptWindow decryptWindow;
     
     // Section expansion state
     private boolean isTotpExpanded = true;
@@ -59,6 +78,11 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
         this.listener = listener;
     }
 
+    public void setDecryptScheduler(@Nullable DecryptScheduler decryptScheduler) {
+        this.decryptScheduler = decryptScheduler;
+        this.decryptWindow = decryptScheduler != null ? new DecryptWindow(decryptScheduler, PREFETCH_WINDOW) : null;
+    }
+
     public void submitList(List<UnifiedAccountItem> newItems) {
         this.allItems = newItems != null ? newItems : new ArrayList<>();
         rebuildDisplayList();
@@ -80,7 +104,7 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
      * Rebuild the display list based on current expansion state
      */
     private void rebuildDisplayList() {
-        displayList.clear();
+        List<Object> displayList = new ArrayList<>();
         
         // Separate items by type
         List<UnifiedAccountItem> totpItems = new ArrayList<>();
@@ -113,12 +137,24 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
             }
         }
         
-        notifyDataSetChanged();
+        if (decryptWindow != null) decryptWindow.reset(); // Vị trí cũ không còn đúng
+        differ.submitList(displayList);
     }
 
     public void updateCodes() {
-        // Only update TOTP items - find their positions and update
-        notifyDataSetChanged();
+        // Only update TOTP items (liền nhau ngay sau header TOTP)
+        List<Object> displayList = differ.getCurrentList();
+        int first = -1;
+        int count = 0;
+        for (int i = 0; i < displayList.size(); i++) {
+            Object item = displayList.get(i);
+            if (item instanceof UnifiedAccountItem
+                    && ((UnifiedAccountItem) item).getType() == UnifiedAccountItem.AccountType.TOTP) {
+                if (first < 0) first = i;
+                count++;
+            }
+        }
+        if (count > 0) notifyItemRangeChanged(first, count, PAYLOAD_TOTP_CODE);
     }
     
     public boolean isTotpExpanded() {
@@ -136,7 +172,7 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
     @Override
     public int getItemViewType(int position) {
-        Object item = displayList.get(position);
+        Object item = differ.getCurrentList().get(position);
         
         if (item instanceof SectionHeader) {
             SectionHeader header = (SectionHeader) item;
@@ -174,21 +210,94 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        Object item = displayList.get(position);
+        Object item = differ.getCurrentList().get(position);
         
         if (holder instanceof SectionHeaderViewHolder) {
             ((SectionHeaderViewHolder) holder).bind((SectionHeader) item, this);
         } else if (holder instanceof PasswordViewHolder) {
-            ((PasswordViewHolder) holder).bind((UnifiedAccountItem) item, listener);
+            PasswordViewHolder passwordHolder = (PasswordViewHolder) holder;
+            UnifiedAccountItem account = (UnifiedAccountItem) item;
+            unbindPassword(passwordHolder);
+            passwordHolder.bind(account, listener);
+            if (decryptScheduler != null && account.getId() != null) {
+                passwordHolder.boundKey = account.getId();
+                decryptScheduler.request(account.getId(), account.getPassword(),
+                        DecryptScheduler.Priority.VISIBLE, passwordHolder);
+                decryptWindow.onBind(position, getItemCount(), this);
+            }
         } else if (holder instanceof TotpViewHolder) {
             ((TotpViewHolder) holder).bind((UnifiedAccountItem) item, listener);
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        if (holder instanceof PasswordViewHolder) unbindPassword((PasswordViewHolder) holder);
+    }
+
+    private void unbindPassword(PasswordViewHolder holder) {
+        if (decryptScheduler != null && holder.boundKey != null) {
+            decryptScheduler.cancel(holder.boundKey, holder);
+        }
+        holder.boundKey = null;
+    }
+
     @Override
     public int getItemCount() {
-        return displayList.size();
+        return differ.getCurrentList().size();
+    }
+
+    // --- DecryptWindow.Source: chỉ dòng mật khẩu cần giải mã ---
+    @Nullable
+    @Override
+    public String keyAt(int position) {
+        UnifiedAccountItem item = passwordItemAt(position);
+        return item != null ? item.getId() : null;
     }
+
+    @Nullable
+    @Override
+    public String cipherTextAt(int position) {
+        UnifiedAccountItem item = passwordItemAt(position);
+        return item != null ? item.getPassword() : null;
+    }
+
+    @Nullable
+    private UnifiedAccountItem passwordItemAt(int position) {
+        Object item = differ.getCurrentList().get(position);
+        if (item instanceof UnifiedAccountItem
+                && ((UnifiedAccountItem) item).getType() == UnifiedAccountItem.AccountType.PASSWORD) {
+            return (UnifiedAccountItem) item;
+        }
+        return null;
+    }
+
+    // --- DiffUtil Callback ---
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof SectionHeader && newItem instanceof SectionHeader) {
+                return ((SectionHeader) oldItem).isTotp == ((SectionHeader) newItem).isTotp;
+            }
+            if (oldItem instanceof UnifiedAccountItem && newItem instanceof UnifiedAccountItem) {
+                UnifiedAccountItem oldAccount = (UnifiedAccountItem) oldItem;
+                UnifiedAccountItem newAccount = (UnifiedAccountItem) newItem;
+                return oldAccount.getType() == newAccount.getType()
+                        && oldAccount.getId() != null && oldAccount.getId().equals(newAccount.getId());
+            }
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof SectionHeader) {
+                SectionHeader oldHeader = (SectionHeader) oldItem;
+                SectionHeader newHeader = (SectionHeader) newItem;
+                return oldHeader.isExpanded == newHeader.isExpanded && oldHeader.count == newHeader.count;
+            }
+            return oldItem == newItem; // Item không đổi được dùng lại nguyên instance
+        }
+    };
     
     // Section Header Data Class
     static class SectionHeader {
@@ -249,11 +358,12 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
     }
 
     // Password Account ViewHolder
-    static class PasswordViewHolder extends RecyclerView.ViewHolder {
+    static class PasswordViewHolder extends RecyclerView.ViewHolder implements DecryptScheduler.Callback {
         ImageView ivServiceIcon;
         TextView tvServiceName;
         TextView tvUsername;
         ImageButton btnMenu;
+        String boundKey;    // documentId đang bind
 
         PasswordViewHolder(View itemView) {
             super(itemView);
@@ -285,6 +395,11 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
                 }
             });
         }
+
+        @Override
+        public void onDecrypted(@NonNull String key, @NonNull String plainText) {
+            // Holder chỉ giữ mức VISIBLE cho dòng đang hiện; bản rõ đọc qua peek() khi mở chi tiết
+        }
     }
 
     // TOTP Account ViewHolder
@@ -316,7 +431,7 @@ public class UnifiedAccountAdapter extends RecyclerView.Adapter<RecyclerView.Vie
             tvUsername.setText(item.getUsername());
             
             // Generate TOTP code
-            String code = TotpManager.getCurrentCode(item.getSecret());
+            String code = item.getCurrentCode();
             tvTotpCode.setText(formatCode(code));
             
             // Update progress
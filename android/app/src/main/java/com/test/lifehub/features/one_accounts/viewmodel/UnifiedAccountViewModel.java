@@ -2,26 +2,30 @@ package com.test.lifehub.features.one_accounts.viewmodel;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.test.lifehub.core.security.EncryptionHelper;
+import com.test.lifehub.core.repository.RepositoryExecutors;
 import com.test.lifehub.core.util.SessionManager;
-import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
 import com.test.lifehub.features.one_accounts.repository.AccountRepository;
+import com.test.lifehub.features.one_accounts.repository.UnifiedAccountMerger;
+import com.test.lifehub.features.one_accounts.repository.VaultSearchIndex;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -31,6 +35,13 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * ViewModel thống nhất kết hợp dữ liệu từ:
  * 1. AccountRepository (password accounts từ Firebase)
  * 2. TotpRepository (TOTP accounts từ Firestore với encryption)
+ *
+ * === TÌM KIẾM ===
+ * searchResults = danh sách hợp nhất lọc theo searchQuery qua VaultSearchIndex (khớp mờ, xếp hạng).
+ * - Index và truy vấn chạy trên searchExecutor (1 thread), không chặn main thread khi gõ phím
+ * - Mỗi lần query / danh sách đổi -> tăng searchGeneration: truy vấn cũ đang chạy tự dừng,
+ *   kết quả cũ về muộn bị bỏ
+ * - Query rỗng -> trả thẳng danh sách hợp nhất, không qua index
  */
 @HiltViewModel
 public class UnifiedAccountViewModel extends ViewModel {
@@ -39,22 +50,32 @@ public class UnifiedAccountViewModel extends ViewModel {
 
     private final AccountRepository accountRepository;
     private final TotpRepository totpRepository;
-    private final EncryptionHelper encryptionHelper;
     private final SessionManager sessionManager;
     
     private final MediatorLiveData<List<UnifiedAccountItem>> unifiedAccountsLiveData;
+    private final UnifiedAccountMerger merger = new UnifiedAccountMerger();
     private final MutableLiveData<Boolean> isLoadingLiveData;
 
+    // --- Tìm kiếm (searchIndex / indexedAccounts chỉ dùng trên searchExecutor) ---
+    private final VaultSearchIndex searchIndex = new VaultSearchIndex();
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lifehub-vault-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private final MediatorLiveData<List<UnifiedAccountItem>> searchResults = new MediatorLiveData<>();
+    private List<UnifiedAccountItem> indexedAccounts;
+    private String searchQuery = "";
+
     @Inject
     public UnifiedAccountViewModel(
             AccountRepository accountRepository, 
             TotpRepository totpRepository,
-            EncryptionHelper encryptionHelper,
             SessionManager sessionManager) {
         Log.d(TAG, "UnifiedAccountViewModel created");
         this.accountRepository = accountRepository;
         this.totpRepository = totpRepository;
-        this.encryptionHelper = encryptionHelper;
         this.sessionManager = sessionManager;
         
         this.unifiedAccountsLiveData = new MediatorLiveData<>();
@@ -63,19 +84,69 @@ public class UnifiedAccountViewModel extends ViewModel {
         // Observe password accounts from AccountRepository
         unifiedAccountsLiveData.addSource(accountRepository.getAllAccounts(), passwordAccounts -> {
             Log.d(TAG, "Password accounts updated: " + (passwordAccounts != null ? passwordAccounts.size() : 0));
-            combineAccounts(passwordAccounts, totpRepository.getAllAccounts().getValue());
+            combineAccounts(passwordAccounts, totpRepository.getDecryptedAccounts().getValue());
         });
         
-        // Observe TOTP accounts from TotpRepository
-        unifiedAccountsLiveData.addSource(totpRepository.getAllAccounts(), totpAccounts -> {
+        // Observe TOTP accounts from TotpRepository (đã giải mã, dùng chung với màn Authenticator)
+        unifiedAccountsLiveData.addSource(totpRepository.getDecryptedAccounts(), totpAccounts -> {
             Log.d(TAG, "TOTP accounts updated: " + (totpAccounts != null ? totpAccounts.size() : 0));
             combineAccounts(accountRepository.getAllAccounts().getValue(), totpAccounts);
         });
+
+        searchResults.addSource(unifiedAccountsLiveData, this::runSearch);
     }
     
     public LiveData<List<UnifiedAccountItem>> getUnifiedAccounts() {
         return unifiedAccountsLiveData;
     }
+
+    /**
+     * Danh sách hợp nhất đã lọc + xếp hạng theo searchQuery (cả danh sách nếu query rỗng)
+     */
+    public LiveData<List<UnifiedAccountItem>> getSearchResults() {
+        return searchResults;
+    }
+
+    /**
+     * Đổi query (gọi mỗi lần gõ phím) - truy vấn trước đó chưa xong sẽ bị hủy
+     */
+    public void setSearchQuery(@Nullable String query) {
+        String normalized = query != null ? query.trim() : "";
+        if (normalized.equals(searchQuery)) return;
+        searchQuery = normalized;
+        runSearch(unifiedAccountsLiveData.getValue());
+    }
+
+    private void runSearch(@Nullable List<UnifiedAccountItem> accounts) {
+        final int generation = searchGeneration.incrementAndGet();
+        final List<UnifiedAccountItem> snapshot = accounts != null ? accounts : new ArrayList<>();
+        final String query = searchQuery;
+        if (query.isEmpty()) {
+            searchResults.setValue(snapshot);
+        }
+
+        searchExecutor.execute(() -> {
+            // Luôn đồng bộ index (kể cả khi query rỗng) để lần gõ đầu tiên không phải chờ dựng
+            if (snapshot != indexedAccounts) {
+                searchIndex.sync(snapshot);
+                indexedAccounts = snapshot;
+            }
+            if (query.isEmpty() || generation != searchGeneration.get()) return;
+
+            List<UnifiedAccountItem> results = searchIndex.search(query, () -> generation != searchGeneration.get());
+            if (results == null) return; // Đã có query mới hơn
+            RepositoryExecutors.runOnMain(() -> {
+                if (generation == searchGeneration.get()) searchResults.setValue(results);
+            });
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        searchGeneration.incrementAndGet();
+        searchExecutor.shutdownNow();
+    }
     
     public LiveData<Boolean> isLoading() {
         return isLoadingLiveData;
@@ -91,58 +162,15 @@ public class UnifiedAccountViewModel extends ViewModel {
     
     /**
      * Combine password accounts and TOTP accounts into unified list
+     * (UnifiedAccountMerger: chỉ tạo item cho tài khoản đổi, trộn tuyến tính 2 nguồn đã sắp xếp)
      */
-    private void combineAccounts(List<AccountEntry> passwordAccounts, List<TotpAccount> totpAccounts) {
-        Log.d(TAG, "Combining accounts - Password: " + 
-            (passwordAccounts != null ? passwordAccounts.size() : 0) + 
-            ", TOTP: " + (totpAccounts != null ? totpAccounts.size() : 0));
-        
-        List<UnifiedAccountItem> unifiedList = new ArrayList<>();
-        
-        // Add password accounts (handle null safely)
-        if (passwordAccounts != null && !passwordAccounts.isEmpty()) {
-            for (AccountEntry account : passwordAccounts) {
-                unifiedList.add(new UnifiedAccountItem(account));
-            }
-        }
-        
-        // Add TOTP accounts from Firestore
-        if (totpAccounts != null && !totpAccounts.isEmpty()) {
-            for (TotpAccount account : totpAccounts) {
-                try {
-                    // Decrypt secret key
-                    String decryptedSecret = encryptionHelper.decrypt(account.getSecretKey());
-                    
-                    if (decryptedSecret != null && !decryptedSecret.isEmpty()) {
-                        // UnifiedAccountItem(documentId, serviceName, username, secret, issuer)
-                        unifiedList.add(new UnifiedAccountItem(
-                            account.getDocumentId(),
-                            account.getIssuer(),
-                            account.getAccountName(),
-                            decryptedSecret,
-                            account.getIssuer()
-                        ));
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error decrypting TOTP account: " + account.getIssuer(), e);
-                }
-            }
-        }
-        
-        // Sort by service name
-        Collections.sort(unifiedList, new Comparator<UnifiedAccountItem>() {
-            @Override
-            public int compare(UnifiedAccountItem o1, UnifiedAccountItem o2) {
-                String name1 = o1.getServiceName() != null ? o1.getServiceName() : "";
-                String name2 = o2.getServiceName() != null ? o2.getServiceName() : "";
-                return name1.compareToIgnoreCase(name2);
-            }
-        });
-        
-        Log.d(TAG, "Total unified accounts: " + unifiedList.size());
+    private void combineAccounts(List<AccountEntry> passwordAccounts, List<TotpProjection> totpAccounts) {
+        List<UnifiedAccountItem> unifiedList = merger.merge(passwordAccounts, totpAccounts);
+        Log.d(TAG, "Total unified accounts: " + unifiedList.size()
+                + " (reused " + merger.getReusedCount() + ", created " + merger.getCreatedCount() + ")");
         unifiedAccountsLiveData.setValue(unifiedList);
     }
-    
+
     /**
      * Load TOTP accounts from SessionManager
      * JSON structure: {"accountName": "user@example.com", "issuer": "Google", "secret": "ABCD1234..."}
@@ -27,6 +27,7 @@ import com.google.firebase.auth.EmailAuthProvider;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.test.lifehub.R;
+import com.test.lifehub.core.local.LocalMirror;
 import com.test.lifehub.core.util.SessionManager;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
 import com.test.lifehub.features.one_accounts.repository.AccountRepository;
@@ -74,6 +75,9 @@ public class ChangePasswordActivity extends AppCompatActivity {
     @Inject
     ProductivityRepository productivityRepository;
 
+    @Inject
+    LocalMirror localMirror;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -353,6 +357,7 @@ public class ChangePasswordActivity extends AppCompatActivity {
         accountRepository.stopListening();
         calendarRepository.stopListening();
         productivityRepository.stopListening();
+        localMirror.clear(); // Xóa bản sao offline trên disk
         
         sessionManager.logoutUser();
         mAuth.signOut();
@@ -26,6 +26,7 @@ import com.google.android.material.materialswitch.MaterialSwitch;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.test.lifehub.R;
+import com.test.lifehub.core.local.LocalMirror;
 import com.test.lifehub.core.security.BiometricHelper;
 import com.test.lifehub.core.services.LifeHubAutofillService;
 import com.test.lifehub.core.util.LocaleHelper;
@@ -74,6 +75,9 @@ public class SettingsFragment extends Fragment implements BiometricHelper.Biomet
     @Inject
     ProductivityRepository productivityRepository;
 
+    @Inject
+    LocalMirror localMirror;
+
     private FirebaseAuth mAuth;
 
     // --- CÁC CỜ ĐIỀU KHIỂN LOGIC XÁC THỰC ---
@@ -162,6 +166,7 @@ public class SettingsFragment extends Fragment implements BiometricHelper.Biomet
             accountRepository.stopListening();
             calendarRepository.stopListening();
             productivityRepository.stopListening();
+            localMirror.clear(); // Xóa bản sao offline trên disk
             
             encryptionManager.lock();
             sessionManager.logoutUser();
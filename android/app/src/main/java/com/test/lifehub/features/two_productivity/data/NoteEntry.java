@@ -1,6 +1,8 @@
 package com.test.lifehub.features.two_productivity.data;
 
 import com.google.firebase.firestore.Exclude;
+import com.test.lifehub.codec.FirestoreCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
 import java.util.Date;
 
 /**
@@ -54,7 +56,8 @@ import java.util.Date;
  * @see ProductivityRepository Repository quản lý notes
  * @see NoteReminderHelper Helper đặt reminder cho notes
  */
-public class NoteEntry {
+@FirestoreCodec
+public class NoteEntry extends TrackedDocument {
 
     // ===== FIRESTORE DOCUMENT ID =====
     /**
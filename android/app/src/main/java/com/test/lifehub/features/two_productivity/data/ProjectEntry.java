@@ -1,6 +1,8 @@
 package com.test.lifehub.features.two_productivity.data;
 
 import com.google.firebase.firestore.Exclude;
+import com.test.lifehub.codec.FirestoreCodec;
+import com.test.lifehub.core.util.NameSortKey;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -74,6 +76,7 @@ import java.util.Date;
  * @see ProductivityRepository Repository quản lý projects
  * @see TaskEntry Tasks thuộc projects
  */
+@FirestoreCodec
 public class ProjectEntry implements Serializable {
 
     // ===== FIRESTORE DOCUMENT ID =====
@@ -89,6 +92,9 @@ public class ProjectEntry implements Serializable {
     // ✅ THÊM: ID của thư mục cha (null = root)
     private String projectId;
 
+    // Khóa sắp xếp theo tên (không lưu Firestore, tính lại khi tên đổi)
+    private transient NameSortKey sortKey;
+
     public ProjectEntry() {
         // Constructor rỗng
     }
@@ -122,6 +128,15 @@ public class ProjectEntry implements Serializable {
     public String getProjectId() { return projectId; }
     public void setProjectId(String projectId) { this.projectId = projectId; }
 
+    /**
+     * Khóa sắp xếp theo tên (bảng chữ cái tiếng Việt), tính 1 lần và cache lại
+     */
+    @Exclude
+    public NameSortKey getSortKey() {
+        sortKey = NameSortKey.reuse(sortKey, name);
+        return sortKey;
+    }
+
     @Exclude
     public String getDocumentId() { return documentId; }
     @Exclude
@@ -2,6 +2,8 @@ package com.test.lifehub.features.two_productivity.data;
 
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.PropertyName;
+import com.test.lifehub.codec.FirestoreCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
 import java.util.Date;
 
 /**
@@ -66,7 +68,8 @@ import java.util.Date;
  * @see TaskReminderHelper Helper đặt reminder cho tasks
  * @see ProjectEntry Project chứa task
  */
-public class TaskEntry {
+@FirestoreCodec
+public class TaskEntry extends TrackedDocument {
 
     // ===== FIRESTORE DOCUMENT ID =====
     @Exclude
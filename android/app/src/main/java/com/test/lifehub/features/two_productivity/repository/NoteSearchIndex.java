@@ -0,0 +1,218 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.util.TextFolding;
+import com.test.lifehub.features.two_productivity.data.NoteEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * NoteSearchIndex - Chỉ mục đảo (inverted index) cho tìm kiếm ghi chú
+ *
+ * === VẤN ĐỀ CŨ ===
+ * NotesListActivity quét contains() qua title + content của TẤT CẢ ghi chú mỗi lần gõ phím,
+ * và gõ không dấu ("ghi chu") không tìm được "ghi chú".
+ *
+ * === CÁCH LÀM ===
+ * - Mỗi ghi chú được tách thành từ (TextFolding: NFD, bỏ dấu, chữ thường)
+ * - postings: từ -> (noteId -> title / nội dung), sắp xếp theo từ (TreeMap) để tìm theo
+ *   TIỀN TỐ: "gh" khớp "ghi", "ghim" bằng 1 subMap thay vì duyệt mọi từ
+ * - Câu truy vấn nhiều từ: ghi chú phải khớp TẤT CẢ các từ (AND), từ nào cũng là tiền tố;
+ *   từ hiếm xét trước, các từ sau chỉ tra trong tập ứng viên còn lại
+ * - Cập nhật theo Diff của store Notes (apply): chỉ gỡ / thêm từ của ghi chú thay đổi
+ *
+ * === XẾP HẠNG ===
+ * 1. Nhiều từ khớp ở TIÊU ĐỀ hơn đứng trước (khớp tiêu đề > chỉ khớp nội dung)
+ * 2. Cùng hạng: mới sửa trước (giống thứ tự danh sách)
+ *
+ * === THREAD ===
+ * Main thread (ProductivityViewModel giữ đồng bộ qua DiffFollower).
+ */
+public class NoteSearchIndex {
+
+    private static final int IN_TITLE = 1;
+    private static final int IN_CONTENT = 2;
+
+    /**
+     * 1 ghi chú đã index: từ + vị trí xuất hiện được giữ lại để gỡ đúng khi ghi chú đổi / bị xóa
+     */
+    private static final class Doc {
+        final String id;
+        final NoteEntry note;
+        final long lastModified;          // Long.MIN_VALUE nếu không có -> xếp cuối
+        final Map<String, Integer> terms; // Từ -> IN_TITLE | IN_CONTENT
+
+        // Trạng thái của lần search() đang chạy (tránh tạo HashMap ứng viên mỗi lần gõ phím)
+        int searchStamp;
+        int matchedTerms;
+        int titleMask;                    // Bit i = từ truy vấn thứ i khớp ở tiêu đề
+
+        Doc(String id, NoteEntry note, Map<String, Integer> terms) {
+            this.id = id;
+            this.note = note;
+            this.lastModified = note.getLastModified() != null ? note.getLastModified().getTime() : Long.MIN_VALUE;
+            this.terms = terms;
+        }
+    }
+
+    /** Nhiều từ khớp ở tiêu đề trước, rồi mới sửa trước */
+    private static final Comparator<Doc> RANKING = (a, b) -> {
+        int c = Integer.compare(Integer.bitCount(b.titleMask), Integer.bitCount(a.titleMask));
+        if (c != 0) return c;
+        c = Long.compare(b.lastModified, a.lastModified);
+        return c != 0 ? c : a.id.compareTo(b.id);
+    };
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final TreeMap<String, Map<Doc, Integer>> postings = new TreeMap<>();
+    private int searchStamp = 0;
+
+    // ===== CẬP NHẬT =====
+
+    /**
+     * Dựng lại toàn bộ (lần đầu / sau khi mất đồng bộ)
+     */
+    public void reset(@NonNull List<NoteEntry> notes) {
+        docs.clear();
+        postings.clear();
+        for (NoteEntry note : notes) put(note);
+    }
+
+    /**
+     * Áp dụng Diff của store Notes
+     */
+    public void apply(@NonNull SnapshotStore.Diff<NoteEntry> diff) {
+        for (String id : diff.removedIds) remove(id);
+        for (NoteEntry note : diff.added) put(note);
+        for (NoteEntry note : diff.modified) put(note);
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    private void put(NoteEntry note) {
+        if (note.documentId == null) return;
+        remove(note.documentId);
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : TextFolding.tokenize(note.getTitle())) terms.merge(term, IN_TITLE, (a, b) -> a | b);
+        for (String term : TextFolding.tokenize(note.getContent())) terms.merge(term, IN_CONTENT, (a, b) -> a | b);
+
+        Doc doc = new Doc(note.documentId, note, terms);
+        docs.put(doc.id, doc);
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(doc, term.getValue());
+        }
+    }
+
+    private void remove(String id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) return;
+        for (String term : doc.terms.keySet()) {
+            Map<Doc, Integer> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(doc);
+            if (posting.isEmpty()) postings.remove(term);
+        }
+    }
+
+    // ===== TÌM KIẾM =====
+
+    /**
+     * Ghi chú khớp mọi từ trong truy vấn (mỗi từ khớp theo tiền tố, không phân biệt dấu),
+     * đã xếp hạng. Truy vấn rỗng -> danh sách rỗng.
+     */
+    @NonNull
+    public List<NoteEntry> search(@Nullable String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextFolding.tokenize(query))); // Bỏ từ trùng
+        if (terms.isEmpty()) return Collections.emptyList();
+
+        // Từ hiếm trước: tập ứng viên nhỏ ngay từ đầu, các từ sau chỉ kiểm tra ứng viên còn lại
+        List<SortedMap<String, Map<Doc, Integer>>> ranges = new ArrayList<>(terms.size());
+        List<Integer> order = new ArrayList<>(terms.size());
+        final int[] estimates = new int[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            SortedMap<String, Map<Doc, Integer>> range =
+                    postings.subMap(terms.get(i), terms.get(i) + Character.MAX_VALUE);
+            if (range.isEmpty()) return Collections.emptyList();
+            for (Map<Doc, Integer> posting : range.values()) estimates[i] += posting.size();
+            ranges.add(range);
+            order.add(i);
+        }
+        Collections.sort(order, (a, b) -> Integer.compare(estimates[a], estimates[b]));
+
+        final int stamp = ++searchStamp;
+        List<Doc> candidates = null;
+        for (int step = 0; step < order.size(); step++) {
+            int termIndex = order.get(step);
+            int termBit = 1 << Math.min(termIndex, 30); // Khớp tiêu đề nhiều lần vẫn chỉ tính 1 từ
+            for (Map<Doc, Integer> posting : ranges.get(termIndex).values()) {
+                if (candidates == null) {
+                    for (Map.Entry<Doc, Integer> entry : posting.entrySet()) {
+                        Doc doc = entry.getKey();
+                        if (doc.searchStamp != stamp) {
+                            doc.searchStamp = stamp;
+                            doc.matchedTerms = 1;
+                            doc.titleMask = 0;
+                        }
+                        if ((entry.getValue() & IN_TITLE) != 0) doc.titleMask |= termBit;
+                    }
+                } else if (posting.size() <= candidates.size()) {
+                    for (Map.Entry<Doc, Integer> entry : posting.entrySet()) {
+                        markMatched(entry.getKey(), entry.getValue(), stamp, step, termBit);
+                    }
+                } else {
+                    // Từ phổ biến: chỉ tra các ứng viên còn lại thay vì duyệt cả posting
+                    for (Doc doc : candidates) {
+                        Integer fields = posting.get(doc);
+                        if (fields != null) markMatched(doc, fields, stamp, step, termBit);
+                    }
+                }
+            }
+
+            List<Doc> survivors = new ArrayList<>();
+            if (candidates == null) {
+                for (Map<Doc, Integer> posting : ranges.get(termIndex).values()) {
+                    for (Doc doc : posting.keySet()) {
+                        if (doc.matchedTerms == 1) {
+                            doc.matchedTerms = 2; // Đánh dấu đã thêm (1 ghi chú có thể nằm ở nhiều từ của range)
+                            survivors.add(doc);
+                        }
+                    }
+                }
+                for (Doc doc : survivors) doc.matchedTerms = 1;
+            } else {
+                for (Doc doc : candidates) {
+                    if (doc.matchedTerms == step + 1) survivors.add(doc);
+                }
+            }
+            if (survivors.isEmpty()) return Collections.emptyList();
+            candidates = survivors;
+        }
+
+        Collections.sort(candidates, RANKING);
+        List<NoteEntry> notes = new ArrayList<>(candidates.size());
+        for (Doc doc : candidates) notes.add(doc.note);
+        return notes;
+    }
+
+    /**
+     * Ứng viên còn sống (đã khớp đủ step từ trước) khớp thêm từ hiện tại
+     */
+    private static void markMatched(Doc doc, int fields, int stamp, int step, int termBit) {
+        if (doc.searchStamp != stamp || doc.matchedTerms < step) return;
+        doc.matchedTerms = step + 1;
+        if ((fields & IN_TITLE) != 0) doc.titleMask |= termBit;
+    }
+}
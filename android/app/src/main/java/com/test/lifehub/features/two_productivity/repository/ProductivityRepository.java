@@ -5,21 +5,45 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
+import com.test.lifehub.core.codec.CodecSupport;
+import com.test.lifehub.core.local.LocalMirror;
+import com.test.lifehub.core.repository.DemandActivation;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexer;
+import com.test.lifehub.core.repository.FirestorePagingSource;
+import com.test.lifehub.core.repository.RepositoryExecutors;
+import com.test.lifehub.core.repository.SnapshotBatch;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.repository.WriteBehindQueue;
 import com.test.lifehub.core.util.Constants;
 import com.test.lifehub.features.two_productivity.data.NoteEntry;
+import com.test.lifehub.features.two_productivity.data.NoteEntryCodec;
 import com.test.lifehub.features.two_productivity.data.ProjectEntry;
+import com.test.lifehub.features.two_productivity.data.ProjectEntryCodec;
 import com.test.lifehub.features.two_productivity.data.TaskEntry;
+import com.test.lifehub.features.two_productivity.data.TaskEntryCodec;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import dagger.hilt.android.scopes.ActivityRetainedScoped; // <-- THÊM IMPORT NÀY
@@ -58,14 +82,27 @@ import dagger.hilt.android.scopes.ActivityRetainedScoped; // <-- THÊM IMPORT N
  * 3. Task Organization: Tasks có thể thuộc project hoặc ở root level
  * 4. Shopping List: Task loại 1 (taskType=1) là shopping items
  * 5. User Isolation: Mỗi user chỉ thấy data của mình
+ * 6. Paging: createNotePagingSource() / createTaskPagingSource() cho danh sách dài
+ *    (trang đầu realtime, các trang sau dùng cursor startAfter)
+ * 7. Offline-first: LocalMirror đổ notes / tasks / projects từ disk vào store khi mở app,
+ *    listener Firestore chạy nền và chỉ phát phần khác biệt
+ * 8. Write-behind: insert / update / delete đi qua WriteBehindQueue (gộp theo document,
+ *    commit chung bằng WriteBatch); xóa thư mục tự ghi theo batch riêng (mục 12)
+ * 9. Optimistic: update / delete hiện lên store ngay, ghi lỗi -> lấy lại bản trong cache Firestore
+ * 10. getNoteById(): qua DocumentListenerMultiplexer (store Notes hoặc 1 listener dùng chung, tự gỡ)
+ * 11. Theo nhu cầu: mỗi collection có 1 DemandActivation - listener bật khi LiveData có observer,
+ *     tạm dừng sau grace period khi không còn ai xem (dữ liệu giữ nguyên)
+ * 12. Xóa thư mục: deleteProjectSubtree() xóa cả thư mục con / cháu, task bên trong được
+ *     đưa ra ngoài hoặc xóa theo; ghi theo batch 500 thao tác, có tiến độ / tiếp tục / hoàn tác
+ *     (ProjectSubtreeOperation)
  * 
  * === DEPENDENCIES ===
  * @Inject FirebaseAuth: Lấy userId hiện tại
  * @Inject FirebaseFirestore: Truy xuất Firestore database
  * 
  * === LIFECYCLE ===
- * 1. Constructor: Tự động gọi startListening()
- * 2. startListening(): Bắt đầu 3 listeners (notes, tasks, projects)
+ * 1. Constructor: gắn user hiện tại (bindCurrentUser), KHÔNG bật listener
+ * 2. LiveData có observer -> listener của collection đó bật; startListening() bật trước cả 3
  * 3. stopListening(): Dừng tất cả listeners (gọi khi logout)
  * 
  * === LƯU Ý BẢO MẬT ===
@@ -74,10 +111,7 @@ import dagger.hilt.android.scopes.ActivityRetainedScoped; // <-- THÊM IMPORT N
  * - Gọi stopListening() khi logout để tránh memory leak
  * 
  * === PHÁT TRIỂN TIẾP ===
- * TODO: Thêm offline support với Firestore persistence
- * TODO: Implement pagination cho danh sách lớn (>100 items)
  * TODO: Thêm query filter theo date range
- * TODO: Thêm batch operations cho performance
  * 
  * @see NoteEntry POJO cho ghi chú
  * @see TaskEntry POJO cho task
@@ -89,42 +123,107 @@ public class ProductivityRepository {
 
     private static final String TAG = "ProductivityRepo";
     private static final String COLLECTION_PROJECTS = "projects";
+    private static final int MAX_IN_QUERY_VALUES = 30; // Giới hạn whereIn của Firestore
 
     // ===== DEPENDENCIES =====
     private final FirebaseAuth mAuth;         // Firebase Authentication
     private final FirebaseFirestore mDb;      // Firestore Database
+    private final LocalMirror mLocalMirror;   // Bản sao offline trên disk
+    private final WriteBehindQueue mWriteQueue; // Hàng đợi ghi (gộp + WriteBatch)
+    private final DocumentListenerMultiplexer mDocuments; // LiveData từng document (ref-count)
     
     // ===== COLLECTION REFERENCES =====
     private CollectionReference mNotesCollection;     // Reference đến notes collection
     private CollectionReference mTasksCollection;     // Reference đến tasks collection
     private CollectionReference mProjectsCollection;  // Reference đến projects collection
 
-    // ===== LIVEDATA =====
-    // LiveData cho UI observe - tự động update UI khi data thay đổi
-    private final MutableLiveData<List<NoteEntry>> mAllNotes = new MutableLiveData<>();
-    private final MutableLiveData<List<TaskEntry>> mAllTasks = new MutableLiveData<>();
-    private final MutableLiveData<List<TaskEntry>> mAllShoppingItems = new MutableLiveData<>();
-    private final MutableLiveData<List<ProjectEntry>> mAllProjects = new MutableLiveData<>();
+    // ===== IN-MEMORY STORES + LIVEDATA =====
+    // Giữ cùng thứ tự với query Firestore; chỉ áp dụng DocumentChange mỗi snapshot.
+    // Map / sort chạy trên background thread, publisher đưa list + diff về main thread cho UI observe.
+    private final SnapshotPublisher<NoteEntry> notePublisher = new SnapshotPublisher<>(TAG, "Notes",
+            new SnapshotStore<>(
+                    ProductivityRepository::mapNote,
+                    note -> note.getLastModified() != null ? note.getLastModified().getTime() : null,
+                    Comparator.nullsLast(Comparator.<Long>reverseOrder())));
+    // Tasks và Shopping cùng 1 collection -> 2 store, mapper lọc theo taskType
+    // (task đổi loại sẽ tự động bị gỡ khỏi store cũ)
+    private final SnapshotPublisher<TaskEntry> taskPublisher = new SnapshotPublisher<>(TAG, "Tasks",
+            new SnapshotStore<>(
+                    (documentId, data) -> mapTask(documentId, data, false),
+                    task -> task.getLastModified() != null ? task.getLastModified().getTime() : null,
+                    Comparator.nullsLast(Comparator.<Long>reverseOrder())));
+    private final SnapshotPublisher<TaskEntry> shoppingPublisher = new SnapshotPublisher<>(TAG, "Shopping items",
+            new SnapshotStore<>(
+                    (documentId, data) -> mapTask(documentId, data, true),
+                    task -> task.getLastModified() != null ? task.getLastModified().getTime() : null,
+                    Comparator.nullsLast(Comparator.<Long>reverseOrder())));
+    private final SnapshotPublisher<ProjectEntry> projectPublisher = new SnapshotPublisher<>(TAG, "Projects",
+            new SnapshotStore<>(
+                    ProductivityRepository::mapProject,
+                    ProjectEntry::getSortKey,
+                    Comparator.naturalOrder()));
     
     // ✅ BẢO MẬT: Track user để detect user change
     private String currentUserId = null;
     private ListenerRegistration notesListener = null;
     private ListenerRegistration tasksListener = null;
     private ListenerRegistration projectsListener = null;
+    private LocalMirror.Session notesMirror = null;
+    private LocalMirror.Session tasksMirror = null;
+    private LocalMirror.Session projectsMirror = null;
+    // Mỗi collection chỉ có listener khi có màn hình đang xem (hoặc được warm-up)
+    private final DemandActivation notesActivation =
+            new DemandActivation("Notes", this::listenNotes, this::pauseNotes);
+    private final DemandActivation tasksActivation =
+            new DemandActivation("Tasks", this::listenTasks, this::pauseTasks);
+    private final DemandActivation projectsActivation =
+            new DemandActivation("Projects", this::listenProjects, this::pauseProjects);
 
     @Inject
-    public ProductivityRepository(FirebaseAuth auth, FirebaseFirestore db) {
+    public ProductivityRepository(FirebaseAuth auth, FirebaseFirestore db, LocalMirror localMirror,
+                                  WriteBehindQueue writeQueue,
+                                  DocumentListenerMultiplexer documents) {
         this.mAuth = auth;
         this.mDb = db;
+        this.mLocalMirror = localMirror;
+        this.mWriteQueue = writeQueue;
+        this.mDocuments = documents;
         
-        // ✅ BẢO MẬT: Khởi tạo listener với user tracking
-        startListening();
+        // ✅ BẢO MẬT: Gắn user + collection (ghi được ngay); listener bật khi LiveData có observer
+        bindCurrentUser();
+        notePublisher.bindActivation(notesActivation);
+        taskPublisher.bindActivation(tasksActivation);     // Tasks + Shopping dùng chung 1 listener
+        shoppingPublisher.bindActivation(tasksActivation);
+        projectPublisher.bindActivation(projectsActivation);
     }
     
     /**
-     * ✅ BẢO MẬT: Bắt đầu listening với user change detection
+     * Bắt đầu lắng nghe ngay cả 3 collection (warm-up); bình thường mỗi listener
+     * tự bật khi LiveData tương ứng có observer
      */
     public void startListening() {
+        notesActivation.warmUp();
+        tasksActivation.warmUp();
+        projectsActivation.warmUp();
+    }
+
+    public DemandActivation getNotesActivation() {
+        return notesActivation;
+    }
+
+    public DemandActivation getTasksActivation() {
+        return tasksActivation;
+    }
+
+    public DemandActivation getProjectsActivation() {
+        return projectsActivation;
+    }
+
+    /**
+     * ✅ BẢO MẬT: Gắn user hiện tại + collection references với user change detection
+     * (không gắn listener)
+     */
+    public void bindCurrentUser() {
         FirebaseUser user = mAuth.getCurrentUser();
         if (user == null) {
             Log.e(TAG, "User not logged in, cannot start listening");
@@ -142,11 +241,8 @@ public class ProductivityRepository {
             clearAllData();
         }
         
-        // Nếu đã listening cho cùng user, skip
-        if (currentUserId != null && currentUserId.equals(newUserId) && notesListener != null) {
-            Log.d(TAG, "Already listening for user: " + newUserId);
-            return;
-        }
+        // Đã gắn cho cùng user, skip
+        if (newUserId.equals(currentUserId) && mNotesCollection != null) return;
         
         currentUserId = newUserId;
         String uid = user.getUid();
@@ -155,9 +251,51 @@ public class ProductivityRepository {
         mProjectsCollection = mDb.collection(Constants.COLLECTION_USERS).document(uid).collection(COLLECTION_PROJECTS);
 
         Log.d(TAG, "Repository initialized. User: " + uid);
-        listenForNoteChanges();
-        listenForTaskChanges();
-        listenForProjectChanges();
+    }
+
+    // ----- Bật / tạm dừng từng collection (DemandActivation, main thread) -----
+    private void listenNotes() {
+        bindCurrentUser();
+        if (currentUserId != null && notesListener == null) listenForNoteChanges();
+    }
+
+    private void listenTasks() {
+        bindCurrentUser();
+        if (currentUserId != null && tasksListener == null) listenForTaskChanges();
+    }
+
+    private void listenProjects() {
+        bindCurrentUser();
+        if (currentUserId != null && projectsListener == null) listenForProjectChanges();
+    }
+
+    // Tạm dừng: gỡ listener, GIỮ dữ liệu (mở lại hiện ngay, snapshot đầu tiên đối chiếu lại)
+    private void pauseNotes() {
+        if (notesListener == null) return;
+        notesListener.remove();
+        notesListener = null;
+        notesMirror = closeMirror(notesMirror);
+        notePublisher.pause();
+        Log.d(TAG, "⏸️ Tạm dừng listener Notes (không còn màn hình nào xem)");
+    }
+
+    private void pauseTasks() {
+        if (tasksListener == null) return;
+        tasksListener.remove();
+        tasksListener = null;
+        tasksMirror = closeMirror(tasksMirror);
+        taskPublisher.pause();
+        shoppingPublisher.pause();
+        Log.d(TAG, "⏸️ Tạm dừng listener Tasks (không còn màn hình nào xem)");
+    }
+
+    private void pauseProjects() {
+        if (projectsListener == null) return;
+        projectsListener.remove();
+        projectsListener = null;
+        projectsMirror = closeMirror(projectsMirror);
+        projectPublisher.pause();
+        Log.d(TAG, "⏸️ Tạm dừng listener Projects (không còn màn hình nào xem)");
     }
     
     /**
@@ -165,6 +303,9 @@ public class ProductivityRepository {
      * Gọi khi user logout để tránh data leak
      */
     public void stopListening() {
+        notesActivation.reset();
+        tasksActivation.reset();
+        projectsActivation.reset();
         if (notesListener != null) {
             notesListener.remove();
             notesListener = null;
@@ -177,6 +318,10 @@ public class ProductivityRepository {
             projectsListener.remove();
             projectsListener = null;
         }
+        notesMirror = closeMirror(notesMirror);
+        tasksMirror = closeMirror(tasksMirror);
+        projectsMirror = closeMirror(projectsMirror);
+        mWriteQueue.flush(); // Không để write của user cũ nằm lại trong cửa sổ gộp
         currentUserId = null;
         Log.d(TAG, "Stopped all Firestore listeners");
     }
@@ -186,105 +331,197 @@ public class ProductivityRepository {
      * Gọi khi user logout hoặc switch user
      */
     private void clearAllData() {
-        mAllNotes.setValue(new ArrayList<>());
-        mAllTasks.setValue(new ArrayList<>());
-        mAllShoppingItems.setValue(new ArrayList<>());
-        mAllProjects.setValue(new ArrayList<>());
+        // reset() cũng bỏ qua snapshot của listener cũ còn nằm trong hàng đợi background
+        notePublisher.reset();
+        taskPublisher.reset();
+        shoppingPublisher.reset();
+        projectPublisher.reset();
         Log.d(TAG, "Cleared all LiveData");
     }
 
+    private static LocalMirror.Session closeMirror(LocalMirror.Session session) {
+        if (session != null) session.close();
+        return null;
+    }
+
     private void listenForNoteChanges() {
         if (mNotesCollection == null) return;
+        final int generation = notePublisher.beginListener();
+        final LocalMirror.Session session = mLocalMirror.open(currentUserId, Constants.COLLECTION_NOTES);
+        notesMirror = session;
+        session.load(documents -> notePublisher.seed(documents, generation));
         notesListener = mNotesCollection.orderBy("lastModified", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshot, e) -> {
+                .addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
                     if (e != null) { Log.w(TAG, "❌ Lỗi lắng nghe Notes", e); return; }
-                    if (snapshot != null) {
-                        List<NoteEntry> notes = snapshot.toObjects(NoteEntry.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            notes.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-                        mAllNotes.setValue(notes);
-                        Log.d(TAG, "✅ Notes updated: " + notes.size() + " items");
-                    }
+                    if (snapshot == null) return;
+                    SnapshotBatch batch = SnapshotBatch.of(snapshot);
+                    notePublisher.publish(batch, generation);
+                    session.record(batch);
                 });
     }
 
     /**
      * ✅ SỬA LỖI (Index): Đơn giản hóa Query để không cần Index
      * Chúng ta sẽ sắp xếp (sort) ở client (Activity/ViewModel)
+     *
+     * Không orderBy: document cũ thiếu lastModified vẫn về (store tự sắp xếp),
+     * để backfillPagingFields() bổ sung trường cho query phân trang
      */
     private void listenForTaskChanges() {
         if (mTasksCollection == null) return;
         Log.d(TAG, "Lắng nghe TẤT CẢ Tasks...");
 
-        // Query đơn giản nhất: Lấy tất cả, sắp xếp theo thời gian
-        tasksListener = mTasksCollection.orderBy("lastModified", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshot, e) -> {
+        // Query đơn giản nhất: Lấy tất cả
+        final int taskGeneration = taskPublisher.beginListener();
+        final int shoppingGeneration = shoppingPublisher.beginListener();
+        final LocalMirror.Session session = mLocalMirror.open(currentUserId, Constants.COLLECTION_TASKS);
+        tasksMirror = session;
+        session.load(documents -> {
+            taskPublisher.seed(documents, taskGeneration);
+            shoppingPublisher.seed(documents, shoppingGeneration);
+        });
+        tasksListener = mTasksCollection
+                .addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
                     if (e != null) {
                         Log.w(TAG, "❌ Lỗi lắng nghe Tasks", e);
                         return;
                     }
                     if (snapshot != null) {
-                        List<TaskEntry> allTasks = snapshot.toObjects(TaskEntry.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            allTasks.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-
-                        // Lọc ra 2 danh sách
-                        List<TaskEntry> generalTasks = new ArrayList<>();
-                        List<TaskEntry> shoppingItems = new ArrayList<>();
-                        for (TaskEntry task : allTasks) {
-                            if (task.getTaskType() == Constants.TASK_TYPE_SHOPPING) {
-                                shoppingItems.add(task);
-                            } else {
-                                generalTasks.add(task); // Bao gồm cả task trong project
-                            }
-                        }
-
-                        // Cập nhật cả 2 LiveData
-                        mAllTasks.setValue(generalTasks);
-                        mAllShoppingItems.setValue(shoppingItems);
-                        Log.d(TAG, "✅ Tasks updated: " + generalTasks.size() + " tasks, " + shoppingItems.size() + " shopping items");
+                        // Cùng snapshot áp dụng cho 2 store (task thường / shopping);
+                        // LiveData nào không có thay đổi sẽ không bị phát lại.
+                        // Raw data chỉ đọc 1 lần cho cả 2 store + LocalMirror
+                        SnapshotBatch batch = SnapshotBatch.of(snapshot);
+                        taskPublisher.publish(batch, taskGeneration);
+                        shoppingPublisher.publish(batch, shoppingGeneration);
+                        session.record(batch);
+                        backfillPagingFields(batch);
                     }
                 });
     }
 
-    // Lắng nghe Projects (sắp xếp A-Z)
+    /**
+     * Task do Web / Extension bản cũ tạo chỉ có "type", có thể thiếu projectId / completed /
+     * lastModified -> query phân trang (where taskType / projectId + orderBy completed, lastModified)
+     * bỏ sót. Ghi bổ sung các trường thiếu (1 lần cho mỗi document, không đổi giá trị đã có);
+     * listener trang đầu của FirestorePagingSource thấy thay đổi và tải lại.
+     */
+    private void backfillPagingFields(SnapshotBatch batch) {
+        if (mTasksCollection == null) return;
+        for (SnapshotBatch.Entry entry : batch.entries) {
+            if (entry.type == DocumentChange.Type.REMOVED || entry.hasPendingWrites || entry.data == null) continue;
+            Map<String, Object> updates = missingPagingFields(entry.data, FieldValue.serverTimestamp());
+            if (updates.isEmpty()) continue;
+            mWriteQueue.update(mTasksCollection.document(entry.id), updates,
+                    mWriteQueue.logging(TAG, "Đã bổ sung trường cho task cũ", "Lỗi bổ sung trường cho task cũ"));
+        }
+    }
+
+    /**
+     * Các trường query phân trang cần mà document còn thiếu
+     * - taskType: lấy từ "type" (Extension), mặc định TASK_TYPE_GENERAL
+     * - projectId: null (root), completed: false, lastModified: lastModified (server timestamp)
+     */
+    static Map<String, Object> missingPagingFields(Map<String, Object> data, Object lastModified) {
+        Map<String, Object> updates = new HashMap<>();
+        if (data.get("taskType") == null) updates.put("taskType", taskTypeOf(data));
+        if (!data.containsKey("projectId")) updates.put("projectId", null);
+        if (data.get("completed") == null) updates.put("completed", false);
+        if (data.get("lastModified") == null) updates.put("lastModified", lastModified);
+        return updates;
+    }
+
+    /** taskType, hoặc "type" của document cũ (cùng quy ước với web useTasks / useShopping) */
+    static int taskTypeOf(Map<String, Object> data) {
+        Object taskType = data.get("taskType");
+        return CodecSupport.asInt(taskType != null ? taskType : data.get("type"));
+    }
+
+    // Lắng nghe Projects (store tự sắp xếp A-Z theo NameSortKey; orderBy("name") của Firestore
+    // so theo byte nên sai thứ tự tiếng Việt, và bỏ sót project thiếu trường name)
     private void listenForProjectChanges() {
         if (mProjectsCollection == null) return;
-        projectsListener = mProjectsCollection.orderBy("name", Query.Direction.ASCENDING)
-                .addSnapshotListener((snapshot, e) -> {
+        final int generation = projectPublisher.beginListener();
+        final LocalMirror.Session session = mLocalMirror.open(currentUserId, COLLECTION_PROJECTS);
+        projectsMirror = session;
+        session.load(documents -> projectPublisher.seed(documents, generation));
+        projectsListener = mProjectsCollection
+                .addSnapshotListener(RepositoryExecutors.snapshots(), (snapshot, e) -> {
                     if (e != null) { Log.w(TAG, "❌ Lỗi lắng nghe Projects", e); return; }
-                    if (snapshot != null) {
-                        List<ProjectEntry> projects = snapshot.toObjects(ProjectEntry.class);
-                        for (int i = 0; i < snapshot.getDocuments().size(); i++) {
-                            projects.get(i).documentId = snapshot.getDocuments().get(i).getId();
-                        }
-                        mAllProjects.setValue(projects);
-                        Log.d(TAG, "✅ Projects updated: " + projects.size() + " items");
-                    }
+                    if (snapshot == null) return;
+                    SnapshotBatch batch = SnapshotBatch.of(snapshot);
+                    projectPublisher.publish(batch, generation);
+                    session.record(batch);
                 });
     }
 
+    // ----- Mappers (chỉ gọi cho document thay đổi, trên background thread) -----
+    private static NoteEntry mapNote(String documentId, Map<String, Object> data) {
+        return NoteEntryCodec.INSTANCE.fromMap(documentId, data);
+    }
+
+    private static ProjectEntry mapProject(String documentId, Map<String, Object> data) {
+        return ProjectEntryCodec.INSTANCE.fromMap(documentId, data);
+    }
+
+    private static TaskEntry mapTask(String documentId, Map<String, Object> data, boolean shopping) {
+        // Lọc theo taskType trước khi decode (task thường bao gồm cả task trong project)
+        if ((taskTypeOf(data) == Constants.TASK_TYPE_SHOPPING) != shopping) return null;
+        return TaskEntryCodec.INSTANCE.fromMap(documentId, data);
+    }
+
+    // ----- Paging -----
+
+    /**
+     * Ghi chú theo trang, mới sửa trước (cùng thứ tự với listener toàn bộ)
+     * Mỗi lần gọi tạo source mới (Pager gọi lại khi source bị invalidate)
+     */
+    public FirestorePagingSource<NoteEntry> createNotePagingSource() {
+        Query query = mNotesCollection != null
+                ? mNotesCollection.orderBy("lastModified", Query.Direction.DESCENDING)
+                : null;
+        return new FirestorePagingSource<>(query, ProductivityRepository::mapNote);
+    }
+
+    /**
+     * Task theo trang: chưa xong trước, rồi mới sửa trước (giống thứ tự của TaskListActivity)
+     * 
+     * Query phía server (cần composite index, xem firestore.indexes.json):
+     * - Shopping: taskType == 1
+     * - Task thường: taskType == 0 AND projectId == projectId (null = root)
+     * Document cũ thiếu các trường này (chỉ có "type") được listener Tasks bổ sung,
+     * xem backfillPagingFields()
+     * 
+     * @param taskType Constants.TASK_TYPE_GENERAL / TASK_TYPE_SHOPPING
+     * @param projectId Project đang mở (chỉ dùng cho task thường), null = root
+     */
+    public FirestorePagingSource<TaskEntry> createTaskPagingSource(int taskType, String projectId) {
+        Query query = null;
+        if (mTasksCollection != null) {
+            query = mTasksCollection.whereEqualTo("taskType", taskType);
+            if (taskType != Constants.TASK_TYPE_SHOPPING) {
+                query = query.whereEqualTo("projectId", projectId);
+            }
+            query = query.orderBy("completed", Query.Direction.ASCENDING)
+                    .orderBy("lastModified", Query.Direction.DESCENDING);
+        }
+        return new FirestorePagingSource<>(query, TaskEntryCodec.INSTANCE::fromMap);
+    }
+
     // ----- Getters -----
-    public LiveData<List<NoteEntry>> getAllNotes() { return mAllNotes; }
-    public LiveData<List<TaskEntry>> getAllTasks() { return mAllTasks; }
-    public LiveData<List<TaskEntry>> getAllShoppingItems() { return mAllShoppingItems; }
-    public LiveData<List<ProjectEntry>> getAllProjects() { return mAllProjects; }
+    public LiveData<List<NoteEntry>> getAllNotes() { return notePublisher.getItems(); }
+    public LiveData<List<TaskEntry>> getAllTasks() { return taskPublisher.getItems(); }
+    public LiveData<List<TaskEntry>> getAllShoppingItems() { return shoppingPublisher.getItems(); }
+    public LiveData<List<ProjectEntry>> getAllProjects() { return projectPublisher.getItems(); }
+
+    // Diff (ADDED / MODIFIED / REMOVED) của lần cập nhật gần nhất
+    public LiveData<SnapshotStore.Diff<NoteEntry>> getNoteChanges() { return notePublisher.getChanges(); }
+    public LiveData<SnapshotStore.Diff<TaskEntry>> getTaskChanges() { return taskPublisher.getChanges(); }
+    public LiveData<SnapshotStore.Diff<ProjectEntry>> getProjectChanges() { return projectPublisher.getChanges(); }
 
     public LiveData<NoteEntry> getNoteById(String documentId) {
-        MutableLiveData<NoteEntry> noteData = new MutableLiveData<>();
-        if (mNotesCollection == null) return noteData;
-        mNotesCollection.document(documentId).addSnapshotListener((snapshot, e) -> {
-            if (snapshot != null && snapshot.exists()) {
-                NoteEntry note = snapshot.toObject(NoteEntry.class);
-                if (note != null) {
-                    note.documentId = snapshot.getId();
-                    noteData.setValue(note);
-                }
-            }
-        });
-        return noteData;
+        if (mNotesCollection == null) return new MutableLiveData<>();
+        // Lấy từ store Notes nếu đã có, không thì dùng chung 1 listener; gỡ khi màn hình bị hủy
+        return mDocuments.observe(mNotesCollection.document(documentId), notePublisher);
     }
 
     // ----- Notes -----
@@ -292,21 +529,25 @@ public class ProductivityRepository {
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (mNotesCollection == null || currentUser == null) return;
         note.setUserOwnerId(currentUser.getUid());
-        mNotesCollection.add(note)
-                .addOnSuccessListener(ref -> Log.d(TAG, "✅ Đã thêm Note: " + ref.getId()))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi thêm Note", e));
+        mWriteQueue.set(mNotesCollection.document(), NoteEntryCodec.INSTANCE.toMap(note),
+                mWriteQueue.logging(TAG, "Đã thêm Note", "Lỗi thêm Note"));
     }
     public void updateNote(NoteEntry note) {
         if (mNotesCollection == null || note.documentId == null) return;
-        mNotesCollection.document(note.documentId).set(note)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã cập nhật Note"))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi cập nhật Note", e));
+        // Chỉ gửi field đã đổi (không upload lại content dài nếu chỉ đổi reminder)
+        // lastModified mới ở MỌI lần sửa: rules từ chối update không mang lastModified mới hơn bản đang lưu
+        note.setLastModified(new Date());
+        DocumentReference ref = mNotesCollection.document(note.documentId);
+        notePublisher.applyLocal(note.documentId, note);
+        mWriteQueue.save(ref, NoteEntryCodec.INSTANCE, note, notePublisher.reconcileOnFailure(ref,
+                mWriteQueue.logging(TAG, "Đã cập nhật Note", "Lỗi cập nhật Note")));
     }
     public void deleteNote(NoteEntry note) {
         if (mNotesCollection == null || note.documentId == null) return;
-        mNotesCollection.document(note.documentId).delete()
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã xóa Note"))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi xóa Note", e));
+        DocumentReference ref = mNotesCollection.document(note.documentId);
+        notePublisher.applyLocal(note.documentId, null);
+        mWriteQueue.delete(ref, notePublisher.reconcileOnFailure(ref,
+                mWriteQueue.logging(TAG, "Đã xóa Note", "Lỗi xóa Note")));
     }
 
     // ----- Tasks -----
@@ -321,21 +562,32 @@ public class ProductivityRepository {
         }
 
         task.setUserOwnerId(currentUser.getUid());
-        mTasksCollection.add(task)
-                .addOnSuccessListener(ref -> Log.d(TAG, "✅ Đã thêm Task: " + ref.getId()))
-                .addOnFailureListener(e -> Log.e(TAG, "❌ Lỗi thêm Task", e));
+        mWriteQueue.set(mTasksCollection.document(), TaskEntryCodec.INSTANCE.toMap(task),
+                mWriteQueue.logging(TAG, "Đã thêm Task", "Lỗi thêm Task"));
     }
     public void updateTask(TaskEntry task) {
         if (mTasksCollection == null || task.documentId == null) return;
-        mTasksCollection.document(task.documentId).set(task)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã cập nhật Task"))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi cập nhật Task", e));
+        // Tick hoàn thành -> update() chỉ gồm completed + lastModified (lastModified mới: xem firestore.rules)
+        task.setLastModified(new Date());
+        DocumentReference ref = mTasksCollection.document(task.documentId);
+        boolean shopping = task.getTaskType() == Constants.TASK_TYPE_SHOPPING;
+        taskPublisher.applyLocal(task.documentId, shopping ? null : task);
+        shoppingPublisher.applyLocal(task.documentId, shopping ? task : null);
+        mWriteQueue.save(ref, TaskEntryCodec.INSTANCE, task, reconcileTaskOnFailure(ref,
+                mWriteQueue.logging(TAG, "Đã cập nhật Task", "Lỗi cập nhật Task")));
     }
     public void deleteTask(TaskEntry task) {
         if (mTasksCollection == null || task.documentId == null) return;
-        mTasksCollection.document(task.documentId).delete()
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã xóa Task"))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi xóa Task", e));
+        DocumentReference ref = mTasksCollection.document(task.documentId);
+        taskPublisher.applyLocal(task.documentId, null);
+        shoppingPublisher.applyLocal(task.documentId, null);
+        mWriteQueue.delete(ref, reconcileTaskOnFailure(ref,
+                mWriteQueue.logging(TAG, "Đã xóa Task", "Lỗi xóa Task")));
+    }
+
+    // Tasks và Shopping cùng 1 collection -> ghi lỗi thì cả 2 store lấy lại bản trong cache
+    private WriteBehindQueue.Callback reconcileTaskOnFailure(DocumentReference ref, WriteBehindQueue.Callback callback) {
+        return taskPublisher.reconcileOnFailure(ref, shoppingPublisher.reconcileOnFailure(ref, callback));
     }
 
     // ----- Projects -----
@@ -343,37 +595,137 @@ public class ProductivityRepository {
         if (mProjectsCollection == null || mAuth.getCurrentUser() == null) return;
         ProjectEntry project = new ProjectEntry(name, mAuth.getCurrentUser().getUid());
         project.setProjectId(parentProjectId); // Gán ID cha
-        mProjectsCollection.add(project)
-                .addOnSuccessListener(ref -> Log.d(TAG, "✅ Đã tạo Project: " + ref.getId()))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi tạo Project", e));
+        mWriteQueue.set(mProjectsCollection.document(), ProjectEntryCodec.INSTANCE.toMap(project),
+                mWriteQueue.logging(TAG, "Đã tạo Project", "Lỗi tạo Project"));
     }
 
     public void updateProjectName(String projectId, String newName) {
         if (mProjectsCollection == null || projectId == null) return;
-        mProjectsCollection.document(projectId)
-                .update("name", newName, "lastModified", new Date())
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã đổi tên Project"))
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi đổi tên Project", e));
+        Date now = new Date();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("name", newName);
+        updates.put("lastModified", now);
+
+        // Đổi tên ngay trên UI (store sắp xếp theo tên)
+        ProjectEntry project = projectPublisher.getStore().get(projectId);
+        if (project != null) {
+            project.setName(newName);
+            project.setLastModified(now);
+            projectPublisher.applyLocal(projectId, project);
+        }
+        DocumentReference ref = mProjectsCollection.document(projectId);
+        mWriteQueue.update(ref, updates, projectPublisher.reconcileOnFailure(ref,
+                mWriteQueue.logging(TAG, "Đã đổi tên Project", "Lỗi đổi tên Project")));
     }
 
+    /**
+     * Xóa thư mục cùng thư mục con / cháu; task bên trong được đưa ra màn hình chính (như cũ)
+     */
     public void deleteProject(ProjectEntry project) {
-        if (mProjectsCollection == null || project.documentId == null) return;
+        deleteProjectSubtree(project, ProjectSubtreeOperation.Mode.DETACH_TASKS, null);
+    }
 
-        WriteBatch batch = mDb.batch();
+    /**
+     * Xóa cả cây thư mục (xem ProjectSubtreeOperation):
+     * 1. Đọc toàn bộ projects -> tìm thư mục con / cháu
+     * 2. Đọc task thuộc các thư mục đó (whereIn tối đa 30 giá trị / query)
+     * 3. Ghi theo batch 500 thao tác, lá -> gốc; tiến độ / lỗi báo qua listener
+     */
+    public void deleteProjectSubtree(ProjectEntry project, ProjectSubtreeOperation.Mode mode,
+                                     ProjectSubtreeOperation.Listener listener) {
+        if (mProjectsCollection == null || mTasksCollection == null || project.documentId == null) return;
+        mWriteQueue.flush(); // Đưa write đang chờ vào SDK để query dưới thấy task / thư mục vừa tạo
+
+        // Giữ reference của user hiện tại: logout giữa chừng không ghi nhầm sang user khác
+        final CollectionReference projects = mProjectsCollection;
+        final CollectionReference tasks = mTasksCollection;
+        final String rootId = project.documentId;
 
-        mTasksCollection.whereEqualTo("projectId", project.documentId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (int i = 0; i < querySnapshot.getDocuments().size(); i++) {
-                        batch.update(querySnapshot.getDocuments().get(i).getReference(), "projectId", null);
+        projects.get().addOnSuccessListener(projectSnapshot -> {
+            Map<String, Map<String, Object>> projectData = new HashMap<>();
+            for (DocumentSnapshot doc : projectSnapshot.getDocuments()) {
+                projectData.put(doc.getId(), doc.getData());
+            }
+            projectData.putIfAbsent(rootId, new HashMap<>()); // Thư mục gốc chưa lên server vẫn phải xóa
+
+            // Các thư mục trong cây (plan không có task -> chỉ còn thao tác xóa thư mục)
+            List<Object> subtreeIds = new ArrayList<>();
+            for (ProjectSubtreeOperation.Op op : ProjectSubtreeOperation.plan(
+                    rootId, projectData, Collections.emptyMap(), mode)) {
+                subtreeIds.add(op.documentId);
+            }
+
+            List<Task<QuerySnapshot>> taskQueries = new ArrayList<>();
+            for (List<Object> ids : ProjectSubtreeOperation.chunk(subtreeIds, MAX_IN_QUERY_VALUES)) {
+                taskQueries.add(tasks.whereIn("projectId", ids).get());
+            }
+            Tasks.whenAllSuccess(taskQueries).addOnSuccessListener(results -> {
+                Map<String, Map<String, Object>> taskData = new HashMap<>();
+                for (Object result : results) {
+                    for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                        taskData.put(doc.getId(), doc.getData());
                     }
+                }
+                List<ProjectSubtreeOperation.Op> ops =
+                        ProjectSubtreeOperation.plan(rootId, projectData, taskData, mode);
+                Log.d(TAG, "🗂️ Xóa cây thư mục " + rootId + ": " + subtreeIds.size() + " thư mục, "
+                        + taskData.size() + " task, " + ops.size() + " thao tác");
 
-                    batch.delete(mProjectsCollection.document(project.documentId));
+                ProjectSubtreeOperation operation = new ProjectSubtreeOperation(rootId, mode, ops,
+                        (batch, undo, done) -> commitSubtreeBatch(projects, tasks, batch, undo, done),
+                        op -> {
+                            logSubtreeProgress(op);
+                            if (listener != null) listener.onProgress(op);
+                        });
+                operation.start();
+            }).addOnFailureListener(e -> {
+                Log.w(TAG, "❌ Lỗi tìm task để xóa cây thư mục", e);
+                if (listener != null) listener.onPlanFailed(e);
+            });
+        }).addOnFailureListener(e -> {
+            Log.w(TAG, "❌ Lỗi đọc danh sách thư mục để xóa", e);
+            if (listener != null) listener.onPlanFailed(e);
+        });
+    }
 
-                    batch.commit()
-                            .addOnSuccessListener(aVoid -> Log.d(TAG, "✅ Đã xóa Project và cập nhật tasks"))
-                            .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi xóa Project (batch)", e));
-                })
-                .addOnFailureListener(e -> Log.w(TAG, "❌ Lỗi tìm task để xóa project", e));
+    /**
+     * Ghi 1 batch (tối đa 500 thao tác) của ProjectSubtreeOperation
+     *
+     * @param undo true = khôi phục: set lại document đã xóa / projectId cũ của task
+     */
+    private void commitSubtreeBatch(CollectionReference projects, CollectionReference tasks,
+                                    List<ProjectSubtreeOperation.Op> ops, boolean undo,
+                                    ProjectSubtreeOperation.Done done) {
+        WriteBatch batch = mDb.batch();
+        Date now = new Date(); // Update phải mang lastModified mới (firestore.rules)
+        for (ProjectSubtreeOperation.Op op : ops) {
+            DocumentReference ref = (op.collection == ProjectSubtreeOperation.Collection.TASKS
+                    ? tasks : projects).document(op.documentId);
+            if (op.detach) {
+                batch.update(ref, "projectId", undo ? op.before.get("projectId") : null, "lastModified", now);
+            } else if (undo) {
+                batch.set(ref, op.before);
+            } else {
+                batch.delete(ref);
+            }
+        }
+        batch.commit().addOnCompleteListener(task -> done.onResult(task.isSuccessful() ? null
+                : task.getException() != null ? task.getException() : new Exception("Batch commit failed")));
+    }
+
+    private static void logSubtreeProgress(ProjectSubtreeOperation op) {
+        switch (op.getState()) {
+            case COMPLETED:
+                Log.d(TAG, "✅ Đã xóa cây thư mục " + op.getRootProjectId() + " (" + op.getTotalOps() + " thao tác)");
+                break;
+            case FAILED:
+                Log.w(TAG, "❌ Xóa cây thư mục dừng ở " + op.getCommittedOps() + "/" + op.getTotalOps(), op.getLastError());
+                break;
+            case UNDONE:
+                Log.d(TAG, "↩️ Đã khôi phục cây thư mục " + op.getRootProjectId());
+                break;
+            default:
+                Log.d(TAG, "🗂️ " + op.getState() + " " + op.getCommittedOps() + "/" + op.getTotalOps());
+        }
     }
 }
\ No newline at end of file
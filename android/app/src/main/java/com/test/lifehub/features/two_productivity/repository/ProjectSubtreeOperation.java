@@ -0,0 +1,304 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ProjectSubtreeOperation - Xóa 1 thư mục cùng TOÀN BỘ thư mục con / cháu
+ *
+ * === VẤN ĐỀ CŨ ===
+ * deleteProject() chỉ gỡ projectId của task nằm TRỰC TIẾP trong thư mục, gom tất cả vào
+ * 1 WriteBatch (Firestore giới hạn 500 thao tác / batch -> thư mục lớn xóa lỗi) và bỏ lại
+ * thư mục con (ProjectEntry.projectId trỏ tới thư mục đã xóa -> không bao giờ hiện ra nữa).
+ *
+ * === CÁCH LÀM ===
+ * 1. plan(): duyệt cây thư mục từ gốc, gom thư mục con / cháu và task bên trong
+ *    (chống vòng lặp nếu dữ liệu hỏng: mỗi thư mục chỉ duyệt 1 lần)
+ * 2. Thứ tự thao tác: task trước, rồi thư mục từ LÁ lên GỐC -> dừng giữa chừng ở bất kỳ
+ *    đâu thì cây còn lại vẫn hợp lệ (không có task / thư mục con trỏ tới thư mục đã xóa)
+ * 3. Ghi lần lượt từng batch tối đa MAX_BATCH_OPS thao tác, báo tiến độ sau mỗi batch
+ *
+ * === MODE ===
+ * - DETACH_TASKS: task trong cây được đưa ra màn hình chính (projectId = null) - như cũ
+ * - DELETE_TASKS: task trong cây bị xóa cùng thư mục
+ *
+ * === TIẾP TỤC / HOÀN TÁC ===
+ * - Batch lỗi (mất mạng, rules từ chối) -> dừng ở trạng thái FAILED, resume() ghi tiếp
+ *   từ batch lỗi (các batch đã commit không ghi lại)
+ * - Bị gián đoạn hẳn (app bị kill): chạy lại deleteProjectSubtree() cho cùng thư mục,
+ *   plan mới chỉ còn phần chưa xóa (nhờ thứ tự lá -> gốc)
+ * - Raw data của mọi document bị đụng tới được giữ trong bộ nhớ tới khi xong:
+ *   undo() khôi phục các batch đã commit (ngược thứ tự), xong thì bỏ snapshot
+ *
+ * === THREAD ===
+ * Main thread (callback của Firestore Task).
+ */
+public class ProjectSubtreeOperation {
+
+    /** Giới hạn thao tác của 1 WriteBatch Firestore */
+    public static final int MAX_BATCH_OPS = 500;
+
+    public enum Mode {
+        DETACH_TASKS,
+        DELETE_TASKS
+    }
+
+    public enum State {
+        RUNNING,
+        FAILED,     // Dừng ở 1 batch lỗi, resume() / undo()
+        COMPLETED,
+        UNDOING,
+        UNDONE
+    }
+
+    public enum Collection {
+        TASKS,
+        PROJECTS
+    }
+
+    /**
+     * 1 thao tác ghi: xóa document hoặc gỡ projectId của task
+     */
+    public static final class Op {
+        public final Collection collection;
+        public final String documentId;
+        public final boolean detach;               // true = set projectId null, false = xóa
+        public final Map<String, Object> before;   // Raw data trước khi ghi (cho undo)
+
+        Op(Collection collection, String documentId, boolean detach, Map<String, Object> before) {
+            this.collection = collection;
+            this.documentId = documentId;
+            this.detach = detach;
+            this.before = before;
+        }
+    }
+
+    /**
+     * Ghi 1 batch (ProductivityRepository dùng WriteBatch; test dùng bản giả)
+     *
+     * @param undo true = ghi ngược lại (khôi phục document / projectId cũ)
+     */
+    interface Committer {
+        void commit(@NonNull List<Op> batch, boolean undo, @NonNull Done done);
+    }
+
+    interface Done {
+        void onResult(@Nullable Exception error);
+    }
+
+    /**
+     * Báo tiến độ cho UI (main thread)
+     */
+    public interface Listener {
+        void onProgress(@NonNull ProjectSubtreeOperation operation);
+
+        /** Không đọc được cây thư mục (chưa ghi gì) */
+        default void onPlanFailed(@NonNull Exception e) {}
+    }
+
+    private final String rootProjectId;
+    private final Mode mode;
+    private final Committer committer;
+    private final Listener listener;
+    private List<List<Op>> batches;  // null sau khi xong (bỏ snapshot undo)
+    private final int totalOps;
+    private final int batchCount;
+    private int committedBatches = 0;
+    private int committedOps = 0;
+    private State state = State.RUNNING;
+    @Nullable
+    private Exception lastError;
+
+    ProjectSubtreeOperation(String rootProjectId, Mode mode, List<Op> ops, Committer committer, Listener listener) {
+        this.rootProjectId = rootProjectId;
+        this.mode = mode;
+        this.committer = committer;
+        this.listener = listener;
+        this.totalOps = ops.size();
+        this.batches = chunk(ops, MAX_BATCH_OPS);
+        this.batchCount = batches.size();
+    }
+
+    /**
+     * Lập danh sách thao tác cho cây thư mục gốc rootProjectId
+     *
+     * @param projects Raw data tất cả thư mục của user (id -> data)
+     * @param tasks Raw data các task cần xét (id -> data), task ngoài cây bị bỏ qua
+     */
+    static List<Op> plan(@NonNull String rootProjectId,
+                         @NonNull Map<String, Map<String, Object>> projects,
+                         @NonNull Map<String, Map<String, Object>> tasks,
+                         @NonNull Mode mode) {
+        Map<String, List<String>> children = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : projects.entrySet()) {
+            Object parent = entry.getValue().get("projectId");
+            if (parent instanceof String) {
+                children.computeIfAbsent((String) parent, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        for (List<String> ids : children.values()) Collections.sort(ids); // Thứ tự ổn định
+
+        // Post-order (lá trước gốc)
+        List<String> subtree = new ArrayList<>();
+        collect(rootProjectId, children, new HashSet<>(), subtree);
+        Set<String> inSubtree = new HashSet<>(subtree);
+
+        List<Op> ops = new ArrayList<>();
+        List<String> taskIds = new ArrayList<>(tasks.keySet());
+        Collections.sort(taskIds);
+        for (String taskId : taskIds) {
+            Map<String, Object> data = tasks.get(taskId);
+            if (!inSubtree.contains(data.get("projectId"))) continue;
+            ops.add(new Op(Collection.TASKS, taskId, mode == Mode.DETACH_TASKS, data));
+        }
+        for (String projectId : subtree) {
+            Map<String, Object> data = projects.get(projectId);
+            ops.add(new Op(Collection.PROJECTS, projectId, false,
+                    data != null ? data : Collections.emptyMap()));
+        }
+        return ops;
+    }
+
+    private static void collect(String projectId, Map<String, List<String>> children,
+                                Set<String> visited, List<String> out) {
+        if (!visited.add(projectId)) return;
+        List<String> kids = children.get(projectId);
+        if (kids != null) {
+            for (String child : kids) collect(child, children, visited, out);
+        }
+        out.add(projectId);
+    }
+
+    static <T> List<List<T>> chunk(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(new ArrayList<>(items.subList(i, Math.min(items.size(), i + size))));
+        }
+        return chunks;
+    }
+
+    // ===== CHẠY =====
+
+    @MainThread
+    void start() {
+        next();
+    }
+
+    /**
+     * Ghi tiếp từ batch bị lỗi
+     */
+    @MainThread
+    public void resume() {
+        if (state != State.FAILED) return;
+        state = State.RUNNING;
+        lastError = null;
+        next();
+    }
+
+    private void next() {
+        if (committedBatches == batches.size()) {
+            state = State.COMPLETED;
+            batches = null; // Xong -> bỏ snapshot undo
+            notifyProgress();
+            return;
+        }
+        notifyProgress();
+        final List<Op> batch = batches.get(committedBatches);
+        committer.commit(batch, false, error -> {
+            if (error != null) {
+                state = State.FAILED;
+                lastError = error;
+                notifyProgress();
+                return;
+            }
+            committedBatches++;
+            committedOps += batch.size();
+            next();
+        });
+    }
+
+    /**
+     * Khôi phục các batch đã commit (chỉ khi chưa xong: FAILED)
+     */
+    @MainThread
+    public void undo() {
+        if (state != State.FAILED) return;
+        state = State.UNDOING;
+        lastError = null;
+        undoNext();
+    }
+
+    private void undoNext() {
+        if (committedBatches == 0) {
+            state = State.UNDONE;
+            batches = null;
+            notifyProgress();
+            return;
+        }
+        notifyProgress();
+        // Ngược thứ tự: thư mục cha được tạo lại trước thư mục con / task trỏ tới nó
+        final List<Op> batch = new ArrayList<>(batches.get(committedBatches - 1));
+        Collections.reverse(batch);
+        committer.commit(batch, true, error -> {
+            if (error != null) {
+                state = State.FAILED; // undo() lại được, phần đã khôi phục không bị ghi lại
+                lastError = error;
+                notifyProgress();
+                return;
+            }
+            committedBatches--;
+            committedOps -= batch.size();
+            undoNext();
+        });
+    }
+
+    private void notifyProgress() {
+        if (listener != null) listener.onProgress(this);
+    }
+
+    // ===== TRẠNG THÁI =====
+
+    public String getRootProjectId() {
+        return rootProjectId;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /** Số thao tác đã commit (giảm dần khi undo) */
+    public int getCommittedOps() {
+        return committedOps;
+    }
+
+    public int getTotalOps() {
+        return totalOps;
+    }
+
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    @Nullable
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /** Còn giữ raw data để hoàn tác */
+    public boolean canUndo() {
+        return state == State.FAILED && committedBatches > 0;
+    }
+}
@@ -0,0 +1,307 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.util.NameSortKey;
+import com.test.lifehub.features.two_productivity.data.ProjectEntry;
+import com.test.lifehub.features.two_productivity.data.TaskEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ProjectTree - Index cây thư mục / công việc trong bộ nhớ, cập nhật tăng dần theo Diff
+ *
+ * === VẤN ĐỀ CŨ ===
+ * ProductivityViewModel lọc lại TOÀN BỘ tasks + projects bằng stream mỗi khi 1 trong 2
+ * nguồn phát (2 lần: root + thư mục đang xem), không có số task của từng thư mục.
+ *
+ * === CÁCH LÀM ===
+ * - Mỗi thư mục cha (null = root) giữ 1 TreeSet con đã sắp xếp (thư mục theo tên,
+ *   task theo lastModified mới nhất trước - giống thứ tự của SnapshotStore)
+ * - applyTaskChanges / applyProjectChanges: chỉ gỡ / chèn document trong Diff (O(log k))
+ * - getTasks / getChildren: O(số con) - không quét lại danh sách
+ * - getPath: breadcrumb từ root tới thư mục, O(độ sâu)
+ *
+ * === THỐNG KÊ ===
+ * Mỗi thư mục giữ số task TRỰC TIẾP (tổng / đã xong / còn nhắc nhở), cập nhật theo Diff.
+ * getStats() cộng dồn cả thư mục con / cháu: O(số thư mục trong cây con), không đụng tới task.
+ *
+ * === LƯU Ý ===
+ * - Thư mục cha, trạng thái... được "đóng băng" lúc document vào index (như sort key của
+ *   SnapshotStore): UI sửa trực tiếp object (setCompleted, setProjectId) trước khi ghi thì
+ *   MODIFIED tới sau vẫn gỡ đúng bản cũ
+ * - Dữ liệu hỏng (thư mục là cha của chính nó qua nhiều cấp) không gây vòng lặp vô hạn
+ *
+ * === THREAD ===
+ * Main thread (ProductivityViewModel).
+ */
+public class ProjectTree {
+
+    /**
+     * Số task của 1 thư mục (gồm cả thư mục con / cháu)
+     */
+    public static final class Stats {
+        public static final Stats EMPTY = new Stats(0, 0, 0);
+
+        public final int totalTasks;
+        public final int completedTasks;
+        public final int reminders;      // Task chưa xong còn đặt nhắc nhở
+
+        Stats(int totalTasks, int completedTasks, int reminders) {
+            this.totalTasks = totalTasks;
+            this.completedTasks = completedTasks;
+            this.reminders = reminders;
+        }
+    }
+
+    private static final class TaskNode {
+        final TaskEntry task;
+        final String id;
+        @Nullable
+        final String parentId;
+        final Long lastModified;
+        final boolean completed;
+        final boolean reminder;
+
+        TaskNode(String id, TaskEntry task) {
+            this.id = id;
+            this.task = task;
+            this.parentId = task.getProjectId();
+            this.lastModified = task.getLastModified() != null ? task.getLastModified().getTime() : null;
+            this.completed = task.isCompleted();
+            this.reminder = !completed && task.getReminderTime() != null;
+        }
+    }
+
+    private static final class ProjectNode {
+        final ProjectEntry project;
+        final String id;
+        @Nullable
+        final String parentId;
+        final NameSortKey sortKey;
+
+        ProjectNode(String id, ProjectEntry project) {
+            this.id = id;
+            this.project = project;
+            this.parentId = project.getProjectId();
+            this.sortKey = project.getSortKey();
+        }
+    }
+
+    /** Số task trực tiếp của 1 thư mục */
+    private static final class Counts {
+        int total;
+        int completed;
+        int reminders;
+
+        boolean isEmpty() {
+            return total == 0;
+        }
+    }
+
+    private static final Comparator<TaskNode> TASK_ORDER = (a, b) -> {
+        int c = Comparator.nullsLast(Comparator.<Long>reverseOrder()).compare(a.lastModified, b.lastModified);
+        return c != 0 ? c : a.id.compareTo(b.id);
+    };
+
+    private static final Comparator<ProjectNode> PROJECT_ORDER = (a, b) -> {
+        int c = a.sortKey.compareTo(b.sortKey);
+        return c != 0 ? c : a.id.compareTo(b.id);
+    };
+
+    private final Map<String, TaskNode> tasksById = new HashMap<>();
+    private final Map<String, TreeSet<TaskNode>> tasksByParent = new HashMap<>();   // key null = root
+    private final Map<String, Counts> countsByParent = new HashMap<>();
+    private final Map<String, ProjectNode> projectsById = new HashMap<>();
+    private final Map<String, TreeSet<ProjectNode>> projectsByParent = new HashMap<>();
+
+    // ===== TASKS =====
+
+    /**
+     * Dựng lại toàn bộ task (lần đầu / sau khi mất đồng bộ)
+     */
+    public void resetTasks(@NonNull List<TaskEntry> tasks) {
+        tasksById.clear();
+        tasksByParent.clear();
+        countsByParent.clear();
+        for (TaskEntry task : tasks) putTask(task);
+    }
+
+    /**
+     * Áp dụng Diff của store Tasks
+     */
+    public void applyTaskChanges(@NonNull SnapshotStore.Diff<TaskEntry> diff) {
+        for (String id : diff.removedIds) removeTask(id);
+        for (TaskEntry task : diff.added) putTask(task);
+        for (TaskEntry task : diff.modified) putTask(task);
+    }
+
+    private void putTask(TaskEntry task) {
+        if (task.documentId == null) return;
+        removeTask(task.documentId);
+        TaskNode node = new TaskNode(task.documentId, task);
+        tasksById.put(node.id, node);
+        tasksByParent.computeIfAbsent(node.parentId, k -> new TreeSet<>(TASK_ORDER)).add(node);
+        Counts counts = countsByParent.computeIfAbsent(node.parentId, k -> new Counts());
+        counts.total++;
+        if (node.completed) counts.completed++;
+        if (node.reminder) counts.reminders++;
+    }
+
+    private void removeTask(String id) {
+        TaskNode node = tasksById.remove(id);
+        if (node == null) return;
+        TreeSet<TaskNode> siblings = tasksByParent.get(node.parentId);
+        if (siblings != null) {
+            siblings.remove(node);
+            if (siblings.isEmpty()) tasksByParent.remove(node.parentId);
+        }
+        Counts counts = countsByParent.get(node.parentId);
+        if (counts != null) {
+            counts.total--;
+            if (node.completed) counts.completed--;
+            if (node.reminder) counts.reminders--;
+            if (counts.isEmpty()) countsByParent.remove(node.parentId);
+        }
+    }
+
+    /**
+     * Task nằm trực tiếp trong thư mục (null = root), mới sửa trước
+     */
+    @NonNull
+    public List<TaskEntry> getTasks(@Nullable String projectId) {
+        TreeSet<TaskNode> nodes = tasksByParent.get(projectId);
+        if (nodes == null) return Collections.emptyList();
+        List<TaskEntry> tasks = new ArrayList<>(nodes.size());
+        for (TaskNode node : nodes) tasks.add(node.task);
+        return Collections.unmodifiableList(tasks);
+    }
+
+    public int getTaskCount() {
+        return tasksById.size();
+    }
+
+    // ===== PROJECTS =====
+
+    /**
+     * Dựng lại toàn bộ thư mục (lần đầu / sau khi mất đồng bộ)
+     */
+    public void resetProjects(@NonNull List<ProjectEntry> projects) {
+        projectsById.clear();
+        projectsByParent.clear();
+        for (ProjectEntry project : projects) putProject(project);
+    }
+
+    /**
+     * Áp dụng Diff của store Projects
+     */
+    public void applyProjectChanges(@NonNull SnapshotStore.Diff<ProjectEntry> diff) {
+        for (String id : diff.removedIds) removeProject(id);
+        for (ProjectEntry project : diff.added) putProject(project);
+        for (ProjectEntry project : diff.modified) putProject(project);
+    }
+
+    private void putProject(ProjectEntry project) {
+        if (project.documentId == null) return;
+        removeProject(project.documentId);
+        ProjectNode node = new ProjectNode(project.documentId, project);
+        projectsById.put(node.id, node);
+        projectsByParent.computeIfAbsent(node.parentId, k -> new TreeSet<>(PROJECT_ORDER)).add(node);
+    }
+
+    private void removeProject(String id) {
+        ProjectNode node = projectsById.remove(id);
+        if (node == null) return;
+        TreeSet<ProjectNode> siblings = projectsByParent.get(node.parentId);
+        if (siblings != null) {
+            siblings.remove(node);
+            if (siblings.isEmpty()) projectsByParent.remove(node.parentId);
+        }
+    }
+
+    /**
+     * Thư mục con trực tiếp (null = thư mục ở root), theo tên
+     */
+    @NonNull
+    public List<ProjectEntry> getChildren(@Nullable String projectId) {
+        TreeSet<ProjectNode> nodes = projectsByParent.get(projectId);
+        if (nodes == null) return Collections.emptyList();
+        List<ProjectEntry> projects = new ArrayList<>(nodes.size());
+        for (ProjectNode node : nodes) projects.add(node.project);
+        return Collections.unmodifiableList(projects);
+    }
+
+    @Nullable
+    public ProjectEntry getProject(@Nullable String projectId) {
+        ProjectNode node = projectId != null ? projectsById.get(projectId) : null;
+        return node != null ? node.project : null;
+    }
+
+    public int getProjectCount() {
+        return projectsById.size();
+    }
+
+    /**
+     * Breadcrumb: các thư mục từ root xuống tới projectId (gồm cả projectId)
+     * Thư mục cha không còn (đã xóa / chưa tải) -> dừng ở đó
+     */
+    @NonNull
+    public List<ProjectEntry> getPath(@Nullable String projectId) {
+        List<ProjectEntry> path = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        String id = projectId;
+        while (id != null && visited.add(id)) {
+            ProjectNode node = projectsById.get(id);
+            if (node == null) break;
+            path.add(node.project);
+            id = node.parentId;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // ===== THỐNG KÊ =====
+
+    /**
+     * Số task của thư mục, cộng cả thư mục con / cháu (null = chỉ task ở root)
+     */
+    @NonNull
+    public Stats getStats(@Nullable String projectId) {
+        if (projectId == null) return toStats(countsByParent.get(null));
+        int total = 0;
+        int completed = 0;
+        int reminders = 0;
+        Set<String> visited = new HashSet<>();
+        List<String> stack = new ArrayList<>();
+        stack.add(projectId);
+        while (!stack.isEmpty()) {
+            String id = stack.remove(stack.size() - 1);
+            if (!visited.add(id)) continue;
+            Counts counts = countsByParent.get(id);
+            if (counts != null) {
+                total += counts.total;
+                completed += counts.completed;
+                reminders += counts.reminders;
+            }
+            TreeSet<ProjectNode> children = projectsByParent.get(id);
+            if (children != null) {
+                for (ProjectNode child : children) stack.add(child.id);
+            }
+        }
+        return total == 0 ? Stats.EMPTY : new Stats(total, completed, reminders);
+    }
+
+    private static Stats toStats(@Nullable Counts counts) {
+        return counts == null ? Stats.EMPTY : new Stats(counts.total, counts.completed, counts.reminders);
+    }
+}
@@ -10,8 +10,8 @@ import android.widget.TextView;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.test.lifehub.R;
@@ -20,8 +20,11 @@ import com.test.lifehub.features.two_productivity.data.NoteEntry;
 /**
  * Adapter cho RecyclerView của Ghi chú (Notes).
  * (Đã sửa lỗi hiển thị Date)
+ * 
+ * PagingDataAdapter: nhận PagingData theo trang từ ProductivityViewModel.getPagedNotes(),
+ * kết quả tìm kiếm được bọc bằng PagingData.from(list).
  */
-public class NoteAdapter extends ListAdapter<NoteEntry, NoteAdapter.NoteViewHolder> {
+public class NoteAdapter extends PagingDataAdapter<NoteEntry, NoteAdapter.NoteViewHolder> {
 
     private final Context mContext;
     private final ActivityResultLauncher<Intent> noteActivityResultLauncher;
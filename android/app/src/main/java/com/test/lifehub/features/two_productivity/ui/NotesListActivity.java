@@ -11,7 +11,10 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
@@ -19,11 +22,13 @@ import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.test.lifehub.R;
 import com.test.lifehub.features.two_productivity.data.NoteEntry;
+import com.test.lifehub.features.two_productivity.repository.NoteSearchIndex;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import dagger.hilt.android.AndroidEntryPoint;
+import kotlin.Unit;
 
 @AndroidEntryPoint
 public class NotesListActivity extends AppCompatActivity {
@@ -36,12 +41,22 @@ public class NotesListActivity extends AppCompatActivity {
     private SearchView mSearchView;
     private TextView mEmptyView;
 
-    private List<NoteEntry> mAllNotes = new ArrayList<>();
+    private NoteSearchIndex mSearchIndex;                  // Dùng cho tìm kiếm (null khi không tìm)
+    private PagingData<NoteEntry> mPagedNotes;             // Trang hiện tại (khi không tìm kiếm)
+    private boolean mSearchIndexAttached = false;
+
+    private final Observer<NoteSearchIndex> mSearchIndexObserver = index -> {
+        mSearchIndex = index;
+        if (!isQueryEmpty(mSearchView.getQuery().toString())) {
+            filterNotes(mSearchView.getQuery().toString());
+        }
+    };
 
     private final ActivityResultLauncher<Intent> noteActivityResultLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
                 if (result.getResultCode() == Activity.RESULT_OK) {
-                    // Không cần làm gì, LiveData tự cập nhật
+                    // Trang đầu tự cập nhật (realtime); các trang sau chỉ là bản chụp -> tải lại
+                    mNoteAdapter.refresh();
                 }
             });
 
@@ -74,14 +89,46 @@ public class NotesListActivity extends AppCompatActivity {
 
         setupSearchView();
 
+        // Empty view theo trạng thái tải của Paging (không cần đợi toàn bộ collection)
+        mNoteAdapter.addLoadStateListener(states -> {
+            if (states.getRefresh() instanceof LoadState.NotLoading) {
+                updateEmptyView(mNoteAdapter.getItemCount() == 0);
+            }
+            return Unit.INSTANCE;
+        });
+
         mViewModel = new ViewModelProvider(this).get(ProductivityViewModel.class);
 
-        mViewModel.getAllNotes().observe(this, notes -> {
-            mAllNotes = notes != null ? notes : new ArrayList<>();
-            filterNotes(mSearchView.getQuery().toString());
+        // Danh sách hiển thị ngay sau trang đầu tiên
+        mViewModel.getPagedNotes().observe(this, pagingData -> {
+            mPagedNotes = pagingData;
+            if (isQueryEmpty(mSearchView.getQuery().toString())) {
+                mNoteAdapter.submitData(getLifecycle(), pagingData);
+            }
         });
     }
 
+    /**
+     * Tìm kiếm qua chỉ mục (cập nhật theo Diff, không quét lại toàn bộ ghi chú)
+     * Chỉ mục cần listener toàn bộ collection Notes -> chỉ observe khi đang có từ khóa,
+     * danh sách theo trang không kéo theo listener đó
+     */
+    private void attachSearchIndex() {
+        mSearchIndexAttached = true;
+        mViewModel.getNoteSearchIndex().observe(this, mSearchIndexObserver);
+    }
+
+    private void detachSearchIndex() {
+        if (!mSearchIndexAttached) return;
+        mSearchIndexAttached = false;
+        mViewModel.getNoteSearchIndex().removeObserver(mSearchIndexObserver);
+        mSearchIndex = null;
+    }
+
+    private static boolean isQueryEmpty(String query) {
+        return query == null || query.trim().isEmpty();
+    }
+
     private void setupSearchView() {
         mSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
@@ -98,26 +145,28 @@ public class NotesListActivity extends AppCompatActivity {
     }
 
     private void filterNotes(String query) {
-        List<NoteEntry> filteredList = new ArrayList<>();
-
-        if (query == null || query.trim().isEmpty()) {
-            filteredList = mAllNotes;
-        } else {
-            String lowerCaseQuery = query.toLowerCase().trim();
-            for (NoteEntry note : mAllNotes) {
-                if (note.getTitle().toLowerCase().contains(lowerCaseQuery) ||
-                        note.getContent().toLowerCase().contains(lowerCaseQuery)) {
-                    filteredList.add(note);
-                }
+        if (isQueryEmpty(query)) {
+            // Bỏ tìm kiếm -> quay lại danh sách theo trang, gỡ listener toàn bộ ghi chú
+            detachSearchIndex();
+            if (mPagedNotes != null) {
+                mNoteAdapter.submitData(getLifecycle(), mPagedNotes);
             }
+            return;
+        }
+
+        if (!mSearchIndexAttached) {
+            attachSearchIndex();
+            if (mSearchIndex != null) return; // Observer đã lọc bằng chỉ mục có sẵn
         }
+        // Không phân biệt dấu, khớp tiền tố; khớp tiêu đề trước, mới sửa trước
+        List<NoteEntry> filteredList = mSearchIndex != null
+                ? mSearchIndex.search(query) : new ArrayList<>();
 
-        mNoteAdapter.submitList(filteredList);
-        updateEmptyView(filteredList);
+        mNoteAdapter.submitData(getLifecycle(), PagingData.from(filteredList));
     }
 
-    private void updateEmptyView(List<NoteEntry> notes) {
-        if (notes == null || notes.isEmpty()) {
+    private void updateEmptyView(boolean isEmpty) {
+        if (isEmpty) {
             mRecyclerView.setVisibility(View.GONE);
             mEmptyView.setVisibility(View.VISIBLE);
         } else {
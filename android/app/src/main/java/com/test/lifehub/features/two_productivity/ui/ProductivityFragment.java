@@ -12,9 +12,13 @@ import androidx.fragment.app.Fragment;
 
 import com.google.android.material.card.MaterialCardView;
 import com.test.lifehub.R;
+import com.test.lifehub.core.repository.WarmUpSchedule;
 import com.test.lifehub.core.util.Constants;
+import com.test.lifehub.core.util.PreferenceManager;
 import com.test.lifehub.features.four_calendar.ui.CalendarActivity;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -92,6 +96,8 @@ import dagger.hilt.android.AndroidEntryPoint;
  * 
  * === LƯU Ý ===
  * - Fragment KHÔNG giữ state (không cần ViewModel)
+ * - Mỗi lần mở Ghi chú / Công việc / Mua sắm / Lịch được đếm (PreferenceManager)
+ *   để MainActivity warm-up mục hay dùng trước (WarmUpSchedule)
  * - Chỉ là navigation hub
  * - Không cần onSaveInstanceState (không có data cần lưu)
  * 
@@ -108,6 +114,9 @@ import dagger.hilt.android.AndroidEntryPoint;
 @AndroidEntryPoint
 public class ProductivityFragment extends Fragment {
 
+    @Inject
+    PreferenceManager preferenceManager; // Đếm số lần mở từng mục (ưu tiên warm-up)
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -123,12 +132,14 @@ public class ProductivityFragment extends Fragment {
 
         // Ghi chú
         cardNotes.setOnClickListener(v -> {
+            preferenceManager.recordSectionOpen(WarmUpSchedule.SECTION_NOTES);
             Intent intent = new Intent(getContext(), NotesListActivity.class);
             startActivity(intent);
         });
 
         // Công việc
         cardTodo.setOnClickListener(v -> {
+            preferenceManager.recordSectionOpen(WarmUpSchedule.SECTION_TASKS);
             Intent intent = new Intent(getContext(), TaskListActivity.class);
             intent.putExtra(Constants.EXTRA_TASK_TYPE, Constants.TASK_TYPE_GENERAL);
             startActivity(intent);
@@ -136,6 +147,7 @@ public class ProductivityFragment extends Fragment {
 
         // Mua sắm
         cardShopping.setOnClickListener(v -> {
+            preferenceManager.recordSectionOpen(WarmUpSchedule.SECTION_TASKS);
             Intent intent = new Intent(getContext(), TaskListActivity.class);
             intent.putExtra(Constants.EXTRA_TASK_TYPE, Constants.TASK_TYPE_SHOPPING);
             startActivity(intent);
@@ -156,6 +168,7 @@ public class ProductivityFragment extends Fragment {
 
         // ✅ Lịch (MỚI)
         cardCalendar.setOnClickListener(v -> {
+            preferenceManager.recordSectionOpen(WarmUpSchedule.SECTION_CALENDAR);
             Intent intent = new Intent(getContext(), CalendarActivity.class);
             startActivity(intent);
         });
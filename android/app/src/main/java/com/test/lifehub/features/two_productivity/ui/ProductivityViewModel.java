@@ -2,16 +2,28 @@ package com.test.lifehub.features.two_productivity.ui;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.test.lifehub.core.repository.DiffFollower;
+import com.test.lifehub.core.repository.FirestorePagingSource;
 import com.test.lifehub.features.two_productivity.data.NoteEntry;
 import com.test.lifehub.features.two_productivity.data.ProjectEntry;
 import com.test.lifehub.features.two_productivity.data.TaskEntry;
+import com.test.lifehub.features.two_productivity.data.TaskListItem;
+import com.test.lifehub.features.two_productivity.repository.NoteSearchIndex;
 import com.test.lifehub.features.two_productivity.repository.ProductivityRepository;
+import com.test.lifehub.features.two_productivity.repository.ProjectSubtreeOperation;
+import com.test.lifehub.features.two_productivity.repository.ProjectTree;
 
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -62,22 +74,25 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  *    ```
  * 
  * 2. MEDIATOR LIVEDATA PATTERN:
- *    - tasksInRoot: Tự động lọc tasks ở root khi allTasks thay đổi
- *    - projectsInRoot: Tự động lọc projects ở root khi allProjects thay đổi
- *    - tasksInProject: Lọc tasks thuộc mCurrentProjectId
- *    - projectsInProject: Lọc subprojects thuộc mCurrentProjectId
+ *    - projectTree: index ProjectTree, nhận Diff của store Tasks / Projects
+ *    - folderTree: ProjectTree chỉ gồm thư mục (header / breadcrumb khi task tải theo trang)
+ *    - tasksInRoot / projectsInRoot: con trực tiếp của root, đọc từ projectTree
+ *    - tasksInProject / projectsInProject: con trực tiếp của mCurrentProjectId
  * 
  *    Lý do dùng MediatorLiveData:
- *    - Kết hợp nhiều LiveData sources (allTasks + allProjects)
+ *    - Kết hợp nhiều LiveData sources (allTasks + allProjects + Diff của từng store)
  *    - Tự động cập nhật khi bất kỳ source nào thay đổi
  *    - Tránh phải refresh thủ công
  * 
- * 3. STREAM API FILTERING:
- *    ```java
- *    tasks.stream()
- *         .filter(t -> t.getProjectId() == null)  // Chỉ lấy root tasks
- *         .collect(Collectors.toList())
- *    ```
+ * 3. INDEX TĂNG DẦN (ProjectTree):
+ *    - Mỗi lần store phát, chỉ áp dụng Diff vào index (không stream-filter lại toàn bộ)
+ *    - Lấy con của 1 thư mục / breadcrumb: O(số con) / O(độ sâu)
+ *    - Số task (tổng / đã xong / nhắc nhở) của từng thư mục cho badge tiến độ
+ *    - Index chỉ đồng bộ khi có người xem; hết người xem -> lần sau dựng lại từ danh sách
+ * 
+ * 4. TÌM KIẾM GHI CHÚ:
+ *    noteSearchIndex (NoteSearchIndex) - chỉ mục đảo cập nhật theo Diff của store Notes,
+ *    NotesListActivity gọi search() mỗi lần gõ phím thay vì quét contains() toàn bộ
  * 
  * === LIVEDATA HIERARCHY ===
  * 
@@ -88,6 +103,9 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * - allProjects: Tất cả projects
  * 
  * ViewModel Layer (Transformed):
+ * - projectTree: Index cây thư mục + thống kê
+ * - folderTree: Cây thư mục không có task (không cần listener Tasks)
+ * - noteSearchIndex: Chỉ mục tìm kiếm ghi chú
  * - tasksInRoot: Tasks ở root level (projectId=null)
  * - projectsInRoot: Projects ở root level (projectId=null)
  * - tasksInProject: Tasks thuộc mCurrentProjectId
@@ -152,7 +170,6 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
  * TODO: Hỗ trợ sort tasks (theo ngày, tên, priority)
  * TODO: Thêm batch operations (delete nhiều tasks)
  * TODO: Hỗ trợ drag-and-drop để sắp xếp tasks
- * FIXME: Hiệu suất khi danh sách tasks quá dài (1000+ items)
  * 
  * @see ProductivityRepository Data source
  * @see ProductivityFragment UI layer
@@ -161,6 +178,8 @@ import dagger.hilt.android.lifecycle.HiltViewModel;
 @HiltViewModel
 public class ProductivityViewModel extends ViewModel {
 
+    private static final int PAGE_SIZE = 30;
+
     private final ProductivityRepository mRepository;
 
     private final LiveData<List<NoteEntry>> allNotes;
@@ -168,13 +187,27 @@ public class ProductivityViewModel extends ViewModel {
     private final LiveData<List<TaskEntry>> allShoppingItems;
     private final LiveData<List<ProjectEntry>> allProjects;
 
+    private final ProjectTreeLiveData projectTree;
+    private final FolderTreeLiveData folderTree;
+    private final NoteSearchLiveData noteSearchIndex;
+
     private final MediatorLiveData<List<TaskEntry>> tasksInRoot = new MediatorLiveData<>();
     private final MediatorLiveData<List<ProjectEntry>> projectsInRoot = new MediatorLiveData<>();
 
     private final MediatorLiveData<List<TaskEntry>> tasksInProject = new MediatorLiveData<>();
     private final MediatorLiveData<List<ProjectEntry>> projectsInProject = new MediatorLiveData<>();
 
-    private String mCurrentProjectId = null;
+    private volatile String mCurrentProjectId = null; // Pager đọc khi tạo PagingSource
+
+    // Xóa cây thư mục đang chạy / vừa xong (tiến độ, tiếp tục, hoàn tác)
+    private final MutableLiveData<ProjectSubtreeOperation> projectDeletion = new MutableLiveData<>();
+    private ProjectSubtreeOperation mProjectDeletionOperation; // Thao tác gần nhất (resume / undo)
+
+    // --- Paging (tạo lazy khi màn hình danh sách cần tới) ---
+    private LiveData<PagingData<NoteEntry>> pagedNotes;
+    private LiveData<PagingData<TaskListItem>> pagedTaskItems;
+    private volatile int mPagedTaskType;
+    private volatile FirestorePagingSource<TaskEntry> mTaskPagingSource;
 
     @Inject
     public ProductivityViewModel(ProductivityRepository repository) {
@@ -185,53 +218,135 @@ public class ProductivityViewModel extends ViewModel {
         allShoppingItems = mRepository.getAllShoppingItems();
         allProjects = mRepository.getAllProjects();
 
-        // --- Logic lọc ---
-        tasksInRoot.addSource(allTasks, tasks -> filterRootLists(tasks, allProjects.getValue()));
-        projectsInRoot.addSource(allProjects, projects -> filterRootLists(allTasks.getValue(), projects));
+        projectTree = new ProjectTreeLiveData();
+        folderTree = new FolderTreeLiveData();
+        noteSearchIndex = new NoteSearchLiveData();
+
+        // --- Logic lọc: đọc con trực tiếp từ index ---
+        tasksInRoot.addSource(projectTree, tree -> tasksInRoot.setValue(tree.getTasks(null)));
+        projectsInRoot.addSource(projectTree, tree -> projectsInRoot.setValue(tree.getChildren(null)));
 
-        tasksInProject.addSource(allTasks, tasks -> filterProjectDetailLists(tasks, allProjects.getValue()));
-        projectsInProject.addSource(allProjects, projects -> filterProjectDetailLists(allTasks.getValue(), projects));
+        tasksInProject.addSource(projectTree, tree -> tasksInProject.setValue(
+                mCurrentProjectId != null ? tree.getTasks(mCurrentProjectId) : null));
+        projectsInProject.addSource(projectTree, tree -> projectsInProject.setValue(
+                mCurrentProjectId != null ? tree.getChildren(mCurrentProjectId) : null));
     }
 
-    // --- Logic lọc (Filtering Logic) ---
+    // --- Index cây thư mục ---
+
+    /**
+     * Giữ ProjectTree đồng bộ với store Tasks / Projects của repository bằng Diff
+     * (chỉ khi có người xem; hết người xem -> lần sau dựng lại, xem DiffFollower)
+     */
+    private final class ProjectTreeLiveData extends MediatorLiveData<ProjectTree> {
+        private final ProjectTree tree = new ProjectTree();
+        private final DiffFollower<TaskEntry> tasks =
+                new DiffFollower<>(tree::resetTasks, tree::applyTaskChanges, tree::getTaskCount);
+        private final DiffFollower<ProjectEntry> projects =
+                new DiffFollower<>(tree::resetProjects, tree::applyProjectChanges, tree::getProjectCount);
 
-    private void filterRootLists(List<TaskEntry> tasks, List<ProjectEntry> projects) {
-        if (tasks != null) {
-            tasksInRoot.setValue(tasks.stream()
-                    .filter(t -> t.getProjectId() == null) // Chỉ lấy task ở root
-                    .collect(Collectors.toList()));
+        ProjectTreeLiveData() {
+            tasks.attach(this, allTasks, mRepository.getTaskChanges(), () -> setValue(tree));
+            projects.attach(this, allProjects, mRepository.getProjectChanges(), () -> setValue(tree));
         }
-        if (projects != null) {
-            projectsInRoot.setValue(projects.stream()
-                    .filter(p -> p.getProjectId() == null) // Chỉ lấy project ở root
-                    .collect(Collectors.toList()));
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            tasks.invalidate();
+            projects.invalidate();
         }
     }
 
-    private void filterProjectDetailLists(List<TaskEntry> tasks, List<ProjectEntry> projects) {
-        if (mCurrentProjectId == null) {
-            tasksInProject.setValue(null);
-            projectsInProject.setValue(null);
-            return;
+    /**
+     * Cây chỉ gồm thư mục, đồng bộ với store Projects bằng Diff
+     * (danh sách task theo trang cần header / breadcrumb mà không giữ listener toàn bộ Tasks)
+     */
+    private final class FolderTreeLiveData extends MediatorLiveData<ProjectTree> {
+        private final ProjectTree tree = new ProjectTree();
+        private final DiffFollower<ProjectEntry> projects =
+                new DiffFollower<>(tree::resetProjects, tree::applyProjectChanges, tree::getProjectCount);
+
+        FolderTreeLiveData() {
+            projects.attach(this, allProjects, mRepository.getProjectChanges(), () -> setValue(tree));
         }
 
-        if (tasks != null) {
-            tasksInProject.setValue(tasks.stream()
-                    .filter(t -> Objects.equals(t.getProjectId(), mCurrentProjectId)) // Dùng Objects.equals
-                    .collect(Collectors.toList()));
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            projects.invalidate();
+        }
+    }
+
+    /**
+     * Chỉ mục tìm kiếm ghi chú, đồng bộ với store Notes bằng Diff
+     */
+    private final class NoteSearchLiveData extends MediatorLiveData<NoteSearchIndex> {
+        private final NoteSearchIndex index = new NoteSearchIndex();
+        private final DiffFollower<NoteEntry> notes = new DiffFollower<>(index::reset, index::apply, index::size);
+
+        NoteSearchLiveData() {
+            notes.attach(this, allNotes, mRepository.getNoteChanges(), () -> setValue(index));
         }
-        if (projects != null) {
-            projectsInProject.setValue(projects.stream()
-                    .filter(p -> Objects.equals(p.getProjectId(), mCurrentProjectId)) // Dùng Objects.equals
-                    .collect(Collectors.toList()));
+
+        @Override
+        protected void onInactive() {
+            super.onInactive();
+            notes.invalidate();
         }
     }
 
     public void setCurrentProjectId(String projectId) {
         mCurrentProjectId = projectId;
-        // Kích hoạt re-filter
-        filterRootLists(allTasks.getValue(), allProjects.getValue());
-        filterProjectDetailLists(allTasks.getValue(), allProjects.getValue());
+        // Phát lại danh sách từ index cho thư mục mới (index chưa đồng bộ -> đợi lần phát đầu tiên)
+        ProjectTree tree = projectTree.getValue();
+        if (tree != null && projectTree.hasActiveObservers()) {
+            tasksInRoot.setValue(tree.getTasks(null));
+            projectsInRoot.setValue(tree.getChildren(null));
+            tasksInProject.setValue(projectId != null ? tree.getTasks(projectId) : null);
+            projectsInProject.setValue(projectId != null ? tree.getChildren(projectId) : null);
+        } else if (projectId == null) {
+            tasksInProject.setValue(null);
+            projectsInProject.setValue(null);
+        }
+        // Danh sách task theo trang: tạo source mới cho project mới
+        refreshPagedTasks();
+    }
+
+    // --- Paging ---
+
+    /**
+     * Ghi chú theo trang (trang đầu realtime), giữ cache qua xoay màn hình
+     */
+    public LiveData<PagingData<NoteEntry>> getPagedNotes() {
+        if (pagedNotes == null) {
+            Pager<DocumentSnapshot, NoteEntry> pager = new Pager<>(new PagingConfig(PAGE_SIZE),
+                    mRepository::createNotePagingSource);
+            pagedNotes = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), this);
+        }
+        return pagedNotes;
+    }
+
+    /**
+     * Task theo trang cho project hiện tại (setCurrentProjectId), bọc sẵn thành TaskListItem
+     * 
+     * @param taskType Loại task của màn hình (chỉ dùng ở lần gọi đầu tiên)
+     */
+    public LiveData<PagingData<TaskListItem>> getPagedTaskItems(int taskType) {
+        if (pagedTaskItems == null) {
+            mPagedTaskType = taskType;
+            Pager<DocumentSnapshot, TaskEntry> pager = new Pager<>(new PagingConfig(PAGE_SIZE), () -> {
+                FirestorePagingSource<TaskEntry> source =
+                        mRepository.createTaskPagingSource(mPagedTaskType, mCurrentProjectId);
+                mTaskPagingSource = source;
+                return source;
+            });
+            pagedTaskItems = PagingLiveData.cachedIn(
+                    Transformations.map(PagingLiveData.getLiveData(pager),
+                            data -> PagingDataTransforms.map(data, Runnable::run, task -> new TaskListItem(task))),
+                    this);
+        }
+        return pagedTaskItems;
     }
 
     // --- Getters cho UI ---
@@ -242,9 +357,23 @@ public class ProductivityViewModel extends ViewModel {
     public LiveData<List<TaskEntry>> getTasksInProject() { return tasksInProject; }
     public LiveData<List<ProjectEntry>> getProjectsInProject() { return projectsInProject; }
 
+    /**
+     * Index cây thư mục: breadcrumb (getPath) và số task của từng thư mục (getStats)
+     */
+    public LiveData<ProjectTree> getProjectTree() { return projectTree; }
+
+    /**
+     * Cây thư mục không có task: getChildren / getPath (getStats luôn rỗng)
+     */
+    public LiveData<ProjectTree> getFolderTree() { return folderTree; }
+
     public LiveData<List<TaskEntry>> getAllShoppingItems() { return allShoppingItems; }
 
     public LiveData<List<NoteEntry>> getAllNotes() { return allNotes; }
+    /**
+     * Chỉ mục tìm kiếm ghi chú (không dấu, theo tiền tố, đã xếp hạng) - observe để giữ đồng bộ
+     */
+    public LiveData<NoteSearchIndex> getNoteSearchIndex() { return noteSearchIndex; }
     public LiveData<NoteEntry> getNoteById(String documentId) { return mRepository.getNoteById(documentId); }
 
     public LiveData<List<TaskEntry>> getAllTasks() {
@@ -257,9 +386,15 @@ public class ProductivityViewModel extends ViewModel {
     public void updateNote(NoteEntry note) { mRepository.updateNote(note); }
     public void deleteNote(NoteEntry note) { mRepository.deleteNote(note); }
 
-    public void insertTask(TaskEntry task) { mRepository.insertTask(task); }
-    public void updateTask(TaskEntry task) { mRepository.updateTask(task); }
-    public void deleteTask(TaskEntry task) { mRepository.deleteTask(task); }
+    // Trang sau trang đầu không có listener -> tải lại để thấy thay đổi của chính mình
+    public void insertTask(TaskEntry task) { mRepository.insertTask(task); refreshPagedTasks(); }
+    public void updateTask(TaskEntry task) { mRepository.updateTask(task); refreshPagedTasks(); }
+    public void deleteTask(TaskEntry task) { mRepository.deleteTask(task); refreshPagedTasks(); }
+
+    private void refreshPagedTasks() {
+        FirestorePagingSource<TaskEntry> source = mTaskPagingSource;
+        if (source != null) source.invalidate();
+    }
 
     public void insertProject(String name, String parentProjectId) {
         mRepository.insertProject(name, parentProjectId);
@@ -268,6 +403,36 @@ public class ProductivityViewModel extends ViewModel {
         mRepository.updateProjectName(projectId, newName);
     }
     public void deleteProject(ProjectEntry project) {
-        mRepository.deleteProject(project);
+        deleteProject(project, ProjectSubtreeOperation.Mode.DETACH_TASKS);
+    }
+
+    /**
+     * Xóa thư mục cùng thư mục con; mode quyết định task bên trong được đưa ra ngoài hay xóa theo
+     */
+    public void deleteProject(ProjectEntry project, ProjectSubtreeOperation.Mode mode) {
+        mRepository.deleteProjectSubtree(project, mode, operation -> {
+            mProjectDeletionOperation = operation;
+            projectDeletion.setValue(operation);
+        });
+    }
+
+    public LiveData<ProjectSubtreeOperation> getProjectDeletion() { return projectDeletion; }
+
+    /**
+     * Activity đã hiện kết quả (dialog lỗi / snackbar xong) -> xóa sự kiện để xoay màn hình
+     * không hiện lại; thao tác vẫn được giữ cho resume / undo
+     */
+    public void onProjectDeletionHandled() {
+        projectDeletion.setValue(null);
+    }
+
+    public void resumeProjectDeletion() {
+        ProjectSubtreeOperation operation = mProjectDeletionOperation;
+        if (operation != null) operation.resume();
+    }
+
+    public void undoProjectDeletion() {
+        ProjectSubtreeOperation operation = mProjectDeletionOperation;
+        if (operation != null) operation.undo();
     }
 }
\ No newline at end of file
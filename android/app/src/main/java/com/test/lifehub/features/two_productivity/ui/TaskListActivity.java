@@ -14,7 +14,12 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
+import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.TerminalSeparatorType;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -28,14 +33,18 @@ import com.test.lifehub.core.util.Constants;
 import com.test.lifehub.features.two_productivity.data.ProjectEntry;
 import com.test.lifehub.features.two_productivity.data.TaskEntry;
 import com.test.lifehub.features.two_productivity.data.TaskListItem;
+import com.test.lifehub.features.two_productivity.repository.ProjectSubtreeOperation;
+import com.test.lifehub.features.two_productivity.repository.ProjectTree;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 import dagger.hilt.android.AndroidEntryPoint;
+import kotlin.Unit;
 
 @AndroidEntryPoint
 public class TaskListActivity extends AppCompatActivity
@@ -59,8 +68,21 @@ public class TaskListActivity extends AppCompatActivity
     private String mCurrentProjectId = null;
     private String mCurrentProjectName = null;
 
-    private List<TaskListItem> mAllItems = new ArrayList<>();
+    private List<TaskListItem> mAllItems = new ArrayList<>();   // Dùng cho tìm kiếm
+    private PagingData<TaskListItem> mPagedTasks;               // Task theo trang (khi không tìm kiếm)
+    private List<ProjectEntry> mHeaderProjects = new ArrayList<>(); // Project hiển thị phía trên task
+    private ProjectTree mFolderTree;                            // Thư mục (header + breadcrumb)
+
+    // Tìm kiếm + số task của thư mục cần TOÀN BỘ Tasks -> chỉ observe khi ô tìm kiếm đang mở
+    private boolean mSearchDataAttached = false;
+    private boolean mSearchItemsReady = false;
+    private final Observer<ProjectTree> mProjectTreeObserver = tree -> {
+        mAdapter.setProjectTree(tree);
+        onSearchDataChanged();
+    };
+    private final Observer<List<TaskEntry>> mShoppingObserver = items -> onSearchDataChanged();
     private BottomSheetDialog mBottomSheetDialog;
+    private Snackbar mProjectDeletionSnackbar; // Tiến độ xóa cây thư mục
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -88,6 +110,12 @@ public class TaskListActivity extends AppCompatActivity
         mAdapter = new TaskListAdapter(this);
         mRecyclerView.setAdapter(mAdapter);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        mAdapter.addLoadStateListener(states -> {
+            if (states.getRefresh() instanceof LoadState.NotLoading) {
+                updateEmptyView(mAdapter.getItemCount() == 0);
+            }
+            return Unit.INSTANCE;
+        });
 
         setupSwipeToDelete();
         setupFabDrawer();
@@ -113,10 +141,14 @@ public class TaskListActivity extends AppCompatActivity
                 if (mBottomSheetDialog != null && mBottomSheetDialog.isShowing()) {
                     dismissBottomSheet();
                 } else if (mCurrentProjectId != null) {
-                    mCurrentProjectId = null;
-                    mCurrentProjectName = null;
-                    mViewModel.setCurrentProjectId(null);
-                    updateToolbarTitle();
+                    // Lùi về thư mục cha (không còn trong index -> về root)
+                    ProjectTree tree = mFolderTree;
+                    ProjectEntry current = tree != null ? tree.getProject(mCurrentProjectId) : null;
+                    ProjectEntry parent = current != null ? tree.getProject(current.getProjectId()) : null;
+                    mCurrentProjectId = parent != null ? parent.documentId : null;
+                    mCurrentProjectName = parent != null ? parent.getName() : null;
+                    mViewModel.setCurrentProjectId(mCurrentProjectId);
+                    onFolderChanged();
                 } else {
                     // Nếu không rơi vào 2 trường hợp trên, hãy vô hiệu hóa callback này
                     // và gọi lại onBackPressed() để thực hiện hành vi mặc định (thoát Activity)
@@ -199,6 +231,7 @@ public class TaskListActivity extends AppCompatActivity
             public boolean onQueryTextChange(String newText) {
                 dismissBottomSheet();
                 filterItems(newText);
+                if (isQueryEmpty(newText) && !mSearchView.hasFocus()) detachSearchData();
                 return true;
             }
         });
@@ -206,32 +239,130 @@ public class TaskListActivity extends AppCompatActivity
         mSearchView.setOnQueryTextFocusChangeListener((v, hasFocus) -> {
             if (hasFocus) {
                 dismissBottomSheet();
+                attachSearchData(); // Tải trước trong lúc người dùng gõ
+            } else if (isQueryEmpty(mSearchView.getQuery().toString())) {
+                detachSearchData();
             }
         });
     }
 
-    private void filterItems(String query) {
-        List<TaskListItem> filteredList = new ArrayList<>();
+    /**
+     * Mở tìm kiếm: observe toàn bộ Tasks (shopping: danh sách mua sắm; công việc: ProjectTree
+     * đầy đủ, kèm số task của từng thư mục). Đóng tìm kiếm thì gỡ -> listener Tasks tự tạm dừng
+     */
+    private void attachSearchData() {
+        if (mSearchDataAttached) return;
+        mSearchDataAttached = true;
+        if (mTaskType == Constants.TASK_TYPE_SHOPPING) {
+            mViewModel.getAllShoppingItems().observe(this, mShoppingObserver);
+        } else {
+            mViewModel.getProjectTree().observe(this, mProjectTreeObserver);
+        }
+    }
 
-        if (query == null || query.trim().isEmpty()) {
-            filteredList = mAllItems;
+    private void detachSearchData() {
+        if (!mSearchDataAttached) return;
+        mSearchDataAttached = false;
+        mSearchItemsReady = false;
+        mAllItems = new ArrayList<>();
+        if (mTaskType == Constants.TASK_TYPE_SHOPPING) {
+            mViewModel.getAllShoppingItems().removeObserver(mShoppingObserver);
         } else {
-            String lowerCaseQuery = query.toLowerCase().trim();
-            for (TaskListItem item : mAllItems) {
-                if (item.type == TaskListItem.TYPE_PROJECT) {
-                    if (item.project.getName().toLowerCase().contains(lowerCaseQuery)) {
-                        filteredList.add(item);
-                    }
-                } else {
-                    if (item.task.getName().toLowerCase().contains(lowerCaseQuery)) {
-                        filteredList.add(item);
-                    }
+            mViewModel.getProjectTree().removeObserver(mProjectTreeObserver);
+            mAdapter.setProjectTree(null);
+        }
+    }
+
+    private static boolean isQueryEmpty(String query) {
+        return query == null || query.trim().isEmpty();
+    }
+
+    private void filterItems(String query) {
+        if (isQueryEmpty(query)) {
+            submitPagedItems();
+            return;
+        }
+
+        if (!mSearchDataAttached) {
+            attachSearchData();
+            if (mSearchItemsReady) return; // Observer đã lọc bằng dữ liệu có sẵn
+        }
+        List<TaskListItem> filteredList = new ArrayList<>();
+        String lowerCaseQuery = query.toLowerCase().trim();
+        for (TaskListItem item : mAllItems) {
+            if (item.type == TaskListItem.TYPE_PROJECT) {
+                if (item.project.getName().toLowerCase().contains(lowerCaseQuery)) {
+                    filteredList.add(item);
+                }
+            } else {
+                if (item.task.getName().toLowerCase().contains(lowerCaseQuery)) {
+                    filteredList.add(item);
                 }
             }
         }
 
-        mAdapter.submitList(filteredList);
-        updateEmptyView(filteredList);
+        mAdapter.submitData(getLifecycle(), PagingData.from(filteredList));
+    }
+
+    /**
+     * Hiển thị task theo trang, project của thư mục hiện tại làm header phía trên
+     */
+    private void submitPagedItems() {
+        if (mPagedTasks == null) return;
+        PagingData<TaskListItem> data = mPagedTasks;
+        for (int i = mHeaderProjects.size() - 1; i >= 0; i--) {
+            data = PagingDataTransforms.insertHeaderItem(data, TerminalSeparatorType.FULLY_COMPLETE,
+                    new TaskListItem(mHeaderProjects.get(i)));
+        }
+        mAdapter.submitData(getLifecycle(), data);
+    }
+
+    /**
+     * Dữ liệu tìm kiếm mới (đang mở tìm kiếm): dựng lại danh sách của thư mục hiện tại rồi lọc
+     */
+    private void onSearchDataChanged() {
+        if (mTaskType == Constants.TASK_TYPE_SHOPPING) {
+            List<TaskEntry> items = mViewModel.getAllShoppingItems().getValue();
+            if (items == null) return;
+            mAllItems = convertToListItems(null, items);
+        } else {
+            ProjectTree tree = mViewModel.getProjectTree().getValue();
+            if (tree == null) return;
+            mAllItems = convertToListItems(tree.getChildren(mCurrentProjectId), tree.getTasks(mCurrentProjectId));
+        }
+        mSearchItemsReady = true;
+        String query = mSearchView.getQuery().toString();
+        if (!isQueryEmpty(query)) filterItems(query);
+    }
+
+    /**
+     * Thư mục đổi (hoặc cây thư mục đổi): header, tiêu đề và kết quả tìm kiếm của thư mục hiện tại
+     */
+    private void onFolderChanged() {
+        updateHeaderProjects();
+        updateToolbarTitle();
+        if (mSearchDataAttached) onSearchDataChanged();
+    }
+
+    /** Project con của thư mục hiện tại làm header; chỉ submit lại khi thật sự đổi */
+    private void updateHeaderProjects() {
+        List<ProjectEntry> projects = mFolderTree != null ? mFolderTree.getChildren(mCurrentProjectId) : null;
+        if (sameProjects(mHeaderProjects, projects)) return;
+        mHeaderProjects = projects != null ? new ArrayList<>(projects) : new ArrayList<>();
+        if (isQueryEmpty(mSearchView.getQuery().toString())) submitPagedItems();
+    }
+
+    /** Header chỉ cần submit lại khi danh sách project (id / tên) thật sự đổi */
+    private static boolean sameProjects(List<ProjectEntry> current, List<ProjectEntry> incoming) {
+        List<ProjectEntry> other = incoming != null ? incoming : Collections.emptyList();
+        if (current.size() != other.size()) return false;
+        for (int i = 0; i < current.size(); i++) {
+            if (!Objects.equals(current.get(i).documentId, other.get(i).documentId)
+                    || !Objects.equals(current.get(i).getName(), other.get(i).getName())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void updateToolbarTitle() {
@@ -240,59 +371,42 @@ public class TaskListActivity extends AppCompatActivity
             title = "Danh sách Mua sắm";
         } else {
             title = (mCurrentProjectName != null) ? mCurrentProjectName : "Công việc (To-do)";
+            // Breadcrumb "Cha › Con" từ cây thư mục (O(độ sâu))
+            ProjectTree tree = mFolderTree;
+            if (tree != null && mCurrentProjectId != null) {
+                List<ProjectEntry> path = tree.getPath(mCurrentProjectId);
+                if (!path.isEmpty()) {
+                    StringBuilder breadcrumb = new StringBuilder();
+                    for (ProjectEntry project : path) {
+                        if (breadcrumb.length() > 0) breadcrumb.append(" › ");
+                        breadcrumb.append(project.getName());
+                    }
+                    title = breadcrumb.toString();
+                }
+            }
         }
         getSupportActionBar().setTitle(title);
     }
 
     private void observeData() {
-        if (mTaskType == Constants.TASK_TYPE_SHOPPING) {
-            mViewModel.getAllShoppingItems().observe(this, tasks -> {
-                List<TaskListItem> items = new ArrayList<>();
-                if (tasks != null) {
-                    Collections.sort(tasks, Comparator.comparing(TaskEntry::isCompleted)
-                            .thenComparing(TaskEntry::getLastModified, Comparator.reverseOrder()));
-                    for (TaskEntry task : tasks) {
-                        items.add(new TaskListItem(task));
-                    }
-                }
-                mAllItems = items;
-                filterItems(mSearchView.getQuery().toString());
-            });
-        } else {
-            mViewModel.getProjectsInRoot().observe(this, projects -> {
-                if (mCurrentProjectId == null) {
-                    List<TaskEntry> tasks = mViewModel.getTasksInRoot().getValue();
-                    List<TaskListItem> items = convertToListItems(projects, tasks);
-                    mAllItems = items;
-                    filterItems(mSearchView.getQuery().toString());
-                }
-            });
-            mViewModel.getTasksInRoot().observe(this, tasks -> {
-                if (mCurrentProjectId == null) {
-                    List<ProjectEntry> projects = mViewModel.getProjectsInRoot().getValue();
-                    List<TaskListItem> items = convertToListItems(projects, tasks);
-                    mAllItems = items;
-                    filterItems(mSearchView.getQuery().toString());
-                }
-            });
+        mViewModel.getProjectDeletion().observe(this, this::onProjectDeletionProgress);
 
-            mViewModel.getProjectsInProject().observe(this, projects -> {
-                if (mCurrentProjectId != null) {
-                    List<TaskEntry> tasks = mViewModel.getTasksInProject().getValue();
-                    List<TaskListItem> items = convertToListItems(projects, tasks);
-                    mAllItems = items;
-                    filterItems(mSearchView.getQuery().toString());
-                }
-            });
-            mViewModel.getTasksInProject().observe(this, tasks -> {
-                if (mCurrentProjectId != null) {
-                    List<ProjectEntry> projects = mViewModel.getProjectsInProject().getValue();
-                    List<TaskListItem> items = convertToListItems(projects, tasks);
-                    mAllItems = items;
-                    filterItems(mSearchView.getQuery().toString());
-                }
+        // Task hiển thị ngay sau trang đầu tiên (không đợi toàn bộ collection)
+        mViewModel.getPagedTaskItems(mTaskType).observe(this, pagingData -> {
+            mPagedTasks = pagingData;
+            if (isQueryEmpty(mSearchView.getQuery().toString())) {
+                submitPagedItems();
+            }
+        });
+
+        if (mTaskType != Constants.TASK_TYPE_SHOPPING) {
+            // Header + breadcrumb chỉ cần thư mục -> không giữ listener toàn bộ Tasks khi xem theo trang
+            mViewModel.getFolderTree().observe(this, tree -> {
+                mFolderTree = tree;
+                onFolderChanged();
             });
         }
+        // Tìm kiếm + số task của thư mục: tải khi mở ô tìm kiếm (attachSearchData)
     }
 
     private List<TaskListItem> convertToListItems(List<ProjectEntry> projects, List<TaskEntry> tasks) {
@@ -303,16 +417,17 @@ public class TaskListActivity extends AppCompatActivity
         }
 
         if (tasks != null) {
-            Collections.sort(tasks, Comparator.comparing(TaskEntry::isCompleted)
+            List<TaskEntry> sorted = new ArrayList<>(tasks);
+            Collections.sort(sorted, Comparator.comparing(TaskEntry::isCompleted)
                     .thenComparing(TaskEntry::getLastModified, Comparator.reverseOrder()));
-            tasks.forEach(t -> items.add(new TaskListItem(t)));
+            sorted.forEach(t -> items.add(new TaskListItem(t)));
         }
 
         return items;
     }
 
-    private void updateEmptyView(List<TaskListItem> items) {
-        if (items == null || items.isEmpty()) {
+    private void updateEmptyView(boolean isEmpty) {
+        if (isEmpty) {
             mRecyclerView.setVisibility(View.GONE);
             mEmptyView.setVisibility(View.VISIBLE);
         } else {
@@ -397,7 +512,7 @@ public class TaskListActivity extends AppCompatActivity
         mCurrentProjectId = project.documentId;
         mCurrentProjectName = project.getName();
         mViewModel.setCurrentProjectId(mCurrentProjectId);
-        updateToolbarTitle();
+        onFolderChanged();
     }
 
     @Override
@@ -416,11 +531,62 @@ public class TaskListActivity extends AppCompatActivity
                 .setPositiveButton(R.string.delete, (dialog, which) -> {
                     mViewModel.deleteProject(project);
                 })
-                .setNegativeButton("Hủy", null)
+                .setNeutralButton(R.string.btn_delete_project_with_tasks, (dialog, which) -> {
+                    mViewModel.deleteProject(project, ProjectSubtreeOperation.Mode.DELETE_TASKS);
+                })
+                .setNegativeButton(R.string.cancel, null)
                 .setIcon(R.drawable.ic_warning)
                 .show();
     }
 
+    /**
+     * Tiến độ xóa cây thư mục: nhiều batch -> hiện "x/y"; lỗi -> cho tiếp tục hoặc hoàn tác
+     * Kết quả (lỗi / xong / đã hoàn tác) chỉ hiện 1 lần: báo ViewModel đã xử lý sau khi hiện
+     */
+    private void onProjectDeletionProgress(ProjectSubtreeOperation operation) {
+        if (operation == null) return;
+        View root = findViewById(android.R.id.content);
+        View anchor = root != null ? root : mCoordinatorLayout;
+        if (mProjectDeletionSnackbar != null) {
+            mProjectDeletionSnackbar.dismiss();
+            mProjectDeletionSnackbar = null;
+        }
+        switch (operation.getState()) {
+            case RUNNING:
+                if (operation.getBatchCount() > 1) {
+                    mProjectDeletionSnackbar = Snackbar.make(anchor, getString(R.string.msg_project_deleting,
+                            operation.getCommittedOps(), operation.getTotalOps()), Snackbar.LENGTH_INDEFINITE);
+                    mProjectDeletionSnackbar.show();
+                }
+                break;
+            case UNDOING:
+                mProjectDeletionSnackbar = Snackbar.make(anchor, R.string.msg_project_restoring, Snackbar.LENGTH_INDEFINITE);
+                mProjectDeletionSnackbar.show();
+                break;
+            case FAILED:
+                AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                        .setTitle(R.string.title_confirm_delete)
+                        .setMessage(getString(R.string.msg_project_delete_interrupted,
+                                operation.getCommittedOps(), operation.getTotalOps()))
+                        .setPositiveButton(R.string.continue_text, (dialog, which) -> mViewModel.resumeProjectDeletion())
+                        .setNegativeButton(R.string.cancel, null);
+                if (operation.canUndo()) {
+                    builder.setNeutralButton(R.string.btn_undo, (dialog, which) -> mViewModel.undoProjectDeletion());
+                }
+                builder.show();
+                mViewModel.onProjectDeletionHandled();
+                break;
+            case COMPLETED:
+                Snackbar.make(anchor, R.string.msg_project_deleted, Snackbar.LENGTH_SHORT).show();
+                mViewModel.onProjectDeletionHandled();
+                break;
+            case UNDONE:
+                Snackbar.make(anchor, R.string.msg_project_restored, Snackbar.LENGTH_SHORT).show();
+                mViewModel.onProjectDeletionHandled();
+                break;
+        }
+    }
+
     //
     // PHƯƠNG THỨC onBackPressed() CŨ ĐÃ BỊ XÓA VÀ THAY BẰNG CALLBACK TRONG onCreate()
     //
@@ -11,18 +11,24 @@ import android.widget.ImageView;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.test.lifehub.R;
 import com.test.lifehub.features.two_productivity.data.ProjectEntry;
 import com.test.lifehub.features.two_productivity.data.TaskEntry;
 import com.test.lifehub.features.two_productivity.data.TaskListItem;
+import com.test.lifehub.features.two_productivity.repository.ProjectTree;
+
+import java.util.List;
 
 /**
  * Adapter MỚI: Hỗ trợ hiển thị cả Project (Thư mục) và Task (Công việc).
+ * 
+ * PagingDataAdapter: project là header, task được tải theo trang
+ * (ProductivityViewModel.getPagedTaskItems()).
  */
-public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.ViewHolder> {
+public class TaskListAdapter extends PagingDataAdapter<TaskListItem, RecyclerView.ViewHolder> {
 
     // Interface để "nói chuyện" ngược lại với Activity.
     public interface OnItemInteractionListener {
@@ -34,6 +40,10 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
     }
 
     private final OnItemInteractionListener mListener;
+    private ProjectTree mProjectTree; // Số task của từng thư mục (badge tiến độ)
+
+    // Payload: chỉ vẽ lại badge của thư mục, không bind lại cả item
+    private static final Object PAYLOAD_STATS = new Object();
 
     public TaskListAdapter(@NonNull OnItemInteractionListener listener) {
         super(DIFF_CALLBACK);
@@ -42,7 +52,7 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
 
     @Override
     public int getItemViewType(int position) {
-        TaskListItem item = getItem(position);
+        TaskListItem item = peek(position); // peek: không kích hoạt tải trang
         if (item != null) {
             return item.type;
         }
@@ -62,6 +72,26 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
         }
     }
 
+    /**
+     * Index mới (task thay đổi) -> vẽ lại badge của các thư mục đang hiển thị
+     */
+    public void setProjectTree(ProjectTree tree) {
+        mProjectTree = tree;
+        if (getItemCount() > 0) notifyItemRangeChanged(0, getItemCount(), PAYLOAD_STATS);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_STATS)) {
+            TaskListItem item = peek(position);
+            if (item != null && item.type == TaskListItem.TYPE_PROJECT && holder instanceof ProjectViewHolder) {
+                ((ProjectViewHolder) holder).bindStats(item.project, mProjectTree);
+            }
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         TaskListItem item = getItem(position);
@@ -69,6 +99,7 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
 
         if (item.type == TaskListItem.TYPE_PROJECT) {
             ((ProjectViewHolder) holder).bind(item.project, mListener);
+            ((ProjectViewHolder) holder).bindStats(item.project, mProjectTree);
         } else {
             ((TaskViewHolder) holder).bind(item.task, mListener);
         }
@@ -78,7 +109,7 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
      * Lấy Item tại một vị trí (dùng cho Swipe-to-Delete)
      */
     public TaskListItem getItemAt(int position) {
-        return getItem(position);
+        return peek(position);
     }
 
     // --- ViewHolder cho Task ---
@@ -138,12 +169,29 @@ public class TaskListAdapter extends ListAdapter<TaskListItem, RecyclerView.View
         private final TextView mProjectName;
         private final ImageView mProjectIcon;
         private final ImageButton mProjectMenu;
+        private final TextView mProjectProgress;
 
         public ProjectViewHolder(@NonNull View itemView) {
             super(itemView);
             mProjectName = itemView.findViewById(R.id.item_project_name);
             mProjectIcon = itemView.findViewById(R.id.item_project_icon);
             mProjectMenu = itemView.findViewById(R.id.item_project_menu);
+            mProjectProgress = itemView.findViewById(R.id.item_project_progress);
+        }
+
+        /**
+         * Badge "đã xong/tổng" (gồm thư mục con), thư mục trống thì ẩn
+         */
+        public void bindStats(ProjectEntry project, ProjectTree tree) {
+            ProjectTree.Stats stats = tree != null ? tree.getStats(project.documentId) : ProjectTree.Stats.EMPTY;
+            if (stats.totalTasks == 0) {
+                mProjectProgress.setVisibility(View.GONE);
+                return;
+            }
+            String text = stats.completedTasks + "/" + stats.totalTasks;
+            if (stats.reminders > 0) text += " · 🔔" + stats.reminders;
+            mProjectProgress.setText(text);
+            mProjectProgress.setVisibility(View.VISIBLE);
         }
 
         public void bind(ProjectEntry project, OnItemInteractionListener listener) {
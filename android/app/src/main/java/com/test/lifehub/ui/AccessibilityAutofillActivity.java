@@ -14,6 +14,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -22,12 +23,17 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.test.lifehub.R;
 import com.test.lifehub.core.security.BiometricHelper;
+import com.test.lifehub.core.security.DecryptScheduler;
+import com.test.lifehub.core.security.DecryptWindow;
+import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.services.LifeHubAccessibilityService;
 import com.test.lifehub.core.services.LifeHubAutofillService;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 
 import java.util.List;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -53,6 +59,9 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
     private List<AccountEntry> accounts;
     private String packageName;
     
+    @Inject
+    EncryptionManager encryptionManager;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -102,18 +111,21 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
     private void showAccountList() {
         rvAccounts.setVisibility(View.VISIBLE);
         rvAccounts.setLayoutManager(new LinearLayoutManager(this));
-        rvAccounts.setAdapter(new AccountPickerAdapter(accounts, this::onAccountSelected));
+        rvAccounts.setAdapter(new AccountPickerAdapter(accounts, encryptionManager.getDecryptScheduler(),
+                this::onAccountSelected));
     }
     
-    private void onAccountSelected(AccountEntry account) {
+    private void onAccountSelected(AccountEntry account, String readyPassword) {
         Log.d(TAG, "Selected account: " + account.serviceName);
         
         // Show options dialog
-        showFillOptionsDialog(account);
+        showFillOptionsDialog(account, readyPassword);
     }
     
-    private void showFillOptionsDialog(AccountEntry account) {
-        String password = account.password != null ? account.password : "";
+    private void showFillOptionsDialog(AccountEntry account, String readyPassword) {
+        // Cache autofill giữ ciphertext: chỉ giải mã tài khoản được chọn (thường đã xong khi dòng hiện lên)
+        final String password = readyPassword != null ? readyPassword
+                : account.password != null ? encryptionManager.decrypt(account.password) : "";
         
         BottomSheetDialog dialog = new BottomSheetDialog(this);
         View sheetView = getLayoutInflater().inflate(R.layout.dialog_fill_options, null);
@@ -218,18 +230,32 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
     
     // ===== Inner Adapter =====
     
-    private static class AccountPickerAdapter extends RecyclerView.Adapter<AccountPickerAdapter.ViewHolder> {
+    /**
+     * Mật khẩu giải mã bất đồng bộ: dòng đang bind xin VISIBLE, vài dòng kế tiếp theo hướng cuộn
+     * xin PREFETCH (DecryptWindow) -> dòng đầu dùng được ngay, không phụ thuộc số tài khoản.
+     * Kết quả giao về đúng holder (bỏ qua nếu holder đã bind tài khoản khác).
+     */
+    private static class AccountPickerAdapter extends RecyclerView.Adapter<AccountPickerAdapter.ViewHolder>
+            implements DecryptWindow.Source {
+        
+        private static final int PREFETCH_WINDOW = 8;
         
         private final List<AccountEntry> accounts;
         private final OnAccountClickListener listener;
+        private final DecryptScheduler decryptScheduler;
+        private final DecryptWindow decryptWindow;
         
         interface OnAccountClickListener {
-            void onAccountClick(AccountEntry account);
+            /** @param password Bản rõ nếu đã giải mã xong, null = chưa (tự giải mã) */
+            void onAccountClick(AccountEntry account, @Nullable String password);
         }
         
-        AccountPickerAdapter(List<AccountEntry> accounts, OnAccountClickListener listener) {
+        AccountPickerAdapter(List<AccountEntry> accounts, DecryptScheduler decryptScheduler,
+                             OnAccountClickListener listener) {
             this.accounts = accounts;
             this.listener = listener;
+            this.decryptScheduler = decryptScheduler;
+            this.decryptWindow = new DecryptWindow(decryptScheduler, PREFETCH_WINDOW);
         }
         
         @NonNull
@@ -247,7 +273,26 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
             holder.tvUsername.setText(account.username);
             holder.tvPasswordHint.setText("••••••••");
             
-            holder.itemView.setOnClickListener(v -> listener.onAccountClick(account));
+            unbind(holder);
+            holder.boundKey = account.documentId;
+            if (account.documentId != null) {
+                decryptScheduler.request(account.documentId, account.password,
+                        DecryptScheduler.Priority.VISIBLE, holder);
+            }
+            decryptWindow.onBind(position, getItemCount(), this);
+            
+            holder.itemView.setOnClickListener(v -> listener.onAccountClick(account, holder.password));
+        }
+        
+        @Override
+        public void onViewRecycled(@NonNull ViewHolder holder) {
+            unbind(holder);
+        }
+        
+        private void unbind(ViewHolder holder) {
+            if (holder.boundKey != null) decryptScheduler.cancel(holder.boundKey, holder);
+            holder.boundKey = null;
+            holder.password = null;
         }
         
         @Override
@@ -255,10 +300,24 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
             return accounts != null ? accounts.size() : 0;
         }
         
-        static class ViewHolder extends RecyclerView.ViewHolder {
+        @Nullable
+        @Override
+        public String keyAt(int position) {
+            return accounts.get(position).documentId;
+        }
+        
+        @Nullable
+        @Override
+        public String cipherTextAt(int position) {
+            return accounts.get(position).password;
+        }
+        
+        static class ViewHolder extends RecyclerView.ViewHolder implements DecryptScheduler.Callback {
             TextView tvServiceName;
             TextView tvUsername;
             TextView tvPasswordHint;
+            String boundKey;     // documentId đang bind
+            String password;     // Bản rõ, null = chưa giải mã xong
             
             ViewHolder(@NonNull View itemView) {
                 super(itemView);
@@ -266,6 +325,11 @@ public class AccessibilityAutofillActivity extends AppCompatActivity implements
                 tvUsername = itemView.findViewById(R.id.autofill_username);
                 tvPasswordHint = itemView.findViewById(R.id.autofill_password_hint);
             }
+            
+            @Override
+            public void onDecrypted(@NonNull String key, @NonNull String plainText) {
+                if (key.equals(boundKey)) password = plainText;
+            }
         }
     }
 }
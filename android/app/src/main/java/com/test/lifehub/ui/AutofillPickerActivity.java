@@ -18,6 +18,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -25,15 +26,19 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.test.lifehub.R;
 import com.test.lifehub.core.security.BiometricHelper;
+import com.test.lifehub.core.security.DecryptScheduler;
+import com.test.lifehub.core.security.DecryptWindow;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.security.EncryptionHelper;
 import com.test.lifehub.core.services.LifeHubAutofillService;
 import com.test.lifehub.core.util.SessionManager;
+import com.test.lifehub.core.util.TotpManager;
 import com.test.lifehub.features.one_accounts.data.AccountEntry;
 import android.view.WindowManager;
 
 import java.util.List;
 
+import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
@@ -46,6 +51,9 @@ import dagger.hilt.android.AndroidEntryPoint;
  * 2. Activity này mở và hiển thị biometric prompt
  * 3. Sau biometric thành công → hiển thị danh sách accounts
  * 4. User chọn account → điền và đóng
+ * 
+ * Dataset OTP (EXTRA_TOTP_ID) đi qua cùng cổng biometric: xác thực xong mới tính mã TOTP
+ * từ HMAC key đã cache trong LifeHubAutofillService rồi trả về ngay (không hiện danh sách)
  */
 @AndroidEntryPoint
 @RequiresApi(api = Build.VERSION_CODES.O)
@@ -56,6 +64,8 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
     // Intent extras
     public static final String EXTRA_USERNAME_AUTOFILL_ID = "username_autofill_id";
     public static final String EXTRA_PASSWORD_AUTOFILL_ID = "password_autofill_id";
+    public static final String EXTRA_OTP_AUTOFILL_ID = "otp_autofill_id";
+    public static final String EXTRA_TOTP_ID = "totp_id";
     
     // Views
     private RecyclerView rvAccounts;
@@ -64,6 +74,8 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
     // Data
     private AutofillId usernameAutofillId;
     private AutofillId passwordAutofillId;
+    private AutofillId otpAutofillId;
+    private String totpId;
     private String selectedAccountId;
     private List<AccountEntry> accounts;
     
@@ -85,6 +97,12 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
         parseIntent();
         initViews();
         
+        if (totpId != null) {
+            // Điền mã OTP: chỉ cần xác thực, không cần danh sách tài khoản
+            startBiometric();
+            return;
+        }
+        
         // Lấy accounts từ service cache
         accounts = LifeHubAutofillService.getCachedAccounts();
         
@@ -103,6 +121,8 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
         usernameAutofillId = intent.getParcelableExtra(EXTRA_USERNAME_AUTOFILL_ID);
         passwordAutofillId = intent.getParcelableExtra(EXTRA_PASSWORD_AUTOFILL_ID);
         selectedAccountId = intent.getStringExtra("ACCOUNT_ID");
+        otpAutofillId = intent.getParcelableExtra(EXTRA_OTP_AUTOFILL_ID);
+        totpId = intent.getStringExtra(EXTRA_TOTP_ID);
         Log.d(TAG, "Parsed intent: usernameId=" + (usernameAutofillId!=null) + 
                    ", passwordId=" + (passwordAutofillId!=null) + 
                    ", selectedAccountId=" + selectedAccountId);
@@ -124,7 +144,11 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
     private void startBiometric() {
         if (!BiometricHelper.isBiometricAvailable(this)) {
             // Nếu không có biometric, hiện list luôn
-            showAccountList();
+            if (totpId != null) {
+                fillOtp();
+            } else {
+                showAccountList();
+            }
             return;
         }
         
@@ -134,21 +158,31 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
     private void showAccountList() {
         rvAccounts.setVisibility(View.VISIBLE);
         rvAccounts.setLayoutManager(new LinearLayoutManager(this));
-        rvAccounts.setAdapter(new AccountPickerAdapter(accounts, this::onAccountSelected));
+        rvAccounts.setAdapter(new AccountPickerAdapter(accounts, encryptionManager.getDecryptScheduler(),
+                this::onAccountSelected));
     }
     
-    private void onAccountSelected(AccountEntry account) {
+    private void onAccountSelected(AccountEntry account, String readyPassword) {
         Log.d(TAG, "Selected account: " + account.serviceName);
         
-        // Hiện dialog chọn điền gì
-        showFillOptionsDialog(account);
+        // Hiện dialog chọn điền gì (mật khẩu thường đã được giải mã sẵn khi dòng hiện lên)
+        showFillOptionsDialog(account, readyPassword);
     }
     
     private void showFillOptionsDialog(AccountEntry account) {
+        showFillOptionsDialog(account, null);
+    }
+    
+    private void showFillOptionsDialog(AccountEntry account, String readyPassword) {
         // Giải mã mật khẩu bằng biến tạm để đảm bảo effectively final cho lambda
         String tempPassword = "";
+        if (readyPassword == null && account.documentId != null) {
+            readyPassword = encryptionManager.getDecryptScheduler().peek(account.documentId, account.password);
+        }
         try {
-            if (account.password != null) {
+            if (readyPassword != null) {
+                tempPassword = readyPassword;
+            } else if (account.password != null) {
                 // Sử dụng EncryptionManager để hỗ trợ cả chuẩn cũ và mới
                 tempPassword = encryptionManager.decrypt(account.password);
                 Log.d(TAG, "Password decrypted successfully");
@@ -246,10 +280,39 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
         }
     }
     
+    /**
+     * Tính mã TOTP hiện tại (sau khi đã xác thực) và trả về Dataset điền ô OTP
+     */
+    private void fillOtp() {
+        SecretKeySpec key = LifeHubAutofillService.getTotpKey(totpId);
+        if (key == null || otpAutofillId == null) {
+            Log.w(TAG, "TOTP key not in cache for: " + totpId);
+            Toast.makeText(this, R.string.error_unknown, Toast.LENGTH_SHORT).show();
+            setResult(Activity.RESULT_CANCELED);
+            finish();
+            return;
+        }
+        
+        RemoteViews presentation = new RemoteViews(getPackageName(), R.layout.autofill_item);
+        Dataset.Builder datasetBuilder = new Dataset.Builder(presentation);
+        datasetBuilder.setValue(otpAutofillId, AutofillValue.forText(TotpManager.getCurrentCode(key)));
+        
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra(AutofillManager.EXTRA_AUTHENTICATION_RESULT, datasetBuilder.build());
+        setResult(Activity.RESULT_OK, resultIntent);
+        finish();
+        Log.d(TAG, "OTP autofill completed");
+    }
+    
     // BiometricAuthListener callbacks
     
     @Override
     public void onBiometricAuthSuccess() {
+        if (totpId != null) {
+            // HMAC key đã dựng sẵn trong cache, không cần mở khóa Encryption
+            fillOtp();
+            return;
+        }
         Log.d(TAG, "Biometric success. Checking encryption status...");
         
         // --- Tự động mở khóa Encryption nếu đang bị khóa ---
@@ -312,18 +375,32 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
     
     // ===== Inner Adapter =====
     
-    private static class AccountPickerAdapter extends RecyclerView.Adapter<AccountPickerAdapter.ViewHolder> {
+    /**
+     * Mật khẩu giải mã bất đồng bộ: dòng đang bind xin VISIBLE, vài dòng kế tiếp theo hướng cuộn
+     * xin PREFETCH (DecryptWindow) -> dòng đầu dùng được ngay, không phụ thuộc số tài khoản.
+     * Kết quả giao về đúng holder (bỏ qua nếu holder đã bind tài khoản khác).
+     */
+    private static class AccountPickerAdapter extends RecyclerView.Adapter<AccountPickerAdapter.ViewHolder>
+            implements DecryptWindow.Source {
+        
+        private static final int PREFETCH_WINDOW = 8;
         
         private final List<AccountEntry> accounts;
         private final OnAccountClickListener listener;
+        private final DecryptScheduler decryptScheduler;
+        private final DecryptWindow decryptWindow;
         
         interface OnAccountClickListener {
-            void onAccountClick(AccountEntry account);
+            /** @param password Bản rõ nếu đã giải mã xong, null = chưa (tự giải mã) */
+            void onAccountClick(AccountEntry account, @Nullable String password);
         }
         
-        AccountPickerAdapter(List<AccountEntry> accounts, OnAccountClickListener listener) {
+        AccountPickerAdapter(List<AccountEntry> accounts, DecryptScheduler decryptScheduler,
+                             OnAccountClickListener listener) {
             this.accounts = accounts;
             this.listener = listener;
+            this.decryptScheduler = decryptScheduler;
+            this.decryptWindow = new DecryptWindow(decryptScheduler, PREFETCH_WINDOW);
         }
         
         @NonNull
@@ -341,7 +418,26 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
             holder.tvUsername.setText(account.username);
             holder.tvPasswordHint.setText("••••••••");
             
-            holder.itemView.setOnClickListener(v -> listener.onAccountClick(account));
+            unbind(holder);
+            holder.boundKey = account.documentId;
+            if (account.documentId != null) {
+                decryptScheduler.request(account.documentId, account.password,
+                        DecryptScheduler.Priority.VISIBLE, holder);
+            }
+            decryptWindow.onBind(position, getItemCount(), this);
+            
+            holder.itemView.setOnClickListener(v -> listener.onAccountClick(account, holder.password));
+        }
+        
+        @Override
+        public void onViewRecycled(@NonNull ViewHolder holder) {
+            unbind(holder);
+        }
+        
+        private void unbind(ViewHolder holder) {
+            if (holder.boundKey != null) decryptScheduler.cancel(holder.boundKey, holder);
+            holder.boundKey = null;
+            holder.password = null;
         }
         
         @Override
@@ -349,10 +445,24 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
             return accounts != null ? accounts.size() : 0;
         }
         
-        static class ViewHolder extends RecyclerView.ViewHolder {
+        @Nullable
+        @Override
+        public String keyAt(int position) {
+            return accounts.get(position).documentId;
+        }
+        
+        @Nullable
+        @Override
+        public String cipherTextAt(int position) {
+            return accounts.get(position).password;
+        }
+        
+        static class ViewHolder extends RecyclerView.ViewHolder implements DecryptScheduler.Callback {
             TextView tvServiceName;
             TextView tvUsername;
             TextView tvPasswordHint;
+            String boundKey;     // documentId đang bind
+            String password;     // Bản rõ, null = chưa giải mã xong
             
             ViewHolder(@NonNull View itemView) {
                 super(itemView);
@@ -360,6 +470,11 @@ public class AutofillPickerActivity extends AppCompatActivity implements Biometr
                 tvUsername = itemView.findViewById(R.id.autofill_username);
                 tvPasswordHint = itemView.findViewById(R.id.autofill_password_hint);
             }
+            
+            @Override
+            public void onDecrypted(@NonNull String key, @NonNull String plainText) {
+                if (key.equals(boundKey)) password = plainText;
+            }
         }
     }
 }
@@ -10,6 +10,7 @@ import androidx.lifecycle.ViewModel;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.test.lifehub.core.local.LocalMirror;
 import com.test.lifehub.core.security.BiometricHelper;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.security.LoginRateLimiter;
@@ -66,6 +67,7 @@ public class LoginViewModel extends ViewModel {
     private final SessionManager mSessionManager;
     private final LoginRateLimiter mRateLimiter;
     private final EncryptionManager mEncryptionManager;
+    private final LocalMirror mLocalMirror;       // Bản sao offline: signOut phải xóa
     private final Application mApplication;
     
     // Lưu password tạm để khởi tạo encryption sau khi login thành công
@@ -74,11 +76,12 @@ public class LoginViewModel extends ViewModel {
     @Inject
     public LoginViewModel(FirebaseAuth auth, SessionManager sessionManager, 
                           LoginRateLimiter rateLimiter, EncryptionManager encryptionManager,
-                          Application application) {
+                          LocalMirror localMirror, Application application) {
         this.mAuth = auth;
         this.mSessionManager = sessionManager;
         this.mRateLimiter = rateLimiter;
         this.mEncryptionManager = encryptionManager;
+        this.mLocalMirror = localMirror;
         this.mApplication = application;
     }
 
@@ -109,7 +112,7 @@ public class LoginViewModel extends ViewModel {
 
         } else if (currentUser != null && !currentUser.isEmailVerified()) {
             // 3. Đã đăng nhập, nhưng CHƯA xác thực
-            mAuth.signOut();
+            signOut();
             _initialState.setValue(InitialCheckState.SHOW_LOGIN_FORM);
             // (Chúng ta có thể thêm một LiveData<String> _toastMessage để báo lỗi này)
         } else {
@@ -191,7 +194,7 @@ public class LoginViewModel extends ViewModel {
 
                         } else {
                             // 2b. Lỗi: Chưa xác thực (không tính là failed attempt)
-                            mAuth.signOut();
+                            signOut();
                             _loginState.setValue(LoginState.ERROR_EMAIL_UNVERIFIED);
                         }
                     }
@@ -251,4 +254,12 @@ public class LoginViewModel extends ViewModel {
     public String getLastEmail() {
         return mSessionManager.getLastEmail();
     }
+
+    /**
+     * Đăng xuất Firebase + xóa bản sao offline (LocalMirror) của user trước trên disk
+     */
+    private void signOut() {
+        mAuth.signOut();
+        mLocalMirror.clear();
+    }
 }
\ No newline at end of file
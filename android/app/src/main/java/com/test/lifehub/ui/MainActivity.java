@@ -6,9 +6,12 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
 import android.net.Uri;
+import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.PowerManager;
 import android.provider.Settings;
 import android.view.WindowManager;
 import android.widget.Toast;
@@ -23,11 +26,13 @@ import androidx.fragment.app.Fragment;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationBarView;
 import com.test.lifehub.R;
+import com.test.lifehub.core.repository.WarmUpSchedule;
 import com.test.lifehub.core.security.EncryptionManager;
 import com.test.lifehub.core.services.LifeHubAutofillService;
+import com.test.lifehub.core.util.PreferenceManager;
 import com.test.lifehub.core.util.SessionManager;
+import com.test.lifehub.core.util.StartupTracer;
 import com.test.lifehub.features.authenticator.repository.TotpRepository;
-import com.test.lifehub.features.one_accounts.data.AccountEntry;
 import com.test.lifehub.features.one_accounts.repository.AccountRepository;
 import com.test.lifehub.features.four_calendar.repository.CalendarRepository;
 import com.test.lifehub.features.two_productivity.repository.ProductivityRepository;
@@ -51,8 +56,9 @@ import dagger.hilt.android.AndroidEntryPoint;
  *    - ProductivityFragment: Ghi chú, công việc, dự án
  *    - SettingsFragment: Cài đặt ứng dụng
  * 
- * 2. Khởi tạo Firestore Listeners cho tất cả repositories:
- *    - Đảm bảo dữ liệu realtime được đồng bộ từ Firestore
+ * 2. Firestore Listeners theo nhu cầu (DemandActivation):
+ *    - Listener của 1 collection chỉ bật khi màn hình dùng nó được mở
+ *    - WarmUpSchedule bật trước các mục người dùng hay mở (theo số lần mở)
  *    - Tự động cập nhật UI khi data thay đổi
  * 
  * 3. Quản lý permissions (Android 12+, 13+):
@@ -69,11 +75,15 @@ import dagger.hilt.android.AndroidEntryPoint;
  * === LUỒNG HOẠT ĐỘNG ===
  * 1. User login thành công ở LoginActivity
  * 2. Chạy MainActivity.onCreate()
- * 3. Gọi startListening() cho tất cả repositories
- * 4. Firestore bắt đầu lắng nghe thay đổi dữ liệu
+ * 3. Gắn user hiện tại cho repositories, hẹn warm-up các mục hay dùng
+ * 4. Firestore bắt đầu lắng nghe khi màn hình đầu tiên observe dữ liệu
  * 5. Hiển thị AccountFragment mặc định
  * 6. User có thể navigate qua BottomNavigationView
  * 
+ * === ĐO KHỞI ĐỘNG ===
+ * StartupTracer: chưa mở khóa -> chuyển màn hình ngay (không inflate layout chính);
+ * danh sách Accounts đầu tiên hiện lên = "first content" của report khởi động
+ * 
  * === PHÁT TRIỂN TIẾP ===
  * TODO: Thêm Fragment mới cho tính năng Calendar
  * TODO: Implement deep linking cho notifications
@@ -109,6 +119,13 @@ public class MainActivity extends AppCompatActivity {
     @Inject
     EncryptionManager encryptionManager;  // Quản lý mã hóa đa nền tảng
 
+    @Inject
+    PreferenceManager preferenceManager;  // Số lần mở từng mục (thứ tự warm-up)
+
+    private static final int LOW_BATTERY_PERCENT = 20;  // Pin (%) từ mức này trở xuống không warm-up
+
+    private WarmUpSchedule warmUpSchedule;  // Bật trước listener các mục hay dùng
+
     private boolean hasMigrated = false;
 
     // ===== PERMISSION LAUNCHER =====
@@ -142,9 +159,10 @@ public class MainActivity extends AppCompatActivity {
         // --------------------------------------------------
 
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        StartupTracer.markLaunch();
 
         // ===== BƯỚC 1: KIỂM TRA ENCRYPTION STATUS =====
+        // Chưa mở khóa -> chuyển màn hình ngay, không inflate layout chính (sẽ bị finish)
         if (!encryptionManager.isUnlocked()) {
             android.util.Log.d("MainActivity", "Encryption is locked, checking setup status...");
             
@@ -168,11 +186,26 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        StartupTracer.markMainStarted();
+        StartupTracer.beginSection("MainActivity.inflate");
+        setContentView(R.layout.activity_main);
+        StartupTracer.endSection();
+
         // ===== BƯỚC 2: KHỚI TẠO FIRESTORE LISTENERS =====
-        totpRepository.startListening();
-        accountRepository.startListening();
-        calendarRepository.startListening();
-        productivityRepository.startListening();
+        // Listener bật theo nhu cầu khi LiveData có observer (DemandActivation),
+        // ở đây chỉ gắn user hiện tại để ghi dữ liệu được ngay
+        calendarRepository.bindCurrentUser();
+        productivityRepository.bindCurrentUser();
+
+        // Bật trước 1-2 mục người dùng hay mở, sau khi màn hình đầu tiên đã vẽ xong
+        // (không tải trước khi mạng tính phí / pin yếu)
+        warmUpSchedule = new WarmUpSchedule(preferenceManager::getSectionOpenCount, this::isDataOrBatteryConstrained)
+                .add(WarmUpSchedule.SECTION_TASKS,
+                        productivityRepository.getTasksActivation(),
+                        productivityRepository.getProjectsActivation())
+                .add(WarmUpSchedule.SECTION_NOTES, productivityRepository.getNotesActivation())
+                .add(WarmUpSchedule.SECTION_CALENDAR, calendarRepository.getActivation());
+        warmUpSchedule.start();
         
         // ===== BƯỚC 2.5: AUTO-MIGRATE TOTP LEGACY ENCRYPTION =====
         // Migrate TOTP secrets from old EncryptionHelper to new EncryptionManager
@@ -183,6 +216,8 @@ public class MainActivity extends AppCompatActivity {
         // Tự động chuyển đổi dữ liệu cũ sang chuẩn Cross-platform
         // để Web có thể đọc được. Chỉ chạy 1 lần mỗi phiên app.
         accountRepository.getAllAccounts().observe(this, accounts -> {
+            // Màn hình mặc định (AccountFragment) đã có dữ liệu -> kết thúc đo khởi động
+            if (accounts != null) StartupTracer.markFirstContent("Accounts");
             if (!hasMigrated && accounts != null && !accounts.isEmpty()) {
                 hasMigrated = true;
                 android.util.Log.d("MainActivity", "🛠️ Checking for legacy data migration...");
@@ -242,37 +277,33 @@ public class MainActivity extends AppCompatActivity {
         boolean autofillEnabled = sessionManager.isAutofillEnabled();
         LifeHubAutofillService.setBiometricEnabled(biometricEnabled && autofillEnabled);
         
-        // 2. Observe accounts, tạo COPY với passwords đã decrypt rồi sync với cache
-        // QUAN TRỌNG: Tạo copy mới vì LiveData objects không nên modify trực tiếp
+        // 2. Observe accounts -> cache autofill (password vẫn là CIPHERTEXT)
+        // Không giải mã cả vault ở đây: màn chọn tài khoản giải mã dòng đang hiện trước
+        // (EncryptionManager.getDecryptScheduler()), điền tài khoản nào giải mã tài khoản đó
         accountRepository.getAllAccounts().observe(this, accounts -> {
             if (accounts != null && !accounts.isEmpty()) {
-                List<AccountEntry> decryptedAccounts = new ArrayList<>();
-                
-                for (AccountEntry original : accounts) {
-                    // Tạo copy mới
-                    AccountEntry copy = new AccountEntry();
-                    copy.documentId = original.documentId;
-                    copy.serviceName = original.serviceName;
-                    copy.username = original.username;
-                    copy.websiteUrl = original.websiteUrl;
-                    copy.notes = original.notes;
-                    copy.userOwnerId = original.userOwnerId;
-                    
-                    // Luôn thử decrypt - encryptionHelper.decrypt() đã có fallback
-                    // Nếu decrypt thất bại (password đã plain text), nó trả về string gốc
-                    if (original.password != null && !original.password.isEmpty()) {
-                        copy.password = encryptionManager.decrypt(original.password);
-                    } else {
-                        copy.password = "";
-                    }
-                    
-                    decryptedAccounts.add(copy);
-                }
-                
-                android.util.Log.d("MainActivity", "Autofill cache updated with " + decryptedAccounts.size() + " accounts (passwords decrypted)");
-                LifeHubAutofillService.updateAccountsCache(decryptedAccounts);
+                android.util.Log.d("MainActivity", "Autofill cache updated with " + accounts.size() + " accounts (passwords encrypted)");
+                LifeHubAutofillService.updateAccountsCache(accounts);
             }
         });
+        
+        // 3. Observe TOTP accounts (secret đã giải mã, HMAC key dựng sẵn ở TotpRepository) để điền mã OTP
+        totpRepository.getDecryptedAccounts().observe(this, LifeHubAutofillService::updateTotpCache);
+    }
+
+    /**
+     * Mạng tính phí (4G, hotspot) hoặc pin yếu / tiết kiệm pin -> không warm-up listener
+     */
+    private boolean isDataOrBatteryConstrained() {
+        ConnectivityManager connectivity = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.isActiveNetworkMetered()) return true;
+
+        PowerManager power = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        if (power != null && power.isPowerSaveMode()) return true;
+
+        BatteryManager battery = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
+        return battery != null && !battery.isCharging()
+                && battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) <= LOW_BATTERY_PERCENT;
     }
 
     // ===== NAVIGATION LISTENER =====
@@ -377,4 +408,13 @@ public class MainActivity extends AppCompatActivity {
             requestPermissionLauncher.launch(permissionsToRequest.toArray(new String[0]));
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        // Bỏ các bước warm-up chưa chạy (listener đã bật tự pause sau grace period)
+        if (warmUpSchedule != null) {
+            warmUpSchedule.cancel();
+        }
+        super.onDestroy();
+    }
+}
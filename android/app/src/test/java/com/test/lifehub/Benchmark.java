@@ -0,0 +1,15 @@
+package com.test.lifehub;
+
+/**
+ * Category đánh dấu benchmark (JUnit @Category(Benchmark.class))
+ *
+ * Benchmark tách khỏi unit test: không nằm trong LifeHubTestSuite và bị loại khỏi
+ * ./gradlew test mặc định (xem testOptions trong app/build.gradle.kts).
+ * Chạy riêng bằng ./gradlew testDebugUnitTest -Pbenchmark.
+ *
+ * Mỗi cách làm cần so sánh là 1 method @Test riêng chạy cùng khối lượng việc,
+ * thời gian đọc trong báo cáo test của Gradle (build/reports/tests) - không in ra console,
+ * không assert theo thời gian (máy CI dao động).
+ */
+public interface Benchmark {
+}
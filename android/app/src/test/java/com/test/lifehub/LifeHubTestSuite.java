@@ -3,12 +3,36 @@ package com.test.lifehub;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.test.lifehub.core.codec.FirestoreCodecTest;
+import com.test.lifehub.core.local.LocalMirrorTest;
+import com.test.lifehub.core.repository.DemandActivationTest;
+import com.test.lifehub.core.repository.DocumentListenerMultiplexerTest;
+import com.test.lifehub.core.repository.FirestorePagingSourceTest;
+import com.test.lifehub.core.repository.SnapshotStoreTest;
+import com.test.lifehub.core.repository.WarmUpScheduleTest;
+import com.test.lifehub.core.repository.WriteBehindQueueTest;
+import com.test.lifehub.core.security.DecryptSchedulerTest;
 import com.test.lifehub.core.security.EncryptionHelperTest;
 import com.test.lifehub.core.security.LoginRateLimiterTest;
+import com.test.lifehub.core.util.AutofillHelperTest;
+import com.test.lifehub.core.util.NameSortKeyTest;
 import com.test.lifehub.core.util.SessionManagerTest;
+import com.test.lifehub.core.util.StartupReportTest;
+import com.test.lifehub.features.authenticator.repository.TotpProjectorTest;
 import com.test.lifehub.features.authenticator.ui.AuthenticatorTest;
+import com.test.lifehub.features.four_calendar.repository.CalendarEventIndexTest;
+import com.test.lifehub.features.four_calendar.repository.EventIndexLiveDataTest;
+import com.test.lifehub.features.four_calendar.repository.EventWindowRegistryTest;
+import com.test.lifehub.features.four_calendar.repository.RecurrenceExpanderTest;
 import com.test.lifehub.features.four_calendar.ui.CalendarViewModelTest;
+import com.test.lifehub.features.four_calendar.ui.EventColumnLayoutTest;
+import com.test.lifehub.features.one_accounts.data.CustomFieldTest;
+import com.test.lifehub.features.one_accounts.repository.UnifiedAccountMergerTest;
+import com.test.lifehub.features.one_accounts.repository.VaultSearchIndexTest;
 import com.test.lifehub.features.one_accounts.ui.AccountViewModelTest;
+import com.test.lifehub.features.two_productivity.repository.NoteSearchIndexTest;
+import com.test.lifehub.features.two_productivity.repository.ProjectSubtreeOperationTest;
+import com.test.lifehub.features.two_productivity.repository.ProjectTreeTest;
 import com.test.lifehub.features.two_productivity.ui.ProductivityViewModelTest;
 import com.test.lifehub.integration.IntegrationTest;
 import com.test.lifehub.ui.LoginViewModelTest;
@@ -21,23 +45,47 @@ import com.test.lifehub.ui.LoginViewModelTest;
 @Suite.SuiteClasses({
     // Core Tests
     EncryptionHelperTest.class,
+    DecryptSchedulerTest.class,
     SessionManagerTest.class,
+    StartupReportTest.class,
+    NameSortKeyTest.class,
+    AutofillHelperTest.class,
     LoginRateLimiterTest.class,
+    SnapshotStoreTest.class,
+    FirestorePagingSourceTest.class,
+    LocalMirrorTest.class,
+    WriteBehindQueueTest.class,
+    DocumentListenerMultiplexerTest.class,
+    DemandActivationTest.class,
+    WarmUpScheduleTest.class,
+    FirestoreCodecTest.class,
     
     // Feature Tests - Authentication
     LoginViewModelTest.class,
     
     // Feature Tests - Accounts
     AccountViewModelTest.class,
+    VaultSearchIndexTest.class,
+    UnifiedAccountMergerTest.class,
+    CustomFieldTest.class,
     
     // Feature Tests - Productivity
     ProductivityViewModelTest.class,
+    ProjectSubtreeOperationTest.class,
+    ProjectTreeTest.class,
+    NoteSearchIndexTest.class,
     
     // Feature Tests - Calendar
     CalendarViewModelTest.class,
+    EventWindowRegistryTest.class,
+    EventIndexLiveDataTest.class,
+    CalendarEventIndexTest.class,
+    RecurrenceExpanderTest.class,
+    EventColumnLayoutTest.class,
     
     // Feature Tests - Authenticator
     AuthenticatorTest.class,
+    TotpProjectorTest.class,
     
     // Integration Tests
     IntegrationTest.class
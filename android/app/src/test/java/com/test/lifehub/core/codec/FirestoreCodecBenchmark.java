@@ -0,0 +1,75 @@
+package com.test.lifehub.core.codec;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.firestore.util.CustomClassMapper;
+import com.test.lifehub.Benchmark;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.data.CalendarEventCodec;
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.AccountEntryCodec;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Benchmark: map 10.000 document bằng codec sinh tự động so với CustomClassMapper (reflection
+ * mà DocumentSnapshot.toObject() dùng). Mỗi cặp method chạy cùng khối lượng việc.
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class FirestoreCodecBenchmark {
+
+    private static final int DOCUMENT_COUNT = 10_000;
+    private static final int ROUNDS = 7;
+
+    private static List<Map<String, Object>> accounts;
+    private static List<Map<String, Object>> events;
+
+    @BeforeClass
+    public static void setUpData() {
+        accounts = new ArrayList<>(DOCUMENT_COUNT);
+        events = new ArrayList<>(DOCUMENT_COUNT);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            accounts.add(FirestoreCodecTest.accountData(i));
+            events.add(FirestoreCodecTest.eventData(i));
+        }
+    }
+
+    @Test
+    public void accounts_Reflection() {
+        mapAll(accounts, data -> CustomClassMapper.convertToCustomClass(data, AccountEntry.class, null));
+    }
+
+    @Test
+    public void accounts_Codec() {
+        mapAll(accounts, data -> AccountEntryCodec.INSTANCE.fromMap("id", data));
+    }
+
+    @Test
+    public void events_Reflection() {
+        mapAll(events, data -> CustomClassMapper.convertToCustomClass(data, CalendarEvent.class, null));
+    }
+
+    @Test
+    public void events_Codec() {
+        mapAll(events, data -> CalendarEventCodec.INSTANCE.fromMap("id", data));
+    }
+
+    private static <T> void mapAll(List<Map<String, Object>> documents, Function<Map<String, Object>, T> mapper) {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<T> result = new ArrayList<>(documents.size());
+            for (Map<String, Object> data : documents) {
+                result.add(mapper.apply(data));
+            }
+            assertEquals(documents.size(), result.size());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.test.lifehub.core.codec;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.util.CustomClassMapper;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+import com.test.lifehub.features.four_calendar.data.CalendarEventCodec;
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.AccountEntryCodec;
+import com.test.lifehub.features.two_productivity.data.TaskEntry;
+import com.test.lifehub.features.two_productivity.data.TaskEntryCodec;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit test cho codec sinh tự động (@FirestoreCodec)
+ *
+ * Đối chiếu với CustomClassMapper.convertToCustomClass - chính là phần reflection mà
+ * DocumentSnapshot.toObject() / QuerySnapshot.toObjects() gọi cho từng document.
+ * Dữ liệu đầu vào giống getData(): Timestamp, Long, Boolean, String.
+ */
+public class FirestoreCodecTest {
+
+    // ===== DỮ LIỆU GIẢ LẬP getData() (dùng chung với FirestoreCodecBenchmark) =====
+
+    static Map<String, Object> accountData(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("serviceName", "Service " + i);
+        data.put("username", "user" + i + "@example.com");
+        data.put("websiteUrl", "https://service" + i + ".example.com");
+        data.put("password", "encrypted-password-" + i);
+        data.put("notes", "note " + i);
+        Map<String, Object> custom = new HashMap<>();
+        custom.put("pin", "1234");
+        data.put("customFields", custom);
+        data.put("userOwnerId", "uid-1");
+        data.put("lastModified", new Timestamp(new Date(1_700_000_000_000L + i)));
+        return data;
+    }
+
+    static Map<String, Object> eventData(int i) {
+        Map<String, Object> data = new HashMap<>();
+        long start = 1_700_000_000_000L + i * 3_600_000L;
+        data.put("title", "Event " + i);
+        data.put("description", "Description " + i);
+        data.put("startTime", new Timestamp(new Date(start)));
+        data.put("endTime", new Timestamp(new Date(start + 1_800_000L)));
+        data.put("location", "Room " + (i % 10));
+        data.put("color", "#FF5722");
+        data.put("userOwnerId", "uid-1");
+        data.put("createdDate", new Timestamp(new Date(start)));
+        data.put("lastModified", new Timestamp(new Date(start)));
+        data.put("alarmRequestCode", (long) i);
+        data.put("repeatType", "NONE");
+        return data;
+    }
+
+    static Map<String, Object> taskData(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("name", "Task " + i);
+        data.put("lastModified", new Timestamp(new Date(1_700_000_000_000L + i)));
+        data.put("completed", i % 2 == 0);
+        data.put("taskType", 0L);
+        data.put("userOwnerId", "uid-1");
+        data.put("alarmRequestCode", (long) i);
+        data.put("projectId", "project-" + (i % 20));
+        return data;
+    }
+
+    // ===== ĐÚNG ĐẮN =====
+
+    @Test
+    public void testAccountCodec_MatchesCustomClassMapper() {
+        Map<String, Object> data = accountData(7);
+        AccountEntry expected = CustomClassMapper.convertToCustomClass(data, AccountEntry.class, null);
+        AccountEntry actual = AccountEntryCodec.INSTANCE.fromMap("doc-7", data);
+
+        assertEquals("doc-7", actual.documentId);
+        assertEquals(expected.serviceName, actual.serviceName);
+        assertEquals(expected.username, actual.username);
+        assertEquals(expected.websiteUrl, actual.websiteUrl);
+        assertEquals(expected.password, actual.password);
+        assertEquals(expected.notes, actual.notes);
+        assertEquals(expected.customFields, actual.customFields);
+        assertEquals(expected.userOwnerId, actual.userOwnerId);
+        assertEquals(expected.lastModified, actual.lastModified);
+    }
+
+    @Test
+    public void testEventCodec_MatchesCustomClassMapper() {
+        Map<String, Object> data = eventData(3);
+        CalendarEvent expected = CustomClassMapper.convertToCustomClass(data, CalendarEvent.class, null);
+        CalendarEvent actual = CalendarEventCodec.INSTANCE.fromMap("event-3", data);
+
+        assertEquals("event-3", actual.getDocumentId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getAlarmRequestCode(), actual.getAlarmRequestCode());
+        assertEquals(expected.getRepeatType(), actual.getRepeatType());
+        assertNull(actual.getRepeatUntil());
+    }
+
+    @Test
+    public void testTaskCodec_PropertyNameAndRoundTrip() {
+        TaskEntry task = TaskEntryCodec.INSTANCE.fromMap("task-2", taskData(2));
+        assertTrue("@PropertyName(\"completed\") phải được đọc đúng", task.isCompleted());
+
+        Map<String, Object> written = TaskEntryCodec.INSTANCE.toMap(task);
+        assertFalse("documentId không được ghi vào document", written.containsKey("documentId"));
+        assertEquals(Boolean.TRUE, written.get("completed"));
+        assertEquals("project-2", written.get("projectId"));
+        assertEquals(2, written.get("alarmRequestCode"));
+    }
+
+    @Test
+    public void testMissingFields_KeepDefaults() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Chỉ có tiêu đề");
+
+        CalendarEvent event = CalendarEventCodec.INSTANCE.fromMap("e", data);
+        assertEquals("Chỉ có tiêu đề", event.getTitle());
+        assertNull(event.getStartTime());
+        assertEquals(0, event.getAlarmRequestCode());
+    }
+}
@@ -0,0 +1,282 @@
+package com.test.lifehub.core.local;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.test.lifehub.core.repository.SnapshotBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho LocalMirror
+ * Kiểm tra mã hóa JSON giữ nguyên kiểu dữ liệu, seed từ disk, ghi delta (đối chiếu snapshot đầu tiên)
+ * và cột data luôn được mã hóa trên disk
+ */
+public class LocalMirrorTest {
+
+    private static final String USER = "user-1";
+    private static final String COLLECTION = "accounts";
+
+    /** Cipher giả: đảo chuỗi + tiền tố; giải mã dòng không có tiền tố -> lỗi */
+    private static final LocalMirror.PayloadCipher TEST_CIPHER = new LocalMirror.PayloadCipher() {
+        @Override
+        public String encrypt(String plainText) {
+            return "sealed:" + new StringBuilder(plainText).reverse();
+        }
+
+        @Override
+        public String decrypt(String cipherText) {
+            if (!cipherText.startsWith("sealed:")) throw new IllegalStateException("Not sealed");
+            return new StringBuilder(cipherText.substring("sealed:".length())).reverse().toString();
+        }
+    };
+
+    private MirrorDao dao;
+    private LocalMirror mirror;
+
+    @Before
+    public void setUp() {
+        dao = mock(MirrorDao.class);
+        when(dao.loadDocuments(USER, COLLECTION)).thenReturn(new ArrayList<>());
+        // Executor đồng bộ: mọi thao tác disk chạy ngay trong test
+        mirror = new LocalMirror(dao, Runnable::run, TEST_CIPHER);
+    }
+
+    private static Map<String, Object> account(String name, long lastModifiedSeconds) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("serviceName", name);
+        data.put("password", "ciphertext:" + name); // Giữ nguyên ciphertext
+        data.put("lastModified", new Timestamp(lastModifiedSeconds, 0));
+        return data;
+    }
+
+    private static SnapshotBatch.Entry added(String id, Map<String, Object> data) {
+        return new SnapshotBatch.Entry(DocumentChange.Type.ADDED, id, false, data);
+    }
+
+    private static SnapshotBatch batch(SnapshotBatch.Entry... entries) {
+        return new SnapshotBatch(Arrays.asList(entries), false);
+    }
+
+    private void givenDisk(Map<String, Map<String, Object>> documents) {
+        List<MirrorDocument> rows = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+            rows.add(new MirrorDocument(USER, COLLECTION, document.getKey(),
+                    TEST_CIPHER.encrypt(DocumentJson.encode(document.getValue()))));
+        }
+        when(dao.loadDocuments(USER, COLLECTION)).thenReturn(rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(ArgumentCaptor<List> captor) {
+        List<String> ids = new ArrayList<>();
+        for (Object item : captor.getValue()) {
+            ids.add(item instanceof MirrorDocument ? ((MirrorDocument) item).documentId : (String) item);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    @Test
+    public void testDocumentJson_RoundTrip_KeepsFirestoreTypes() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("label", "PIN");
+        nested.put("value", "enc:1234");
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("title", "Ghi chú \"có dấu\" ✓");
+        data.put("taskType", 1L);
+        data.put("ratio", 5.0);
+        data.put("completed", true);
+        data.put("projectId", null);
+        data.put("lastModified", new Timestamp(1_700_000_000L, 123_000_000));
+        data.put("customFields", nested);
+        data.put("tags", Arrays.asList("a", 2L, false));
+
+        Map<String, Object> decoded = DocumentJson.decode(DocumentJson.encode(data));
+
+        assertEquals(data, decoded);
+        assertTrue("Số nguyên phải đọc lại thành Long", decoded.get("taskType") instanceof Long);
+        assertTrue("Số thực phải đọc lại thành Double", decoded.get("ratio") instanceof Double);
+    }
+
+    @Test
+    public void testLoad_ReturnsDiskDocuments() {
+        Map<String, Map<String, Object>> disk = new HashMap<>();
+        disk.put("a", account("Gmail", 100));
+        givenDisk(disk);
+
+        List<Map<String, Map<String, Object>>> loaded = new ArrayList<>();
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(loaded::add);
+
+        assertEquals(1, loaded.size());
+        assertEquals(disk, loaded.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoad_SkipsRowsThatFailToDecrypt_AndFirstSnapshotRemovesThem() {
+        List<MirrorDocument> rows = new ArrayList<>();
+        rows.add(new MirrorDocument(USER, COLLECTION, "ok",
+                TEST_CIPHER.encrypt(DocumentJson.encode(account("Gmail", 100)))));
+        rows.add(new MirrorDocument(USER, COLLECTION, "plain", DocumentJson.encode(account("Old", 50))));
+        when(dao.loadDocuments(USER, COLLECTION)).thenReturn(rows);
+
+        List<Map<String, Map<String, Object>>> loaded = new ArrayList<>();
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(loaded::add);
+        assertEquals(Collections.singleton("ok"), loaded.get(0).keySet());
+
+        session.record(batch(added("ok", account("Gmail", 100))));
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), anyList(), removed.capture());
+        assertEquals(Collections.singletonList("plain"), ids(removed));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecord_StoresOnlyCiphertext() {
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(batch(added("a", account("Gmail", 100))));
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), upserts.capture(), anyList());
+        MirrorDocument row = (MirrorDocument) upserts.getValue().get(0);
+        assertFalse("Không được lưu plaintext", row.data.contains("serviceName"));
+        assertEquals(account("Gmail", 100), DocumentJson.decode(TEST_CIPHER.decrypt(row.data)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecord_CipherUnavailable_RemovesInsteadOfStoringPlaintext() {
+        mirror = new LocalMirror(dao, Runnable::run, new LocalMirror.PayloadCipher() {
+            @Override
+            public String encrypt(String plainText) {
+                return null;
+            }
+
+            @Override
+            public String decrypt(String cipherText) {
+                throw new IllegalStateException("No key");
+            }
+        });
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(batch(added("a", account("Gmail", 100))));
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), upserts.capture(), removed.capture());
+        assertTrue(upserts.getValue().isEmpty());
+        assertEquals(Collections.singletonList("a"), ids(removed));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFirstSnapshot_WritesOnlyDifferences() {
+        Map<String, Map<String, Object>> disk = new HashMap<>();
+        disk.put("same", account("Gmail", 100));
+        disk.put("changed", account("Facebook", 100));
+        disk.put("deleted", account("Old", 50));
+        givenDisk(disk);
+
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(batch(
+                added("same", account("Gmail", 100)),
+                added("changed", account("Facebook v2", 200)),
+                added("new", account("GitHub", 150))));
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), upserts.capture(), removed.capture());
+
+        assertEquals(Arrays.asList("changed", "new"), ids(upserts));
+        assertEquals(Collections.singletonList("deleted"), ids(removed));
+    }
+
+    @Test
+    public void testFirstSnapshot_IdenticalToDisk_NoWrite() {
+        Map<String, Map<String, Object>> disk = new HashMap<>();
+        disk.put("a", account("Gmail", 100));
+        givenDisk(disk);
+
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(batch(added("a", account("Gmail", 100))));
+
+        verify(dao, never()).applyDelta(any(), any(), anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLaterSnapshot_AppliesChangesOnly() {
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(batch(added("a", account("Gmail", 100))));
+        reset(dao);
+
+        session.record(batch(new SnapshotBatch.Entry(DocumentChange.Type.REMOVED, "a", false, null)));
+
+        ArgumentCaptor<List> upserts = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), upserts.capture(), removed.capture());
+        assertTrue(upserts.getValue().isEmpty());
+        assertEquals(Collections.singletonList("a"), ids(removed));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEmptyCacheSnapshot_DoesNotDeleteDisk() {
+        Map<String, Map<String, Object>> disk = new HashMap<>();
+        disk.put("a", account("Gmail", 100));
+        givenDisk(disk);
+
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.load(documents -> {});
+        session.record(new SnapshotBatch(Collections.emptyList(), true));
+        verify(dao, never()).applyDelta(any(), any(), anyList(), anyList());
+
+        // Snapshot đầy đủ tới sau mới đối chiếu xóa
+        session.record(batch(added("b", account("GitHub", 150))));
+        ArgumentCaptor<List> removed = ArgumentCaptor.forClass(List.class);
+        verify(dao).applyDelta(eq(USER), eq(COLLECTION), anyList(), removed.capture());
+        assertEquals(Collections.singletonList("a"), ids(removed));
+    }
+
+    @Test
+    public void testClosedSession_IgnoresLoadAndWrites() {
+        LocalMirror.Session session = mirror.open(USER, COLLECTION);
+        session.close();
+
+        List<Map<String, Map<String, Object>>> loaded = new ArrayList<>();
+        session.load(loaded::add);
+        session.record(batch(added("a", account("Gmail", 100))));
+
+        assertTrue(loaded.isEmpty());
+        verify(dao, never()).applyDelta(any(), any(), anyList(), anyList());
+    }
+
+    @Test
+    public void testClear_DeletesEverything() {
+        mirror.clear();
+        verify(dao).clearAll();
+    }
+}
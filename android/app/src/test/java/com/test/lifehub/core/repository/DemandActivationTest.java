@@ -0,0 +1,128 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test cho DemandActivation
+ * Kiểm tra start khi có observer đầu tiên, pause sau grace period,
+ * quay lại trong grace period thì giữ listener, và warm-up
+ */
+public class DemandActivationTest {
+
+    /** Scheduler giả: giữ task, test tự chạy khi "hết giờ" */
+    private static final class FakeScheduler implements DemandActivation.Scheduler {
+        final List<Runnable> pending = new ArrayList<>();
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            pending.add(task);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            pending.remove(task);
+        }
+
+        void runAll() {
+            List<Runnable> tasks = new ArrayList<>(pending);
+            pending.clear();
+            for (Runnable task : tasks) task.run();
+        }
+    }
+
+    private FakeScheduler scheduler;
+    private int starts;
+    private int pauses;
+    private DemandActivation activation;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        starts = 0;
+        pauses = 0;
+        activation = new DemandActivation("Test", () -> starts++, () -> pauses++, 1_000, scheduler);
+    }
+
+    @Test
+    public void testAcquire_StartsOnce() {
+        activation.acquire();
+        activation.acquire();
+
+        assertEquals(1, starts);
+        assertTrue(activation.isActive());
+        assertEquals(2, activation.getDemand());
+        assertTrue("Còn người xem -> không hẹn pause", scheduler.pending.isEmpty());
+    }
+
+    @Test
+    public void testRelease_PausesAfterGrace() {
+        activation.acquire();
+        activation.release();
+
+        assertEquals("Chưa hết grace period", 0, pauses);
+        assertEquals(1, scheduler.pending.size());
+
+        scheduler.runAll();
+        assertEquals(1, pauses);
+        assertFalse(activation.isActive());
+
+        // Mở lại màn hình -> start lại
+        activation.acquire();
+        assertEquals(2, starts);
+    }
+
+    @Test
+    public void testReacquireWithinGrace_KeepsListener() {
+        activation.acquire();
+        activation.release();
+
+        // Xoay màn hình: observer mới tới trước khi hết grace
+        activation.acquire();
+        scheduler.runAll();
+
+        assertEquals(0, pauses);
+        assertEquals(1, starts);
+        assertTrue(activation.isActive());
+    }
+
+    @Test
+    public void testWarmUp_PausesWhenNobodyObserves() {
+        activation.warmUp();
+        assertEquals(1, starts);
+
+        scheduler.runAll();
+        assertEquals(1, pauses);
+        assertFalse(activation.isActive());
+    }
+
+    @Test
+    public void testWarmUp_ThenObserved_StaysActive() {
+        activation.warmUp();
+        activation.acquire();
+        scheduler.runAll();
+
+        assertEquals("Observer tới không start lại", 1, starts);
+        assertEquals(0, pauses);
+        assertTrue(activation.isActive());
+    }
+
+    @Test
+    public void testReset_StartsAgainOnNextAcquire() {
+        activation.acquire();
+        activation.release();
+
+        // Logout: repository tự dừng -> không còn pause nào chờ chạy
+        activation.reset();
+        assertTrue(scheduler.pending.isEmpty());
+        assertFalse(activation.isActive());
+
+        activation.acquire();
+        assertEquals(2, starts);
+    }
+}
@@ -0,0 +1,162 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho DocumentListenerMultiplexer
+ * Kiểm tra phục vụ từ store, dùng chung listener theo path (ref-count)
+ * và gỡ listener khi LifecycleOwner bị hủy
+ */
+public class DocumentListenerMultiplexerTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /** POJO tối giản để test */
+    static class Item {
+        final String id;
+        final String name;
+
+        Item(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private final List<DocumentListenerMultiplexer.Sink> sinks = new ArrayList<>();
+    private final List<ListenerRegistration> opened = new ArrayList<>();
+    private DocumentListenerMultiplexer multiplexer;
+    private SnapshotPublisher<Item> publisher;
+
+    @Before
+    public void setUp() {
+        multiplexer = new DocumentListenerMultiplexer((ref, sink) -> {
+            ListenerRegistration registration = mock(ListenerRegistration.class);
+            sinks.add(sink);
+            opened.add(registration);
+            return registration;
+        });
+        publisher = new SnapshotPublisher<>("Test", "Items",
+                new SnapshotStore<>((id, data) -> new Item(id, (String) data.get("name"))));
+    }
+
+    private static DocumentReference doc(String id) {
+        DocumentReference ref = mock(DocumentReference.class);
+        when(ref.getId()).thenReturn(id);
+        when(ref.getPath()).thenReturn("users/u1/items/" + id);
+        return ref;
+    }
+
+    private static Map<String, Object> data(String name) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", name);
+        return map;
+    }
+
+    /** LifecycleOwner điều khiển bằng tay (giống 1 Activity) */
+    private static final class TestOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        TestOwner() {
+            registry.setCurrentState(Lifecycle.State.RESUMED);
+        }
+
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+
+    @Test
+    public void testInStore_ServedWithoutListener() {
+        Item cached = new Item("a", "Cached");
+        publisher.getStore().applyChanges(Collections.singletonList(
+                new SnapshotStore.Change<>(DocumentChange.Type.ADDED, "a", cached, false, null)));
+
+        LiveData<Item> live = multiplexer.observe(doc("a"), publisher);
+        live.observeForever(item -> { });
+
+        assertSame(cached, live.getValue());
+        assertEquals("Không mở listener khi store đã có document", 0, multiplexer.getActiveListenerCount());
+        assertEquals(1, multiplexer.getSubscribedDocumentCount());
+    }
+
+    @Test
+    public void testSamePath_SharesOneListener() {
+        LiveData<Item> first = multiplexer.observe(doc("a"), publisher);
+        first.observeForever(item -> { });
+        LiveData<Item> second = multiplexer.observe(doc("a"), publisher);
+        second.observeForever(item -> { });
+
+        assertSame(first, second);
+        assertEquals(1, opened.size());
+        assertEquals(1, multiplexer.getActiveListenerCount());
+
+        sinks.get(0).onDocument(data("Remote"));
+        assertEquals("Remote", first.getValue().name);
+    }
+
+    @Test
+    public void testOwnerDestroyed_RemovesListener() {
+        TestOwner screenA = new TestOwner();
+        TestOwner screenB = new TestOwner();
+        multiplexer.observe(doc("a"), publisher).observe(screenA, item -> { });
+        multiplexer.observe(doc("a"), publisher).observe(screenB, item -> { });
+
+        screenA.registry.setCurrentState(Lifecycle.State.DESTROYED);
+        assertEquals("Còn screenB đang xem", 1, multiplexer.getActiveListenerCount());
+        verify(opened.get(0), never()).remove();
+
+        screenB.registry.setCurrentState(Lifecycle.State.DESTROYED);
+        assertEquals(0, multiplexer.getActiveListenerCount());
+        assertEquals(0, multiplexer.getSubscribedDocumentCount());
+        verify(opened.get(0)).remove();
+    }
+
+    @Test
+    public void testReobserveAfterDetach_ReopensListener() {
+        LiveData<Item> live = multiplexer.observe(doc("a"), publisher);
+        Observer<Item> observer = item -> { };
+        live.observeForever(observer);
+        live.removeObserver(observer);
+        assertEquals(0, multiplexer.getActiveListenerCount());
+
+        // LiveData giữ trong ViewModel, Activity tạo lại rồi observe tiếp
+        live.observeForever(observer);
+        assertEquals(2, opened.size());
+        assertEquals(1, multiplexer.getActiveListenerCount());
+    }
+
+    @Test
+    public void testDeletedDocument_KeepsLastValue() {
+        LiveData<Item> live = multiplexer.observe(doc("a"), publisher);
+        live.observeForever(item -> { });
+
+        sinks.get(0).onDocument(data("Remote"));
+        sinks.get(0).onDocument(null);
+
+        assertEquals("Document bị xóa -> giữ dữ liệu đang hiện", "Remote", live.getValue().name);
+    }
+}
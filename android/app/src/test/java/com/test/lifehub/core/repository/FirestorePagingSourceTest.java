@@ -0,0 +1,133 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import androidx.paging.PagingSource;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Unit test cho FirestorePagingSource
+ * Kiểm tra trang đầu realtime (invalidate khi đổi), cursor trang sau và gỡ listener
+ */
+public class FirestorePagingSourceTest {
+
+    private Query query;
+    private Query limitedQuery;
+    private ListenerRegistration registration;
+    private FirestorePagingSource<String> source;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        query = mock(Query.class);
+        limitedQuery = mock(Query.class);
+        registration = mock(ListenerRegistration.class);
+        when(query.limit(anyLong())).thenReturn(limitedQuery);
+        when(limitedQuery.addSnapshotListener(any(Executor.class), any(EventListener.class))).thenReturn(registration);
+
+        // Mapper: lấy id, bỏ qua document có id "skip"
+        source = new FirestorePagingSource<>(query,
+                (id, data) -> "skip".equals(id) ? null : id);
+    }
+
+    private static QuerySnapshot snapshotOf(String... ids) {
+        List<DocumentSnapshot> documents = new ArrayList<>();
+        for (String id : ids) {
+            DocumentSnapshot document = mock(DocumentSnapshot.class);
+            when(document.getId()).thenReturn(id);
+            when(document.getData()).thenReturn(Collections.<String, Object>singletonMap("name", id));
+            documents.add(document);
+        }
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocuments()).thenReturn(documents);
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private EventListener<QuerySnapshot> captureListener() {
+        ArgumentCaptor<EventListener<QuerySnapshot>> captor = ArgumentCaptor.forClass(EventListener.class);
+        verify(limitedQuery).addSnapshotListener(any(Executor.class), captor.capture());
+        return captor.getValue();
+    }
+
+    private ListenableFuture<PagingSource.LoadResult<DocumentSnapshot, String>> loadFirstPage(int loadSize) {
+        return source.loadFuture(new PagingSource.LoadParams.Refresh<>(null, loadSize, false));
+    }
+
+    @Test
+    public void testFirstPage_FullPage_HasNextKey() throws Exception {
+        ListenableFuture<PagingSource.LoadResult<DocumentSnapshot, String>> future = loadFirstPage(3);
+        verify(query).limit(3L);
+
+        QuerySnapshot snapshot = snapshotOf("a", "skip", "c");
+        captureListener().onEvent(snapshot, null);
+
+        PagingSource.LoadResult.Page<DocumentSnapshot, String> page =
+                (PagingSource.LoadResult.Page<DocumentSnapshot, String>) future.get();
+        assertEquals(Arrays.asList("a", "c"), page.getData());
+        assertNull(page.getPrevKey());
+        assertSame("Cursor là document cuối (kể cả document bị mapper bỏ qua)",
+                snapshot.getDocuments().get(2), page.getNextKey());
+    }
+
+    @Test
+    public void testFirstPage_ShortPage_NoNextKey() throws Exception {
+        ListenableFuture<PagingSource.LoadResult<DocumentSnapshot, String>> future = loadFirstPage(3);
+        captureListener().onEvent(snapshotOf("a"), null);
+
+        PagingSource.LoadResult.Page<DocumentSnapshot, String> page =
+                (PagingSource.LoadResult.Page<DocumentSnapshot, String>) future.get();
+        assertNull("Trang thiếu -> hết dữ liệu", page.getNextKey());
+    }
+
+    @Test
+    public void testFirstPage_LaterSnapshot_InvalidatesAndRemovesListener() {
+        loadFirstPage(3);
+        EventListener<QuerySnapshot> listener = captureListener();
+        listener.onEvent(snapshotOf("a"), null);
+        assertFalse(source.getInvalid());
+
+        // Trang đầu thay đổi -> Pager phải tạo source mới
+        listener.onEvent(snapshotOf("b", "a"), null);
+        assertTrue(source.getInvalid());
+        verify(registration).remove();
+    }
+
+    @Test
+    public void testInvalidate_RemovesFirstPageListener() {
+        loadFirstPage(3);
+        source.invalidate();
+        verify(registration).remove();
+    }
+
+    @Test
+    public void testNoQuery_EmptyPage() throws Exception {
+        FirestorePagingSource<String> empty = new FirestorePagingSource<>(null, (id, data) -> id);
+        PagingSource.LoadResult<DocumentSnapshot, String> result =
+                empty.loadFuture(new PagingSource.LoadParams.Refresh<>(null, 10, false)).get();
+
+        PagingSource.LoadResult.Page<DocumentSnapshot, String> page =
+                (PagingSource.LoadResult.Page<DocumentSnapshot, String>) result;
+        assertTrue(page.getData().isEmpty());
+        assertNull(page.getNextKey());
+    }
+}
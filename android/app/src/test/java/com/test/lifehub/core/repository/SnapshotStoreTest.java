@@ -0,0 +1,419 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Unit test cho SnapshotStore
+ * Kiểm tra việc áp dụng DocumentChange tăng dần, thứ tự sắp xếp, bỏ qua echo
+ * seed từ LocalMirror (đối chiếu với snapshot đầu tiên) và thay đổi optimistic
+ */
+public class SnapshotStoreTest {
+
+    /** POJO tối giản để test */
+    static class Item {
+        String id;
+        String name;
+
+        Item(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private SnapshotStore<Item> store;
+
+    @Before
+    public void setUp() {
+        // Mapper chỉ dùng cho seed() (các test khác gọi applyChanges với item đã map sẵn)
+        store = new SnapshotStore<>((id, data) -> new Item(id, (String) data.get("name")), item -> item.name,
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    private static SnapshotStore.Change<Item> added(Item item) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.ADDED, item.id, item, false, null);
+    }
+
+    private static SnapshotStore.Change<Item> modified(Item item, boolean pending, Map<String, Object> data) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.MODIFIED, item.id, item, pending, data);
+    }
+
+    private static SnapshotStore.Change<Item> removed(String id) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.REMOVED, id, null, false, null);
+    }
+
+    /** ADDED kèm raw data (giống snapshot thật - cần để so với bản seed) */
+    private static SnapshotStore.Change<Item> addedWithData(String id, String name) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.ADDED, id, new Item(id, name), false, data(name));
+    }
+
+    private static Map<String, Map<String, Object>> disk(String... idNamePairs) {
+        Map<String, Map<String, Object>> documents = new HashMap<>();
+        for (int i = 0; i < idNamePairs.length; i += 2) {
+            documents.put(idNamePairs[i], data(idNamePairs[i + 1]));
+        }
+        return documents;
+    }
+
+    private static Map<String, Object> data(String name) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", name);
+        return map;
+    }
+
+    /** Apply rồi drain ngay (giống 1 snapshot tới và main thread xử lý liền) */
+    private SnapshotStore.Result<Item> applyAndDrain(List<SnapshotStore.Change<Item>> changes) {
+        store.applyChanges(changes);
+        return store.drain();
+    }
+
+    private static String names(List<Item> items) {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : items) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(item.name);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testFirstApply_EmptySnapshot_StillEmits() {
+        // Lần đầu luôn phát ra (để UI thoát trạng thái loading dù collection rỗng)
+        SnapshotStore.Result<Item> result = applyAndDrain(Collections.emptyList());
+
+        assertNotNull("Lần apply đầu tiên phải có kết quả", result);
+        assertTrue(result.items.isEmpty());
+        assertTrue(result.diff.isEmpty());
+    }
+
+    @Test
+    public void testAdded_SortedByKey() {
+        SnapshotStore.Result<Item> result = applyAndDrain(Arrays.asList(
+                added(new Item("1", "zalo")),
+                added(new Item("2", "Facebook")),
+                added(new Item("3", "google"))));
+
+        assertNotNull(result);
+        assertEquals("Facebook,google,zalo", names(result.items));
+        assertEquals(3, result.diff.added.size());
+    }
+
+    @Test
+    public void testModified_ReordersAndReportsDiff() {
+        applyAndDrain(Arrays.asList(
+                added(new Item("1", "a")),
+                added(new Item("2", "b"))));
+
+        SnapshotStore.Result<Item> result = applyAndDrain(
+                Collections.singletonList(modified(new Item("1", "c"), false, null)));
+
+        assertNotNull(result);
+        assertEquals("b,c", names(result.items));
+        assertEquals(1, result.diff.modified.size());
+        assertTrue(result.diff.added.isEmpty());
+    }
+
+    @Test
+    public void testModified_AfterUiMutatedItem_StillRemovesOldEntry() {
+        // UI sửa trực tiếp object trong store -> sort key đã đóng băng nên không bị trùng
+        Item item = new Item("1", "a");
+        applyAndDrain(Arrays.asList(added(item), added(new Item("2", "b"))));
+        item.name = "z";
+
+        SnapshotStore.Result<Item> result = applyAndDrain(
+                Collections.singletonList(modified(new Item("1", "c"), false, null)));
+
+        assertNotNull(result);
+        assertEquals(2, result.items.size());
+        assertEquals("b,c", names(result.items));
+    }
+
+    @Test
+    public void testRemoved_UnknownId_NoEmit() {
+        applyAndDrain(Collections.singletonList(added(new Item("1", "a"))));
+
+        assertNull("Xóa document không có trong store thì không phát lại",
+                applyAndDrain(Collections.singletonList(removed("404"))));
+
+        SnapshotStore.Result<Item> result = applyAndDrain(Collections.singletonList(removed("1")));
+        assertNotNull(result);
+        assertTrue(result.items.isEmpty());
+        assertEquals(Collections.singletonList("1"), result.diff.removedIds);
+    }
+
+    @Test
+    public void testMapperFiltered_TreatedAsRemoved() {
+        applyAndDrain(Collections.singletonList(added(new Item("1", "a"))));
+
+        // Mapper trả về null (ví dụ: đổi owner) -> item bị gỡ khỏi store
+        SnapshotStore.Result<Item> result = applyAndDrain(Collections.singletonList(
+                new SnapshotStore.Change<>(DocumentChange.Type.MODIFIED, "1", null, false, null)));
+
+        assertNotNull(result);
+        assertEquals(0, store.size());
+        assertEquals(1, result.diff.removedIds.size());
+    }
+
+    @Test
+    public void testServerEcho_SameData_Skipped() {
+        applyAndDrain(Collections.singletonList(added(new Item("1", "a"))));
+
+        // Local write (pending) -> phát ra ngay
+        assertNotNull(applyAndDrain(Collections.singletonList(
+                modified(new Item("1", "b"), true, data("b")))));
+
+        // Server xác nhận cùng dữ liệu -> bỏ qua
+        assertNull(applyAndDrain(Collections.singletonList(
+                modified(new Item("1", "b"), false, data("b")))));
+    }
+
+    @Test
+    public void testServerConfirm_DifferentData_Emitted() {
+        applyAndDrain(Collections.singletonList(added(new Item("1", "a"))));
+        applyAndDrain(Collections.singletonList(modified(new Item("1", "b"), true, data("b"))));
+
+        // Server trả về dữ liệu khác (ví dụ: serverTimestamp đã được điền)
+        SnapshotStore.Result<Item> result = applyAndDrain(Collections.singletonList(
+                modified(new Item("1", "b2"), false, data("b2"))));
+
+        assertNotNull(result);
+        assertEquals("b2", store.get("1").name);
+    }
+
+    @Test
+    public void testConflation_MultipleSnapshotsMergedIntoOneDiff() {
+        applyAndDrain(Arrays.asList(added(new Item("1", "a")), added(new Item("2", "b"))));
+
+        // 3 snapshot tới trước khi main thread kịp drain
+        assertTrue(store.applyChanges(Arrays.asList(added(new Item("3", "c")), removed("1"))));
+        assertTrue(store.applyChanges(Collections.singletonList(modified(new Item("3", "c2"), false, null))));
+        assertTrue(store.applyChanges(Arrays.asList(removed("2"), added(new Item("2", "b2")))));
+
+        SnapshotStore.Result<Item> result = store.drain();
+        assertNotNull(result);
+        assertEquals("b2,c2", names(result.items));
+        // 3: added rồi modified -> added (bản mới nhất)
+        assertEquals(1, result.diff.added.size());
+        assertEquals("c2", result.diff.added.get(0).name);
+        // 2: removed rồi added lại -> modified
+        assertEquals(1, result.diff.modified.size());
+        assertEquals("b2", result.diff.modified.get(0).name);
+        assertEquals(Collections.singletonList("1"), result.diff.removedIds);
+
+        assertNull("Đã drain thì không còn gì để phát", store.drain());
+    }
+
+    @Test
+    public void testConflation_AddedThenRemoved_NoDiff() {
+        applyAndDrain(Collections.emptyList());
+
+        store.applyChanges(Collections.singletonList(added(new Item("1", "a"))));
+        store.applyChanges(Collections.singletonList(removed("1")));
+
+        SnapshotStore.Result<Item> result = store.drain();
+        assertNotNull(result);
+        assertTrue(result.items.isEmpty());
+        assertTrue("Thêm rồi xóa trước khi drain -> diff rỗng", result.diff.isEmpty());
+    }
+
+    @Test
+    public void testClear_NextApplyEmitsAgain() {
+        applyAndDrain(Collections.singletonList(added(new Item("1", "a"))));
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertNotNull("Sau clear, lần apply đầu phải phát lại",
+                applyAndDrain(Collections.emptyList()));
+    }
+
+    @Test
+    public void testSeed_EmitsBeforeFirstSnapshot() {
+        assertTrue(store.seed(disk("1", "b", "2", "a")));
+
+        SnapshotStore.Result<Item> result = store.drain();
+        assertNotNull("Dữ liệu disk phải được phát ngay", result);
+        assertEquals("a,b", names(result.items));
+        assertEquals(2, result.diff.added.size());
+    }
+
+    @Test
+    public void testSeed_IdenticalFirstSnapshot_NoUpdate() {
+        store.seed(disk("1", "a", "2", "b"));
+        store.drain();
+
+        // Server trả về đúng dữ liệu trên disk -> UI không phải vẽ lại
+        assertFalse(store.applyChanges(Arrays.asList(addedWithData("1", "a"), addedWithData("2", "b"))));
+        assertNull(store.drain());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testSeed_FirstSnapshot_AppliesDifferencesAndRemovesDeleted() {
+        store.seed(disk("1", "a", "2", "b", "3", "c"));
+        store.drain();
+
+        // "2" đã sửa, "3" đã bị xóa trên máy khác, "4" mới
+        SnapshotStore.Result<Item> result = applyAndDrain(Arrays.asList(
+                addedWithData("1", "a"), addedWithData("2", "b2"), addedWithData("4", "d")));
+
+        assertEquals("a,b2,d", names(result.items));
+        assertEquals(1, result.diff.added.size());
+        assertEquals("d", result.diff.added.get(0).name);
+        assertEquals(1, result.diff.modified.size());
+        assertEquals("b2", result.diff.modified.get(0).name);
+        assertEquals(Collections.singletonList("3"), result.diff.removedIds);
+    }
+
+    @Test
+    public void testSeed_AfterFirstSnapshot_Ignored() {
+        applyAndDrain(Collections.singletonList(addedWithData("1", "a")));
+
+        // Disk chậm hơn mạng -> bỏ qua dữ liệu cũ
+        assertFalse(store.seed(disk("1", "old", "9", "z")));
+        assertEquals(1, store.size());
+        assertEquals("a", store.get("1").name);
+    }
+
+    @Test
+    public void testSeed_EmptyCacheSnapshot_DefersReconcile() {
+        store.seed(disk("1", "a", "2", "b"));
+        store.drain();
+
+        // Snapshot rỗng từ cache Firestore -> chưa đủ để kết luận "1", "2" đã bị xóa
+        store.applyChanges(Collections.emptyList(), false);
+        assertEquals(2, store.size());
+
+        SnapshotStore.Result<Item> result = applyAndDrain(Collections.singletonList(addedWithData("1", "a")));
+        assertEquals("a", names(result.items));
+        assertEquals(Collections.singletonList("2"), result.diff.removedIds);
+    }
+
+    @Test
+    public void testSeed_EmptyDisk_WaitsForSnapshot() {
+        assertFalse(store.seed(Collections.emptyMap()));
+        assertNull(store.drain());
+        assertNotNull("Snapshot đầu tiên vẫn phải phát (kể cả rỗng)", applyAndDrain(Collections.emptyList()));
+    }
+
+    @Test
+    public void testApplyLocal_UpsertResortsImmediately() {
+        applyAndDrain(Arrays.asList(added(new Item("1", "a")), added(new Item("2", "b"))));
+
+        // UI sửa object trong store rồi đưa lại -> sort key được tính lại
+        Item item = store.get("1");
+        item.name = "z";
+        assertTrue(store.applyLocal("1", item));
+
+        SnapshotStore.Result<Item> result = store.drain();
+        assertNotNull(result);
+        assertEquals("b,z", names(result.items));
+        assertEquals(1, result.diff.modified.size());
+    }
+
+    @Test
+    public void testApplyLocal_Remove() {
+        applyAndDrain(Arrays.asList(added(new Item("1", "a")), added(new Item("2", "b"))));
+
+        assertTrue(store.applyLocal("1", null));
+        assertFalse("Xóa id không tồn tại -> không có gì phát ra", store.applyLocal("x", null));
+
+        SnapshotStore.Result<Item> result = store.drain();
+        assertEquals("b", names(result.items));
+        assertEquals(Collections.singletonList("1"), result.diff.removedIds);
+    }
+
+    @Test
+    public void testApplyDocument_RestoresAfterFailedWrite() {
+        applyAndDrain(Arrays.asList(added(new Item("1", "a")), added(new Item("2", "b"))));
+        store.applyLocal("1", null);
+        store.drain();
+
+        // Ghi bị từ chối -> đọc lại bản trong cache Firestore
+        assertTrue(store.applyDocument("1", data("a")));
+        SnapshotStore.Result<Item> result = store.drain();
+        assertEquals("a,b", names(result.items));
+        assertEquals(1, result.diff.added.size());
+
+        // Document không còn trong cache -> gỡ
+        assertTrue(store.applyDocument("2", null));
+        assertEquals("a", names(store.drain().items));
+    }
+
+    @Test
+    public void testMarkResync_ResumedListenerOnlyEmitsDifferences() {
+        applyAndDrain(Arrays.asList(addedWithData("1", "a"), addedWithData("2", "b"), addedWithData("3", "c")));
+
+        // Listener bị tạm dừng -> dữ liệu giữ nguyên, chờ snapshot đầy đủ của listener mới
+        store.markResync();
+        assertEquals(3, store.size());
+
+        // Không có gì đổi -> không phát lại
+        store.applyChanges(Arrays.asList(addedWithData("1", "a"), addedWithData("2", "b"), addedWithData("3", "c")));
+        assertNull(store.drain());
+
+        // Lần tạm dừng sau: "2" bị sửa và "3" bị xóa trong lúc không nghe
+        store.markResync();
+        SnapshotStore.Result<Item> result = applyAndDrain(Arrays.asList(addedWithData("1", "a"), addedWithData("2", "b2")));
+        assertEquals("a,b2", names(result.items));
+        assertEquals(1, result.diff.modified.size());
+        assertEquals(Collections.singletonList("3"), result.diff.removedIds);
+    }
+
+    @Test
+    public void testDrainedList_UnchangedByLaterChanges() {
+        List<Item> first = applyAndDrain(Arrays.asList(
+                added(new Item("1", "a")), added(new Item("2", "b")), added(new Item("3", "c")))).items;
+
+        // Danh sách đã phát ra dùng chung node với bản sau nhưng không bị đổi theo
+        List<Item> second = applyAndDrain(Arrays.asList(
+                removed("2"), added(new Item("4", "d")), modified(new Item("1", "e"), false, null))).items;
+        assertEquals("a,b,c", names(first));
+        assertEquals("b", first.get(1).name);
+        assertEquals("c,d,e", names(second));
+        assertEquals("d", second.get(1).name);
+        assertEquals(3, second.size());
+
+        store.clear();
+        assertEquals("c,d,e", names(second));
+        assertTrue(store.currentList().isEmpty());
+    }
+
+    @Test
+    public void testCurrentList_MatchesSortedOrderAfterRandomChanges() {
+        Random random = new Random(3);
+        TreeMap<String, String> expected = new TreeMap<>(); // name -> id
+        Map<String, String> nameById = new HashMap<>();
+        for (int round = 0; round < 2000; round++) {
+            String id = "i" + random.nextInt(300);
+            String oldName = nameById.remove(id);
+            if (oldName != null) expected.remove(oldName);
+            if (random.nextInt(3) == 0) {
+                store.applyChanges(Collections.singletonList(removed(id)));
+            } else {
+                String name = "n" + (100_000 + random.nextInt(900_000)) + id;
+                store.applyChanges(Collections.singletonList(added(new Item(id, name))));
+                nameById.put(id, name);
+                expected.put(name, id);
+            }
+        }
+        List<Item> items = store.drain().items;
+        assertEquals(expected.size(), items.size());
+        int i = 0;
+        for (String name : expected.keySet()) {
+            assertEquals(name, items.get(i++).name);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho WarmUpSchedule
+ * Kiểm tra chọn mục theo số lần mở (ngưỡng, tối đa MAX_SECTIONS), bỏ qua khi mạng tính phí / pin yếu
+ * và hủy các bước chưa chạy
+ */
+public class WarmUpScheduleTest {
+
+    private final Map<String, Integer> opens = new HashMap<>();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private final List<String> started = new ArrayList<>();
+    private boolean constrained = false;
+
+    private final DemandActivation.Scheduler scheduler = new DemandActivation.Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            pending.add(task);
+            delays.add(delayMs);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            pending.remove(task);
+        }
+    };
+
+    private WarmUpSchedule schedule;
+
+    @Before
+    public void setUp() {
+        schedule = new WarmUpSchedule(section -> opens.getOrDefault(section, 0), () -> constrained, scheduler)
+                .add(WarmUpSchedule.SECTION_TASKS, activation("tasks"), activation("projects"))
+                .add(WarmUpSchedule.SECTION_NOTES, activation("notes"))
+                .add(WarmUpSchedule.SECTION_CALENDAR, activation("calendar"));
+    }
+
+    /** Activation ghi lại tên khi start; pause hẹn qua cùng scheduler */
+    private DemandActivation activation(String name) {
+        return new DemandActivation(name, () -> started.add(name), () -> { }, 1_000, scheduler);
+    }
+
+    @Test
+    public void testNoUsage_NothingWarmed() {
+        assertTrue(schedule.order().isEmpty());
+
+        schedule.start();
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void testMostOpenedFirst_TiesInDefaultOrder() {
+        opens.put(WarmUpSchedule.SECTION_CALENDAR, 5);
+        opens.put(WarmUpSchedule.SECTION_NOTES, 3);
+        opens.put(WarmUpSchedule.SECTION_TASKS, 3);
+
+        assertEquals(Arrays.asList("calendar", "tasks"), schedule.order());
+    }
+
+    @Test
+    public void testBelowThreshold_NotWarmed() {
+        opens.put(WarmUpSchedule.SECTION_NOTES, WarmUpSchedule.MIN_OPEN_COUNT);
+        opens.put(WarmUpSchedule.SECTION_TASKS, WarmUpSchedule.MIN_OPEN_COUNT - 1);
+
+        assertEquals(Arrays.asList("notes"), schedule.order());
+    }
+
+    @Test
+    public void testStart_NeverOpenedSectionNotStarted() {
+        // Người dùng chỉ mở Ghi chú + Công việc, chưa từng mở Lịch
+        opens.put(WarmUpSchedule.SECTION_NOTES, 8);
+        opens.put(WarmUpSchedule.SECTION_TASKS, 4);
+        schedule.start();
+
+        assertEquals(2, pending.size());
+        assertEquals(Arrays.asList(WarmUpSchedule.FIRST_DELAY_MS,
+                WarmUpSchedule.FIRST_DELAY_MS + WarmUpSchedule.STEP_MS), delays);
+
+        // Chạy hết các bước: notes rồi tasks (cả tasks và projects), không có calendar
+        pending.remove(0).run();
+        pending.remove(0).run();
+        assertEquals(Arrays.asList("notes", "tasks", "projects"), started);
+        assertFalse(started.contains("calendar"));
+    }
+
+    @Test
+    public void testStart_Constrained_NothingScheduled() {
+        opens.put(WarmUpSchedule.SECTION_NOTES, 8);
+        constrained = true;  // Mạng tính phí / pin yếu
+        schedule.start();
+
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void testCancel_DropsPendingSteps() {
+        opens.put(WarmUpSchedule.SECTION_NOTES, 8);
+        schedule.start();
+        assertFalse(pending.isEmpty());
+        schedule.cancel();
+
+        assertTrue(pending.isEmpty());
+        assertTrue(started.isEmpty());
+    }
+}
@@ -0,0 +1,502 @@
+package com.test.lifehub.core.repository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.test.lifehub.core.codec.CodecSupport;
+import com.test.lifehub.core.codec.DocumentCodec;
+import com.test.lifehub.core.codec.TrackedDocument;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho WriteBehindQueue
+ * Kiểm tra gộp write cùng document, chia batch, commit lại từng write khi batch lỗi,
+ * thứ tự write của cùng document (kể cả offline), metrics và save() chỉ gửi field đã đổi
+ */
+public class WriteBehindQueueTest {
+
+    /**
+     * Committer giả: giữ batch lại để test tự quyết định thành công / thất bại
+     */
+    private static final class FakeCommitter implements WriteBehindQueue.Committer {
+        final List<List<WriteBehindQueue.Write>> batches = new ArrayList<>();
+        final List<WriteBehindQueue.CommitListener> listeners = new ArrayList<>();
+
+        @Override
+        public void commit(List<WriteBehindQueue.Write> writes, WriteBehindQueue.CommitListener listener) {
+            batches.add(new ArrayList<>(writes));
+            listeners.add(listener);
+        }
+
+        void complete(int index, Exception error) {
+            listeners.get(index).onComplete(error);
+        }
+    }
+
+    /**
+     * Callback ghi lại kết quả
+     */
+    private static final class RecordingCallback implements WriteBehindQueue.Callback {
+        final List<String> successes = new ArrayList<>();
+        final List<Exception> failures = new ArrayList<>();
+
+        @Override
+        public void onSuccess(String documentId) {
+            successes.add(documentId);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failures.add(e);
+        }
+    }
+
+    /**
+     * Model + codec viết tay (giống code sinh bởi FirestoreCodecProcessor)
+     */
+    public static class Item extends TrackedDocument {
+        public String name;
+        public String content;
+        public boolean completed;
+        public Date lastModified;
+    }
+
+    private static final DocumentCodec<Item> ITEM_CODEC = new DocumentCodec<Item>() {
+        @Override
+        public Item fromMap(String documentId, Map<String, Object> data) {
+            Item item = new Item();
+            item.name = CodecSupport.asString(data.get("name"));
+            item.content = CodecSupport.asString(data.get("content"));
+            item.completed = CodecSupport.asBoolean(data.get("completed"));
+            item.lastModified = CodecSupport.asDate(data.get("lastModified"));
+            item.markLoaded(data);
+            return item;
+        }
+
+        @Override
+        public Map<String, Object> toMap(Item item) {
+            return data("name", item.name, "content", item.content, "completed", item.completed,
+                    "lastModified", item.lastModified);
+        }
+    };
+
+    /** Codec của model có field @ServerTimestamp (null -> FieldValue.serverTimestamp()) */
+    private static final DocumentCodec<Item> STAMPED_CODEC = new DocumentCodec<Item>() {
+        @Override
+        public Item fromMap(String documentId, Map<String, Object> data) {
+            Item item = new Item();
+            item.name = CodecSupport.asString(data.get("name"));
+            item.lastModified = CodecSupport.asDate(data.get("lastModified"));
+            item.markLoaded(data);
+            return item;
+        }
+
+        @Override
+        public Map<String, Object> toMap(Item item) {
+            return data("name", item.name, "lastModified", CodecSupport.orServerTimestamp(item.lastModified));
+        }
+    };
+
+    private FakeCommitter committer;
+    private List<Runnable> scheduled;
+    private WriteBehindQueue queue;
+
+    @Before
+    public void setUp() {
+        committer = new FakeCommitter();
+        scheduled = new ArrayList<>();
+        // Scheduler giả: chỉ chạy khi test gọi runScheduled()
+        queue = new WriteBehindQueue(committer, (task, delayMs) -> scheduled.add(task), 100);
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) task.run();
+    }
+
+    private static DocumentReference doc(String id) {
+        DocumentReference ref = mock(DocumentReference.class);
+        when(ref.getId()).thenReturn(id);
+        when(ref.getPath()).thenReturn("users/u1/tasks/" + id);
+        return ref;
+    }
+
+    private static Map<String, Object> data(Object... keyValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testWritesInWindow_CommittedAsOneBatch() {
+        queue.set(doc("a"), data("name", "A"), null);
+        queue.set(doc("b"), data("name", "B"), null);
+        queue.delete(doc("c"), null);
+
+        assertTrue("Chưa commit trước khi hết cửa sổ gộp", committer.batches.isEmpty());
+        assertEquals("Chỉ lên lịch flush 1 lần", 1, scheduled.size());
+        assertEquals(3, queue.getQueueDepth());
+
+        runScheduled();
+        assertEquals(1, committer.batches.size());
+        assertEquals(3, committer.batches.get(0).size());
+        assertEquals("Write đang chờ server xác nhận vẫn tính vào depth", 3, queue.getQueueDepth());
+
+        committer.complete(0, null);
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void testSetThenUpdate_MergedIntoSet() {
+        DocumentReference ref = doc("a");
+        queue.set(ref, data("name", "A", "completed", false, "note", "x"), null);
+        queue.update(ref, data("completed", true, "note", FieldValue.delete()), null);
+        runScheduled();
+
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.SET, write.kind);
+        assertEquals(data("name", "A", "completed", true), write.data);
+    }
+
+    @Test
+    public void testUpdateThenUpdate_FieldsMerged() {
+        DocumentReference ref = doc("a");
+        queue.update(ref, data("name", "A", "completed", false), null);
+        queue.update(ref, data("completed", true), null);
+        runScheduled();
+
+        assertEquals(1, committer.batches.get(0).size());
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.UPDATE, write.kind);
+        assertEquals(data("name", "A", "completed", true), write.data);
+    }
+
+    @Test
+    public void testAddToArray_ElementsAccumulated() {
+        DocumentReference ref = doc("a");
+        queue.addToArray(ref, "deleted", 1L, data("name", "A"), null);
+        queue.addToArray(ref, "deleted", 2L, data("name", "A2"), null);
+        runScheduled();
+
+        // 2 arrayUnion trong cùng cửa sổ: không cái nào bị đè mất
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.UPDATE, write.kind);
+        assertEquals(data("name", "A2"), write.data);
+        assertEquals(Arrays.asList(1L, 2L), write.arrayUnions.get("deleted"));
+    }
+
+    @Test
+    public void testAddToArray_AppliedToPendingValue() {
+        DocumentReference ref = doc("a");
+        queue.set(ref, data("name", "A", "deleted", Arrays.asList(1L)), null);
+        queue.addToArray(ref, "deleted", 2L, data(), null);
+        queue.addToArray(ref, "deleted", 1L, data(), null);  // Đã có -> không thêm lần nữa
+        runScheduled();
+
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.SET, write.kind);
+        assertEquals(data("name", "A", "deleted", Arrays.asList(1L, 2L)), write.data);
+
+        // Ghi thẳng giá trị mới sau arrayUnion -> giá trị mới thắng
+        DocumentReference other = doc("b");
+        queue.addToArray(other, "deleted", 3L, data(), null);
+        queue.update(other, data("deleted", Arrays.asList(5L)), null);
+        runScheduled();
+        write = committer.batches.get(1).get(0);
+        assertEquals(data("deleted", Arrays.asList(5L)), write.data);
+        assertTrue(write.arrayUnions.isEmpty());
+    }
+
+    @Test
+    public void testDeleteWins_AndSetAfterDeleteRecreates() {
+        DocumentReference ref = doc("a");
+        queue.set(ref, data("name", "A"), null);
+        queue.delete(ref, null);
+        runScheduled();
+        assertEquals(WriteBehindQueue.Kind.DELETE, committer.batches.get(0).get(0).kind);
+
+        DocumentReference other = doc("b");
+        queue.delete(other, null);
+        queue.set(other, data("name", "B"), null);
+        runScheduled();
+        WriteBehindQueue.Write write = committer.batches.get(1).get(0);
+        assertEquals(WriteBehindQueue.Kind.SET, write.kind);
+        assertEquals(data("name", "B"), write.data);
+    }
+
+    @Test
+    public void testUpdateAfterDelete_RejectedImmediately() {
+        DocumentReference ref = doc("a");
+        RecordingCallback deleteCallback = new RecordingCallback();
+        RecordingCallback updateCallback = new RecordingCallback();
+        queue.delete(ref, deleteCallback);
+        queue.update(ref, data("name", "A"), updateCallback);
+
+        assertEquals(1, updateCallback.failures.size());
+        assertEquals(FirebaseFirestoreException.Code.NOT_FOUND,
+                ((FirebaseFirestoreException) updateCallback.failures.get(0)).getCode());
+
+        runScheduled();
+        committer.complete(0, null);
+        assertEquals(1, deleteCallback.successes.size());
+        assertTrue("Update bị từ chối không được báo thành công", updateCallback.successes.isEmpty());
+    }
+
+    @Test
+    public void testCoalescedWrites_AllCallbacksNotified() {
+        DocumentReference ref = doc("a");
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        queue.set(ref, data("name", "A"), first);
+        queue.set(ref, data("name", "A2"), second);
+        runScheduled();
+        committer.complete(0, null);
+
+        assertEquals(1, first.successes.size());
+        assertEquals("a", second.successes.get(0));
+        assertEquals(1, queue.getStats().coalescedWrites);
+        assertEquals(1, queue.getStats().committedWrites);
+    }
+
+    @Test
+    public void testMoreThanBatchLimit_SplitIntoBatches() {
+        int total = WriteBehindQueue.MAX_BATCH_SIZE + 20;
+        for (int i = 0; i < total; i++) {
+            queue.set(doc("d" + i), data("index", i), null);
+        }
+        // Đủ 500 write -> flush ngay, không chờ cửa sổ
+        assertEquals(1, committer.batches.size());
+        assertEquals(WriteBehindQueue.MAX_BATCH_SIZE, committer.batches.get(0).size());
+
+        runScheduled();
+        assertEquals(2, committer.batches.size());
+        assertEquals(20, committer.batches.get(1).size());
+    }
+
+    @Test
+    public void testFailedBatch_RetriedOneByOne() {
+        RecordingCallback good = new RecordingCallback();
+        RecordingCallback bad = new RecordingCallback();
+        queue.set(doc("good"), data("name", "G"), good);
+        queue.update(doc("bad"), data("name", "B"), bad);
+        runScheduled();
+
+        Exception error = new IllegalStateException("batch failed");
+        committer.complete(0, error);
+        assertTrue("Chưa báo lỗi khi còn commit lại", good.failures.isEmpty() && bad.failures.isEmpty());
+        assertEquals("Mỗi write được commit lại riêng", 3, committer.batches.size());
+        assertEquals(1, committer.batches.get(1).size());
+        assertEquals(2, queue.getQueueDepth());
+
+        committer.complete(1, null);
+        committer.complete(2, new IllegalStateException("not found"));
+        assertEquals(1, good.successes.size());
+        assertEquals(1, bad.failures.size());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(1, queue.getStats().failedWrites);
+    }
+
+    /**
+     * Offline: server không bao giờ xác nhận -> write sau của cùng document vẫn phải tới SDK
+     * (SDK lưu write offline xuống đĩa, hàng đợi trong bộ nhớ thì mất khi app bị kill)
+     */
+    @Test
+    public void testOffline_SuccessiveWritesToOneDocumentReachCommitter() {
+        DocumentReference ref = doc("a");
+        queue.set(ref, data("name", "A"), null);
+        runScheduled();
+        queue.update(ref, data("completed", true), null);
+        runScheduled();
+        queue.update(ref, data("name", "A2"), null);
+        queue.flush(); // Logout
+
+        assertEquals(3, committer.batches.size());
+        assertEquals(data("name", "A"), committer.batches.get(0).get(0).data);
+        assertEquals(data("completed", true), committer.batches.get(1).get(0).data);
+        assertEquals(data("name", "A2"), committer.batches.get(2).get(0).data);
+        assertEquals(0, queue.getStats().pendingWrites);
+        assertEquals(3, queue.getStats().inFlightWrites);
+    }
+
+    @Test
+    public void testFailedBatch_PendingNewerWriteJoinsRetry() {
+        DocumentReference ref = doc("a");
+        RecordingCallback created = new RecordingCallback();
+        RecordingCallback updated = new RecordingCallback();
+        queue.set(ref, data("name", "old", "completed", false), created);
+        queue.update(doc("bad"), data("name", "B"), null);
+        runScheduled();
+
+        // Update của "a" còn trong cửa sổ gộp khi batch chứa set của "a" báo lỗi
+        queue.update(ref, data("name", "new"), updated);
+        committer.complete(0, new IllegalStateException("batch failed"));
+
+        assertEquals(3, committer.batches.size());
+        WriteBehindQueue.Write retried = committer.batches.get(1).get(0);
+        assertEquals(WriteBehindQueue.Kind.SET, retried.kind);
+        assertEquals("Set cũ + update mới trong cùng lần commit lại",
+                data("name", "new", "completed", false), retried.data);
+        assertEquals(0, queue.getStats().pendingWrites);
+
+        committer.complete(1, null);
+        committer.complete(2, new IllegalStateException("not found"));
+        runScheduled();
+        assertEquals("Update không bị commit riêng sau đó", 3, committer.batches.size());
+        assertEquals(1, created.successes.size());
+        assertEquals(1, updated.successes.size());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void testFailedBatch_RetryDoesNotOverwriteNewerInFlightWrite() {
+        DocumentReference ref = doc("a");
+        queue.set(ref, data("name", "old", "completed", false), null);
+        queue.update(doc("bad"), data("name", "B"), null);
+        runScheduled();
+        queue.update(ref, data("completed", true), null);   // Đã vào SDK sau batch 0
+        runScheduled();
+
+        committer.complete(0, new IllegalStateException("batch failed"));
+        assertEquals(4, committer.batches.size());
+        assertEquals("Set cũ commit lại mang field của update mới hơn",
+                data("name", "old", "completed", true), committer.batches.get(2).get(0).data);
+
+        // Update cũ bị set mới hơn thay thế -> không commit lại
+        RecordingCallback stale = new RecordingCallback();
+        DocumentReference other = doc("b");
+        queue.update(other, data("name", "B1"), stale);
+        queue.update(doc("bad2"), data("name", "X"), null);
+        runScheduled();
+        queue.set(other, data("name", "B2"), null);
+        runScheduled();
+        committer.complete(4, new IllegalStateException("batch failed"));
+
+        assertEquals("Chỉ bad2 được commit lại", 7, committer.batches.size());
+        assertEquals("users/u1/tasks/bad2", committer.batches.get(6).get(0).path);
+        assertEquals(1, stale.failures.size());
+    }
+
+    @Test
+    public void testFlush_CommitsWithoutWaitingForWindow() {
+        queue.set(doc("a"), data("name", "A"), null);
+        queue.flush();
+        assertEquals(1, committer.batches.size());
+
+        committer.complete(0, null);
+        WriteBehindQueue.Stats stats = queue.getStats();
+        assertEquals(1, stats.commits);
+        assertEquals(0, stats.pendingWrites);
+        assertEquals(0, stats.inFlightWrites);
+        assertTrue(stats.maxCommitLatencyMs >= stats.lastCommitLatencyMs);
+        // Latency write tính từ lúc vào hàng đợi -> không nhỏ hơn latency commit
+        assertTrue(stats.lastWriteLatencyMs >= stats.lastCommitLatencyMs);
+        assertEquals(stats.lastWriteLatencyMs, stats.maxWriteLatencyMs);
+    }
+
+    @Test
+    public void testSave_NewObject_FullSet() {
+        Item item = new Item();
+        item.name = "A";
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        runScheduled();
+
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.SET, write.kind);
+        assertEquals(4, write.data.size());
+    }
+
+    @Test
+    public void testSave_LoadedObject_OnlyChangedFields() {
+        // Raw data như getData(): Timestamp thay vì Date
+        Item item = ITEM_CODEC.fromMap("a", data("name", "A", "content", "nội dung rất dài",
+                "completed", false, "lastModified", new Timestamp(new Date(1000))));
+        item.completed = true;
+        item.lastModified = new Date(2000);
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        runScheduled();
+
+        WriteBehindQueue.Write write = committer.batches.get(0).get(0);
+        assertEquals(WriteBehindQueue.Kind.UPDATE, write.kind);
+        assertEquals(data("completed", true, "lastModified", new Date(2000)), write.data);
+    }
+
+    @Test
+    public void testSave_NothingChanged_NoWrite() {
+        Item item = ITEM_CODEC.fromMap("a", data("name", "A", "completed", false,
+                "lastModified", new Timestamp(new Date(1000))));
+        RecordingCallback callback = new RecordingCallback();
+        queue.save(doc("a"), ITEM_CODEC, item, callback);
+
+        assertTrue(scheduled.isEmpty());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals("a", callback.successes.get(0));
+    }
+
+    @Test
+    public void testSave_ToggleBack_ComparedWithLastSave() {
+        Item item = ITEM_CODEC.fromMap("a", data("name", "A", "completed", false));
+        item.completed = true;
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        item.completed = false;
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        runScheduled();
+
+        // Lần lưu 2 so với bản vừa ghi (completed = true) -> vẫn phải gửi completed = false
+        assertEquals(data("completed", false), committer.batches.get(0).get(0).data);
+    }
+
+    @Test
+    public void testSave_FailedCommit_NextSaveIsFullSet() {
+        Item item = ITEM_CODEC.fromMap("a", data("name", "A", "completed", false));
+        item.completed = true;
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        runScheduled();
+        committer.complete(0, new IllegalStateException("offline"));
+
+        item.name = "B";
+        queue.save(doc("a"), ITEM_CODEC, item, null);
+        runScheduled();
+        assertEquals(WriteBehindQueue.Kind.SET, committer.batches.get(1).get(0).kind);
+    }
+
+    @Test
+    public void testSave_NullServerTimestamp_AloneIsNotAChange() {
+        // Document chưa có lastModified -> toMap() luôn ghi serverTimestamp()
+        Item item = STAMPED_CODEC.fromMap("a", data("name", "A"));
+        RecordingCallback callback = new RecordingCallback();
+        queue.save(doc("a"), STAMPED_CODEC, item, callback);
+
+        assertTrue(scheduled.isEmpty());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals("a", callback.successes.get(0));
+    }
+
+    @Test
+    public void testSave_NullServerTimestamp_SentWithRealChange() {
+        Item item = STAMPED_CODEC.fromMap("a", data("name", "A",
+                "lastModified", new Timestamp(new Date(1000))));
+        item.name = "B";
+        item.lastModified = null; // Để server gán thời gian
+        queue.save(doc("a"), STAMPED_CODEC, item, null);
+        runScheduled();
+
+        assertEquals(data("name", "B", "lastModified", FieldValue.serverTimestamp()),
+                committer.batches.get(0).get(0).data);
+    }
+}
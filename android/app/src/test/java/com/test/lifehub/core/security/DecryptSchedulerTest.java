@@ -0,0 +1,200 @@
+package com.test.lifehub.core.security;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test cho DecryptScheduler / DecryptWindow
+ * Kiểm tra thứ tự ưu tiên, nâng mức, hủy khi recycle, cache theo ciphertext, báo lỗi giải mã
+ * và cửa sổ prefetch
+ */
+public class DecryptSchedulerTest {
+
+    private ArrayDeque<Runnable> workerQueue;
+    private List<String> decrypted;     // Thứ tự ciphertext được giải mã
+    private List<String> logged;        // Key được báo qua ErrorListener
+    private DecryptScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        workerQueue = new ArrayDeque<>();
+        decrypted = new ArrayList<>();
+        logged = new ArrayList<>();
+        // Worker chạy tay, delivery chạy ngay -> test tất định; ciphertext "bad..." giải mã lỗi
+        scheduler = new DecryptScheduler(cipher -> {
+            decrypted.add(cipher);
+            if (cipher.startsWith("bad")) throw new IllegalArgumentException("Tag mismatch");
+            return "plain:" + cipher;
+        }, workerQueue::add, Runnable::run, (key, error) -> logged.add(key), 4);
+    }
+
+    private void runWorker() {
+        while (!workerQueue.isEmpty()) workerQueue.poll().run();
+    }
+
+    @Test
+    public void testPriority_VisibleBeforePrefetchBeforeBackground() {
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.BACKGROUND, null);
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.PREFETCH, null);
+        scheduler.request("c", "c-c", DecryptScheduler.Priority.VISIBLE, null);
+        scheduler.request("d", "c-d", DecryptScheduler.Priority.PREFETCH, null);
+        runWorker();
+
+        assertEquals(Arrays.asList("c-c", "c-b", "c-d", "c-a"), decrypted);
+    }
+
+    @Test
+    public void testBump_NoDuplicateDecrypt() {
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.BACKGROUND, null);
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.BACKGROUND, null);
+        List<String> delivered = new ArrayList<>();
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.VISIBLE, (key, plain) -> delivered.add(plain));
+        runWorker();
+
+        assertEquals(Arrays.asList("c-b", "c-a"), decrypted);
+        assertEquals(Arrays.asList("plain:c-b"), delivered);
+        assertEquals(2, scheduler.getDecryptCount());
+    }
+
+    @Test
+    public void testCache_PeekAndCipherChange() {
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.VISIBLE, null);
+        assertNull(scheduler.peek("a", "c-a"));   // Chưa chạy
+        runWorker();
+        assertEquals("plain:c-a", scheduler.peek("a", "c-a"));
+
+        // Bind lại: giao ngay từ cache, không giải mã lại
+        List<String> delivered = new ArrayList<>();
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.VISIBLE, (key, plain) -> delivered.add(plain));
+        assertEquals(Arrays.asList("plain:c-a"), delivered);
+        assertTrue(workerQueue.isEmpty());
+
+        // Tài khoản bị sửa -> ciphertext mới, cache cũ không dùng
+        assertNull(scheduler.peek("a", "c-a2"));
+        scheduler.request("a", "c-a2", DecryptScheduler.Priority.VISIBLE, null);
+        runWorker();
+        assertEquals("plain:c-a2", scheduler.peek("a", "c-a2"));
+        assertEquals(2, scheduler.getDecryptCount());
+    }
+
+    @Test
+    public void testCancel_DemotesAndDropsCallback() {
+        List<String> delivered = new ArrayList<>();
+        DecryptScheduler.Callback holder = (key, plain) -> delivered.add(key);
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.VISIBLE, holder);
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.PREFETCH, null);
+        scheduler.cancel("a", holder); // Holder bị recycle trước khi giải mã xong
+        runWorker();
+
+        assertTrue(delivered.isEmpty());
+        assertEquals(Arrays.asList("c-b", "c-a"), decrypted); // a hạ xuống PREFETCH, sau b
+        assertEquals("plain:c-a", scheduler.peek("a", "c-a"));
+    }
+
+    @Test
+    public void testDecryptFailure_LoggedAndReportedToCallback() {
+        List<String> delivered = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        DecryptScheduler.Callback holder = new DecryptScheduler.Callback() {
+            @Override
+            public void onDecrypted(String key, String plainText) {
+                delivered.add(key);
+            }
+
+            @Override
+            public void onDecryptFailed(String key, Exception error) {
+                failed.add(key + ":" + error.getMessage());
+            }
+        };
+        scheduler.request("a", "bad-a", DecryptScheduler.Priority.VISIBLE, holder);
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.VISIBLE, holder);
+        runWorker();
+
+        assertEquals(Arrays.asList("b"), delivered);
+        assertEquals(Arrays.asList("a:Tag mismatch"), failed);
+        assertEquals(Arrays.asList("a"), logged);
+        assertNull(scheduler.peek("a", "bad-a"));   // Không cache kết quả lỗi
+
+        // Bind lại -> thử giải mã lại, không treo ở task cũ
+        scheduler.request("a", "bad-a", DecryptScheduler.Priority.VISIBLE, holder);
+        runWorker();
+        assertEquals(2, failed.size());
+    }
+
+    @Test
+    public void testClear_DropsQueueAndCache() {
+        scheduler.request("a", "c-a", DecryptScheduler.Priority.VISIBLE, null);
+        runWorker();
+        scheduler.request("b", "c-b", DecryptScheduler.Priority.VISIBLE, null);
+        scheduler.clear();
+        runWorker();
+
+        assertNull(scheduler.peek("a", "c-a"));
+        assertEquals(Arrays.asList("c-a"), decrypted);
+    }
+
+    @Test
+    public void testCache_BoundedLru() {
+        for (int i = 0; i < 6; i++) {
+            scheduler.request("k" + i, "c" + i, DecryptScheduler.Priority.VISIBLE, null);
+        }
+        runWorker();
+        assertNull(scheduler.peek("k0", "c0"));   // Cache 4 mục: 2 mục cũ nhất bị bỏ
+        assertNotNull(scheduler.peek("k5", "c5"));
+    }
+
+    @Test
+    public void testWindow_PrefetchAheadOfScroll() {
+        DecryptWindow window = new DecryptWindow(scheduler, 3);
+        DecryptWindow.Source source = new DecryptWindow.Source() {
+            @Override
+            public String keyAt(int position) {
+                return position == 0 ? null : "k" + position; // Vị trí 0 = header
+            }
+
+            @Override
+            public String cipherTextAt(int position) {
+                return "c" + position;
+            }
+        };
+
+        window.onBind(1, 20, source);   // Xuống: 2, 3, 4
+        window.onBind(2, 20, source);   // Chỉ thêm 5
+        runWorker();
+        assertEquals(Arrays.asList("c2", "c3", "c4", "c5"), decrypted);
+
+        decrypted.clear();
+        window.onBind(10, 20, source);  // Nhảy xuống: 11..13
+        window.onBind(9, 20, source);   // Cuộn lên: 8, 7, 6 (gần trước)
+        window.onBind(1, 20, source);   // Lên đầu: 0 là header, 1 ngoài cửa sổ
+        runWorker();
+        assertEquals(Arrays.asList("c11", "c12", "c13", "c8", "c7", "c6"), decrypted);
+    }
+
+    /**
+     * Số lần giải mã trước khi dòng đầu dùng được không phụ thuộc kích thước vault
+     * (trước đây = toàn bộ vault vì giải mã hết trước khi hiện)
+     */
+    @Test
+    public void testFirstRow_OneDecryptRegardlessOfVaultSize() {
+        for (int size : new int[]{100, 10_000}) {
+            setUp();
+            for (int i = 0; i < size; i++) {
+                scheduler.request("k" + i, "c" + i, DecryptScheduler.Priority.BACKGROUND, null);
+            }
+            final int[] decryptsBeforeFirstRow = {-1};
+            scheduler.request("k" + (size - 1), "c" + (size - 1), DecryptScheduler.Priority.VISIBLE,
+                    (key, plain) -> decryptsBeforeFirstRow[0] = decrypted.size());
+            while (decryptsBeforeFirstRow[0] < 0) workerQueue.poll().run();
+
+            assertEquals(1, decryptsBeforeFirstRow[0]);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.test.lifehub.core.util;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mockStatic;
+
+import android.util.Log;
+
+import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test cho AutofillHelper
+ * Kiểm tra nhận diện ô mã OTP (từ đứng riêng, tách camelCase) và quy tắc match domain / package
+ */
+public class AutofillHelperTest {
+
+    private MockedStatic<Log> log;  // findMatching* ghi Log.d
+
+    @Before
+    public void setUp() {
+        log = mockStatic(Log.class);
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+    }
+
+    private static AccountEntry account(String serviceName, String websiteUrl) {
+        AccountEntry account = new AccountEntry();
+        account.serviceName = serviceName;
+        account.websiteUrl = websiteUrl;
+        return account;
+    }
+
+    private static List<String> issuers(List<TotpAccount> accounts) {
+        List<String> result = new ArrayList<>();
+        for (TotpAccount account : accounts) result.add(account.getIssuer());
+        return result;
+    }
+
+    // ===== Ô MÃ OTP =====
+
+    @Test
+    public void testOtpText_WholeTokensAndCamelCase() {
+        assertTrue(AutofillHelper.isOtpText("otpCode"));   // camelCase: otp | Code
+        assertTrue(AutofillHelper.isOtpText("OTPCode"));   // OTP | Code
+        assertTrue(AutofillHelper.isOtpText("totp"));
+        assertTrue(AutofillHelper.isOtpText("2fa"));
+        assertTrue(AutofillHelper.isOtpText("enter_2fa_code"));
+    }
+
+    @Test
+    public void testOtpText_WordsContainingOtpNotMatched() {
+        assertFalse(AutofillHelper.isOtpText("hotpot"));
+        assertFalse(AutofillHelper.isOtpText("footprint"));
+        assertFalse(AutofillHelper.isOtpText("hotp"));
+        assertFalse(AutofillHelper.isOtpText("password"));
+        assertFalse(AutofillHelper.isOtpText(null));
+    }
+
+    // ===== MATCH DOMAIN / PACKAGE =====
+
+    @Test
+    public void testMatchesTarget_DomainAndPackage() {
+        // websiteUrl -> domain, so với web domain
+        assertTrue(AutofillHelper.matchesTarget("https://www.github.com/login", null, "github.com", null));
+        // websiteUrl lưu package name của app native
+        assertTrue(AutofillHelper.matchesTarget("com.github.android", null, null, "com.github.android"));
+        // Không có websiteUrl: serviceName nằm trong domain / package
+        assertTrue(AutofillHelper.matchesTarget(null, "GitHub", "github.com", null));
+        assertTrue(AutofillHelper.matchesTarget(null, "GitHub", null, "com.github.android"));
+    }
+
+    @Test
+    public void testMatchesTarget_NoMatch() {
+        assertFalse(AutofillHelper.matchesTarget("https://gitlab.com", "GitLab", "github.com", "com.github.android"));
+        assertFalse(AutofillHelper.matchesTarget(null, null, "github.com", "com.github.android"));
+        assertFalse(AutofillHelper.matchesTarget("https://github.com", "GitHub", null, null));
+    }
+
+    @Test
+    public void testTotpAccounts_MatchByIssuerOrMatchedPasswordAccount() {
+        List<TotpAccount> totps = Arrays.asList(
+                new TotpAccount("me", "GitHub", "s1"),
+                new TotpAccount("me", "Work SSO", "s2"),   // Trùng serviceName của tài khoản đã match
+                new TotpAccount("me", "Google", "s3"));
+        List<AccountEntry> accounts = Collections.singletonList(account("Work SSO", "https://sso.example.com"));
+
+        assertEquals(Arrays.asList("GitHub"),
+                issuers(AutofillHelper.findMatchingTotpAccounts(totps, accounts, "github.com", null)));
+        assertEquals(Arrays.asList("Work SSO"),
+                issuers(AutofillHelper.findMatchingTotpAccounts(totps, accounts, "sso.example.com", null)));
+        assertEquals(Arrays.asList("GitHub"),
+                issuers(AutofillHelper.findMatchingTotpAccounts(totps, accounts, null, "com.github.android")));
+    }
+
+    @Test
+    public void testTotpAccounts_NoMatch() {
+        List<TotpAccount> totps = Collections.singletonList(new TotpAccount("me", "GitHub", "s1"));
+
+        assertTrue(AutofillHelper.findMatchingTotpAccounts(totps, Collections.emptyList(), "bank.vn", "vn.bank.app").isEmpty());
+        assertTrue(AutofillHelper.findMatchingTotpAccounts(null, Collections.emptyList(), "github.com", null).isEmpty());
+    }
+}
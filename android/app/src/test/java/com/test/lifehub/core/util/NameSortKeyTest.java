@@ -0,0 +1,49 @@
+package com.test.lifehub.core.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Unit test cho NameSortKey
+ * Kiểm tra thứ tự bảng chữ cái tiếng Việt, không phân biệt hoa / thường và cache key
+ */
+public class NameSortKeyTest {
+
+    private static List<String> sorted(String... names) {
+        List<String> list = new ArrayList<>(Arrays.asList(names));
+        Collections.sort(list, Comparator.comparing(NameSortKey::of));
+        return list;
+    }
+
+    @Test
+    public void testVietnameseAlphabet() {
+        // Byte order cũ: "Đà Lạt", "Ánh" đứng sau "Zalo"
+        assertEquals(Arrays.asList("An", "Ánh", "Ăn uống", "Âm nhạc", "Bình", "Dũng", "Đà Lạt", "Zalo"),
+                sorted("Zalo", "Đà Lạt", "Âm nhạc", "Dũng", "Ăn uống", "Bình", "Ánh", "An"));
+    }
+
+    @Test
+    public void testCaseInsensitive_EmptyLast() {
+        assertEquals(0, NameSortKey.of("github").compareTo(NameSortKey.of("GitHub")));
+        assertEquals(Arrays.asList("apple", "Banana", ""), sorted("", "Banana", "apple"));
+        assertTrue(NameSortKey.of(null).compareTo(NameSortKey.of("a")) > 0);
+        assertSame(NameSortKey.EMPTY, NameSortKey.of("   "));
+    }
+
+    @Test
+    public void testReuse_RecomputesOnlyWhenNameChanges() {
+        NameSortKey key = NameSortKey.of("Google");
+        assertSame(key, NameSortKey.reuse(key, "Google"));
+        NameSortKey renamed = NameSortKey.reuse(key, "Facebook");
+        assertNotSame(key, renamed);
+        assertTrue(renamed.compareTo(key) < 0);
+        assertNotNull(NameSortKey.reuse(null, "x"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.test.lifehub.core.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Unit test cho StartupReport
+ * Kiểm tra các mốc cold / warm, unlock -> nội dung đầu tiên và các bước
+ */
+public class StartupReportTest {
+
+    @Test
+    public void testColdStart_LaunchToFirstContent() {
+        StartupReport report = new StartupReport(StartupReport.Kind.COLD, 1_000);
+        report.markMainStarted(1_400);
+
+        assertTrue(report.markFirstContent("Accounts", 1_750));
+        assertTrue(report.isComplete());
+        assertEquals(750, report.getLaunchToFirstContentMs());
+        assertEquals("Không mở khóa -> không có số đo unlock", -1, report.getUnlockToFirstContentMs());
+    }
+
+    @Test
+    public void testFirstContent_BeforeMainStarted_Ignored() {
+        StartupReport report = new StartupReport(StartupReport.Kind.COLD, 0);
+
+        // Dữ liệu tới khi vẫn đang ở màn hình mở khóa -> chưa phải nội dung của màn hình chính
+        assertFalse(report.markFirstContent("Accounts", 100));
+        assertFalse(report.isComplete());
+
+        report.markMainStarted(200);
+        assertTrue(report.markFirstContent("Accounts", 300));
+        assertFalse("Chỉ tính lần đầu", report.markFirstContent("Accounts", 900));
+        assertEquals(300, report.getLaunchToFirstContentMs());
+    }
+
+    @Test
+    public void testWarmStart_UnlockToFirstContent() {
+        StartupReport report = new StartupReport(StartupReport.Kind.WARM, 5_000);
+        report.markUnlock(6_000);
+        report.markUnlock(9_000); // Nhập sai rồi nhập lại
+        report.markMainStarted(9_600);
+        report.markFirstContent("Accounts", 9_800);
+
+        assertEquals(StartupReport.Kind.WARM, report.getKind());
+        assertEquals(4_800, report.getLaunchToFirstContentMs());
+        assertEquals(800, report.getUnlockToFirstContentMs());
+    }
+
+    @Test
+    public void testSteps_KeepFirstRecordInOrder() {
+        StartupReport report = new StartupReport(StartupReport.Kind.COLD, 0);
+        report.recordStep("UserDocument", 120);
+        report.recordStep("PBKDF2", 300);
+        report.recordStep("UserDocument", 50); // Đọc lại sau đó -> giữ lần đầu
+
+        Map<String, Long> steps = report.getSteps();
+        assertEquals(2, steps.size());
+        assertEquals(Long.valueOf(120), steps.get("UserDocument"));
+        assertEquals("UserDocument", steps.keySet().iterator().next());
+        assertTrue(report.toString().contains("PBKDF2: 300ms"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.test.lifehub.features.authenticator.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test cho TotpProjector / TotpProjection
+ * Kiểm tra mã RFC 6238, dùng lại projection không đổi và bỏ secret không hợp lệ
+ */
+public class TotpProjectorTest {
+
+    // RFC 6238 phụ lục B: key ASCII "12345678901234567890" (SHA1) dạng Base32
+    private static final String RFC_SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    private TotpProjector projector;
+
+    @Before
+    public void setUp() {
+        projector = new TotpProjector();
+    }
+
+    private static TotpAccount totp(String id, String issuer, String secret) {
+        TotpAccount account = new TotpAccount("me", issuer, secret);
+        account.setDocumentId(id);
+        return account;
+    }
+
+    @Test
+    public void testProjection_Rfc6238Vectors() {
+        TotpProjection projection = TotpProjection.of(totp("t1", "RFC", RFC_SECRET));
+        assertNotNull(projection);
+
+        // Mã 8 số của RFC cắt còn 6 số cuối
+        assertEquals("287082", projection.getCode(59L / 30));
+        assertEquals("081804", projection.getCode(1111111109L / 30));
+        assertEquals("005924", projection.getCode(1234567890L / 30));
+        assertEquals(6, projection.getCurrentCode().length());
+    }
+
+    @Test
+    public void testProjection_NormalizesAndRejectsInvalidSecret() {
+        TotpProjection spaced = TotpProjection.of(totp("t1", "RFC", "gezd gnbv gy3t qojq gezd gnbv gy3t qojq"));
+        assertNotNull(spaced);
+        assertEquals(RFC_SECRET, spaced.getSecret());
+        assertEquals("287082", spaced.getCode(1));
+
+        assertNull(TotpProjection.of(totp("t2", "X", "bm90LWRlY3J5cHRlZA=="))); // Ciphertext Base64
+        assertNull(TotpProjection.of(totp("t3", "X", "")));
+        assertNull(TotpProjection.of(totp("t4", "X", null)));
+    }
+
+    @Test
+    public void testProject_ReusesUnchanged() {
+        TotpAccount github = totp("t1", "GitHub", RFC_SECRET);
+        TotpAccount google = totp("t2", "Google", "JBSWY3DPEHPK3PXP");
+        List<TotpProjection> first = projector.project(Arrays.asList(github, google));
+        assertEquals(2, projector.getCreatedCount());
+
+        // Store phát lại: Google đổi (object mới), GitHub giữ nguyên object
+        TotpAccount googleEdited = totp("t2", "Google Work", "JBSWY3DPEHPK3PXP");
+        List<TotpProjection> second = projector.project(Arrays.asList(github, googleEdited));
+
+        assertSame(first.get(0), second.get(0));
+        assertNotSame(first.get(1), second.get(1));
+        assertEquals("Google Work", second.get(1).getIssuer());
+        assertEquals(1, projector.getReusedCount());
+        assertEquals(1, projector.getCreatedCount());
+    }
+
+    @Test
+    public void testProject_InPlaceEditCreatesNewProjection() {
+        TotpAccount github = totp("t1", "GitHub", RFC_SECRET);
+        TotpProjection before = projector.project(Collections.singletonList(github)).get(0);
+
+        // TotpRepository.update sửa trực tiếp object trong store rồi applyLocal
+        github.setAccountName("work");
+        github.setUpdatedAt(github.getUpdatedAt() + 1);
+        TotpProjection after = projector.project(Collections.singletonList(github)).get(0);
+
+        assertNotSame(before, after);
+        assertEquals("work", after.getAccountName());
+        assertEquals("me", before.getAccountName()); // Projection cũ không bị sửa theo
+    }
+
+    @Test
+    public void testProject_RemovedAndInvalid() {
+        TotpAccount broken = totp("t2", "Broken", "not base32!");
+        projector.project(Arrays.asList(totp("t1", "Apple", RFC_SECRET), broken));
+
+        List<TotpProjection> projected = projector.project(Collections.singletonList(broken));
+        assertTrue(projected.isEmpty());               // Apple đã xóa, Broken không hợp lệ
+        assertEquals(1, projector.getReusedCount());   // Broken không bị thử lại khi chưa đổi
+        assertTrue(projector.project(null).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.Benchmark;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Benchmark: 20.000 sự kiện - dựng CalendarEventIndex, lưới 35 ngày qua chỉ mục
+ * và lưới 35 ngày bằng cách quét toàn bộ danh sách cho từng ngày (cách cũ)
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class CalendarEventIndexBenchmark {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final int EVENT_COUNT = 20_000;
+    private static final int ROUNDS = 5;
+
+    private static long day0;
+    private static List<CalendarEvent> events;
+    private static CalendarEventIndex built;
+
+    @BeforeClass
+    public static void setUpData() {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, 1);
+        day0 = cal.getTimeInMillis();
+
+        Random random = new Random(7);
+        events = new ArrayList<>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            events.add(CalendarEventIndexTest.randomEvent(random, "e" + i, day0));
+        }
+        built = new CalendarEventIndex();
+        built.rebuild(events);
+    }
+
+    @Test
+    public void rebuild_20kEvents() {
+        for (int round = 0; round < ROUNDS; round++) {
+            CalendarEventIndex index = new CalendarEventIndex();
+            index.rebuild(events);
+            assertEquals(EVENT_COUNT, index.size());
+        }
+    }
+
+    @Test
+    public void monthGrid_Index() {
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int day = 0; day < 35; day++) {
+                assertNotNull(built.overlapping(day0 + day * DAY, day0 + (day + 1) * DAY));
+            }
+        }
+    }
+
+    @Test
+    public void monthGrid_FullScan() {
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int day = 0; day < 35; day++) {
+                assertNotNull(CalendarEventIndexTest.scan(events, day0 + day * DAY, day0 + (day + 1) * DAY));
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Unit test cho CalendarEventIndex
+ * Kiểm tra truy vấn theo ngày / tháng, cập nhật tăng dần và so khớp với cách quét toàn bộ cũ
+ */
+public class CalendarEventIndexTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private long day0;                  // 00:00 ngày 1/3/2025 (UTC)
+    private CalendarEventIndex index;
+
+    @Before
+    public void setUp() {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, 1);
+        day0 = cal.getTimeInMillis();
+        index = new CalendarEventIndex();
+    }
+
+    private static CalendarEvent event(String id, long start, long end) {
+        CalendarEvent event = new CalendarEvent(id, new Date(start), new Date(end));
+        event.setDocumentId(id);
+        return event;
+    }
+
+    private static List<String> ids(List<CalendarEvent> events) {
+        List<String> ids = new ArrayList<>();
+        for (CalendarEvent event : events) ids.add(event.getDocumentId());
+        return ids;
+    }
+
+    @Test
+    public void testOverlapping_DayBoundaries() {
+        index.put(event("morning", day0 + 9 * HOUR, day0 + 10 * HOUR));
+        index.put(event("overnight", day0 + 22 * HOUR, day0 + DAY + 2 * HOUR));
+        index.put(event("endsAtMidnight", day0 + 23 * HOUR, day0 + DAY));
+        index.put(event("zeroAtMidnight", day0 + DAY, day0 + DAY));
+        index.put(event("week", day0 - 3 * DAY, day0 + 4 * DAY));
+
+        assertEquals(Arrays.asList("week", "morning", "overnight", "endsAtMidnight"),
+                ids(index.overlapping(day0, day0 + DAY)));
+        // Kết thúc đúng 00:00 không thuộc ngày sau; sự kiện 0 phút lúc 00:00 thì thuộc
+        assertEquals(Arrays.asList("week", "overnight", "zeroAtMidnight"),
+                ids(index.overlapping(day0 + DAY, day0 + 2 * DAY)));
+        assertTrue(index.overlapping(day0 + 10 * DAY, day0 + 11 * DAY).isEmpty());
+    }
+
+    @Test
+    public void testStartingIn_OnlyEventsStartingInRange() {
+        index.put(event("feb", day0 - 2 * DAY, day0 + DAY));   // Bắt đầu tháng trước, kéo sang tháng này
+        index.put(event("mar", day0 + 5 * DAY, day0 + 5 * DAY + HOUR));
+        index.put(event("apr", day0 + 31 * DAY, day0 + 31 * DAY + HOUR));
+
+        assertEquals(Collections.singletonList("mar"), ids(index.startingIn(day0, day0 + 31 * DAY)));
+    }
+
+    @Test
+    public void testPutRemove_IncrementalAndInPlaceEdit() {
+        CalendarEvent meeting = event("m", day0 + 9 * HOUR, day0 + 10 * HOUR);
+        index.put(meeting);
+        index.put(event("x", day0 + 12 * HOUR, day0 + 13 * HOUR));
+        index.put(event("noTime", 0, 0));
+        index.put(new CalendarEvent("Không có id", new Date(day0), new Date(day0 + HOUR)));
+        assertEquals(3, index.size());
+
+        // Dời sang ngày sau (AddEditEventDialog sửa tại chỗ rồi updateEvent -> diff MODIFIED)
+        meeting.setStartTime(new Date(day0 + DAY + 9 * HOUR));
+        meeting.setEndTime(new Date(day0 + DAY + 10 * HOUR));
+        index.put(meeting);
+        assertEquals(3, index.size());
+        assertEquals(Collections.singletonList("x"), ids(index.overlapping(day0, day0 + DAY)));
+        assertEquals(Collections.singletonList("m"), ids(index.overlapping(day0 + DAY, day0 + 2 * DAY)));
+
+        index.remove("x");
+        index.remove("khong-ton-tai");
+        assertTrue(index.overlapping(day0, day0 + DAY).isEmpty());
+
+        // Sự kiện thiếu thời gian bị bỏ (không vẽ được trên lưới)
+        CalendarEvent broken = event("noTime", 0, 0);
+        broken.setEndTime(null);
+        index.put(broken);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testMatchesFullScan_RandomOperations() {
+        Random random = new Random(42);
+        List<CalendarEvent> live = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) live.add(randomEvent(random, "e" + i));
+        index.rebuild(live);
+
+        for (int round = 0; round < 500; round++) {
+            int op = random.nextInt(3);
+            if (op == 0 && !live.isEmpty()) {
+                CalendarEvent removed = live.remove(random.nextInt(live.size()));
+                index.remove(removed.getDocumentId());
+            } else if (op == 1) {
+                CalendarEvent added = randomEvent(random, "n" + round);
+                live.add(added);
+                index.put(added);
+            } else if (!live.isEmpty()) {
+                CalendarEvent edited = live.get(random.nextInt(live.size()));
+                CalendarEvent moved = randomEvent(random, edited.getDocumentId());
+                edited.setStartTime(moved.getStartTime());
+                edited.setEndTime(moved.getEndTime());
+                index.put(edited);
+            }
+
+            long start = day0 + random.nextInt(60) * DAY;
+            long end = start + (1 + random.nextInt(7)) * DAY;
+            assertEquals(sortedIds(scan(live, start, end)), sortedIds(index.overlapping(start, end)));
+        }
+        assertEquals(live.size(), index.size());
+    }
+
+    // ===== HELPERS =====
+
+    private CalendarEvent randomEvent(Random random, String id) {
+        return randomEvent(random, id, day0);
+    }
+
+    /** Sự kiện ngẫu nhiên trong ~90 ngày quanh day0: đa số ngắn, ít sự kiện nhiều ngày */
+    static CalendarEvent randomEvent(Random random, String id, long day0) {
+        long start = day0 - 15 * DAY + random.nextInt(90 * 24 * 4) * 15 * MINUTE;
+        long duration = random.nextInt(10) == 0 ? random.nextInt(5) * DAY : (1 + random.nextInt(8)) * 15 * MINUTE;
+        return event(id, start, start + duration);
+    }
+
+    /** Cách cũ: duyệt toàn bộ danh sách (dùng chung với CalendarEventIndexBenchmark) */
+    static List<CalendarEvent> scan(List<CalendarEvent> events, long start, long end) {
+        List<CalendarEvent> result = new ArrayList<>();
+        for (CalendarEvent event : events) {
+            long eventStart = event.getStartTime().getTime();
+            long eventEnd = event.getEndTime().getTime();
+            if (eventStart < end && (eventEnd > start || eventStart >= start)) result.add(event);
+        }
+        result.sort(Comparator.comparing(CalendarEvent::getStartTime));
+        return result;
+    }
+
+    private static List<String> sortedIds(List<CalendarEvent> events) {
+        List<String> ids = ids(events);
+        Collections.sort(ids);
+        return ids;
+    }
+}
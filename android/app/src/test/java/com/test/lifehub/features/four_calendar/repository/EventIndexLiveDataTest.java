@@ -0,0 +1,135 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+import android.util.Log;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.test.lifehub.core.repository.SnapshotPublisher;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Unit test cho EventIndexLiveData
+ * Kiểm tra chờ snapshot đầu tiên của mọi cửa sổ, cập nhật tăng dần trên cùng 1 chỉ mục
+ * và sự kiện nằm ở nhiều cửa sổ chỉ bị gỡ khi không còn cửa sổ nào giữ
+ */
+public class EventIndexLiveDataTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private MockedStatic<Log> log;  // Publisher ghi Log.d mỗi lần phát
+    private final List<EventWindowRegistry.Window> opened = new ArrayList<>();
+    private final List<CalendarEventIndex> emitted = new ArrayList<>();
+    private final Observer<CalendarEventIndex> observer = emitted::add;
+    private EventWindowRegistry registry;
+    private EventIndexLiveData liveData;
+
+    @Before
+    public void setUp() {
+        log = mockStatic(Log.class);
+        registry = new EventWindowRegistry("Test", (id, data) -> null, window -> {
+            opened.add(window);
+            return mock(ListenerRegistration.class);
+        }, series -> mock(ListenerRegistration.class), Runnable::run);
+        // Tuần 29/01 - 04/02: 2 cửa sổ tháng
+        liveData = new EventIndexLiveData(registry,
+                date(2025, Calendar.JANUARY, 29, 0), date(2025, Calendar.FEBRUARY, 4, 0));
+    }
+
+    @After
+    public void tearDown() {
+        liveData.removeObserver(observer);
+        log.close();
+    }
+
+    private static long date(int year, int month, int day, int hour) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day, hour, 0);
+        return cal.getTimeInMillis();
+    }
+
+    private static CalendarEvent event(String id, long start, long end) {
+        CalendarEvent event = new CalendarEvent("Sự kiện " + id, new Date(start), new Date(end));
+        event.documentId = id;
+        return event;
+    }
+
+    /** Snapshot đầu tiên (rỗng) của mọi query của các cửa sổ đã mở */
+    private void firstSnapshots() {
+        for (EventWindowRegistry.Window window : opened) {
+            for (SnapshotPublisher<CalendarEvent> publisher : window.publishers()) publisher.reset();
+        }
+    }
+
+    @Test
+    public void testWaitsForFirstSnapshotOfEveryWindow() {
+        liveData.observeForever(observer);
+        assertTrue("Chưa có snapshot nào -> chưa phát", emitted.isEmpty());
+
+        firstSnapshots();
+
+        assertFalse(emitted.isEmpty());
+        assertEquals(0, liveData.getValue().size());
+    }
+
+    @Test
+    public void testChanges_AppliedToSameIndex() {
+        liveData.observeForever(observer);
+        firstSnapshots();
+        CalendarEventIndex index = liveData.getValue();
+
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.JANUARY, 30, 9), date(2025, Calendar.JANUARY, 30, 10)));
+
+        assertSame("Cập nhật tại chỗ, không dựng chỉ mục mới", index, liveData.getValue());
+        assertEquals(1, index.size());
+        assertEquals(1, index.overlapping(date(2025, Calendar.JANUARY, 30, 0), date(2025, Calendar.JANUARY, 31, 0)).size());
+    }
+
+    @Test
+    public void testEventInTwoWindows_RemovedOnlyWhenNoWindowHoldsIt() {
+        liveData.observeForever(observer);
+        firstSnapshots();
+        // 31/01 22h - 01/02 02h: nằm ở cả cửa sổ tháng 1 và tháng 2
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.JANUARY, 31, 22), date(2025, Calendar.FEBRUARY, 1, 2)));
+        CalendarEventIndex index = liveData.getValue();
+        assertEquals(1, index.size());
+
+        // Dời sang 03/02: rời cửa sổ tháng 1, vẫn ở tháng 2 -> còn trong chỉ mục với thời gian mới
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.FEBRUARY, 3, 9), date(2025, Calendar.FEBRUARY, 3, 10)));
+        assertEquals(1, index.size());
+        assertTrue(index.overlapping(date(2025, Calendar.JANUARY, 31, 0), date(2025, Calendar.FEBRUARY, 2, 0)).isEmpty());
+        assertEquals(1, index.overlapping(date(2025, Calendar.FEBRUARY, 3, 0), date(2025, Calendar.FEBRUARY, 4, 0)).size());
+
+        registry.applyLocal("e1", null);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testClear_IndexResynced() {
+        liveData.observeForever(observer);
+        firstSnapshots();
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.JANUARY, 30, 9), date(2025, Calendar.JANUARY, 30, 10)));
+
+        registry.clear(); // Logout: publisher phát danh sách rỗng, không có Diff
+
+        assertEquals(0, liveData.getValue().size());
+    }
+}
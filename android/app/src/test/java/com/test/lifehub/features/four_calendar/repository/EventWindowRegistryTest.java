@@ -0,0 +1,310 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.test.lifehub.core.util.Constants;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Unit test cho EventWindowRegistry
+ * Kiểm tra chia cửa sổ theo tháng (1 cửa sổ lớn cho khoảng dài), dùng chung listener (ref-count),
+ * prefetch, query master lặp dùng chung, gỡ listener và áp thay đổi optimistic vào đúng query
+ * (sự kiện / master lặp / bản sửa riêng) của từng tháng
+ */
+public class EventWindowRegistryTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final List<ListenerRegistration> opened = new ArrayList<>();
+    private final List<ListenerRegistration> seriesOpened = new ArrayList<>();
+    private final List<Runnable> pendingReleases = new ArrayList<>();
+    private EventWindowRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new EventWindowRegistry("Test", (id, data) -> null, window -> {
+            ListenerRegistration registration = mock(ListenerRegistration.class);
+            opened.add(registration);
+            return registration;
+        }, series -> {
+            ListenerRegistration registration = mock(ListenerRegistration.class);
+            seriesOpened.add(registration);
+            return registration;
+        }, pendingReleases::add);
+    }
+
+    private static long date(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day);
+        return cal.getTimeInMillis();
+    }
+
+    private static CalendarEvent event(String id, long start, long end) {
+        CalendarEvent event = new CalendarEvent("Sự kiện " + id, new Date(start), new Date(end));
+        event.documentId = id;
+        return event;
+    }
+
+    private static boolean holds(EventWindowRegistry.Window window, String documentId) {
+        return window.publisher.getStore().get(documentId) != null;
+    }
+
+    /** Chạy các lần đóng cửa sổ đã hẹn (giống lượt main thread kế tiếp) */
+    private void flushReleases() {
+        List<Runnable> copy = new ArrayList<>(pendingReleases);
+        pendingReleases.clear();
+        for (Runnable runnable : copy) runnable.run();
+    }
+
+    @Test
+    public void testMonthWindows_WeekAcrossMonths_TwoWindows() {
+        List<long[]> months = EventWindowRegistry.monthWindows(
+                date(2025, Calendar.JANUARY, 29), date(2025, Calendar.FEBRUARY, 4));
+
+        assertEquals(2, months.size());
+        assertEquals(date(2025, Calendar.JANUARY, 1), months.get(0)[0]);
+        assertEquals(date(2025, Calendar.FEBRUARY, 1), months.get(0)[1]);
+        assertEquals(date(2025, Calendar.MARCH, 1), months.get(1)[1]);
+    }
+
+    @Test
+    public void testMonthWindows_EndOnMonthBoundary_NoExtraWindow() {
+        List<long[]> months = EventWindowRegistry.monthWindows(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+
+        assertEquals(1, months.size());
+    }
+
+    @Test
+    public void testAcquire_OpensVisibleAndPrefetchWindows() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+
+        assertEquals(1, lease.visible.size());
+        assertEquals(2, lease.prefetch.size());
+        assertEquals(date(2025, Calendar.FEBRUARY, 1), lease.prefetch.get(0).start);
+        assertEquals(date(2025, Calendar.APRIL, 1), lease.prefetch.get(1).start);
+        assertEquals(3, registry.activeWindowCount());
+        assertEquals(3, opened.size());
+    }
+
+    @Test
+    public void testAcquire_Year_OneSpanWindowWithoutPrefetch() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.JANUARY, 1), date(2026, Calendar.JANUARY, 1));
+
+        assertEquals(1, lease.visible.size());
+        assertTrue(lease.prefetch.isEmpty());
+        assertEquals(date(2025, Calendar.JANUARY, 1), lease.visible.get(0).start);
+        assertEquals(date(2026, Calendar.JANUARY, 1), lease.visible.get(0).end);
+        assertEquals(1, opened.size());
+        assertEquals(1, seriesOpened.size());
+    }
+
+    @Test
+    public void testSpanAndMonthStartingSameDay_SeparateWindows() {
+        EventWindowRegistry.Lease year = registry.acquire(
+                date(2025, Calendar.JANUARY, 1), date(2026, Calendar.JANUARY, 1));
+        EventWindowRegistry.Lease january = registry.acquire(
+                date(2025, Calendar.JANUARY, 1), date(2025, Calendar.FEBRUARY, 1));
+
+        assertNotSame(year.visible.get(0), january.visible.get(0));
+        assertEquals(date(2025, Calendar.FEBRUARY, 1), january.visible.get(0).end);
+        assertEquals(4, registry.activeWindowCount()); // Năm + tháng 12/2024, 1, 2
+    }
+
+    @Test
+    public void testSeries_OneListenerSharedByAllWindows() {
+        EventWindowRegistry.Lease march = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        registry.acquire(date(2025, Calendar.JULY, 1), date(2025, Calendar.AUGUST, 1));
+
+        assertEquals(6, opened.size());
+        assertEquals("Master lặp: 1 query cho cả registry", 1, seriesOpened.size());
+        assertSame(march.visible.get(0).series, march.prefetch.get(0).series);
+    }
+
+    @Test
+    public void testSeries_ClosedWithLastWindow() {
+        EventWindowRegistry.Lease march = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        EventWindowRegistry.Lease july = registry.acquire(
+                date(2025, Calendar.JULY, 1), date(2025, Calendar.AUGUST, 1));
+
+        registry.release(march);
+        flushReleases();
+        assertTrue("Còn cửa sổ tháng 7", registry.isSeriesOpen());
+        verify(seriesOpened.get(0), never()).remove();
+
+        registry.release(july);
+        flushReleases();
+        assertFalse(registry.isSeriesOpen());
+        verify(seriesOpened.get(0)).remove();
+
+        // Mở lại -> listener mới
+        registry.acquire(date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        assertEquals(2, seriesOpened.size());
+    }
+
+    @Test
+    public void testOverlappingRanges_ShareListener() {
+        registry.acquire(date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        // Tuần 10-16/3 nằm trong tháng 3 đã mở -> không mở listener mới
+        EventWindowRegistry.Lease week = registry.acquire(
+                date(2025, Calendar.MARCH, 10), date(2025, Calendar.MARCH, 17));
+
+        assertEquals(3, opened.size());
+        assertEquals(2, week.visible.get(0).refCount);
+    }
+
+    @Test
+    public void testRelease_ClosesUnusedWindowsOnNextTurn() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+
+        registry.release(lease);
+        assertEquals("Chưa đóng ngay trong cùng lượt", 3, registry.activeWindowCount());
+
+        flushReleases();
+        assertEquals(0, registry.activeWindowCount());
+        for (ListenerRegistration registration : opened) {
+            verify(registration).remove();
+        }
+    }
+
+    @Test
+    public void testSwitchToNextMonth_ReusesPrefetchedWindows() {
+        // Giống switchMap: gỡ tháng 3 rồi gắn tháng 4 trong cùng 1 lượt main thread
+        EventWindowRegistry.Lease march = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        registry.release(march);
+        registry.acquire(date(2025, Calendar.APRIL, 1), date(2025, Calendar.MAY, 1));
+        flushReleases();
+
+        // Chỉ mở thêm tháng 5 (prefetch); tháng 2 không còn ai dùng -> đóng
+        assertEquals(4, opened.size());
+        assertEquals(3, registry.activeWindowCount());
+        verify(opened.get(0), never()).remove(); // Tháng 3 -> giữ lại làm prefetch
+        verify(opened.get(1)).remove();          // Tháng 2
+        verify(opened.get(2), never()).remove(); // Tháng 4 -> giờ là visible
+    }
+
+    @Test
+    public void testRelease_Twice_Ignored() {
+        EventWindowRegistry.Lease first = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        registry.acquire(date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+
+        registry.release(first);
+        registry.release(first);
+        flushReleases();
+
+        assertEquals("Lease thứ 2 vẫn giữ các cửa sổ", 3, registry.activeWindowCount());
+    }
+
+    @Test
+    public void testClear_RemovesAllListeners() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+
+        registry.clear();
+        assertEquals(0, registry.activeWindowCount());
+        for (ListenerRegistration registration : opened) {
+            verify(registration).remove();
+        }
+        verify(seriesOpened.get(0)).remove();
+
+        // Release sau clear không được đóng lại lần nữa
+        registry.release(lease);
+        flushReleases();
+        for (ListenerRegistration registration : opened) {
+            verify(registration, times(1)).remove();
+        }
+    }
+
+    @Test
+    public void testApplyLocal_EventOnlyInOverlappingMonth() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        EventWindowRegistry.Window february = lease.prefetch.get(0);
+        EventWindowRegistry.Window march = lease.visible.get(0);
+
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.MARCH, 10), date(2025, Calendar.MARCH, 11)));
+        assertTrue(holds(march, "e1"));
+        assertFalse(holds(february, "e1"));
+        assertNotNull(registry.find("e1"));
+
+        // Dời sang tháng 2 -> rời cửa sổ tháng 3 ngay
+        registry.applyLocal("e1", event("e1", date(2025, Calendar.FEBRUARY, 10), date(2025, Calendar.FEBRUARY, 11)));
+        assertFalse(holds(march, "e1"));
+        assertTrue(holds(february, "e1"));
+
+        registry.applyLocal("e1", null);
+        assertNull(registry.find("e1"));
+    }
+
+    @Test
+    public void testApplyLocal_SeriesStartedEarlier_InEveryLaterMonth() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        CalendarEvent master = event("m1", date(2025, Calendar.JANUARY, 6), date(2025, Calendar.JANUARY, 7));
+        master.setRepeatType(Constants.REPEAT_WEEKLY);
+
+        registry.applyLocal("m1", master);
+
+        // Lần đầu ở tháng 1 -> không khớp query sự kiện của tháng 2 / 3 / 4 nhưng có trong query series
+        for (EventWindowRegistry.Window window : lease.prefetch) {
+            assertFalse(holds(window, "m1"));
+            assertNotNull(window.series.getStore().get("m1"));
+        }
+        assertEquals(master, registry.find("m1"));
+    }
+
+    @Test
+    public void testApplyLocal_NoLongerRecurring_LeavesSeries() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        CalendarEvent master = event("m1", date(2025, Calendar.JANUARY, 6), date(2025, Calendar.JANUARY, 7));
+        master.setRepeatType(Constants.REPEAT_DAILY);
+        registry.applyLocal("m1", master);
+
+        master.setRepeatType(Constants.REPEAT_NONE);
+        registry.applyLocal("m1", master);
+
+        assertNull(lease.visible.get(0).series.getStore().get("m1"));
+        assertNull(registry.find("m1"));
+    }
+
+    @Test
+    public void testApplyLocal_MovedOverride_StillInOriginalMonth() {
+        EventWindowRegistry.Lease lease = registry.acquire(
+                date(2025, Calendar.MARCH, 1), date(2025, Calendar.APRIL, 1));
+        // Lần 10/3 của chuỗi được dời sang 2/4
+        CalendarEvent override = event("o1", date(2025, Calendar.APRIL, 2), date(2025, Calendar.APRIL, 3));
+        override.setRecurrenceId("m1");
+        override.setOriginalStartTime(new Date(date(2025, Calendar.MARCH, 10)));
+
+        registry.applyLocal("o1", override);
+
+        EventWindowRegistry.Window march = lease.visible.get(0);
+        EventWindowRegistry.Window april = lease.prefetch.get(1);
+        assertNotNull(march.overrides.getStore().get("o1"));
+        assertFalse(holds(march, "o1"));
+        assertTrue(holds(april, "o1"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.Benchmark;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Benchmark: 200 master DAILY chạy 10 năm - lướt 11 lưới tháng của năm thứ 10 (sinh theo cửa sổ)
+ * so với sinh sẵn toàn bộ các lần lặp của 10 năm
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class RecurrenceExpanderBenchmark {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+    private static final int MASTER_COUNT = 200;
+
+    private static TimeZone zone;
+    private static List<CalendarEvent> masters;
+
+    @BeforeClass
+    public static void setUpData() {
+        zone = TimeZone.getTimeZone("Asia/Ho_Chi_Minh");
+        masters = RecurrenceExpanderTest.tenYearDailyMasters(zone, MASTER_COUNT);
+    }
+
+    @Test
+    public void lazy_ElevenMonthGrids() {
+        CalendarEventIndex index = new CalendarEventIndex(zone);
+        index.rebuild(masters);
+        Calendar cal = Calendar.getInstance(zone);
+        int occurrences = 0;
+        for (int month = 0; month < 11; month++) {
+            cal.clear();
+            cal.set(2029, month, 1);
+            long monthStart = cal.getTimeInMillis();
+            for (int day = 0; day < 35; day++) {
+                occurrences += index.overlapping(monthStart + day * DAY, monthStart + (day + 1) * DAY).size();
+            }
+        }
+        assertEquals(MASTER_COUNT * 35 * 11, occurrences);
+    }
+
+    @Test
+    public void eager_MaterializeTenYears() {
+        // Chỉ đếm, không giữ lại các bản sinh ra để tránh hết heap
+        int materialized = 0;
+        Calendar cal = Calendar.getInstance(zone);
+        for (CalendarEvent event : masters) {
+            cal.setTime(event.getStartTime());
+            while (cal.getTimeInMillis() < event.getRepeatUntil().getTime() + DAY) {
+                CalendarEvent instance = new CalendarEvent(event.getTitle(), cal.getTime(),
+                        new Date(cal.getTimeInMillis() + HOUR));
+                if (instance.getEndTime() != null) materialized++;
+                cal.add(Calendar.DAY_OF_MONTH, 1);
+            }
+        }
+        assertTrue(materialized > 700_000);
+    }
+}
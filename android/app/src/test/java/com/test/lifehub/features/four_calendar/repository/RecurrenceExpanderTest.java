@@ -0,0 +1,239 @@
+package com.test.lifehub.features.four_calendar.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.core.util.Constants;
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Unit test cho sự kiện lặp lại (RecurrenceExpander qua CalendarEventIndex)
+ * Kiểm tra quy tắc lặp, ngoại lệ từng lần, cache theo tháng và chỉ sinh trong cửa sổ đang xem
+ */
+public class RecurrenceExpanderTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    private TimeZone zone;
+    private CalendarEventIndex index;
+
+    @Before
+    public void setUp() {
+        zone = TimeZone.getTimeZone("Asia/Ho_Chi_Minh");
+        index = new CalendarEventIndex(zone);
+    }
+
+    private long at(int year, int month, int day, int hour) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(year, month, day, hour, 0, 0);
+        return cal.getTimeInMillis();
+    }
+
+    private static CalendarEvent master(String id, String repeatType, long start, long end) {
+        CalendarEvent event = new CalendarEvent(id, new Date(start), new Date(end));
+        event.setDocumentId(id);
+        event.setRepeatType(repeatType);
+        return event;
+    }
+
+    private List<Integer> daysOf(List<CalendarEvent> events) {
+        List<Integer> days = new ArrayList<>();
+        Calendar cal = Calendar.getInstance(zone);
+        for (CalendarEvent event : events) {
+            cal.setTime(event.getStartTime());
+            days.add(cal.get(Calendar.DAY_OF_MONTH));
+        }
+        return days;
+    }
+
+    @Test
+    public void testDaily_RepeatUntilIncludesLastDay() {
+        CalendarEvent standup = master("standup", Constants.REPEAT_DAILY,
+                at(2025, Calendar.MARCH, 3, 9), at(2025, Calendar.MARCH, 3, 10));
+        standup.setRepeatUntil(new Date(at(2025, Calendar.MARCH, 6, 0)));
+        index.put(standup);
+
+        List<CalendarEvent> march = index.startingIn(at(2025, Calendar.MARCH, 1, 0), at(2025, Calendar.APRIL, 1, 0));
+        assertEquals(Arrays.asList(3, 4, 5, 6), daysOf(march));
+        CalendarEvent occurrence = march.get(2);
+        assertNull(occurrence.getDocumentId());
+        assertEquals("standup", occurrence.getRecurrenceId());
+        assertEquals(at(2025, Calendar.MARCH, 5, 9), occurrence.getOriginalStartTime().getTime());
+        assertEquals(at(2025, Calendar.MARCH, 5, 10), occurrence.getEndTime().getTime());
+        assertEquals(1, index.size()); // Chỉ 1 master, không sinh sẵn các lần lặp
+    }
+
+    @Test
+    public void testMonthly_ShortMonthsClampFromOriginalDay() {
+        index.put(master("rent", Constants.REPEAT_MONTHLY,
+                at(2025, Calendar.JANUARY, 31, 8), at(2025, Calendar.JANUARY, 31, 9)));
+
+        List<Integer> days = new ArrayList<>();
+        for (int month = Calendar.JANUARY; month <= Calendar.APRIL; month++) {
+            days.addAll(daysOf(index.startingIn(at(2025, month, 1, 0), at(2025, month + 1, 1, 0))));
+        }
+        // Tính từ ngày gốc: tháng 3 vẫn là 31, không bị kéo về 28
+        assertEquals(Arrays.asList(31, 28, 31, 30), days);
+    }
+
+    @Test
+    public void testWeekly_KeepsWallClockAcrossDaylightSaving() {
+        zone = TimeZone.getTimeZone("Europe/Berlin");
+        index = new CalendarEventIndex(zone);
+        index.put(master("yoga", Constants.REPEAT_WEEKLY,
+                at(2025, Calendar.MARCH, 20, 18), at(2025, Calendar.MARCH, 20, 19)));
+
+        Calendar cal = Calendar.getInstance(zone);
+        for (CalendarEvent event : index.startingIn(at(2025, Calendar.MARCH, 1, 0), at(2025, Calendar.MAY, 1, 0))) {
+            cal.setTime(event.getStartTime());
+            assertEquals(18, cal.get(Calendar.HOUR_OF_DAY));
+            assertEquals(Calendar.THURSDAY, cal.get(Calendar.DAY_OF_WEEK));
+        }
+        assertEquals(6, index.startingIn(at(2025, Calendar.MARCH, 1, 0), at(2025, Calendar.MAY, 1, 0)).size());
+    }
+
+    @Test
+    public void testOverlapping_MultiDayOccurrenceFromPreviousMonth() {
+        // Mỗi tháng: 30/x 20:00 -> 2 ngày sau
+        index.put(master("trip", Constants.REPEAT_MONTHLY,
+                at(2025, Calendar.JANUARY, 30, 20), at(2025, Calendar.FEBRUARY, 1, 20)));
+        index.put(master("single", Constants.REPEAT_NONE,
+                at(2025, Calendar.APRIL, 1, 7), at(2025, Calendar.APRIL, 1, 8)));
+
+        List<CalendarEvent> aprilFirst = index.overlapping(at(2025, Calendar.APRIL, 1, 0), at(2025, Calendar.APRIL, 2, 0));
+        assertEquals(2, aprilFirst.size());
+        assertEquals("trip", aprilFirst.get(0).getRecurrenceId()); // Bắt đầu 30/3, sắp trước
+        assertEquals("single", aprilFirst.get(1).getDocumentId());
+        assertTrue(index.overlapping(at(2025, Calendar.APRIL, 3, 0), at(2025, Calendar.APRIL, 4, 0)).isEmpty());
+    }
+
+    @Test
+    public void testExceptions_DeletedAndOverriddenOccurrences() {
+        long start = at(2025, Calendar.MARCH, 3, 9);
+        CalendarEvent standup = master("standup", Constants.REPEAT_DAILY, start, start + HOUR);
+        standup.setDeletedOccurrences(Collections.singletonList(start + DAY)); // Bỏ ngày 4
+        index.put(standup);
+
+        // Ngày 5 dời sang 14:00 bằng bản sửa riêng
+        CalendarEvent moved = new CalendarEvent("standup (dời)", new Date(start + 2 * DAY + 5 * HOUR),
+                new Date(start + 2 * DAY + 6 * HOUR));
+        moved.setDocumentId("override-5");
+        moved.setRecurrenceId("standup");
+        moved.setOriginalStartTime(new Date(start + 2 * DAY));
+        index.put(moved);
+
+        List<CalendarEvent> week = index.overlapping(at(2025, Calendar.MARCH, 3, 0), at(2025, Calendar.MARCH, 7, 0));
+        assertEquals(Arrays.asList(3, 5, 6), daysOf(week));
+        assertSame(moved, week.get(1));
+        assertEquals(2, index.size());
+
+        // Xóa bản sửa riêng -> lần gốc ngày 5 hiện lại
+        index.remove("override-5");
+        assertEquals(Arrays.asList(3, 5, 6),
+                daysOf(index.overlapping(at(2025, Calendar.MARCH, 3, 0), at(2025, Calendar.MARCH, 7, 0))));
+        assertNull(index.overlapping(at(2025, Calendar.MARCH, 5, 0), at(2025, Calendar.MARCH, 6, 0))
+                .get(0).getDocumentId());
+
+        // Bỏ lặp (sửa cả chuỗi thành NONE) -> chỉ còn 1 sự kiện thường
+        standup.setRepeatType(Constants.REPEAT_NONE);
+        index.put(standup);
+        assertEquals(Collections.singletonList(3),
+                daysOf(index.overlapping(at(2025, Calendar.MARCH, 1, 0), at(2025, Calendar.APRIL, 1, 0))));
+    }
+
+    @Test
+    public void testCache_SameOccurrencesUntilSeriesChanges() {
+        long start = at(2025, Calendar.MARCH, 3, 9);
+        CalendarEvent standup = master("standup", Constants.REPEAT_DAILY, start, start + HOUR);
+        index.put(standup);
+
+        long day = at(2025, Calendar.MARCH, 10, 0);
+        CalendarEvent first = index.overlapping(day, day + DAY).get(0);
+        assertSame(first, index.overlapping(day, day + DAY).get(0));
+
+        // Sửa master (diff MODIFIED) -> sinh lại theo nội dung mới
+        standup.setTitle("Họp sáng");
+        index.put(standup);
+        CalendarEvent regenerated = index.overlapping(day, day + DAY).get(0);
+        assertNotSame(first, regenerated);
+        assertEquals("Họp sáng", regenerated.getTitle());
+    }
+
+    /**
+     * Sửa cả chuỗi: lần thứ k của chuỗi cũ -> lần thứ k của chuỗi mới (CalendarRepository.updateSeries)
+     */
+    @Test
+    public void testIndexOf_MapsOccurrenceToMovedSeries() {
+        zone = TimeZone.getTimeZone("Europe/Berlin");
+        RecurrenceExpander expander = new RecurrenceExpander(zone);
+
+        // WEEKLY qua đổi giờ 30/3: dời 18h -> 19h, lần thứ 2 (3/4) vẫn là 19h giờ địa phương
+        long weekly = at(2025, Calendar.MARCH, 20, 18);
+        long third = at(2025, Calendar.APRIL, 3, 18);
+        assertEquals(2, expander.indexOf(weekly, Constants.REPEAT_WEEKLY, third));
+        assertEquals(at(2025, Calendar.APRIL, 3, 19),
+                expander.startOf(at(2025, Calendar.MARCH, 20, 19), Constants.REPEAT_WEEKLY, 2));
+        assertEquals(-1, expander.indexOf(weekly, Constants.REPEAT_WEEKLY, third + HOUR));
+
+        // MONTHLY từ 31/1: lần thứ 1 là 28/2; dời sang 30/1 -> lần thứ 1 vẫn là 28/2, lần thứ 2 là 30/3
+        long monthly = at(2025, Calendar.JANUARY, 31, 9);
+        assertEquals(1, expander.indexOf(monthly, Constants.REPEAT_MONTHLY, at(2025, Calendar.FEBRUARY, 28, 9)));
+        assertEquals(2, expander.indexOf(monthly, Constants.REPEAT_MONTHLY, at(2025, Calendar.MARCH, 31, 9)));
+        assertEquals(at(2025, Calendar.MARCH, 30, 9),
+                expander.startOf(at(2025, Calendar.JANUARY, 30, 9), Constants.REPEAT_MONTHLY, 2));
+
+        // YEARLY 29/2 -> 28/2 năm không nhuận
+        long leap = at(2024, Calendar.FEBRUARY, 29, 9);
+        assertEquals(1, expander.indexOf(leap, Constants.REPEAT_YEARLY, at(2025, Calendar.FEBRUARY, 28, 9)));
+        assertEquals(-1, expander.indexOf(leap, Constants.REPEAT_NONE, leap));
+    }
+
+    @Test
+    public void testTenYearSeries_OnlyQueriedDaysExpanded() {
+        List<CalendarEvent> masters = tenYearDailyMasters(zone, 20);
+        index.rebuild(masters);
+
+        int occurrences = 0;
+        for (int month = 0; month < 11; month++) {
+            long monthStart = at(2029, month, 1, 0);
+            for (int day = 0; day < 35; day++) {
+                occurrences += index.overlapping(monthStart + day * DAY, monthStart + (day + 1) * DAY).size();
+            }
+        }
+        assertEquals(20 * 35 * 11, occurrences);
+        assertEquals(20, index.size());
+    }
+
+    // ===== DỮ LIỆU LỚN (dùng chung với RecurrenceExpanderBenchmark) =====
+
+    /** master DAILY bắt đầu 1/2020 (rải 30 ngày đầu, 8h-17h), lặp tới hết 2029 */
+    static List<CalendarEvent> tenYearDailyMasters(TimeZone zone, int count) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(2020, Calendar.JANUARY, 1);
+        long base = cal.getTimeInMillis();
+        cal.set(2029, Calendar.DECEMBER, 31);
+        Date until = cal.getTime();
+
+        List<CalendarEvent> masters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = base + (i % 30) * DAY + (8 + i % 10) * HOUR;
+            CalendarEvent event = master("m" + i, Constants.REPEAT_DAILY, start, start + HOUR);
+            event.setRepeatUntil(until);
+            masters.add(event);
+        }
+        return masters;
+    }
+}
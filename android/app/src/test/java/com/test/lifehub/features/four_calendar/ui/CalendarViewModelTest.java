@@ -40,7 +40,6 @@ public class CalendarViewModelTest {
     @Before
     public void setUp() {
         eventsLiveData = new MutableLiveData<>();
-        when(mockRepository.getAllEvents()).thenReturn(eventsLiveData);
     }
 
     @Test
@@ -0,0 +1,93 @@
+package com.test.lifehub.features.four_calendar.ui;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.Benchmark;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark: ngày có 250 sự kiện - EventColumnLayout (sweep line) so với vòng lặp lồng nhau
+ * cũ của WeekViewFragment / DayPagerAdapter
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class EventColumnLayoutBenchmark {
+
+    private static final int EVENT_COUNT = 250;
+    private static final int ROUNDS = 20;
+
+    private static List<EventSegment> day;
+
+    @BeforeClass
+    public static void setUpData() {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, 10);
+        day = EventColumnLayoutTest.randomDay(cal.getTimeInMillis(), new Random(5), EVENT_COUNT);
+    }
+
+    @Test
+    public void denseDay_SweepLine() {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<EventSegment> segments = new ArrayList<>(day);
+            EventColumnLayout.layout(segments);
+            assertEquals(EVENT_COUNT, segments.size());
+        }
+    }
+
+    @Test
+    public void denseDay_NestedLoops() {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<EventSegment> segments = new ArrayList<>(day);
+            legacyLayout(segments);
+            assertEquals(EVENT_COUNT, segments.size());
+        }
+    }
+
+    /** Thuật toán cũ của WeekViewFragment / DayPagerAdapter (để so sánh) */
+    private static void legacyLayout(List<EventSegment> segments) {
+        Collections.sort(segments, (s1, s2) -> {
+            int startCompare = s1.segmentStart.compareTo(s2.segmentStart);
+            if (startCompare != 0) return startCompare;
+            return s1.segmentEnd.compareTo(s2.segmentEnd);
+        });
+        for (EventSegment segment : segments) segment.layoutColumn = 0;
+        for (EventSegment segment : segments) {
+            int column = 0;
+            boolean columnFound = false;
+            while (!columnFound) {
+                columnFound = true;
+                for (EventSegment other : segments) {
+                    if (other == segment) continue;
+                    if (other.layoutColumn != column) continue;
+                    if (segment.overlaps(other)) {
+                        column++;
+                        columnFound = false;
+                        break;
+                    }
+                }
+            }
+            segment.layoutColumn = column;
+        }
+        for (EventSegment segment : segments) {
+            int maxColumnInGroup = segment.layoutColumn + 1;
+            for (EventSegment other : segments) {
+                if (other == segment) continue;
+                if (segment.overlaps(other)) {
+                    maxColumnInGroup = Math.max(maxColumnInGroup, other.layoutColumn + 1);
+                }
+            }
+            segment.totalLayoutColumns = maxColumnInGroup;
+        }
+    }
+}
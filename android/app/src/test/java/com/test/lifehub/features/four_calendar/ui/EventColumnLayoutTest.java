@@ -0,0 +1,160 @@
+package com.test.lifehub.features.four_calendar.ui;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.features.four_calendar.data.CalendarEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit test cho EventColumnLayout
+ * Kiểm tra chia cột, độ rộng theo cụm, chiều cao tối thiểu và số cột tối thiểu
+ */
+public class EventColumnLayoutTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private long day0;
+
+    @Before
+    public void setUp() {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2025, Calendar.MARCH, 10);
+        day0 = cal.getTimeInMillis();
+    }
+
+    private EventSegment segment(String title, int startMinute, int endMinute) {
+        return segment(day0, title, startMinute, endMinute);
+    }
+
+    static EventSegment segment(long day0, String title, int startMinute, int endMinute) {
+        Calendar start = Calendar.getInstance();
+        start.setTimeInMillis(day0 + startMinute * MINUTE);
+        Calendar end = Calendar.getInstance();
+        end.setTimeInMillis(day0 + endMinute * MINUTE);
+        return new EventSegment(new CalendarEvent(title, start.getTime(), end.getTime()), start, end);
+    }
+
+    private static String describe(EventSegment segment) {
+        return segment.originalEvent.getTitle() + ":" + segment.layoutColumn + "/" + segment.totalLayoutColumns;
+    }
+
+    private static List<String> describe(List<EventSegment> segments) {
+        List<String> result = new ArrayList<>();
+        for (EventSegment segment : segments) result.add(describe(segment));
+        return result;
+    }
+
+    @Test
+    public void testSeparateClusters_EachGetsFullWidth() {
+        List<EventSegment> segments = new ArrayList<>(Arrays.asList(
+                segment("C", 600, 660),
+                segment("A", 540, 600),      // Kết thúc đúng lúc C bắt đầu -> không chồng
+                segment("B", 540, 570)));
+
+        EventColumnLayout.layout(segments);
+
+        // Sắp theo (start, end); cụm A+B 2 cột, C đứng riêng 1 cột
+        assertEquals(Arrays.asList("B:0/2", "A:1/2", "C:0/1"), describe(segments));
+    }
+
+    @Test
+    public void testChain_WholeClusterSharesWidthAndReusesColumns() {
+        List<EventSegment> segments = new ArrayList<>(Arrays.asList(
+                segment("A", 540, 720),      // 9:00 - 12:00
+                segment("B", 540, 600),      // 9:00 - 10:00
+                segment("C", 540, 600),
+                segment("D", 600, 660),      // Dùng lại cột trống nhỏ nhất
+                segment("E", 700, 780)));    // Chỉ chồng A nhưng vẫn cùng cụm
+
+        EventColumnLayout.layout(segments);
+
+        assertEquals(Arrays.asList("B:0/3", "C:1/3", "A:2/3", "D:0/3", "E:0/3"), describe(segments));
+    }
+
+    @Test
+    public void testShortEvent_TakesMinimumVisibleHeight() {
+        List<EventSegment> segments = new ArrayList<>(Arrays.asList(
+                segment("Gọi nhanh", 540, 545),  // 5 phút, vẽ thành 15 phút
+                segment("Họp", 550, 600),
+                segment("Mốc", 720, 720)));      // 0 phút
+
+        EventColumnLayout.layout(segments);
+
+        assertEquals(Arrays.asList("Gọi nhanh:0/2", "Họp:1/2", "Mốc:0/1"), describe(segments));
+    }
+
+    @Test
+    public void testRandomDays_NoVisualOverlapAndMinimalColumns() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            List<EventSegment> segments = randomDay(random, 1 + random.nextInt(60));
+            EventColumnLayout.layout(segments);
+
+            int depth = maxDepth(segments);
+            int widest = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                EventSegment a = segments.get(i);
+                widest = Math.max(widest, a.totalLayoutColumns);
+                assertTrue(a.layoutColumn < a.totalLayoutColumns);
+                for (int j = i + 1; j < segments.size(); j++) {
+                    EventSegment b = segments.get(j);
+                    if (!visuallyOverlap(a, b)) continue;
+                    assertNotEquals(a.layoutColumn, b.layoutColumn);
+                    assertEquals(a.totalLayoutColumns, b.totalLayoutColumns); // Cùng cụm
+                }
+            }
+            // Không dùng nhiều cột hơn số ô chồng nhau nhiều nhất tại 1 thời điểm
+            assertEquals(depth, widest);
+        }
+    }
+
+    // ===== HELPERS =====
+
+    private List<EventSegment> randomDay(Random random, int count) {
+        return randomDay(day0, random, count);
+    }
+
+    /** Sự kiện 5 phút - 3 giờ rải trong ngày, nhiều chỗ chồng dày (dùng chung với EventColumnLayoutBenchmark) */
+    static List<EventSegment> randomDay(long day0, Random random, int count) {
+        List<EventSegment> segments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int start = random.nextInt(22 * 60);
+            int length = 5 + random.nextInt(180);
+            segments.add(segment(day0, "e" + i, start, Math.min(24 * 60, start + length)));
+        }
+        Collections.shuffle(segments, random);
+        return segments;
+    }
+
+    private static long visibleEnd(EventSegment segment) {
+        return Math.max(segment.segmentEnd.getTimeInMillis(),
+                segment.segmentStart.getTimeInMillis() + EventColumnLayout.MIN_VISIBLE_MILLIS);
+    }
+
+    private static boolean visuallyOverlap(EventSegment a, EventSegment b) {
+        return a.segmentStart.getTimeInMillis() < visibleEnd(b) && b.segmentStart.getTimeInMillis() < visibleEnd(a);
+    }
+
+    private static int maxDepth(List<EventSegment> segments) {
+        int max = 0;
+        for (EventSegment at : segments) {
+            long t = at.segmentStart.getTimeInMillis();
+            int depth = 0;
+            for (EventSegment other : segments) {
+                if (other.segmentStart.getTimeInMillis() <= t && visibleEnd(other) > t) depth++;
+            }
+            max = Math.max(max, depth);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,135 @@
+package com.test.lifehub.features.one_accounts.data;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.core.security.DecryptScheduler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho CustomField / AccountEntry.getCustomFieldList()
+ * Kiểm tra đọc dữ liệu cũ, ghi lại đúng dạng Firestore và chỉ giải mã trường được mở
+ */
+public class CustomFieldTest {
+
+    private List<String> decrypted;     // Ciphertext đã bị giải mã
+    private DecryptScheduler.Decryptor decryptor;
+
+    @Before
+    public void setUp() {
+        decrypted = new ArrayList<>();
+        decryptor = cipher -> {
+            decrypted.add(cipher);
+            return cipher.replace("enc:", "");
+        };
+    }
+
+    private static Map<String, Object> stored(String value, long type, Boolean encrypted) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("value", value);
+        data.put("type", type); // Firestore trả về Long
+        if (encrypted != null) data.put("encrypted", encrypted);
+        return data;
+    }
+
+    @Test
+    public void testListFrom_LegacyAndEncrypted() {
+        Map<String, Object> raw = new LinkedHashMap<>();
+        raw.put("Câu hỏi", stored("Tên thú cưng?", AccountEntry.FIELD_TYPE_TEXT, null));
+        raw.put("PIN cũ", stored("1234", AccountEntry.FIELD_TYPE_PASSWORD, null));   // Dữ liệu cũ: văn bản thuần
+        raw.put("PIN", stored("enc:5678", AccountEntry.FIELD_TYPE_PASSWORD, true));
+        raw.put("Hỏng", "không phải map");
+
+        List<CustomField> fields = CustomField.listFrom(raw);
+        assertEquals(3, fields.size());
+        assertEquals("Câu hỏi", fields.get(0).getName());
+        assertFalse(fields.get(0).isSecret());
+        assertTrue(fields.get(1).isSecret());
+        assertFalse(fields.get(1).isEncrypted());
+        assertTrue(fields.get(1).needsEncryption());
+        assertTrue(fields.get(2).isEncrypted());
+        assertFalse(fields.get(2).needsEncryption());
+
+        // Dữ liệu cũ đọc thẳng, không gọi decryptor
+        assertEquals("1234", fields.get(1).reveal(decryptor));
+        assertTrue(decrypted.isEmpty());
+        assertEquals("5678", fields.get(2).reveal(decryptor));
+
+        // Firestore lưu [] thay vì {} / null
+        assertTrue(CustomField.listFrom(new ArrayList<>()).isEmpty());
+        assertTrue(CustomField.listFrom(null).isEmpty());
+    }
+
+    @Test
+    public void testToFirestoreMap_RoundTripEqualsLoaded() {
+        Map<String, Object> raw = new LinkedHashMap<>();
+        raw.put("Ghi chú", stored("abc", AccountEntry.FIELD_TYPE_TEXT, null));
+        raw.put("PIN", stored("enc:5678", AccountEntry.FIELD_TYPE_PASSWORD, true));
+
+        // Không đổi gì -> Map ghi lại bằng Map đã load (TrackedDocument không gửi lại customFields)
+        assertEquals(raw, CustomField.toFirestoreMap(CustomField.listFrom(raw)));
+
+        Map<String, Object> written = CustomField.toFirestoreMap(Arrays.asList(
+                CustomField.text("A", null), CustomField.secret("B", "enc:x")));
+        assertEquals(stored("", AccountEntry.FIELD_TYPE_TEXT, null), written.get("A"));
+        assertEquals(stored("enc:x", AccountEntry.FIELD_TYPE_PASSWORD, true), written.get("B"));
+    }
+
+    @Test
+    public void testReveal_OnlyOpenedFieldIsDecrypted() {
+        AccountEntry account = new AccountEntry();
+        List<CustomField> fields = new ArrayList<>();
+        for (int i = 0; i < 20; i++) fields.add(CustomField.secret("Khóa " + i, "enc:secret" + i));
+        account.setCustomFieldList(fields);
+
+        // Mở tài khoản: đọc danh sách + hiện nhãn, không giải mã trường nào
+        for (CustomField field : account.getCustomFieldList()) {
+            assertNotNull(field.getName());
+            assertFalse(field.toString().contains("secret"));
+        }
+        assertTrue(decrypted.isEmpty());
+
+        // Chạm xem 1 trường
+        assertEquals("secret7", account.getCustomFieldList().get(7).reveal(decryptor));
+        assertEquals(Arrays.asList("enc:secret7"), decrypted);
+    }
+
+    @Test
+    public void testReveal_DecryptFailureReturnsNull() {
+        CustomField field = CustomField.secret("PIN", "enc:broken");
+        assertNull(field.reveal(cipher -> {
+            throw new IllegalStateException("Khóa đã đóng");
+        }));
+        assertEquals("", CustomField.secret("PIN", "").reveal(decryptor));
+        assertTrue(decrypted.isEmpty());
+    }
+
+    @Test
+    public void testAccountEntry_ParsesOncePerCustomFieldsObject() {
+        AccountEntry account = new AccountEntry();
+        Map<String, Object> raw = new HashMap<>();
+        raw.put("PIN", stored("enc:1", AccountEntry.FIELD_TYPE_PASSWORD, true));
+        account.customFields = raw;
+
+        List<CustomField> first = account.getCustomFieldList();
+        assertSame(first, account.getCustomFieldList());
+
+        // Snapshot mới gán customFields khác -> parse lại
+        Map<String, Object> edited = new HashMap<>();
+        edited.put("PIN mới", stored("enc:2", AccountEntry.FIELD_TYPE_PASSWORD, true));
+        account.customFields = edited;
+        assertEquals("PIN mới", account.getCustomFieldList().get(0).getName());
+
+        account.setCustomFieldList(null);
+        assertTrue(account.getCustomFieldList().isEmpty());
+        assertTrue(((Map<?, ?>) account.customFields).isEmpty());
+    }
+}
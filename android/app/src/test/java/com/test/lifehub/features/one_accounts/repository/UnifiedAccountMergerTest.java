@@ -0,0 +1,93 @@
+package com.test.lifehub.features.one_accounts.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.features.authenticator.data.TotpAccount;
+import com.test.lifehub.features.authenticator.data.TotpProjection;
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit test cho UnifiedAccountMerger
+ * Kiểm tra trộn theo tên và dùng lại item không đổi
+ */
+public class UnifiedAccountMergerTest {
+
+    private UnifiedAccountMerger merger;
+
+    @Before
+    public void setUp() {
+        merger = new UnifiedAccountMerger();
+    }
+
+    private static AccountEntry password(String id, String service) {
+        AccountEntry entry = new AccountEntry();
+        entry.documentId = id;
+        entry.serviceName = service;
+        entry.username = "user";
+        return entry;
+    }
+
+    private static TotpProjection totp(String id, String issuer) {
+        TotpAccount account = new TotpAccount("me", issuer, "JBSWY3DPEHPK3PXP");
+        account.setDocumentId(id);
+        return TotpProjection.of(account);
+    }
+
+    private static List<String> names(List<UnifiedAccountItem> items) {
+        List<String> names = new ArrayList<>();
+        for (UnifiedAccountItem item : items) names.add(item.getServiceName());
+        return names;
+    }
+
+    @Test
+    public void testMerge_InterleavesSortedSources() {
+        List<UnifiedAccountItem> merged = merger.merge(
+                Arrays.asList(password("p1", "Ánh"), password("p2", "Đà Lạt"), password("p3", "Zalo")),
+                Arrays.asList(totp("t1", "Bình"), totp("t2", "Dũng"), totp("t3", "Github")));
+
+        assertEquals(Arrays.asList("Ánh", "Bình", "Dũng", "Đà Lạt", "Github", "Zalo"), names(merged));
+    }
+
+    @Test
+    public void testMerge_ReusesUnchangedItems() {
+        AccountEntry google = password("p1", "Google");
+        AccountEntry zalo = password("p2", "Zalo");
+        TotpProjection github = totp("t1", "GitHub");
+        List<UnifiedAccountItem> first = merger.merge(Arrays.asList(google, zalo), Collections.singletonList(github));
+
+        // Store phát lại: Zalo đổi (object mới), Google + GitHub giữ nguyên object
+        AccountEntry zaloEdited = password("p2", "Zalo Pay");
+        List<UnifiedAccountItem> second = merger.merge(Arrays.asList(google, zaloEdited), Collections.singletonList(github));
+
+        assertSame(first.get(0), second.get(0));   // GitHub
+        assertSame(first.get(1), second.get(1));   // Google
+        assertNotSame(first.get(2), second.get(2));
+        assertEquals("Zalo Pay", second.get(2).getServiceName());
+        assertEquals(2, merger.getReusedCount());
+        assertEquals(1, merger.getCreatedCount());
+    }
+
+    @Test
+    public void testMerge_NewProjectionCreatesNewItem() {
+        UnifiedAccountItem before = merger.merge(null, Collections.singletonList(totp("t1", "GitHub"))).get(0);
+        assertEquals("GitHub", before.getServiceName());
+        assertEquals(6, before.getCurrentCode().length()); // HMAC key lấy từ projection
+
+        // TotpProjector tạo projection mới khi tài khoản đổi -> item mới
+        List<UnifiedAccountItem> after = merger.merge(Collections.singletonList(password("p1", "Google")),
+                Collections.singletonList(totp("t1", "GitHub Work")));
+        assertNotSame(before, after.get(0));
+        assertEquals("GitHub Work", after.get(0).getServiceName());
+
+        assertTrue(merger.merge(Collections.emptyList(), Collections.emptyList()).isEmpty());
+    }
+}
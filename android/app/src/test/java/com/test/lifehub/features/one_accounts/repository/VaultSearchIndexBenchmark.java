@@ -0,0 +1,51 @@
+package com.test.lifehub.features.one_accounts.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.Benchmark;
+import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+/**
+ * Benchmark: đồng bộ VaultSearchIndex với 5.000 tài khoản và tìm kiếm sai chính tả trên đó
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class VaultSearchIndexBenchmark {
+
+    private static final int ACCOUNT_COUNT = 5000;
+    private static final int ROUNDS = 20;
+    private static final String[] QUERIES = {"gogle", "vietcombnak", "user42", "netfl 7", "zalo"};
+
+    private static List<UnifiedAccountItem> vault;
+    private static VaultSearchIndex built;
+
+    @BeforeClass
+    public static void setUpData() {
+        vault = VaultSearchIndexTest.generatedVault(ACCOUNT_COUNT);
+        built = new VaultSearchIndex();
+        built.sync(vault);
+    }
+
+    @Test
+    public void sync_5kAccounts() {
+        for (int round = 0; round < ROUNDS; round++) {
+            VaultSearchIndex index = new VaultSearchIndex();
+            index.sync(vault);
+            assertEquals(ACCOUNT_COUNT, index.size());
+        }
+    }
+
+    @Test
+    public void fuzzySearch_5kAccounts() {
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String query : QUERIES) assertNotNull(built.search(query, () -> false));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.test.lifehub.features.one_accounts.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.features.one_accounts.data.AccountEntry;
+import com.test.lifehub.features.one_accounts.data.UnifiedAccountItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test cho VaultSearchIndex
+ * Kiểm tra khớp sai chính tả, tiền tố, tên miền, xếp hạng, đồng bộ tăng dần và hủy truy vấn
+ */
+public class VaultSearchIndexTest {
+
+    private VaultSearchIndex index;
+    private List<UnifiedAccountItem> vault;
+
+    @Before
+    public void setUp() {
+        index = new VaultSearchIndex();
+        vault = new ArrayList<>(Arrays.asList(
+                account("a1", "Google", "nguyen.van.a@gmail.com", "https://accounts.google.com/signin"),
+                account("a2", "Facebook", "nguyenvana", "https://www.facebook.com"),
+                account("a3", "Ngân hàng Vietcombank", "0901234567", "https://vcbdigibank.vietcombank.com.vn/login"),
+                account("a4", "Drive", "google.drive.admin", null),
+                new UnifiedAccountItem("t1", "GitHub", "dev@example.com", "SECRET", "GitHub")));
+        index.sync(vault);
+    }
+
+    private static UnifiedAccountItem account(String id, String service, String username, String url) {
+        AccountEntry entry = new AccountEntry();
+        entry.documentId = id;
+        entry.serviceName = service;
+        entry.username = username;
+        entry.websiteUrl = url;
+        return new UnifiedAccountItem(entry);
+    }
+
+    private List<String> search(String query) {
+        List<UnifiedAccountItem> results = index.search(query, () -> false);
+        assertNotNull(results);
+        List<String> ids = new ArrayList<>();
+        for (UnifiedAccountItem item : results) ids.add(item.getId());
+        return ids;
+    }
+
+    @Test
+    public void testSearch_TypoTolerant() {
+        assertEquals("a1", search("gogle").get(0));     // Thiếu 1 chữ
+        assertEquals("a2", search("facebok").get(0));
+        assertEquals("t1", search("githbu").get(0));    // Đổi chỗ 2 chữ
+        assertTrue(search("zzzz").isEmpty());
+    }
+
+    @Test
+    public void testSearch_PrefixAndDiacritics() {
+        assertEquals(Arrays.asList("a1", "a4"), search("goo"));   // Tên dịch vụ trước username
+        assertEquals("a3", search("ngan hang").get(0));           // Không dấu
+        assertEquals(Arrays.asList("t1"), search("gi"));          // Từ ngắn: chỉ tiền tố
+    }
+
+    @Test
+    public void testSearch_DomainAndUsername() {
+        assertEquals(Arrays.asList("a3"), search("vcbdigibank"));
+        assertEquals(Arrays.asList("t1"), search("example"));
+        assertEquals("a3", search("0901").get(0));
+    }
+
+    @Test
+    public void testSearch_ServicePrefixBoost() {
+        vault.add(account("a6", "Backup Drive", "me", null));
+        index.sync(vault);
+
+        // Cả 2 khớp đúng từ "drive" ở tên dịch vụ; "Drive" bắt đầu bằng truy vấn -> đứng trước
+        // (không có thưởng thì "Backup Drive" đứng trước theo tên)
+        assertEquals(Arrays.asList("a4", "a6"), search("drive"));
+        assertEquals(Arrays.asList("a4"), search("drive google")); // AND: username google.drive.admin
+    }
+
+    @Test
+    public void testSync_Incremental() {
+        assertFalse(index.sync(new ArrayList<>(vault))); // Cùng nội dung -> không index lại
+
+        List<UnifiedAccountItem> updated = new ArrayList<>(vault);
+        updated.remove(1);                                                 // Xóa Facebook
+        updated.set(0, account("a1", "Gmail", "nguyen.van.a@gmail.com", null)); // Đổi tên
+        updated.add(account("a5", "Shopee", "buyer", "shopee.vn"));
+
+        assertTrue(index.sync(updated));
+        assertEquals(5, index.size());
+        assertTrue(search("facebook").isEmpty());
+        assertTrue(search("accounts").isEmpty());
+        assertEquals("a1", search("gmail").get(0));
+        assertEquals(Arrays.asList("a5"), search("shope"));
+    }
+
+    @Test
+    public void testSearch_Cancelled_ReturnsNull() {
+        assertNull(index.search("google", () -> true));
+        assertTrue(index.search("  ", () -> true).isEmpty());
+    }
+
+    @Test
+    public void testPrefixDistance() {
+        assertEquals(0, VaultSearchIndex.prefixDistance("goo", "google", 2));
+        assertEquals(1, VaultSearchIndex.prefixDistance("gogl", "google", 2));
+        assertEquals(1, VaultSearchIndex.prefixDistance("googel", "google", 2)); // Đổi chỗ
+        assertEquals(3, VaultSearchIndex.prefixDistance("xyzw", "google", 2));   // Vượt ngưỡng -> max + 1
+        assertEquals("accounts.google.com", VaultSearchIndex.domainOf("https://www.accounts.google.com:443/x?y=1"));
+        assertEquals("shopee.vn", VaultSearchIndex.domainOf("shopee.vn/"));
+    }
+
+    /**
+     * Benchmark: 5.000 tài khoản, truy vấn có lỗi gõ phải dưới vài ms
+     */
+    @Test
+    public void testSearch_5kAccounts_FuzzyMatchStillFound() {
+        VaultSearchIndex big = new VaultSearchIndex();
+        big.sync(generatedVault(5000));
+
+        assertEquals(5000, big.size());
+        assertFalse(big.search("gogle", () -> false).isEmpty());
+        assertFalse(big.search("vietcombnak", () -> false).isEmpty());
+    }
+
+    // ===== DỮ LIỆU LỚN (dùng chung với VaultSearchIndexBenchmark) =====
+
+    static List<UnifiedAccountItem> generatedVault(int count) {
+        String[] services = {"Google", "Facebook", "Vietcombank", "Shopee", "Tiki", "Zalo", "GitHub", "Netflix"};
+        List<UnifiedAccountItem> large = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            large.add(account("b" + i, services[i % services.length] + " " + i,
+                    "user" + i + "@mail" + (i % 50) + ".com", "https://" + services[i % services.length] + ".com"));
+        }
+        return large;
+    }
+}
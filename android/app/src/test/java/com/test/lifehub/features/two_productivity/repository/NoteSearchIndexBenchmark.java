@@ -0,0 +1,53 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import static org.junit.Assert.*;
+
+import com.test.lifehub.Benchmark;
+import com.test.lifehub.features.two_productivity.data.NoteEntry;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+/**
+ * Benchmark: dựng NoteSearchIndex cho 10.000 ghi chú và tìm kiếm trên chỉ mục đó
+ *
+ * @see Benchmark Cách chạy và đọc kết quả
+ */
+@Category(Benchmark.class)
+public class NoteSearchIndexBenchmark {
+
+    private static final int NOTE_COUNT = 10_000;
+    private static final int ROUNDS = 20;
+    private static final String[] QUERIES = {"bao cao", "du", "tai chinh 42", "ghi chu so 9999", "đặt vé"};
+
+    private static List<NoteEntry> notes;
+    private static NoteSearchIndex built;
+
+    @BeforeClass
+    public static void setUpData() {
+        notes = NoteSearchIndexTest.generatedNotes(NOTE_COUNT);
+        built = new NoteSearchIndex();
+        built.reset(notes);
+    }
+
+    @Test
+    public void reset_10kNotes() {
+        for (int round = 0; round < ROUNDS; round++) {
+            NoteSearchIndex index = new NoteSearchIndex();
+            index.reset(notes);
+            assertEquals(NOTE_COUNT, index.size());
+        }
+    }
+
+    @Test
+    public void search_10kNotes() {
+        int results = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String query : QUERIES) results += built.search(query).size();
+        }
+        assertTrue(results > 0);
+    }
+}
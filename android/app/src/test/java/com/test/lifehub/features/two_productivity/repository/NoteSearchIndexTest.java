@@ -0,0 +1,135 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.core.util.TextFolding;
+import com.test.lifehub.features.two_productivity.data.NoteEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Unit test cho NoteSearchIndex
+ * Kiểm tra bỏ dấu, khớp tiền tố, xếp hạng (tiêu đề trước, mới trước) và cập nhật theo Diff
+ */
+public class NoteSearchIndexTest {
+
+    private NoteSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new NoteSearchIndex();
+        index.reset(Arrays.asList(
+                note("n1", "Ghi chú họp nhóm", "Chuẩn bị slide", 1000),
+                note("n2", "Đi chợ", "Mua rau, ghi chú giá", 2000),
+                note("n3", "Du lịch Đà Lạt", "Đặt phòng khách sạn", 3000)));
+    }
+
+    private static NoteEntry note(String id, String title, String content, long modified) {
+        NoteEntry note = new NoteEntry(title, content, new Date(modified));
+        note.documentId = id;
+        return note;
+    }
+
+    private static List<String> ids(List<NoteEntry> notes) {
+        List<String> ids = new ArrayList<>();
+        for (NoteEntry note : notes) ids.add(note.documentId);
+        return ids;
+    }
+
+    /** Diff thật của SnapshotStore, store đã có sẵn các ghi chú before */
+    private static SnapshotStore.Diff<NoteEntry> diff(List<NoteEntry> before, List<SnapshotStore.Change<NoteEntry>> changes) {
+        SnapshotStore<NoteEntry> store = new SnapshotStore<>((id, data) -> null);
+        List<SnapshotStore.Change<NoteEntry>> initial = new ArrayList<>();
+        for (NoteEntry note : before) {
+            initial.add(new SnapshotStore.Change<>(DocumentChange.Type.ADDED, note.documentId, note, false, null));
+        }
+        store.applyChanges(initial);
+        store.drain();
+        store.applyChanges(changes);
+        return store.drain().diff;
+    }
+
+    // ===== BỎ DẤU =====
+
+    @Test
+    public void testFold_RemovesVietnameseDiacritics() {
+        assertEquals("ghi chu da lat", TextFolding.fold("Ghi chú Đà Lạt"));
+        assertEquals("nguyen", TextFolding.fold("NGUYỄN"));
+        // Dạng tổ hợp (u + dấu sắc rời) cũng về cùng 1 chuỗi
+        assertEquals(TextFolding.fold("ch\u00fa"), TextFolding.fold("chu\u0301"));
+        assertEquals(Arrays.asList("mua", "rau", "gia"), TextFolding.tokenize("Mua rau, giá!"));
+    }
+
+    // ===== TÌM KIẾM =====
+
+    @Test
+    public void testSearch_WithoutDiacritics_TitleHitsFirst() {
+        // n1 khớp ở tiêu đề, n2 chỉ khớp ở nội dung (dù mới hơn)
+        assertEquals(Arrays.asList("n1", "n2"), ids(index.search("ghi chu")));
+        assertEquals(Arrays.asList("n1", "n2"), ids(index.search("GHI CHÚ")));
+    }
+
+    @Test
+    public void testSearch_PrefixAndAllTermsRequired() {
+        assertEquals(Arrays.asList("n3"), ids(index.search("da la")));
+        assertEquals(Arrays.asList("n3"), ids(index.search("đặt")));
+        assertTrue(index.search("ghi lat").isEmpty());
+        assertTrue(index.search("   ").isEmpty());
+    }
+
+    @Test
+    public void testSearch_SameRank_NewestFirst() {
+        index.reset(Arrays.asList(note("old", "Báo cáo", "", 1000), note("new", "Báo cáo tuần", "", 5000)));
+        assertEquals(Arrays.asList("new", "old"), ids(index.search("bao cao")));
+    }
+
+    // ===== CẬP NHẬT THEO DIFF =====
+
+    @Test
+    public void testApply_ModifiedAndRemoved() {
+        NoteEntry n1 = note("n1", "Họp dự án", "", 4000);
+        NoteEntry n2 = note("n2", "Đi chợ", "", 2000);
+
+        index.apply(diff(Arrays.asList(note("n1", "x", "", 0), n2), Arrays.asList(
+                new SnapshotStore.Change<>(DocumentChange.Type.MODIFIED, "n1", n1, false, null),
+                new SnapshotStore.Change<NoteEntry>(DocumentChange.Type.REMOVED, "n2", null, false, null))));
+
+        assertTrue(index.search("ghi chu").isEmpty()); // Từ cũ của n1 đã được gỡ
+        assertEquals(Arrays.asList("n1"), ids(index.search("du an")));
+        assertTrue(index.search("cho").isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testSearch_10kNotes_ExactPhraseFindsOneNote() {
+        index.reset(generatedNotes(10_000));
+
+        assertEquals(Collections.singletonList("note-9999"), ids(index.search("ghi chu so 9999")));
+        assertEquals(10_000, index.size());
+        assertFalse(index.search("bao cao").isEmpty());
+    }
+
+    // ===== DỮ LIỆU LỚN (dùng chung với NoteSearchIndexBenchmark) =====
+
+    static List<NoteEntry> generatedNotes(int count) {
+        String[] words = {"họp", "dự án", "báo cáo", "mua sắm", "du lịch", "sức khỏe", "tài chính",
+                "công việc", "gia đình", "học tập", "ý tưởng", "sách", "phim", "nhà hàng", "đặt vé"};
+        List<NoteEntry> notes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = words[i % words.length] + " " + i;
+            String content = "Ghi chú số " + i + " về " + words[(i * 7) % words.length]
+                    + " và " + words[(i * 11) % words.length] + ", cập nhật lần " + (i % 13);
+            notes.add(note("note-" + i, title, content, 1_700_000_000_000L + i));
+        }
+        return notes;
+    }
+}
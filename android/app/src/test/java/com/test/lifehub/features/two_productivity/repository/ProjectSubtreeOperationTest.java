@@ -0,0 +1,186 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test cho ProjectSubtreeOperation
+ * Kiểm tra lập kế hoạch xóa cây thư mục, chia batch, tiếp tục sau lỗi và hoàn tác
+ */
+public class ProjectSubtreeOperationTest {
+
+    /** Committer giả: ghi lại các batch, lỗi ở lần commit thứ failAt (0-based) */
+    private static class FakeCommitter implements ProjectSubtreeOperation.Committer {
+        final List<List<ProjectSubtreeOperation.Op>> commits = new ArrayList<>();
+        final List<List<ProjectSubtreeOperation.Op>> undos = new ArrayList<>();
+        int calls = 0;
+        int failAt = -1;
+
+        @Override
+        public void commit(List<ProjectSubtreeOperation.Op> batch, boolean undo, ProjectSubtreeOperation.Done done) {
+            int call = calls++;
+            if (call == failAt) {
+                done.onResult(new Exception("offline"));
+                return;
+            }
+            (undo ? undos : commits).add(batch);
+            done.onResult(null);
+        }
+    }
+
+    private static Map<String, Object> doc(String projectId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("projectId", projectId);
+        return data;
+    }
+
+    /** Cây: root -> a -> a1, root -> b; other nằm ngoài */
+    private static Map<String, Map<String, Object>> projects() {
+        Map<String, Map<String, Object>> projects = new LinkedHashMap<>();
+        projects.put("root", doc(null));
+        projects.put("a", doc("root"));
+        projects.put("a1", doc("a"));
+        projects.put("b", doc("root"));
+        projects.put("other", doc(null));
+        return projects;
+    }
+
+    private static List<ProjectSubtreeOperation.Op> ops(int count) {
+        List<ProjectSubtreeOperation.Op> ops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ops.add(new ProjectSubtreeOperation.Op(ProjectSubtreeOperation.Collection.TASKS,
+                    "t" + i, true, doc("root")));
+        }
+        return ops;
+    }
+
+    private static List<String> ids(List<ProjectSubtreeOperation.Op> ops) {
+        List<String> ids = new ArrayList<>();
+        for (ProjectSubtreeOperation.Op op : ops) ids.add(op.documentId);
+        return ids;
+    }
+
+    @Test
+    public void testPlan_TasksFirstThenLeavesBeforeRoot() {
+        Map<String, Map<String, Object>> tasks = new HashMap<>();
+        tasks.put("t2", doc("a1"));
+        tasks.put("t1", doc("root"));
+        tasks.put("t3", doc("other"));
+        tasks.put("t4", doc(null));
+
+        List<ProjectSubtreeOperation.Op> ops = ProjectSubtreeOperation.plan(
+                "root", projects(), tasks, ProjectSubtreeOperation.Mode.DETACH_TASKS);
+
+        assertEquals(java.util.Arrays.asList("t1", "t2", "a1", "a", "b", "root"), ids(ops));
+        assertTrue(ops.get(0).detach);
+        assertFalse(ops.get(2).detach);
+        assertEquals(ProjectSubtreeOperation.Collection.PROJECTS, ops.get(5).collection);
+    }
+
+    @Test
+    public void testPlan_DeleteTasksMode_DoesNotDetach() {
+        Map<String, Map<String, Object>> tasks = new HashMap<>();
+        tasks.put("t1", doc("b"));
+
+        List<ProjectSubtreeOperation.Op> ops = ProjectSubtreeOperation.plan(
+                "root", projects(), tasks, ProjectSubtreeOperation.Mode.DELETE_TASKS);
+
+        assertEquals("t1", ops.get(0).documentId);
+        assertFalse(ops.get(0).detach);
+    }
+
+    @Test
+    public void testPlan_CycleInData_Terminates() {
+        Map<String, Map<String, Object>> projects = new HashMap<>();
+        projects.put("x", doc("y"));
+        projects.put("y", doc("x"));
+
+        List<ProjectSubtreeOperation.Op> ops = ProjectSubtreeOperation.plan(
+                "x", projects, new HashMap<>(), ProjectSubtreeOperation.Mode.DETACH_TASKS);
+
+        assertEquals(java.util.Arrays.asList("y", "x"), ids(ops));
+    }
+
+    @Test
+    public void testLargeTree_SplitIntoBatchesOf500() {
+        FakeCommitter committer = new FakeCommitter();
+        ProjectSubtreeOperation operation = new ProjectSubtreeOperation("root",
+                ProjectSubtreeOperation.Mode.DETACH_TASKS, ops(1201), committer, null);
+
+        operation.start();
+
+        assertEquals(3, operation.getBatchCount());
+        assertEquals(3, committer.commits.size());
+        assertEquals(500, committer.commits.get(0).size());
+        assertEquals(201, committer.commits.get(2).size());
+        assertEquals(ProjectSubtreeOperation.State.COMPLETED, operation.getState());
+        assertEquals(1201, operation.getCommittedOps());
+        assertFalse(operation.canUndo()); // Xong -> bỏ snapshot
+    }
+
+    @Test
+    public void testFailedBatch_ResumeContinuesFromFailedBatch() {
+        FakeCommitter committer = new FakeCommitter();
+        committer.failAt = 1;
+        List<ProjectSubtreeOperation.State> states = new ArrayList<>();
+        ProjectSubtreeOperation operation = new ProjectSubtreeOperation("root",
+                ProjectSubtreeOperation.Mode.DETACH_TASKS, ops(1201), committer,
+                op -> states.add(op.getState()));
+
+        operation.start();
+
+        assertEquals(ProjectSubtreeOperation.State.FAILED, operation.getState());
+        assertEquals(500, operation.getCommittedOps());
+        assertNotNull(operation.getLastError());
+        assertTrue(operation.canUndo());
+
+        operation.resume();
+
+        assertEquals(ProjectSubtreeOperation.State.COMPLETED, operation.getState());
+        assertEquals(3, committer.commits.size());
+        assertEquals("t0", committer.commits.get(0).get(0).documentId);
+        assertEquals("t500", committer.commits.get(1).get(0).documentId); // Batch 1 không ghi lại batch 0
+        assertTrue(states.contains(ProjectSubtreeOperation.State.FAILED));
+    }
+
+    @Test
+    public void testUndo_RestoresCommittedBatchesInReverse() {
+        FakeCommitter committer = new FakeCommitter();
+        committer.failAt = 2;
+        ProjectSubtreeOperation operation = new ProjectSubtreeOperation("root",
+                ProjectSubtreeOperation.Mode.DELETE_TASKS, ops(1201), committer, null);
+
+        operation.start();
+        operation.undo();
+
+        assertEquals(ProjectSubtreeOperation.State.UNDONE, operation.getState());
+        assertEquals(0, operation.getCommittedOps());
+        assertEquals(2, committer.undos.size());
+        // Batch cuối khôi phục trước, trong batch cũng đảo ngược (gốc trước lá)
+        assertEquals("t999", committer.undos.get(0).get(0).documentId);
+        assertEquals("t499", committer.undos.get(1).get(0).documentId);
+        assertFalse(operation.canUndo());
+    }
+
+    @Test
+    public void testResumeOrUndo_WhenNotFailed_Ignored() {
+        FakeCommitter committer = new FakeCommitter();
+        ProjectSubtreeOperation operation = new ProjectSubtreeOperation("root",
+                ProjectSubtreeOperation.Mode.DETACH_TASKS, ops(3), committer, null);
+
+        operation.start();
+        operation.undo();
+        operation.resume();
+
+        assertEquals(ProjectSubtreeOperation.State.COMPLETED, operation.getState());
+        assertEquals(1, committer.commits.size());
+        assertTrue(committer.undos.isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package com.test.lifehub.features.two_productivity.repository;
+
+import static org.junit.Assert.*;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.test.lifehub.core.repository.SnapshotStore;
+import com.test.lifehub.features.two_productivity.data.ProjectEntry;
+import com.test.lifehub.features.two_productivity.data.TaskEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Unit test cho ProjectTree
+ * Kiểm tra lấy con theo thư mục, cập nhật tăng dần theo Diff, breadcrumb và thống kê task
+ */
+public class ProjectTreeTest {
+
+    private ProjectTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new ProjectTree();
+        tree.resetProjects(Arrays.asList(
+                project("root", "Công việc", null),
+                project("sub", "Báo cáo", "root"),
+                project("other", "Cá nhân", null)));
+        tree.resetTasks(Arrays.asList(
+                task("t1", "root", false, 1000),
+                task("t2", "sub", true, 2000),
+                task("t3", "sub", false, 3000),
+                task("t4", null, false, 4000)));
+    }
+
+    private static ProjectEntry project(String id, String name, String parentId) {
+        ProjectEntry project = new ProjectEntry(name, "user");
+        project.documentId = id;
+        project.setProjectId(parentId);
+        return project;
+    }
+
+    private static TaskEntry task(String id, String projectId, boolean completed, long modified) {
+        TaskEntry task = new TaskEntry("Task " + id, new Date(modified), completed, 0);
+        task.documentId = id;
+        task.setProjectId(projectId);
+        return task;
+    }
+
+    /** Diff thật của SnapshotStore (giống ProductivityRepository phát ra) */
+    private static <T> SnapshotStore.Diff<T> diff(List<SnapshotStore.Change<T>> changes) {
+        return diff(Collections.emptyList(), changes);
+    }
+
+    /**
+     * @param before Thay đổi đã drain trước đó (document phải có trong store thì mới xóa được)
+     */
+    private static <T> SnapshotStore.Diff<T> diff(List<SnapshotStore.Change<T>> before,
+                                                  List<SnapshotStore.Change<T>> changes) {
+        SnapshotStore<T> store = new SnapshotStore<>((id, data) -> null);
+        store.applyChanges(before);
+        store.drain();
+        store.applyChanges(changes);
+        return store.drain().diff;
+    }
+
+    private static <T> SnapshotStore.Change<T> added(String id, T item) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.ADDED, id, item, false, null);
+    }
+
+    private static <T> SnapshotStore.Change<T> removed(String id) {
+        return new SnapshotStore.Change<>(DocumentChange.Type.REMOVED, id, null, false, null);
+    }
+
+    private static List<String> taskIds(List<TaskEntry> tasks) {
+        List<String> ids = new ArrayList<>();
+        for (TaskEntry task : tasks) ids.add(task.documentId);
+        return ids;
+    }
+
+    @Test
+    public void testChildren_DirectOnly_Sorted() {
+        assertEquals(Arrays.asList("t4"), taskIds(tree.getTasks(null)));
+        assertEquals(Arrays.asList("t3", "t2"), taskIds(tree.getTasks("sub"))); // Mới sửa trước
+        assertEquals(2, tree.getChildren(null).size());
+        assertEquals("Cá nhân", tree.getChildren(null).get(0).getName());
+        assertEquals("sub", tree.getChildren("root").get(0).documentId);
+        assertTrue(tree.getTasks("missing").isEmpty());
+    }
+
+    @Test
+    public void testApplyTaskChanges_MoveTaskBetweenProjects() {
+        // UI sửa trực tiếp object trước khi Diff tới: index vẫn gỡ đúng khỏi thư mục cũ
+        TaskEntry moved = tree.getTasks("root").get(0);
+        moved.setProjectId("sub");
+        moved.setLastModified(new Date(5000));
+
+        tree.applyTaskChanges(diff(Collections.singletonList(
+                new SnapshotStore.Change<>(DocumentChange.Type.MODIFIED, "t1", moved, false, null))));
+
+        assertTrue(tree.getTasks("root").isEmpty());
+        assertEquals(Arrays.asList("t1", "t3", "t2"), taskIds(tree.getTasks("sub")));
+        assertEquals(4, tree.getTaskCount());
+    }
+
+    @Test
+    public void testApplyChanges_AddAndRemove() {
+        tree.applyTaskChanges(diff(
+                Collections.singletonList(added("t4", tree.getTasks(null).get(0))),
+                Arrays.asList(added("t5", task("t5", "other", false, 6000)), removed("t4"))));
+        tree.applyProjectChanges(diff(
+                Collections.singletonList(added("sub", tree.getProject("sub"))),
+                Collections.singletonList(removed("sub"))));
+
+        assertTrue(tree.getTasks(null).isEmpty());
+        assertEquals(Arrays.asList("t5"), taskIds(tree.getTasks("other")));
+        assertTrue(tree.getChildren("root").isEmpty());
+        assertEquals(2, tree.getProjectCount());
+    }
+
+    @Test
+    public void testGetStats_IncludesSubprojects() {
+        ProjectTree.Stats stats = tree.getStats("root");
+        assertEquals(3, stats.totalTasks);
+        assertEquals(1, stats.completedTasks);
+
+        ProjectTree.Stats sub = tree.getStats("sub");
+        assertEquals(2, sub.totalTasks);
+        assertEquals(1, sub.completedTasks);
+
+        assertEquals(0, tree.getStats("other").totalTasks);
+        assertEquals(1, tree.getStats(null).totalTasks); // Root: chỉ task trực tiếp
+    }
+
+    @Test
+    public void testGetStats_CompletingTaskUpdatesCounts() {
+        TaskEntry done = task("t3", "sub", true, 7000);
+        done.setReminderTime(new Date());
+        TaskEntry reminder = task("t6", "sub", false, 8000);
+        reminder.setReminderTime(new Date());
+
+        tree.applyTaskChanges(diff(Arrays.asList(
+                new SnapshotStore.Change<>(DocumentChange.Type.MODIFIED, "t3", done, false, null),
+                added("t6", reminder))));
+
+        ProjectTree.Stats stats = tree.getStats("root");
+        assertEquals(4, stats.totalTasks);
+        assertEquals(2, stats.completedTasks);
+        assertEquals(1, stats.reminders); // Task đã xong không tính nhắc nhở
+    }
+
+    @Test
+    public void testGetPath_Breadcrumb() {
+        List<ProjectEntry> path = tree.getPath("sub");
+        assertEquals(2, path.size());
+        assertEquals("root", path.get(0).documentId);
+        assertEquals("sub", path.get(1).documentId);
+        assertTrue(tree.getPath(null).isEmpty());
+    }
+
+    @Test
+    public void testCycleInData_Terminates() {
+        tree.resetProjects(Arrays.asList(project("x", "X", "y"), project("y", "Y", "x")));
+        tree.resetTasks(Collections.singletonList(task("t", "y", false, 1)));
+
+        assertEquals(2, tree.getPath("x").size());
+        assertEquals(1, tree.getStats("x").totalTasks);
+    }
+}
@@ -0,0 +1,14 @@
+// Module annotation processor: sinh codec Map <-> object cho các model Firestore
+// (app dùng qua compileOnly + kapt, không đóng gói vào APK)
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
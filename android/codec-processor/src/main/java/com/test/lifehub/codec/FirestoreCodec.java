@@ -0,0 +1,26 @@
+package com.test.lifehub.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu model Firestore cần sinh codec không dùng reflection
+ *
+ * Với class Foo, processor sinh FooCodec (cùng package) implements DocumentCodec&lt;Foo&gt;:
+ * - fromMap(documentId, data): Map của DocumentSnapshot.getData() -> Foo (đã gán documentId)
+ * - toMap(foo): Foo -> Map để ghi lên Firestore (bỏ documentId, null @ServerTimestamp -> serverTimestamp())
+ *
+ * Quy tắc thuộc tính giống Firestore CustomClassMapper: public field + getter/setter,
+ * tôn trọng @Exclude, @PropertyName, @ServerTimestamp.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface FirestoreCodec {
+
+    /**
+     * Thuộc tính chứa document ID (không đọc/ghi vào data của document)
+     */
+    String documentId() default "documentId";
+}
@@ -0,0 +1,334 @@
+package com.test.lifehub.codec.processor;
+
+import com.test.lifehub.codec.FirestoreCodec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * FirestoreCodecProcessor - Sinh codec Map <-> object cho các class có @FirestoreCodec
+ *
+ * === VÌ SAO ===
+ * DocumentSnapshot.toObject() dùng reflection + bean introspection cho MỖI document.
+ * Codec sinh sẵn gán thẳng field / gọi setter nên không cần reflection lúc chạy
+ * (và không cần keep rule cho R8).
+ *
+ * === QUY TẮC THUỘC TÍNH (giống Firestore CustomClassMapper) ===
+ * - Đọc: public getter (getX / isX) hoặc public field
+ * - Ghi: public setter (setX) hoặc public field (không final)
+ * - @Exclude trên field / getter / setter -> bỏ qua thuộc tính
+ * - @PropertyName("x") -> tên key trong document
+ * - @ServerTimestamp + giá trị null -> FieldValue.serverTimestamp() khi ghi
+ *
+ * Model kế thừa TrackedDocument: fromMap() gọi markLoaded(data) để repository chỉ ghi field đã đổi.
+ *
+ * Annotation của Firestore được nhận diện theo tên (processor không phụ thuộc Android).
+ */
+@SupportedAnnotationTypes("com.test.lifehub.codec.FirestoreCodec")
+public class FirestoreCodecProcessor extends AbstractProcessor {
+
+    private static final String EXCLUDE = "com.google.firebase.firestore.Exclude";
+    private static final String PROPERTY_NAME = "com.google.firebase.firestore.PropertyName";
+    private static final String SERVER_TIMESTAMP = "com.google.firebase.firestore.ServerTimestamp";
+
+    private static final String CODEC_INTERFACE = "com.test.lifehub.core.codec.DocumentCodec";
+    private static final String SUPPORT = "com.test.lifehub.core.codec.CodecSupport";
+    private static final String TRACKED = "com.test.lifehub.core.codec.TrackedDocument";
+
+    /** Một thuộc tính của model */
+    private static final class Property {
+        final String beanName;
+        String key;
+        TypeMirror type;
+        String getter;
+        String setter;
+        String readField;
+        String writeField;
+        boolean excluded;
+        boolean serverTimestamp;
+
+        Property(String beanName) {
+            this.beanName = beanName;
+            this.key = beanName;
+        }
+
+        boolean readable() { return getter != null || readField != null; }
+        boolean writable() { return setter != null || writeField != null; }
+    }
+
+    /** Lỗi cấu hình model -> báo lỗi biên dịch tại element tương ứng */
+    private static final class CodecException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final transient Element element;  // Chỉ dùng trong lúc xử lý annotation
+
+        CodecException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(FirestoreCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error("@FirestoreCodec chỉ dùng cho class", element);
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type);
+            } catch (CodecException e) {
+                error(e.getMessage(), e.element);
+            } catch (IOException e) {
+                error("Không ghi được codec: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    // ===== THU THẬP THUỘC TÍNH =====
+
+    private Map<String, Property> collectProperties(TypeElement type) {
+        Map<String, Property> properties = new LinkedHashMap<>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+
+            String name = field.getSimpleName().toString();
+            Property property = properties.computeIfAbsent(name, Property::new);
+            applyAnnotations(property, field);
+            if (modifiers.contains(Modifier.PUBLIC)) {
+                if (property.type == null) property.type = field.asType();
+                property.readField = name;
+                if (!modifiers.contains(Modifier.FINAL)) property.writeField = name;
+            }
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)) continue;
+            if (method.getEnclosingElement().toString().equals("java.lang.Object")) continue;
+
+            String name = method.getSimpleName().toString();
+            int params = method.getParameters().size();
+            TypeMirror returnType = method.getReturnType();
+
+            if (params == 0 && returnType.getKind() != TypeKind.VOID) {
+                String beanName = null;
+                if (name.startsWith("get") && name.length() > 3) {
+                    beanName = decapitalize(name.substring(3));
+                } else if (name.startsWith("is") && name.length() > 2 && returnType.getKind() == TypeKind.BOOLEAN) {
+                    beanName = decapitalize(name.substring(2));
+                }
+                if (beanName == null) continue;
+                Property property = properties.computeIfAbsent(beanName, Property::new);
+                applyAnnotations(property, method);
+                property.getter = name;
+                property.type = returnType;
+            } else if (params == 1 && name.startsWith("set") && name.length() > 3) {
+                Property property = properties.computeIfAbsent(decapitalize(name.substring(3)), Property::new);
+                applyAnnotations(property, method);
+                property.setter = name;
+                if (property.type == null) property.type = method.getParameters().get(0).asType();
+            }
+        }
+        return properties;
+    }
+
+    private void applyAnnotations(Property property, Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String annotation = mirror.getAnnotationType().toString();
+            if (EXCLUDE.equals(annotation)) {
+                property.excluded = true;
+            } else if (SERVER_TIMESTAMP.equals(annotation)) {
+                property.serverTimestamp = true;
+            } else if (PROPERTY_NAME.equals(annotation)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                        : mirror.getElementValues().entrySet()) {
+                    if (value.getKey().getSimpleName().contentEquals("value")) {
+                        property.key = String.valueOf(value.getValue().getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Giống Firestore: hạ chữ thường toàn bộ các chữ hoa ở đầu ("URL" -> "url") */
+    private static String decapitalize(String name) {
+        char[] chars = name.toCharArray();
+        int pos = 0;
+        while (pos < chars.length && Character.isUpperCase(chars[pos])) {
+            chars[pos] = Character.toLowerCase(chars[pos]);
+            pos++;
+        }
+        return new String(chars);
+    }
+
+    // ===== SINH CODE =====
+
+    private void generate(TypeElement type) throws CodecException, IOException {
+        if (!type.getModifiers().contains(Modifier.PUBLIC)) {
+            throw new CodecException("@FirestoreCodec yêu cầu class public", type);
+        }
+        boolean hasNoArgConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasNoArgConstructor = true;
+            }
+        }
+        if (!hasNoArgConstructor) {
+            throw new CodecException("@FirestoreCodec yêu cầu constructor public không tham số", type);
+        }
+
+        String idProperty = type.getAnnotation(FirestoreCodec.class).documentId();
+        Map<String, Property> properties = collectProperties(type);
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String modelName = type.getSimpleName().toString();
+        String codecName = modelName + "Codec";
+
+        StringBuilder fromMap = new StringBuilder();
+        StringBuilder toMap = new StringBuilder();
+        int fieldCount = 0;
+
+        Property id = properties.get(idProperty);
+        if (id != null && id.writable()) {
+            fromMap.append("        ").append(assign(id, "documentId")).append(";\n");
+        }
+
+        for (Property property : properties.values()) {
+            if (property.beanName.equals(idProperty) || property.excluded || property.type == null) continue;
+
+            if (property.writable()) {
+                String convert = convertExpression(property, type);
+                fromMap.append("        value = data.get(\"").append(property.key).append("\");\n")
+                        .append("        if (value != null) ").append(assign(property, convert)).append(";\n");
+            }
+            if (property.readable()) {
+                String read = property.getter != null ? "object." + property.getter + "()" : "object." + property.readField;
+                if (property.serverTimestamp) {
+                    read = "CodecSupport.orServerTimestamp(" + read + ")";
+                }
+                toMap.append("        map.put(\"").append(property.key).append("\", ").append(read).append(");\n");
+                fieldCount++;
+            }
+        }
+
+        if (isTracked(type)) {
+            fromMap.append("        object.markLoaded(data);\n");
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("import ").append(SUPPORT).append(";\n")
+                .append("import ").append(CODEC_INTERFACE).append(";\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("/**\n")
+                .append(" * Firestore codec for ").append(modelName).append(". Generated by FirestoreCodecProcessor - do not edit.\n")
+                .append(" */\n")
+                .append("public final class ").append(codecName).append(" implements DocumentCodec<").append(modelName).append("> {\n\n")
+                .append("    public static final ").append(codecName).append(" INSTANCE = new ").append(codecName).append("();\n\n")
+                .append("    private ").append(codecName).append("() {}\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(modelName).append(" fromMap(String documentId, Map<String, Object> data) {\n")
+                .append("        ").append(modelName).append(" object = new ").append(modelName).append("();\n")
+                .append("        Object value;\n")
+                .append(fromMap)
+                .append("        return object;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Map<String, Object> toMap(").append(modelName).append(" object) {\n")
+                .append("        Map<String, Object> map = new HashMap<>(").append(Math.max(4, fieldCount * 2)).append(");\n")
+                .append(toMap)
+                .append("        return map;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                packageName.isEmpty() ? codecName : packageName + "." + codecName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private boolean isTracked(TypeElement type) {
+        TypeElement tracked = processingEnv.getElementUtils().getTypeElement(TRACKED);
+        return tracked != null && processingEnv.getTypeUtils().isSubtype(
+                processingEnv.getTypeUtils().erasure(type.asType()),
+                processingEnv.getTypeUtils().erasure(tracked.asType()));
+    }
+
+    private static String assign(Property property, String expression) {
+        if (property.setter != null) {
+            return "object." + property.setter + "(" + expression + ")";
+        }
+        return "object." + property.writeField + " = " + expression;
+    }
+
+    /**
+     * Biểu thức chuyển giá trị thô từ getData() (String, Long, Double, Boolean,
+     * Timestamp, Map, List) sang kiểu của thuộc tính
+     */
+    private String convertExpression(Property property, TypeElement owner) throws CodecException {
+        TypeMirror type = property.type;
+        switch (type.getKind()) {
+            case INT: return "CodecSupport.asInt(value)";
+            case LONG: return "CodecSupport.asLong(value)";
+            case DOUBLE: return "CodecSupport.asDouble(value)";
+            case FLOAT: return "(float) CodecSupport.asDouble(value)";
+            case BOOLEAN: return "CodecSupport.asBoolean(value)";
+            default: break;
+        }
+        String erased = processingEnv.getTypeUtils().erasure(type).toString();
+        switch (erased) {
+            case "java.lang.String": return "CodecSupport.asString(value)";
+            case "java.util.Date": return "CodecSupport.asDate(value)";
+            case "com.google.firebase.Timestamp": return "CodecSupport.asTimestamp(value)";
+            case "java.lang.Integer": return "CodecSupport.asInt(value)";
+            case "java.lang.Long": return "CodecSupport.asLong(value)";
+            case "java.lang.Double": return "CodecSupport.asDouble(value)";
+            case "java.lang.Boolean": return "CodecSupport.asBoolean(value)";
+            case "java.lang.Object": return "value";
+            case "java.util.Map": return "CodecSupport.asMap(value)";
+            case "java.util.List": return "CodecSupport.asList(value)";
+            default:
+                throw new CodecException("Kiểu " + type + " của thuộc tính '" + property.beanName
+                        + "' chưa được hỗ trợ bởi @FirestoreCodec", owner);
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -22,4 +22,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Lifehub"
 include(":app")
+include(":codec-processor")
  
\ No newline at end of file
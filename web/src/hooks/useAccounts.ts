@@ -20,12 +20,64 @@ interface AccountEntry {
   password: string;
   websiteUrl?: string;
   notes?: string;
-  customFields?: Record<string, { value: string; type: number }>;
+  customFields?: Record<string, StoredCustomField>;
   userOwnerId: string;
   lastModified?: Date;
   isEncryptionError?: boolean;
 }
 
+// Password-type custom fields are encrypted one by one (encrypted: true), same as Android
+// isEncryptionError: decrypt failed, value still holds the original ciphertext
+interface StoredCustomField {
+  value: string;
+  type: number;
+  encrypted?: boolean;
+  isEncryptionError?: boolean;
+}
+
+const FIELD_TYPE_PASSWORD = 1;
+
+async function decryptCustomFields(
+  fields: Record<string, StoredCustomField> | undefined,
+  key: CryptoKey
+): Promise<Record<string, StoredCustomField> | undefined> {
+  if (!fields || Array.isArray(fields)) return undefined;
+  const result: Record<string, StoredCustomField> = {};
+  for (const [label, field] of Object.entries(fields)) {
+    if (field?.encrypted && field.value) {
+      try {
+        result[label] = { value: await decrypt(field.value, key), type: field.type };
+      } catch (err) {
+        console.error('Error decrypting custom field:', err);
+        // Keep the ciphertext so saving the account does not overwrite it
+        result[label] = { value: field.value, type: field.type, encrypted: true, isEncryptionError: true };
+      }
+    } else {
+      result[label] = { value: field?.value || '', type: field?.type || 0 };
+    }
+  }
+  return result;
+}
+
+async function encryptCustomFields(
+  fields: Record<string, StoredCustomField> | undefined,
+  key: CryptoKey
+): Promise<Record<string, StoredCustomField> | undefined> {
+  if (!fields) return undefined;
+  const result: Record<string, StoredCustomField> = {};
+  for (const [label, field] of Object.entries(fields)) {
+    if (field.isEncryptionError) {
+      // Could not decrypt on load: write the original ciphertext back unchanged
+      result[label] = { value: field.value, type: field.type, encrypted: true };
+      continue;
+    }
+    result[label] = field.type === FIELD_TYPE_PASSWORD && field.value
+      ? { value: await encrypt(field.value, key), type: field.type, encrypted: true }
+      : { value: field.value, type: field.type };
+  }
+  return result;
+}
+
 export function useAccounts() {
   const { user, encryptionKey, isUnlocked } = useAuth();
   const [accounts, setAccounts] = useState<AccountEntry[]>([]);
@@ -79,7 +131,7 @@ export function useAccounts() {
             password: decryptedPassword,
             websiteUrl: data.websiteUrl || '',
             notes: data.notes || '',
-            customFields: data.customFields || undefined,
+            customFields: await decryptCustomFields(data.customFields, encryptionKey),
             userOwnerId: data.userOwnerId || '',
             lastModified: data.lastModified?.toDate(),
             isEncryptionError
@@ -108,12 +160,16 @@ export function useAccounts() {
     const encryptedPassword = await encrypt(account.password, encryptionKey);
     
     const accountsRef = collection(db, 'users', user.uid, 'accounts');
-    await addDoc(accountsRef, {
+    const data: any = {
       ...account,
       password: encryptedPassword,
       userOwnerId: user.uid,
       lastModified: new Date()
-    });
+    };
+    if (account.customFields) {
+      data.customFields = await encryptCustomFields(account.customFields, encryptionKey);
+    }
+    await addDoc(accountsRef, data);
   };
 
   const updateAccount = async (documentId: string, updates: Partial<AccountEntry>) => {
@@ -125,6 +181,9 @@ export function useAccounts() {
     if (updates.password) {
       dataToUpdate.password = await encrypt(updates.password, encryptionKey);
     }
+    if (updates.customFields) {
+      dataToUpdate.customFields = await encryptCustomFields(updates.customFields, encryptionKey);
+    }
     
     const accountRef = doc(db, 'users', user.uid, 'accounts', documentId);
     await updateDoc(accountRef, {
@@ -53,6 +53,7 @@ export function AccountsPage() {
     key: string;
     value: string;
     type: 'text' | 'password';
+    isEncryptionError?: boolean; // value is the original ciphertext, not editable
   }
   const [customFields, setCustomFields] = useState<CustomFieldItem[]>([]);
   const [visibleCustomFields, setVisibleCustomFields] = useState<Set<number>>(new Set());
@@ -150,7 +151,8 @@ export function AccountsPage() {
     const fieldsArray: CustomFieldItem[] = Object.entries(existingFields).map(([key, val]: [string, any]) => ({
       key,
       value: val.value || '',
-      type: val.type === 1 ? 'password' : 'text'
+      type: val.type === 1 ? 'password' : 'text',
+      isEncryptionError: val.isEncryptionError
     }));
     setCustomFields(fieldsArray);
     setShowModal(true);
@@ -160,13 +162,12 @@ export function AccountsPage() {
     e.preventDefault();
     
     // Convert custom fields array to object format
-    const customFieldsObj: Record<string, { value: string; type: number }> = {};
+    const customFieldsObj: Record<string, { value: string; type: number; isEncryptionError?: boolean }> = {};
     customFields.forEach(field => {
       if (field.key.trim()) {
-        customFieldsObj[field.key.trim()] = {
-          value: field.value,
-          type: field.type === 'password' ? 1 : 0
-        };
+        customFieldsObj[field.key.trim()] = field.isEncryptionError
+          ? { value: field.value, type: 1, isEncryptionError: true }
+          : { value: field.value, type: field.type === 'password' ? 1 : 0 };
       }
     });
     
@@ -388,11 +389,15 @@ export function AccountsPage() {
                               <span className="credential-label">{key}</span>
                               <div className="credential-value">
                                 <span className="password-text">
-                                  {field.type === 1 
+                                  {field.isEncryptionError ? (
+                                    <span style={{color: 'var(--error)', fontStyle: 'italic', fontSize: '13px'}}>
+                                      🔒 Cần cập nhật trên Android
+                                    </span>
+                                  ) : field.type === 1 
                                     ? (visiblePasswords.has(`${account.documentId}-${key}`) ? field.value : '••••••••')
                                     : field.value}
                                 </span>
-                                {field.type === 1 && (
+                                {field.type === 1 && !field.isEncryptionError && (
                                   <>
                                     <button
                                       className="credential-btn"
@@ -550,6 +555,7 @@ export function AccountsPage() {
                         <button
                           type="button"
                           className={`field-type-btn ${field.type === 'password' ? 'active' : ''}`}
+                          disabled={field.isEncryptionError}
                           onClick={() => {
                             const updated = [...customFields];
                             updated[index].type = field.type === 'password' ? 'text' : 'password';
@@ -571,18 +577,24 @@ export function AccountsPage() {
                       </div>
                     </div>
                     <div className="custom-field-row-bottom">
-                      <input
-                        type={field.type === 'password' && !visibleCustomFields.has(index) ? 'password' : 'text'}
-                        className="input"
-                        placeholder="Giá trị"
-                        value={field.value}
-                        onChange={(e) => {
-                          const updated = [...customFields];
-                          updated[index].value = e.target.value;
-                          setCustomFields(updated);
-                        }}
-                      />
-                      {field.type === 'password' && (
+                      {field.isEncryptionError ? (
+                        <span style={{color: 'var(--error)', fontStyle: 'italic', fontSize: '13px'}}>
+                          🔒 Cần cập nhật trên Android
+                        </span>
+                      ) : (
+                        <input
+                          type={field.type === 'password' && !visibleCustomFields.has(index) ? 'password' : 'text'}
+                          className="input"
+                          placeholder="Giá trị"
+                          value={field.value}
+                          onChange={(e) => {
+                            const updated = [...customFields];
+                            updated[index].value = e.target.value;
+                            setCustomFields(updated);
+                          }}
+                        />
+                      )}
+                      {field.type === 'password' && !field.isEncryptionError && (
                         <button
                           type="button"
                           className="field-visibility-btn"
@@ -20,6 +20,7 @@ export interface AccountEntry {
 export interface CustomField {
   value: string;
   type: FieldType;
+  encrypted?: boolean; // PASSWORD fields: value is ciphertext (encrypted per field)
 }
 
 export enum FieldType {